@@ -8,6 +8,13 @@ import java.util.WeakHashMap;
 public class ThreadSharedProperties {
   private static Map<Object, Object> defaultProperties = new WeakHashMap<>();
 
+  /**
+   * The logical thread group for threads such as virtual threads that can't be
+   * created in a specific thread group.
+   */
+  private static InheritableThreadLocal<ThreadGroup> logicalThreadGroup = //
+    new InheritableThreadLocal<>();
+
   private static ThreadLocal<Map<Object, Object>> threadProperties = new ThreadLocal<>();
 
   private static Map<ThreadGroup, Map<Object, Object>> threadGroupProperties = new WeakHashMap<>();
@@ -66,11 +73,26 @@ public class ThreadSharedProperties {
     }
   }
 
+  /**
+   * Get the thread group used to lookup the thread group properties. This is
+   * the logical thread group if set, otherwise the thread's thread group.
+   *
+   * @return The thread group.
+   */
+  public static ThreadGroup getThreadGroup() {
+    final ThreadGroup threadGroup = logicalThreadGroup.get();
+    if (threadGroup == null) {
+      final Thread thread = Thread.currentThread();
+      return thread.getThreadGroup();
+    } else {
+      return threadGroup;
+    }
+  }
+
   public static Map<Object, Object> getThreadGroupProperties() {
     synchronized (threadGroupProperties) {
       Map<Object, Object> properties = null;
-      final Thread thread = Thread.currentThread();
-      final ThreadGroup threadGroup = thread.getThreadGroup();
+      final ThreadGroup threadGroup = getThreadGroup();
       if (threadGroup != null) {
         properties = threadGroupProperties.get(threadGroup);
       }
@@ -125,4 +147,16 @@ public class ThreadSharedProperties {
       properties.put(name, value);
     }
   }
+
+  /**
+   * Set the logical thread group for the current thread (and threads it
+   * creates). The thread group properties are looked up using this thread group
+   * instead of the thread's actual thread group.
+   *
+   * @param threadGroup The thread group or null to use the thread's thread group.
+   */
+  public static void setThreadGroup(final ThreadGroup threadGroup) {
+    logicalThreadGroup.set(threadGroup);
+    threadProperties.remove();
+  }
 }
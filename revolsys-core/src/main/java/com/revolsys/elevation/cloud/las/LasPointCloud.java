@@ -13,10 +13,12 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import com.revolsys.collection.iterator.FilterIterator;
 import com.revolsys.collection.map.MapEx;
 import com.revolsys.elevation.cloud.PointCloud;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkIndex;
 import com.revolsys.elevation.cloud.las.zip.LasZipCompressorType;
 import com.revolsys.elevation.cloud.las.zip.LasZipHeader;
 import com.revolsys.elevation.cloud.las.zip.LasZipPointCloudWriterFactory;
@@ -65,6 +67,10 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private boolean classificationsLoaded;
 
+  private boolean columnar = false;
+
+  private LasPointColumns columns;
+
   private boolean exists;
 
   private double fileGpsTime = 0;
@@ -75,6 +81,12 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private Resource lasResource;
 
+  private int lasZipMaxChunksInFlight = 0;
+
+  private int lasZipThreadCount = 1;
+
+  private boolean lasZipWriteChunkIndex = false;
+
   private List<LasPoint> points = new ArrayList<>();
 
   private ChannelReader reader;
@@ -113,15 +125,23 @@ public class LasPointCloud extends BaseObjectWithProperties
   @SuppressWarnings("unchecked")
   public <P extends LasPoint> P addPoint(final double x, final double y, final double z) {
     final LasPoint lasPoint = newLasPoint(x, y, z);
-    this.points.add(lasPoint);
-    this.header.addCounts(lasPoint);
-    return (P)lasPoint;
+    if (this.columnar) {
+      final LasPointColumns columns = getColumns();
+      final int index = columns.addPoint(lasPoint);
+      this.header.addCounts(lasPoint);
+      return (P)columns.newCursor(index);
+    } else {
+      this.points.add(lasPoint);
+      this.header.addCounts(lasPoint);
+      return (P)lasPoint;
+    }
   }
 
   public void clear() {
     closeReader();
     this.header.clear();
     this.points = new ArrayList<>();
+    this.columns = null;
   }
 
   @Override
@@ -137,16 +157,48 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Perform the action on each point. If the point cloud is {@link #isColumnar()}
+   * the point passed to the action is a flyweight cursor that is reused for each
+   * point.
+   */
   @Override
   public void forEachPoint(final Consumer<? super LasPoint> action) {
-    final Iterable<LasPoint> iterable = iterable();
+    if (this.columnar) {
+      getColumns().forEachPoint(action);
+    } else {
+      final Iterable<LasPoint> iterable = iterable();
+      try {
+        iterable.forEach(action);
+      } catch (RuntimeException | Error e) {
+        if (iterable instanceof BaseCloseable) {
+          ((BaseCloseable)iterable).close();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Perform the action on each point within the bounding box.
+   *
+   * @param boundingBox The bounding box.
+   * @param action The action.
+   * @see #iterable(BoundingBox)
+   */
+  public void forEachPoint(final BoundingBox boundingBox,
+    final Consumer<? super LasPoint> action) {
+    final Iterable<LasPoint> iterable = iterable(boundingBox);
+    final Iterator<LasPoint> iterator = iterable.iterator();
     try {
-      iterable.forEach(action);
-    } catch (RuntimeException | Error e) {
-      if (iterable instanceof BaseCloseable) {
-        ((BaseCloseable)iterable).close();
+      while (iterator.hasNext()) {
+        final LasPoint point = iterator.next();
+        action.accept(point);
+      }
+    } finally {
+      if (iterator instanceof BaseCloseable) {
+        ((BaseCloseable)iterator).close();
       }
-      throw e;
     }
   }
 
@@ -160,9 +212,42 @@ public class LasPointCloud extends BaseObjectWithProperties
   }
 
   public long[] getClassificationCounts() {
+    if (this.columnar && !this.classificationsLoaded) {
+      refreshClassificationCounts();
+    }
     return this.classificationCounts.clone();
   }
 
+  /**
+   * Get the columnar storage for the points, loading the points from the file
+   * if they haven't been loaded.
+   *
+   * @return The columns.
+   */
+  public synchronized LasPointColumns getColumns() {
+    if (this.columns == null) {
+      final long pointCount = Math.max(this.points.size(), getPointCount());
+      final LasPointColumns columns = new LasPointColumns(this, pointCount);
+      if (!this.points.isEmpty()) {
+        this.points.forEach(columns::addPoint);
+        this.points = new ArrayList<>();
+      } else if (this.lasResource != null) {
+        final Iterable<LasPoint> iterable = iterable();
+        try {
+          iterable.forEach(columns::addPoint);
+        } catch (RuntimeException | Error e) {
+          if (iterable instanceof BaseCloseable) {
+            ((BaseCloseable)iterable).close();
+          }
+          throw e;
+        }
+      }
+      this.columns = columns;
+      this.allLoaded = true;
+    }
+    return this.columns;
+  }
+
   public double getCurrentGpsTime() {
     if (isGpsTime()) {
       return System.currentTimeMillis() / 1000.0 - 315964800;
@@ -198,6 +283,30 @@ public class LasPointCloud extends BaseObjectWithProperties
     return this.header;
   }
 
+  /**
+   * Get the maximum number of decoded LAZ chunks held in memory when
+   * {@link #getLasZipThreadCount()} &gt; 1. Defaults to twice the thread count.
+   *
+   * @return The maximum number of chunks in flight.
+   */
+  public int getLasZipMaxChunksInFlight() {
+    if (this.lasZipMaxChunksInFlight > 0) {
+      return this.lasZipMaxChunksInFlight;
+    } else {
+      return this.lasZipThreadCount * 2;
+    }
+  }
+
+  /**
+   * Get the number of threads used to decode the chunks in a chunked LAZ file.
+   * If 1 the chunks are decoded on the calling thread.
+   *
+   * @return The number of threads.
+   */
+  public int getLasZipThreadCount() {
+    return this.lasZipThreadCount;
+  }
+
   public long getPointCount() {
     return this.header.getPointCount();
   }
@@ -206,15 +315,38 @@ public class LasPointCloud extends BaseObjectWithProperties
     return this.header.getPointFormat();
   }
 
+  /**
+   * Get the list of points. If the point cloud is {@link #isColumnar()} a
+   * {@link LasPoint} is constructed for each point in the list.
+   *
+   * @return The points.
+   */
   public List<LasPoint> getPoints() {
-    loadAllPoints();
-    return this.points;
+    if (this.columnar) {
+      final LasPointColumns columns = getColumns();
+      final List<LasPoint> points = new ArrayList<>(columns.size());
+      columns.forEachPoint(point -> points.add(((LasPointColumnCursor)point).newLasPoint()));
+      return points;
+    } else {
+      loadAllPoints();
+      return this.points;
+    }
   }
 
   public Resource getResource() {
     return this.resource;
   }
 
+  /**
+   * Check if the points are stored in {@link LasPointColumns} instead of a
+   * {@link LasPoint} per point.
+   *
+   * @return True if the point cloud uses columnar storage.
+   */
+  public boolean isColumnar() {
+    return this.columnar;
+  }
+
   public boolean isExists() {
     return this.exists;
   }
@@ -224,32 +356,81 @@ public class LasPointCloud extends BaseObjectWithProperties
     return (globalEncoding & 1) != 0;
   }
 
+  /**
+   * Check if the {@link LasZipChunkIndex} built for a bounding box read is
+   * written to a <code>.laz.lazidx</code> sidecar file next to the LAZ file.
+   *
+   * @return True if the sidecar file is written.
+   */
+  public boolean isLasZipWriteChunkIndex() {
+    return this.lasZipWriteChunkIndex;
+  }
+
   public Iterable<LasPoint> iterable() {
-    if (this.allLoaded || !this.points.isEmpty()) {
+    if (this.columns != null) {
+      return this.columns;
+    } else if (this.allLoaded || !this.points.isEmpty()) {
       return this.points;
     } else {
-      ChannelReader reader = this.reader;
-      this.reader = null;
+      final ChannelReader reader = takeReader();
       if (reader == null) {
-        reader = open();
+        return Collections.emptyList();
+      } else {
+        try {
+          return newIterator(reader);
+        } catch (RuntimeException | Error e) {
+          reader.close();
+          throw e;
+        }
       }
+    }
+  }
+
+  /**
+   * Get the points that are within the bounding box. For chunked LAZ files with
+   * a chunk table the {@link LasZipChunkIndex} is used so that only the chunks
+   * that intersect the bounding box are decoded.
+   *
+   * @param boundingBox The bounding box.
+   * @return The points within the bounding box.
+   */
+  public Iterable<LasPoint> iterable(final BoundingBox boundingBox) {
+    final BoundingBox filterBoundingBox = boundingBox.bboxToCs(this);
+    final Predicate<LasPoint> filter = point -> filterBoundingBox.bboxCovers(point.getX(),
+      point.getY());
+    final Iterable<LasPoint> iterable;
+    if (this.columns == null && !this.allLoaded && this.points.isEmpty()) {
+      final ChannelReader reader = takeReader();
       if (reader == null) {
         return Collections.emptyList();
       } else {
         try {
-          final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
-          if (lasZipHeader == null) {
-            return new LasPointCloudIterator(this, reader);
+          final LasZipChunkIndex chunkIndex = LasZipChunkIndex.getChunkIndex(this, reader);
+          if (chunkIndex == null) {
+            iterable = newIterator(reader);
           } else {
-            final LasZipCompressorType compressor = lasZipHeader.getCompressor();
-            return compressor.newIterator(this, reader);
+            iterable = chunkIndex.newIterator(reader, filterBoundingBox);
           }
         } catch (RuntimeException | Error e) {
           reader.close();
           throw e;
         }
       }
+    } else {
+      iterable = iterable();
     }
+    return () -> {
+      final Iterator<LasPoint> iterator = iterable.iterator();
+      return new FilterIterator<LasPoint>(filter, iterator) {
+        @Override
+        protected void closeDo() {
+          super.closeDo();
+          if (iterator instanceof BaseCloseable) {
+            ((BaseCloseable)iterator).close();
+          }
+        }
+      };
+    };
   }
 
   @Override
@@ -258,7 +439,9 @@ public class LasPointCloud extends BaseObjectWithProperties
   }
 
   private synchronized void loadAllPoints() {
-    if (!this.allLoaded && this.lasResource != null) {
+    if (this.columnar) {
+      getColumns();
+    } else if (!this.allLoaded && this.lasResource != null) {
       final List<LasPoint> points = new ArrayList<>((int)getPointCount());
       forEachPoint(points::add);
       this.points = points;
@@ -266,6 +449,16 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  private LasPointCloudIterator newIterator(final ChannelReader reader) {
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+    if (lasZipHeader == null) {
+      return new LasPointCloudIterator(this, reader);
+    } else {
+      final LasZipCompressorType compressor = lasZipHeader.getCompressor();
+      return compressor.newIterator(this, reader);
+    }
+  }
+
   public LasPoint newLasPoint(final double x, final double y, final double z) {
     return this.header.newLasPoint(this, x, y, z);
   }
@@ -274,9 +467,13 @@ public class LasPointCloud extends BaseObjectWithProperties
   public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork() {
     final GeometryFactory geometryFactory = getGeometryFactory();
     final QuadEdgeDelaunayTinBuilder tinBuilder = new QuadEdgeDelaunayTinBuilder(geometryFactory);
-    forEachPoint((lasPoint) -> {
-      tinBuilder.insertVertex(lasPoint);
-    });
+    if (this.columnar) {
+      getColumns().insertVertices(tinBuilder, -1);
+    } else {
+      forEachPoint((lasPoint) -> {
+        tinBuilder.insertVertex(lasPoint);
+      });
+    }
     final TriangulatedIrregularNetwork tin = tinBuilder.newTriangulatedIrregularNetwork();
     return tin;
   }
@@ -327,10 +524,14 @@ public class LasPointCloud extends BaseObjectWithProperties
   @Override
   public void refreshClassificationCounts() {
     Arrays.fill(this.classificationCounts, 0);
-    forEachPoint(point -> {
-      final short classification = point.getClassification();
-      this.classificationCounts[classification]++;
-    });
+    if (this.columnar) {
+      getColumns().getClassificationCounts(this.classificationCounts);
+    } else {
+      forEachPoint(point -> {
+        final short classification = point.getClassification();
+        this.classificationCounts[classification]++;
+      });
+    }
     this.classificationsLoaded = true;
   }
 
@@ -338,6 +539,26 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.byteBuffer = byteBuffer;
   }
 
+  /**
+   * Set the point cloud to store the points in {@link LasPointColumns}. Must be
+   * set before any points are loaded or added. The columns store all the
+   * attributes of the point format, the waveform point formats are not
+   * supported.
+   *
+   * @param columnar True if the point cloud uses columnar storage.
+   * @throws IllegalArgumentException If the point format can't be stored in columns.
+   */
+  public void setColumnar(final boolean columnar) {
+    if (columnar && this.header != null) {
+      final LasPointFormat pointFormat = getPointFormat();
+      if (!LasPointColumns.isSupported(pointFormat)) {
+        throw new IllegalArgumentException(
+          "Columnar point clouds don't support point format " + pointFormat.getId());
+      }
+    }
+    this.columnar = columnar;
+  }
+
   public void setGeometryFactory(final GeometryFactory geometryFactory) {
     this.geometryFactory = geometryFactory;
   }
@@ -347,6 +568,27 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.fileGpsTime = getCurrentGpsTime();
   }
 
+  public void setLasZipMaxChunksInFlight(final int lasZipMaxChunksInFlight) {
+    this.lasZipMaxChunksInFlight = lasZipMaxChunksInFlight;
+  }
+
+  public void setLasZipThreadCount(final int lasZipThreadCount) {
+    this.lasZipThreadCount = lasZipThreadCount;
+  }
+
+  public void setLasZipWriteChunkIndex(final boolean lasZipWriteChunkIndex) {
+    this.lasZipWriteChunkIndex = lasZipWriteChunkIndex;
+  }
+
+  private ChannelReader takeReader() {
+    ChannelReader reader = this.reader;
+    this.reader = null;
+    if (reader == null) {
+      reader = open();
+    }
+    return reader;
+  }
+
   @Override
   public double toDoubleX(final int x) {
     return this.geometryFactory.toDoubleX(x);
@@ -0,0 +1,439 @@
+package com.revolsys.elevation.cloud.las;
+
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint1GpsTime;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.record.io.format.json.JsonObject;
+
+/**
+ * A flyweight {@link LasPoint} over a row in {@link LasPointColumns}. The
+ * attributes are read from and written to the columns for the current index.
+ * The classification and return bytes use the layout of the point cloud's point
+ * format.
+ */
+public class LasPointColumnCursor extends LasPoint1GpsTime {
+  private static final long serialVersionUID = 1L;
+
+  private final LasPointColumns columns;
+
+  private int index = -1;
+
+  public LasPointColumnCursor(final LasPointColumns columns) {
+    super(columns.getPointCloud());
+    this.columns = columns;
+  }
+
+  @Override
+  public LasPointColumnCursor clone() {
+    return (LasPointColumnCursor)super.clone();
+  }
+
+  @Override
+  public int getBlue() {
+    return this.columns.getBlue(this.index);
+  }
+
+  @Override
+  public short getClassification() {
+    return this.columns.getClassification(this.index);
+  }
+
+  @Override
+  public byte getClassificationByte() {
+    final short classification = getClassification();
+    if (this.columns.isExtended()) {
+      return (byte)classification;
+    } else {
+      int classificationByte = classification & 0b11111;
+      if (isSynthetic()) {
+        classificationByte |= 0b100000;
+      }
+      if (isKeyPoint()) {
+        classificationByte |= 0b1000000;
+      }
+      if (isWithheld()) {
+        classificationByte |= 0b10000000;
+      }
+      return (byte)classificationByte;
+    }
+  }
+
+  @Override
+  public byte getClassificationFlags() {
+    if (this.columns.isExtended()) {
+      return this.columns.getFlags(this.index);
+    } else {
+      return 0;
+    }
+  }
+
+  @Override
+  public double getGpsTime() {
+    return this.columns.getGpsTime(this.index);
+  }
+
+  @Override
+  public int getGreen() {
+    return this.columns.getGreen(this.index);
+  }
+
+  public int getIndex() {
+    return this.index;
+  }
+
+  @Override
+  public int getIntensity() {
+    return this.columns.getIntensity(this.index);
+  }
+
+  @Override
+  public int getNir() {
+    return this.columns.getNir(this.index);
+  }
+
+  @Override
+  public byte getNumberOfReturns() {
+    return this.columns.getNumberOfReturns(this.index);
+  }
+
+  @Override
+  public LasPointFormat getPointFormat() {
+    return this.columns.getPointFormat();
+  }
+
+  @Override
+  public int getPointSourceID() {
+    return this.columns.getPointSourceID(this.index);
+  }
+
+  @Override
+  public int getRed() {
+    return this.columns.getRed(this.index);
+  }
+
+  @Override
+  public byte getReturnByte() {
+    final int returnNumber = getReturnNumber();
+    final int numberOfReturns = getNumberOfReturns();
+    if (this.columns.isExtended()) {
+      return (byte)(returnNumber | numberOfReturns << 4);
+    } else {
+      int returnByte = returnNumber & 0b111 | (numberOfReturns & 0b111) << 3;
+      if (isScanDirectionFlag()) {
+        returnByte |= 0b1000000;
+      }
+      if (isEdgeOfFlightLine()) {
+        returnByte |= 0b10000000;
+      }
+      return (byte)returnByte;
+    }
+  }
+
+  @Override
+  public byte getReturnNumber() {
+    return this.columns.getReturnNumber(this.index);
+  }
+
+  @Override
+  public short getScanAngle() {
+    final short scanAngle = this.columns.getScanAngle(this.index);
+    if (this.columns.isExtended()) {
+      return scanAngle;
+    } else {
+      return (short)(scanAngle / 0.006);
+    }
+  }
+
+  @Override
+  public double getScanAngleDegrees() {
+    final short scanAngle = this.columns.getScanAngle(this.index);
+    if (this.columns.isExtended()) {
+      return scanAngle * 0.006;
+    } else {
+      return scanAngle;
+    }
+  }
+
+  @Override
+  public byte getScanAngleRank() {
+    return (byte)getScanAngleDegrees();
+  }
+
+  @Override
+  public byte getScannerChannel() {
+    return this.columns.getScannerChannel(this.index);
+  }
+
+  @Override
+  public short getUserData() {
+    return this.columns.getUserData(this.index);
+  }
+
+  @Override
+  public boolean isEdgeOfFlightLine() {
+    return this.columns.isFlag(this.index, LasPointColumns.FLAG_EDGE_OF_FLIGHT_LINE);
+  }
+
+  @Override
+  public boolean isKeyPoint() {
+    return this.columns.isFlag(this.index, LasPointColumns.FLAG_KEY_POINT);
+  }
+
+  public boolean isOverlap() {
+    return this.columns.isFlag(this.index, LasPointColumns.FLAG_OVERLAP);
+  }
+
+  @Override
+  public boolean isScanDirectionFlag() {
+    return this.columns.isFlag(this.index, LasPointColumns.FLAG_SCAN_DIRECTION);
+  }
+
+  @Override
+  public boolean isSynthetic() {
+    return this.columns.isFlag(this.index, LasPointColumns.FLAG_SYNTHETIC);
+  }
+
+  @Override
+  public boolean isWithheld() {
+    return this.columns.isFlag(this.index, LasPointColumns.FLAG_WITHHELD);
+  }
+
+  /**
+   * Construct a new {@link LasPoint} of the point cloud's point format with the
+   * values from the current row.
+   *
+   * @return The new point.
+   */
+  public LasPoint newLasPoint() {
+    final LasPointCloud pointCloud = this.columns.getPointCloud();
+    final LasPoint point = getPointFormat().newLasPoint(pointCloud);
+    point.setXYZ(getXInt(), getYInt(), getZInt());
+    point.setIntensity(getIntensity());
+    if (this.columns.isExtended()) {
+      point.setReturnNumber(getReturnNumber());
+      point.setNumberOfReturns(getNumberOfReturns());
+      point.setClassification(getClassification());
+      point.setClassificationFlags(getClassificationFlags());
+      point.setScanAngle(getScanAngle());
+    } else {
+      point.setReturnByte(getReturnByte());
+      point.setClassificationByte(getClassificationByte());
+      point.setScannerChannel(getScannerChannel());
+      point.setScanAngleRank(getScanAngleRank());
+    }
+    point.setUserData(getUserData());
+    point.setPointSourceID(getPointSourceID());
+    point.setGpsTime(getGpsTime());
+    point.setRed(getRed());
+    point.setGreen(getGreen());
+    point.setBlue(getBlue());
+    point.setNir(getNir());
+    return point;
+  }
+
+  @Override
+  public LasPointColumnCursor setBlue(final int blue) {
+    this.columns.setBlue(this.index, blue);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setClassification(final short classification) {
+    this.columns.setClassification(this.index, classification);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setClassificationByte(final byte classificationByte) {
+    if (this.columns.isExtended()) {
+      this.columns.setClassification(this.index, classificationByte & 0xFF);
+    } else {
+      this.columns.setClassification(this.index, classificationByte & 0b11111);
+      setSynthetic((classificationByte & 0b100000) != 0);
+      setKeyPoint((classificationByte & 0b1000000) != 0);
+      setWithheld((classificationByte & 0b10000000) != 0);
+    }
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setClassificationFlags(final byte classificationFlags) {
+    if (this.columns.isExtended()) {
+      this.columns.setFlags(this.index, classificationFlags);
+    }
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setEdgeOfFlightLine(final boolean edgeOfFlightLine) {
+    this.columns.setFlag(this.index, LasPointColumns.FLAG_EDGE_OF_FLIGHT_LINE, edgeOfFlightLine);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setGpsTime(final double gpsTime) {
+    this.columns.setGpsTime(this.index, gpsTime);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setGreen(final int green) {
+    this.columns.setGreen(this.index, green);
+    return this;
+  }
+
+  void setIndex(final int index) {
+    this.index = index;
+    final LasPointColumns columns = this.columns;
+    super.setXYZ(columns.getXInt(index), columns.getYInt(index), columns.getZInt(index));
+  }
+
+  @Override
+  public LasPointColumnCursor setIntensity(final int intensity) {
+    this.columns.setIntensity(this.index, intensity);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setKeyPoint(final boolean keyPoint) {
+    this.columns.setFlag(this.index, LasPointColumns.FLAG_KEY_POINT, keyPoint);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setNir(final int nir) {
+    this.columns.setNir(this.index, nir);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setNumberOfReturns(final byte numberOfReturns) {
+    this.columns.setNumberOfReturns(this.index, numberOfReturns);
+    return this;
+  }
+
+  public LasPointColumnCursor setOverlap(final boolean overlap) {
+    this.columns.setFlag(this.index, LasPointColumns.FLAG_OVERLAP, overlap);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setPointSourceID(final int pointSourceID) {
+    this.columns.setPointSourceID(this.index, pointSourceID);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setRed(final int red) {
+    this.columns.setRed(this.index, red);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setReturnByte(final byte returnByte) {
+    if (this.columns.isExtended()) {
+      setReturnNumber((byte)(returnByte & 0b1111));
+      setNumberOfReturns((byte)(returnByte >> 4 & 0b1111));
+    } else {
+      setReturnNumber((byte)(returnByte & 0b111));
+      setNumberOfReturns((byte)(returnByte >> 3 & 0b111));
+      setScanDirectionFlag((returnByte & 0b1000000) != 0);
+      setEdgeOfFlightLine((returnByte & 0b10000000) != 0);
+    }
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setReturnNumber(final byte returnNumber) {
+    this.columns.setReturnNumber(this.index, returnNumber);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setScanAngle(final short scanAngle) {
+    if (this.columns.isExtended()) {
+      this.columns.setScanAngle(this.index, scanAngle);
+    } else {
+      setScanAngleRank((byte)(scanAngle * 0.006));
+    }
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setScanAngleRank(final byte scanAngleRank) {
+    if (this.columns.isExtended()) {
+      this.columns.setScanAngle(this.index, (short)(scanAngleRank / 0.006));
+    } else {
+      this.columns.setScanAngle(this.index, scanAngleRank);
+    }
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setScanDirectionFlag(final boolean scanDirectionFlag) {
+    this.columns.setFlag(this.index, LasPointColumns.FLAG_SCAN_DIRECTION, scanDirectionFlag);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setScannerChannel(final byte scannerChannel) {
+    this.columns.setScannerChannel(this.index, scannerChannel);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setSynthetic(final boolean synthetic) {
+    this.columns.setFlag(this.index, LasPointColumns.FLAG_SYNTHETIC, synthetic);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setUserData(final short userData) {
+    this.columns.setUserData(this.index, userData);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setWithheld(final boolean withheld) {
+    this.columns.setFlag(this.index, LasPointColumns.FLAG_WITHHELD, withheld);
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setXInt(final int x) {
+    super.setXInt(x);
+    this.columns.setXYZ(this.index, x, getYInt(), getZInt());
+    return this;
+  }
+
+  @Override
+  public void setXYZ(final int x, final int y, final int z) {
+    super.setXYZ(x, y, z);
+    this.columns.setXYZ(this.index, x, y, z);
+  }
+
+  @Override
+  public LasPointColumnCursor setYInt(final int y) {
+    super.setYInt(y);
+    this.columns.setXYZ(this.index, getXInt(), y, getZInt());
+    return this;
+  }
+
+  @Override
+  public LasPointColumnCursor setZInt(final int z) {
+    super.setZInt(z);
+    this.columns.setXYZ(this.index, getXInt(), getYInt(), z);
+    return this;
+  }
+
+  @Override
+  public JsonObject toMap() {
+    return newLasPoint().toMap();
+  }
+
+  @Override
+  public void writeLasPoint(final ChannelWriter out) {
+    newLasPoint().writeLasPoint(out);
+  }
+}
@@ -0,0 +1,599 @@
+package com.revolsys.elevation.cloud.las;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointExtended;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.tin.quadedge.QuadEdgeDelaunayTinBuilder;
+
+/**
+ * Columnar storage for the points in a {@link LasPointCloud}. The X, Y and Z
+ * coordinates are stored as the scaled int values from the file. The other
+ * attributes the point format defines (intensity, returns, classification,
+ * flags, scan angle, user data, point source ID, GPS time, RGB and NIR) are each
+ * stored in their own off-heap {@link ByteBuffer} column.
+ *
+ * Points are read through a {@link LasPointColumnCursor} flyweight which is
+ * repositioned for each point instead of allocating a {@link LasPoint} per point.
+ * The waveform point formats (4, 5, 9 and 10) are not supported.
+ */
+public class LasPointColumns implements Iterable<LasPoint> {
+
+  public static final int FLAG_EDGE_OF_FLIGHT_LINE = 0b10000000;
+
+  public static final int FLAG_KEY_POINT = 0b10;
+
+  public static final int FLAG_OVERLAP = 0b1000;
+
+  public static final int FLAG_SCAN_DIRECTION = 0b1000000;
+
+  public static final int FLAG_SYNTHETIC = 0b1;
+
+  public static final int FLAG_WITHHELD = 0b100;
+
+  /** The GPS time column uses 8 bytes per point and a ByteBuffer is limited to 2GB. */
+  public static final int MAX_POINTS = Integer.MAX_VALUE / 8;
+
+  private static final int MIN_CAPACITY = 1024;
+
+  /**
+   * Check if the point format can be stored in columns.
+   *
+   * @param pointFormat The point format.
+   * @return True if the point format isn't a waveform point format.
+   */
+  public static boolean isSupported(final LasPointFormat pointFormat) {
+    switch (pointFormat.getId()) {
+      case 4:
+      case 5:
+      case 9:
+      case 10:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  private static ByteBuffer newColumn(final int capacity, final int valueSize) {
+    return ByteBuffer.allocateDirect(capacity * valueSize).order(ByteOrder.nativeOrder());
+  }
+
+  private static ByteBuffer resizeColumn(final ByteBuffer column, final int size,
+    final int capacity, final int valueSize) {
+    final ByteBuffer newColumn = newColumn(capacity, valueSize);
+    final ByteBuffer values = column.duplicate();
+    values.clear();
+    values.limit(size * valueSize);
+    newColumn.put(values);
+    newColumn.clear();
+    return newColumn;
+  }
+
+  private ByteBuffer blues;
+
+  private int capacity;
+
+  private ByteBuffer classifications;
+
+  private final boolean extended;
+
+  /**
+   * The flags using the bits of the extended point format's classification flags byte.
+   * Synthetic, key point, withheld, overlap, scanner channel (2 bits), scan direction and edge of
+   * flight line.
+   */
+  private ByteBuffer flags;
+
+  private ByteBuffer gpsTimes;
+
+  private ByteBuffer greens;
+
+  private ByteBuffer intensities;
+
+  private ByteBuffer nirs;
+
+  private final LasPointCloud pointCloud;
+
+  private final LasPointFormat pointFormat;
+
+  private ByteBuffer pointSourceIds;
+
+  private ByteBuffer reds;
+
+  private ByteBuffer returns;
+
+  /** The scan angle for extended formats or the scan angle rank for the other formats. */
+  private ByteBuffer scanAngles;
+
+  private int size;
+
+  private ByteBuffer userDatas;
+
+  private int[] xs;
+
+  private int[] ys;
+
+  private int[] zs;
+
+  public LasPointColumns(final LasPointCloud pointCloud, final long capacity) {
+    this.pointCloud = pointCloud;
+    this.pointFormat = pointCloud.getPointFormat();
+    if (!isSupported(this.pointFormat)) {
+      throw new IllegalArgumentException(
+        "Columnar point clouds don't support point format " + this.pointFormat.getId());
+    }
+    this.extended = this.pointFormat.getId() >= 6;
+    if (capacity > MAX_POINTS) {
+      throw new IllegalArgumentException(
+        "Columnar point clouds are limited to " + MAX_POINTS + " points: " + capacity);
+    }
+    setCapacity(Math.max(MIN_CAPACITY, (int)capacity));
+  }
+
+  public int addPoint(final LasPoint point) {
+    final int index = addPoint(point.getXInt(), point.getYInt(), point.getZInt());
+    setIntensity(index, point.getIntensity());
+    setClassification(index, point.getClassification());
+    setReturnNumber(index, point.getReturnNumber());
+    setNumberOfReturns(index, point.getNumberOfReturns());
+    setFlag(index, FLAG_SYNTHETIC, point.isSynthetic());
+    setFlag(index, FLAG_KEY_POINT, point.isKeyPoint());
+    setFlag(index, FLAG_WITHHELD, point.isWithheld());
+    if (point instanceof LasPointExtended) {
+      setFlag(index, FLAG_OVERLAP, ((LasPointExtended)point).isOverlap());
+    }
+    setScannerChannel(index, point.getScannerChannel());
+    setFlag(index, FLAG_SCAN_DIRECTION, point.isScanDirectionFlag());
+    setFlag(index, FLAG_EDGE_OF_FLIGHT_LINE, point.isEdgeOfFlightLine());
+    if (this.extended) {
+      setScanAngle(index, point.getScanAngle());
+    } else {
+      setScanAngle(index, point.getScanAngleRank());
+    }
+    setUserData(index, point.getUserData());
+    setPointSourceID(index, point.getPointSourceID());
+    if (this.gpsTimes != null) {
+      setGpsTime(index, point.getGpsTime());
+    }
+    if (this.reds != null) {
+      setRed(index, point.getRed());
+      setGreen(index, point.getGreen());
+      setBlue(index, point.getBlue());
+    }
+    if (this.nirs != null) {
+      setNir(index, point.getNir());
+    }
+    return index;
+  }
+
+  public int addPoint(final int x, final int y, final int z) {
+    final int index = this.size;
+    if (index == this.capacity) {
+      if (index == MAX_POINTS) {
+        throw new IllegalStateException(
+          "Columnar point clouds are limited to " + MAX_POINTS + " points");
+      }
+      final long newCapacity = Math.min(MAX_POINTS, (long)index * 2);
+      setCapacity((int)newCapacity);
+    }
+    this.xs[index] = x;
+    this.ys[index] = y;
+    this.zs[index] = z;
+    this.returns.put(index, (byte)0b00010001);
+    this.flags.put(index, (byte)0);
+    this.scanAngles.putShort(index * 2, (short)0);
+    this.userDatas.put(index, (byte)0);
+    this.pointSourceIds.putChar(index * 2, (char)1);
+    if (this.gpsTimes != null) {
+      this.gpsTimes.putDouble(index * 8, this.pointCloud.getFileGpsTime());
+    }
+    if (this.reds != null) {
+      this.reds.putChar(index * 2, (char)0);
+      this.greens.putChar(index * 2, (char)0);
+      this.blues.putChar(index * 2, (char)0);
+    }
+    if (this.nirs != null) {
+      this.nirs.putChar(index * 2, (char)0);
+    }
+    this.size++;
+    return index;
+  }
+
+  public void forEachPoint(final Consumer<? super LasPoint> action) {
+    final LasPointColumnCursor cursor = newCursor();
+    for (int i = 0; i < this.size; i++) {
+      cursor.setIndex(i);
+      action.accept(cursor);
+    }
+  }
+
+  public int getBlue(final int index) {
+    if (this.blues == null) {
+      return 0;
+    } else {
+      return this.blues.getChar(index * 2);
+    }
+  }
+
+  public short getClassification(final int index) {
+    return (short)(this.classifications.get(index) & 0xFF);
+  }
+
+  public void getClassificationCounts(final long[] counts) {
+    final ByteBuffer classifications = this.classifications;
+    for (int i = 0; i < this.size; i++) {
+      counts[classifications.get(i) & 0xFF]++;
+    }
+  }
+
+  /**
+   * Get the flags byte, using the bits of the extended point format's classification flags.
+   *
+   * @param index The point index.
+   * @return The flags.
+   */
+  public byte getFlags(final int index) {
+    return this.flags.get(index);
+  }
+
+  public double getGpsTime(final int index) {
+    if (this.gpsTimes == null) {
+      return 315964800;
+    } else {
+      return this.gpsTimes.getDouble(index * 8);
+    }
+  }
+
+  public int getGreen(final int index) {
+    if (this.greens == null) {
+      return 0;
+    } else {
+      return this.greens.getChar(index * 2);
+    }
+  }
+
+  public int getIntensity(final int index) {
+    return this.intensities.getChar(index * 2);
+  }
+
+  public int getNir(final int index) {
+    if (this.nirs == null) {
+      return 0;
+    } else {
+      return this.nirs.getChar(index * 2);
+    }
+  }
+
+  public byte getNumberOfReturns(final int index) {
+    return (byte)(this.returns.get(index) >> 4 & 0b1111);
+  }
+
+  public LasPointCloud getPointCloud() {
+    return this.pointCloud;
+  }
+
+  public LasPointFormat getPointFormat() {
+    return this.pointFormat;
+  }
+
+  public int getPointSourceID(final int index) {
+    return this.pointSourceIds.getChar(index * 2);
+  }
+
+  public int getRed(final int index) {
+    if (this.reds == null) {
+      return 0;
+    } else {
+      return this.reds.getChar(index * 2);
+    }
+  }
+
+  public byte getReturnNumber(final int index) {
+    return (byte)(this.returns.get(index) & 0b1111);
+  }
+
+  /**
+   * Get the scan angle in 0.006 degree units for extended point formats or the
+   * scan angle rank in degrees for the other formats.
+   *
+   * @param index The point index.
+   * @return The scan angle.
+   */
+  public short getScanAngle(final int index) {
+    return this.scanAngles.getShort(index * 2);
+  }
+
+  public byte getScannerChannel(final int index) {
+    return (byte)(this.flags.get(index) >> 4 & 0b11);
+  }
+
+  public short getUserData(final int index) {
+    return (short)(this.userDatas.get(index) & 0xFF);
+  }
+
+  public int getXInt(final int index) {
+    return this.xs[index];
+  }
+
+  public int getYInt(final int index) {
+    return this.ys[index];
+  }
+
+  public int getZInt(final int index) {
+    return this.zs[index];
+  }
+
+  /**
+   * Check if the point format is one of the LAS 1.4 extended point formats.
+   *
+   * @return True if the point format is extended.
+   */
+  public boolean isExtended() {
+    return this.extended;
+  }
+
+  public boolean isFlag(final int index, final int flag) {
+    return (this.flags.get(index) & flag) != 0;
+  }
+
+  public boolean isGpsTime() {
+    final int formatId = getPointFormat().getId();
+    return formatId == 1 || formatId >= 3;
+  }
+
+  /**
+   * Insert the vertices into the TIN builder directly from the coordinate
+   * columns, optionally only for those points with the classification.
+   *
+   * @param tinBuilder The TIN builder.
+   * @param classification The classification or -1 to insert all points.
+   */
+  public void insertVertices(final QuadEdgeDelaunayTinBuilder tinBuilder,
+    final int classification) {
+    final LasPointCloud pointCloud = this.pointCloud;
+    final ByteBuffer classifications = this.classifications;
+    final int[] xs = this.xs;
+    final int[] ys = this.ys;
+    final int[] zs = this.zs;
+    for (int i = 0; i < this.size; i++) {
+      if (classification == -1 || (classifications.get(i) & 0xFF) == classification) {
+        final double x = pointCloud.toDoubleX(xs[i]);
+        final double y = pointCloud.toDoubleY(ys[i]);
+        final double z = pointCloud.toDoubleZ(zs[i]);
+        tinBuilder.insertVertex(x, y, z);
+      }
+    }
+  }
+
+  /**
+   * Iterate over the points. The {@link LasPoint} returned from the iterator is
+   * a flyweight that is repositioned on each call to {@link Iterator#next()}. Use
+   * {@link LasPoint#clone()} to retain a copy of the point.
+   */
+  @Override
+  public Iterator<LasPoint> iterator() {
+    final LasPointColumnCursor cursor = newCursor();
+    return new Iterator<LasPoint>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.index < LasPointColumns.this.size;
+      }
+
+      @Override
+      public LasPoint next() {
+        if (this.index < LasPointColumns.this.size) {
+          cursor.setIndex(this.index++);
+          return cursor;
+        } else {
+          throw new NoSuchElementException();
+        }
+      }
+    };
+  }
+
+  public boolean isNir() {
+    return getPointFormat().getId() == 8;
+  }
+
+  public boolean isRgb() {
+    final int formatId = getPointFormat().getId();
+    return formatId == 2 || formatId == 3 || formatId == 7 || formatId == 8;
+  }
+
+  public LasPointColumnCursor newCursor() {
+    return new LasPointColumnCursor(this);
+  }
+
+  public LasPointColumnCursor newCursor(final int index) {
+    final LasPointColumnCursor cursor = newCursor();
+    cursor.setIndex(index);
+    return cursor;
+  }
+
+  private void setCapacity(final int capacity) {
+    final int size = this.size;
+    if (this.xs == null) {
+      this.xs = new int[capacity];
+      this.ys = new int[capacity];
+      this.zs = new int[capacity];
+      this.intensities = newColumn(capacity, 2);
+      this.classifications = newColumn(capacity, 1);
+      this.returns = newColumn(capacity, 1);
+      this.flags = newColumn(capacity, 1);
+      this.scanAngles = newColumn(capacity, 2);
+      this.userDatas = newColumn(capacity, 1);
+      this.pointSourceIds = newColumn(capacity, 2);
+      if (isGpsTime()) {
+        this.gpsTimes = newColumn(capacity, 8);
+      }
+      if (isRgb()) {
+        this.reds = newColumn(capacity, 2);
+        this.greens = newColumn(capacity, 2);
+        this.blues = newColumn(capacity, 2);
+      }
+      if (isNir()) {
+        this.nirs = newColumn(capacity, 2);
+      }
+    } else {
+      this.xs = Arrays.copyOf(this.xs, capacity);
+      this.ys = Arrays.copyOf(this.ys, capacity);
+      this.zs = Arrays.copyOf(this.zs, capacity);
+      this.intensities = resizeColumn(this.intensities, size, capacity, 2);
+      this.classifications = resizeColumn(this.classifications, size, capacity, 1);
+      this.returns = resizeColumn(this.returns, size, capacity, 1);
+      this.flags = resizeColumn(this.flags, size, capacity, 1);
+      this.scanAngles = resizeColumn(this.scanAngles, size, capacity, 2);
+      this.userDatas = resizeColumn(this.userDatas, size, capacity, 1);
+      this.pointSourceIds = resizeColumn(this.pointSourceIds, size, capacity, 2);
+      if (this.gpsTimes != null) {
+        this.gpsTimes = resizeColumn(this.gpsTimes, size, capacity, 8);
+      }
+      if (this.reds != null) {
+        this.reds = resizeColumn(this.reds, size, capacity, 2);
+        this.greens = resizeColumn(this.greens, size, capacity, 2);
+        this.blues = resizeColumn(this.blues, size, capacity, 2);
+      }
+      if (this.nirs != null) {
+        this.nirs = resizeColumn(this.nirs, size, capacity, 2);
+      }
+    }
+    this.capacity = capacity;
+  }
+
+  public void setBlue(final int index, final int blue) {
+    if (this.blues != null) {
+      this.blues.putChar(index * 2, toUnsignedShort("blue", blue));
+    }
+  }
+
+  public void setClassification(final int index, final int classification) {
+    if (classification >= 0 && classification <= 255) {
+      this.classifications.put(index, (byte)classification);
+    } else {
+      throw new IllegalArgumentException(
+        "classification must be in range 0..255: " + classification);
+    }
+  }
+
+  public void setFlag(final int index, final int flag, final boolean value) {
+    final byte flags = this.flags.get(index);
+    if (value) {
+      this.flags.put(index, (byte)(flags | flag));
+    } else {
+      this.flags.put(index, (byte)(flags & ~flag));
+    }
+  }
+
+  /**
+   * Set the flags byte, using the bits of the extended point format's classification flags.
+   *
+   * @param index The point index.
+   * @param flags The flags.
+   */
+  public void setFlags(final int index, final byte flags) {
+    this.flags.put(index, flags);
+  }
+
+  public void setGpsTime(final int index, final double gpsTime) {
+    if (this.gpsTimes != null) {
+      this.gpsTimes.putDouble(index * 8, gpsTime);
+    }
+  }
+
+  public void setGreen(final int index, final int green) {
+    if (this.greens != null) {
+      this.greens.putChar(index * 2, toUnsignedShort("green", green));
+    }
+  }
+
+  public void setIntensity(final int index, final int intensity) {
+    this.intensities.putChar(index * 2, toUnsignedShort("intensity", intensity));
+  }
+
+  public void setNir(final int index, final int nir) {
+    if (this.nirs != null) {
+      this.nirs.putChar(index * 2, toUnsignedShort("nir", nir));
+    }
+  }
+
+  public void setNumberOfReturns(final int index, final byte numberOfReturns) {
+    if (numberOfReturns >= 0 && numberOfReturns <= 15) {
+      final byte returns = this.returns.get(index);
+      this.returns.put(index, (byte)(returns & 0b1111 | numberOfReturns << 4));
+    } else {
+      throw new IllegalArgumentException(
+        "numberOfReturns must be in range 0..15: " + numberOfReturns);
+    }
+  }
+
+  public void setPointSourceID(final int index, final int pointSourceID) {
+    this.pointSourceIds.putChar(index * 2, toUnsignedShort("pointSourceID", pointSourceID));
+  }
+
+  public void setRed(final int index, final int red) {
+    if (this.reds != null) {
+      this.reds.putChar(index * 2, toUnsignedShort("red", red));
+    }
+  }
+
+  public void setReturnNumber(final int index, final byte returnNumber) {
+    if (returnNumber >= 0 && returnNumber <= 15) {
+      final byte returns = this.returns.get(index);
+      this.returns.put(index, (byte)(returns & 0b11110000 | returnNumber));
+    } else {
+      throw new IllegalArgumentException("returnNumber must be in range 0..15: " + returnNumber);
+    }
+  }
+
+  /**
+   * Set the scan angle in 0.006 degree units for extended point formats or the
+   * scan angle rank in degrees for the other formats.
+   *
+   * @param index The point index.
+   * @param scanAngle The scan angle.
+   */
+  public void setScanAngle(final int index, final short scanAngle) {
+    this.scanAngles.putShort(index * 2, scanAngle);
+  }
+
+  public void setScannerChannel(final int index, final byte scannerChannel) {
+    final byte flags = this.flags.get(index);
+    this.flags.put(index, (byte)(flags & 0b11001111 | (scannerChannel & 0b11) << 4));
+  }
+
+  /**
+   * Set the user data, stored as an unsigned byte the same as in the file.
+   *
+   * @param index The point index.
+   * @param userData The user data.
+   */
+  public void setUserData(final int index, final short userData) {
+    this.userDatas.put(index, (byte)userData);
+  }
+
+  public void setXYZ(final int index, final int x, final int y, final int z) {
+    this.xs[index] = x;
+    this.ys[index] = y;
+    this.zs[index] = z;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  private char toUnsignedShort(final String name, final int value) {
+    if (value >= 0 && value <= 65535) {
+      return (char)value;
+    } else {
+      throw new IllegalArgumentException(name + " must be in range 0..65535: " + value);
+    }
+  }
+}
@@ -198,11 +198,11 @@ public abstract class BaseLasPoint extends AbstractPoint implements LasPoint, Se
 
   @Override
   public BaseLasPoint setPointSourceID(final int pointSourceID) {
-    if (pointSourceID >= 1 && pointSourceID <= 65535) {
+    if (pointSourceID >= 0 && pointSourceID <= 65535) {
       this.pointSourceID = pointSourceID;
     } else {
       throw new IllegalArgumentException(
-        "pointSourceID must be in range 1..65535: " + pointSourceID);
+        "pointSourceID must be in range 0..65535: " + pointSourceID);
     }
 
     return this;
@@ -0,0 +1,112 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteOrder;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * Decode the points in a single chunk of a chunked LAZ file from the chunk's
+ * bytes. A new decoder and codecs are created for each chunk so chunks can be
+ * decoded concurrently.
+ */
+public class LasZipChunkDecoder {
+
+  private final LasZipCompressorType compressor;
+
+  private final LasZipHeader lasZipHeader;
+
+  private final LasPointCloud pointCloud;
+
+  private final LasPointFormat pointFormat;
+
+  public LasZipChunkDecoder(final LasPointCloud pointCloud,
+    final LasZipCompressorType compressor) {
+    this.pointCloud = pointCloud;
+    this.compressor = compressor;
+    this.lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    this.pointFormat = pointCloud.getPointFormat();
+  }
+
+  /**
+   * Decode the points from the chunk's bytes. This method can be called
+   * concurrently for different chunks.
+   *
+   * @param bytes The chunk's bytes.
+   * @param pointCount The number of points in the chunk.
+   * @return The points.
+   */
+  public LasPoint[] decode(final byte[] bytes, final int pointCount) {
+    final LasPoint[] points = new LasPoint[pointCount];
+    if (pointCount > 0) {
+      final ChannelReader reader = new ChannelReader(new ByteArrayInputStream(bytes));
+      reader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+      final ArithmeticDecoder decoder = new ArithmeticDecoder();
+      final LasZipItemCodec[] codecs = this.lasZipHeader.newLazCodecs(decoder);
+      int context = 0;
+      final LasPoint firstPoint = this.pointFormat.readLasPoint(this.pointCloud, reader);
+      if (this.compressor == LasZipCompressorType.LAYERED_CHUNKED) {
+        decoder.init(reader, false);
+        reader.getInt(); // count unused
+        for (final LasZipItemCodec codec : codecs) {
+          codec.readChunkSizes();
+        }
+        for (final LasZipItemCodec codec : codecs) {
+          context = codec.init(firstPoint, context);
+        }
+      } else {
+        for (final LasZipItemCodec codec : codecs) {
+          context = codec.init(firstPoint, context);
+        }
+        decoder.init(reader);
+      }
+      points[0] = firstPoint;
+      for (int i = 1; i < pointCount; i++) {
+        final LasPoint point = this.pointFormat.newLasPoint(this.pointCloud);
+        for (final LasZipItemCodec codec : codecs) {
+          context = codec.read(point, context);
+        }
+        points[i] = point;
+      }
+    }
+    return points;
+  }
+
+  /**
+   * Read the chunk's bytes from the reader and decode the points.
+   *
+   * @param reader The reader.
+   * @param chunkTable The chunk table.
+   * @param chunkIndex The index of the chunk.
+   * @return The points.
+   */
+  public LasPoint[] decode(final ChannelReader reader, final LasZipChunkTable chunkTable,
+    final int chunkIndex) {
+    final byte[] bytes = readChunkBytes(reader, chunkTable, chunkIndex);
+    final int pointCount = (int)chunkTable.getChunkPointCount(chunkIndex);
+    return decode(bytes, pointCount);
+  }
+
+  /**
+   * Read the chunk's bytes from the reader, seeking to the start of the chunk
+   * if required.
+   *
+   * @param reader The reader.
+   * @param chunkTable The chunk table.
+   * @param chunkIndex The index of the chunk.
+   * @return The chunk's bytes.
+   */
+  public byte[] readChunkBytes(final ChannelReader reader, final LasZipChunkTable chunkTable,
+    final int chunkIndex) {
+    final long chunkStart = chunkTable.getChunkStart(chunkIndex);
+    if (reader.position() != chunkStart) {
+      reader.seek(chunkStart);
+    }
+    final int byteCount = chunkTable.getChunkByteCount(chunkIndex);
+    return reader.getBytes(byteCount);
+  }
+}
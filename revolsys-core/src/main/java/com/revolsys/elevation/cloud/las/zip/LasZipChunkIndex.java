@@ -0,0 +1,281 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A spatial index of the chunks in a chunked LAZ file. For each chunk the
+ * bounding box (as scaled int values) is stored along with the chunk table so
+ * that a read with a {@link BoundingBox} can skip the chunks that don't
+ * intersect it.
+ *
+ * The index is built from the LAZ file's chunk table, using the byte and point
+ * range of each chunk to decode the chunks (in parallel if
+ * {@link LasPointCloud#getLasZipThreadCount()} &gt; 1) and calculate their
+ * bounding boxes. If {@link LasPointCloud#isLasZipWriteChunkIndex()} is true the
+ * bounding boxes are cached in a sidecar file (<code>.laz.lazidx</code>) next to
+ * the LAZ file. A sidecar file is only used if the size and last modified time
+ * of the LAZ file haven't changed.
+ */
+public class LasZipChunkIndex {
+
+  public static final String FILE_EXTENSION = "lazidx";
+
+  private static final String MAGIC = "LAZIDX";
+
+  private static final int VERSION = 1;
+
+  private static LasZipChunkIndex build(final LasPointCloud pointCloud,
+    final ChannelReader reader, final LasZipCompressorType compressor,
+    final LasZipChunkTable chunkTable) {
+    final int chunkCount = chunkTable.getChunkCount();
+    final int[] bounds = new int[chunkCount * 4];
+    final LasZipChunkDecoder decoder = new LasZipChunkDecoder(pointCloud, compressor);
+    final int threadCount = pointCloud.getLasZipThreadCount();
+    if (threadCount > 1) {
+      final int maxChunksInFlight = Math.max(1, pointCloud.getLasZipMaxChunksInFlight());
+      final ArrayDeque<ForkJoinTask<?>> tasks = new ArrayDeque<>();
+      final ForkJoinPool pool = new ForkJoinPool(threadCount);
+      try {
+        for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+          if (tasks.size() >= maxChunksInFlight) {
+            tasks.remove().join();
+          }
+          final int index = chunkIndex;
+          final byte[] bytes = decoder.readChunkBytes(reader, chunkTable, chunkIndex);
+          final int pointCount = (int)chunkTable.getChunkPointCount(chunkIndex);
+          tasks.add(pool.submit(() -> setBounds(bounds, index, decoder.decode(bytes, pointCount))));
+        }
+        while (!tasks.isEmpty()) {
+          tasks.remove().join();
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+    } else {
+      for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+        final LasPoint[] points = decoder.decode(reader, chunkTable, chunkIndex);
+        setBounds(bounds, chunkIndex, points);
+      }
+    }
+    reader.seek(chunkTable.getChunkStart(0));
+    return new LasZipChunkIndex(pointCloud, compressor, chunkTable, bounds);
+  }
+
+  private static long getContentLength(final Resource resource) {
+    try {
+      return resource.contentLength();
+    } catch (final IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Get the chunk index for the LAZ file. The index is read from the sidecar
+   * file if it is current, otherwise it is built from the chunk table. The
+   * sidecar file is only written if
+   * {@link LasPointCloud#isLasZipWriteChunkIndex()} is true. The reader must be
+   * positioned at the start of the point data. If the index is returned the
+   * reader is positioned at the start of the first chunk.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader The reader.
+   * @return The index or null if the file is not chunked or doesn't have a chunk table.
+   */
+  public static LasZipChunkIndex getChunkIndex(final LasPointCloud pointCloud,
+    final ChannelReader reader) {
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    if (lasZipHeader == null) {
+      return null;
+    }
+    final LasZipCompressorType compressor = lasZipHeader.getCompressor();
+    if (!compressor.isChunked()) {
+      return null;
+    }
+    final LasZipChunkTable chunkTable = LasZipChunkTable.read(pointCloud, reader);
+    if (chunkTable == null) {
+      return null;
+    }
+    final Resource resource = pointCloud.getResource();
+    final Resource indexResource = getIndexResource(resource);
+    final long fileSize = getContentLength(resource);
+    final long lastModified = resource.getLastModified();
+    LasZipChunkIndex index = readIndex(pointCloud, compressor, chunkTable, indexResource,
+      fileSize, lastModified);
+    if (index == null) {
+      index = build(pointCloud, reader, compressor, chunkTable);
+      if (pointCloud.isLasZipWriteChunkIndex()) {
+        index.writeIndex(indexResource, fileSize, lastModified);
+      }
+    }
+    return index;
+  }
+
+  private static Resource getIndexResource(final Resource resource) {
+    if (resource == null || !"laz".equals(resource.getFileNameExtension())) {
+      return null;
+    } else {
+      return resource.newResourceAddExtension(FILE_EXTENSION);
+    }
+  }
+
+  private static LasZipChunkIndex readIndex(final LasPointCloud pointCloud,
+    final LasZipCompressorType compressor, final LasZipChunkTable chunkTable,
+    final Resource indexResource, final long fileSize, final long lastModified) {
+    if (indexResource != null && indexResource.exists()) {
+      try (
+        ChannelReader in = indexResource.newChannelReader()) {
+        in.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        final String magic = in.getUsAsciiString(MAGIC.length());
+        if (!MAGIC.equals(magic)) {
+          return null;
+        }
+        final int version = in.getInt();
+        final long indexFileSize = in.getLong();
+        final long indexLastModified = in.getLong();
+        final int chunkCount = in.getInt();
+        if (version == VERSION && indexFileSize == fileSize && indexLastModified == lastModified
+          && chunkCount == chunkTable.getChunkCount()) {
+          final int[] bounds = new int[chunkCount * 4];
+          for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = in.getInt();
+          }
+          return new LasZipChunkIndex(pointCloud, compressor, chunkTable, bounds);
+        }
+      } catch (final RuntimeException e) {
+        Logs.debug(LasZipChunkIndex.class, "Unable to read LAZ chunk index: " + indexResource, e);
+      }
+    }
+    return null;
+  }
+
+  private static void setBounds(final int[] bounds, final int chunkIndex,
+    final LasPoint[] points) {
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (final LasPoint point : points) {
+      final int x = point.getXInt();
+      final int y = point.getYInt();
+      if (x < minX) {
+        minX = x;
+      }
+      if (x > maxX) {
+        maxX = x;
+      }
+      if (y < minY) {
+        minY = y;
+      }
+      if (y > maxY) {
+        maxY = y;
+      }
+    }
+    final int offset = chunkIndex * 4;
+    bounds[offset] = minX;
+    bounds[offset + 1] = minY;
+    bounds[offset + 2] = maxX;
+    bounds[offset + 3] = maxY;
+  }
+
+  private final int[] bounds;
+
+  private final LasZipChunkTable chunkTable;
+
+  private final LasZipCompressorType compressor;
+
+  private final LasPointCloud pointCloud;
+
+  public LasZipChunkIndex(final LasPointCloud pointCloud, final LasZipCompressorType compressor,
+    final LasZipChunkTable chunkTable, final int[] bounds) {
+    this.pointCloud = pointCloud;
+    this.compressor = compressor;
+    this.chunkTable = chunkTable;
+    this.bounds = bounds;
+  }
+
+  /**
+   * Get the indexes of the chunks whose bounding box intersects the bounding box.
+   *
+   * @param boundingBox The bounding box in the point cloud's coordinate system.
+   * @return The chunk indexes in file order.
+   */
+  public int[] getChunkIndexes(BoundingBox boundingBox) {
+    final LasPointCloud pointCloud = this.pointCloud;
+    boundingBox = boundingBox.bboxToCs(pointCloud);
+    final int minX = pointCloud.toIntX(boundingBox.getMinX());
+    final int minY = pointCloud.toIntY(boundingBox.getMinY());
+    final int maxX = pointCloud.toIntX(boundingBox.getMaxX());
+    final int maxY = pointCloud.toIntY(boundingBox.getMaxY());
+    final int[] bounds = this.bounds;
+    final int chunkCount = getChunkCount();
+    final int[] chunkIndexes = new int[chunkCount];
+    int count = 0;
+    for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+      final int offset = chunkIndex * 4;
+      if (bounds[offset] <= maxX && bounds[offset + 1] <= maxY && bounds[offset + 2] >= minX
+        && bounds[offset + 3] >= minY) {
+        chunkIndexes[count++] = chunkIndex;
+      }
+    }
+    final int[] result = new int[count];
+    System.arraycopy(chunkIndexes, 0, result, 0, count);
+    return result;
+  }
+
+  public int getChunkCount() {
+    return this.chunkTable.getChunkCount();
+  }
+
+  public LasZipChunkTable getChunkTable() {
+    return this.chunkTable;
+  }
+
+  /**
+   * Construct a new iterator that only decodes the chunks that intersect the
+   * bounding box. The iterator may return points from those chunks that are
+   * outside the bounding box.
+   *
+   * @param reader The reader positioned at the start of the first chunk.
+   * @param boundingBox The bounding box.
+   * @return The iterator.
+   */
+  public LasZipParallelChunkedIterator newIterator(final ChannelReader reader,
+    final BoundingBox boundingBox) {
+    final int[] chunkIndexes = getChunkIndexes(boundingBox);
+    return new LasZipParallelChunkedIterator(this.pointCloud, reader, this.compressor,
+      this.chunkTable, chunkIndexes);
+  }
+
+  private void writeIndex(final Resource indexResource, final long fileSize,
+    final long lastModified) {
+    if (indexResource != null && fileSize >= 0) {
+      try (
+        ChannelWriter out = indexResource.newChannelWriter()) {
+        out.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        out.putString(MAGIC, MAGIC.length());
+        out.putInt(VERSION);
+        out.putLong(fileSize);
+        out.putLong(lastModified);
+        out.putInt(getChunkCount());
+        for (final int value : this.bounds) {
+          out.putInt(value);
+        }
+      } catch (final RuntimeException e) {
+        Logs.error(this, "Unable to write LAZ chunk index: " + indexResource, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * The chunk table from a chunked LAZ file. Each chunk has its own independent
+ * arithmetic decoder state so the byte range and point range of each chunk are
+ * all that is required to decode the chunk in isolation.
+ */
+public class LasZipChunkTable {
+
+  /**
+   * Read the chunk table for the chunked LAZ file. The reader must be
+   * positioned at the start of the point data (the 8 byte chunk table offset).
+   * If the chunk table can be read the reader is positioned at the start of the
+   * first chunk. Otherwise null is returned and the reader is positioned back at
+   * the start of the point data so the chunks can be read sequentially. If the
+   * chunk table is corrupt the error is logged with the file and chunk table
+   * position.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader The reader.
+   * @return The chunk table or null if the file doesn't have a complete chunk table.
+   */
+  public static LasZipChunkTable read(final LasPointCloud pointCloud,
+    final ChannelReader reader) {
+    if (!reader.isSeekable()) {
+      return null;
+    }
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    final long chunkSize = lasZipHeader.getChunkSize();
+    final long pointCount = pointCloud.getPointCount();
+    final long pointDataStart = reader.position();
+    long chunkTableStart = -1;
+    try {
+      chunkTableStart = reader.getLong();
+      final long chunksStart = reader.position();
+      if (chunkTableStart + 8 == chunksStart) {
+        // Compressor was interrupted before writing the chunk table
+        reader.seek(pointDataStart);
+        return null;
+      }
+      if (chunkTableStart == -1) {
+        // Compressor wrote the chunk table start at the end of the file
+        reader.seekEnd(8);
+        chunkTableStart = reader.getLong();
+      }
+
+      reader.seek(chunkTableStart);
+      final int version = reader.getInt();
+      if (version != 0) {
+        throw new IllegalArgumentException("Unsupported chunk version: " + version);
+      }
+      final int chunkCount = reader.getInt();
+      final boolean variableChunkSize = chunkSize == Integer.MAX_VALUE;
+      final long[] chunkStarts = new long[chunkCount + 1];
+      final long[] pointStarts = new long[chunkCount + 1];
+      chunkStarts[0] = chunksStart;
+      if (chunkCount > 0) {
+        final ArithmeticDecoder decoder = new ArithmeticDecoder();
+        decoder.init(reader);
+        final ArithmeticCodingInteger ic = new ArithmeticCodingInteger(decoder, 32, 2);
+        ic.initDecompressor();
+        int previousPointCount = 0;
+        int previousByteCount = 0;
+        for (int i = 1; i <= chunkCount; i++) {
+          final long chunkPointCount;
+          if (variableChunkSize) {
+            previousPointCount = ic.decompress(previousPointCount, 0);
+            chunkPointCount = previousPointCount;
+          } else {
+            chunkPointCount = Math.min(chunkSize, pointCount - pointStarts[i - 1]);
+          }
+          previousByteCount = ic.decompress(previousByteCount, 1);
+          chunkStarts[i] = chunkStarts[i - 1] + previousByteCount;
+          pointStarts[i] = pointStarts[i - 1] + chunkPointCount;
+          if (chunkStarts[i] <= chunkStarts[i - 1]) {
+            throw new IllegalArgumentException("Chunk corrupt");
+          }
+        }
+      }
+      if (pointStarts[chunkCount] != pointCount) {
+        Logs.warn(LasZipChunkTable.class,
+          "LAZ chunk table point count " + pointStarts[chunkCount] + " != header point count "
+            + pointCount + ", reading chunks sequentially: " + pointCloud.getResource());
+        reader.seek(pointDataStart);
+        return null;
+      }
+      reader.seek(chunksStart);
+      return new LasZipChunkTable(chunkStarts, pointStarts);
+    } catch (final RuntimeException e) {
+      Logs.error(LasZipChunkTable.class, "Unable to read LAZ chunk table at " + chunkTableStart
+        + ", reading chunks sequentially: " + pointCloud.getResource(), e);
+      reader.seek(pointDataStart);
+      return null;
+    }
+  }
+
+  private final long[] chunkStarts;
+
+  private final long[] pointStarts;
+
+  public LasZipChunkTable(final long[] chunkStarts, final long[] pointStarts) {
+    this.chunkStarts = chunkStarts;
+    this.pointStarts = pointStarts;
+  }
+
+  public int getChunkByteCount(final int chunkIndex) {
+    return (int)(this.chunkStarts[chunkIndex + 1] - this.chunkStarts[chunkIndex]);
+  }
+
+  public int getChunkCount() {
+    return this.chunkStarts.length - 1;
+  }
+
+  public long getChunkPointCount(final int chunkIndex) {
+    return this.pointStarts[chunkIndex + 1] - this.pointStarts[chunkIndex];
+  }
+
+  public long getChunkPointStart(final int chunkIndex) {
+    return this.pointStarts[chunkIndex];
+  }
+
+  public long getChunkStart(final int chunkIndex) {
+    return this.chunkStarts[chunkIndex];
+  }
+
+  @Override
+  public String toString() {
+    return "chunkCount=" + getChunkCount();
+  }
+}
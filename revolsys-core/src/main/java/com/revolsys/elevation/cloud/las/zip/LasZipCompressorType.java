@@ -43,8 +43,18 @@ public enum LasZipCompressorType {
     return this.id;
   }
 
+  public boolean isChunked() {
+    return this == POINTWISE_CHUNKED || this == LAYERED_CHUNKED;
+  }
+
   public LasPointCloudIterator newIterator(final LasPointCloud pointCloud,
     final ChannelReader reader) {
+    if (isChunked() && pointCloud.getLasZipThreadCount() > 1) {
+      final LasZipChunkTable chunkTable = LasZipChunkTable.read(pointCloud, reader);
+      if (chunkTable != null) {
+        return new LasZipParallelChunkedIterator(pointCloud, reader, this, chunkTable);
+      }
+    }
     return this.iteratorConstructor.apply(pointCloud, reader);
   }
 }
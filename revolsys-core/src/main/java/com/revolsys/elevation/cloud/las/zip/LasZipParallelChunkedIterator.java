@@ -0,0 +1,162 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloudIterator;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.io.channels.ChannelReader;
+
+/**
+ * Decode the chunks of a chunked LAZ file in parallel. The chunk bytes are read
+ * sequentially on the calling thread and decoded on a bounded
+ * {@link ForkJoinPool}. The decoded chunks are returned in file order from a
+ * reorder buffer that holds at most {@link LasPointCloud#getLasZipMaxChunksInFlight()}
+ * chunks. If a subset of the chunk indexes is specified only those chunks are
+ * read and decoded.
+ *
+ * If {@link LasPointCloud#getLasZipThreadCount()} is 1 no pool is created and
+ * each chunk is read and decoded on the calling thread when it is needed.
+ */
+public class LasZipParallelChunkedIterator extends LasPointCloudIterator {
+
+  private final int[] chunkIndexes;
+
+  private final LasZipChunkTable chunkTable;
+
+  private final ArrayDeque<ForkJoinTask<LasPoint[]>> chunks = new ArrayDeque<>();
+
+  private final LasZipChunkDecoder decoder;
+
+  private LasPoint[] currentPoints;
+
+  private int currentPointIndex;
+
+  private final int maxChunksInFlight;
+
+  private int nextChunk = 0;
+
+  private ForkJoinPool pool;
+
+  public LasZipParallelChunkedIterator(final LasPointCloud pointCloud,
+    final ChannelReader reader, final LasZipCompressorType compressor,
+    final LasZipChunkTable chunkTable) {
+    this(pointCloud, reader, compressor, chunkTable, null);
+  }
+
+  public LasZipParallelChunkedIterator(final LasPointCloud pointCloud,
+    final ChannelReader reader, final LasZipCompressorType compressor,
+    final LasZipChunkTable chunkTable, final int[] chunkIndexes) {
+    super(pointCloud, reader);
+    this.decoder = new LasZipChunkDecoder(pointCloud, compressor);
+    this.chunkTable = chunkTable;
+    if (chunkIndexes == null) {
+      final int chunkCount = chunkTable.getChunkCount();
+      this.chunkIndexes = new int[chunkCount];
+      for (int i = 0; i < chunkCount; i++) {
+        this.chunkIndexes[i] = i;
+      }
+    } else {
+      this.chunkIndexes = chunkIndexes;
+      long pointCount = 0;
+      for (final int chunkIndex : chunkIndexes) {
+        pointCount += chunkTable.getChunkPointCount(chunkIndex);
+      }
+      this.pointCount = pointCount;
+    }
+    final int threadCount = pointCloud.getLasZipThreadCount();
+    this.maxChunksInFlight = Math.max(1, pointCloud.getLasZipMaxChunksInFlight());
+    if (threadCount > 1) {
+      this.pool = new ForkJoinPool(threadCount);
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    for (final ForkJoinTask<LasPoint[]> chunk : this.chunks) {
+      chunk.cancel(true);
+    }
+    this.chunks.clear();
+    this.currentPoints = null;
+    final ForkJoinPool pool = this.pool;
+    this.pool = null;
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (super.hasNext()) {
+      return true;
+    } else {
+      close();
+      return false;
+    }
+  }
+
+  @Override
+  public Iterator<LasPoint> iterator() {
+    return this;
+  }
+
+  @Override
+  protected LasPoint readNext() {
+    try {
+      while (this.currentPoints == null || this.currentPointIndex == this.currentPoints.length) {
+        this.currentPoints = readNextChunk();
+        this.currentPointIndex = 0;
+      }
+      final int pointIndex = this.currentPointIndex++;
+      final LasPoint point = this.currentPoints[pointIndex];
+      this.currentPoints[pointIndex] = null;
+      return point;
+    } catch (final NoSuchElementException e) {
+      close();
+      throw e;
+    } catch (final Exception e) {
+      close();
+      throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(), e);
+    }
+  }
+
+  private LasPoint[] readNextChunk() {
+    if (this.pool == null) {
+      if (this.nextChunk < this.chunkIndexes.length) {
+        final int chunkIndex = this.chunkIndexes[this.nextChunk++];
+        return this.decoder.decode(this.reader, this.chunkTable, chunkIndex);
+      } else {
+        throw new NoSuchElementException();
+      }
+    } else {
+      submitChunks();
+      final ForkJoinTask<LasPoint[]> chunk = this.chunks.poll();
+      if (chunk == null) {
+        throw new NoSuchElementException();
+      }
+      final LasPoint[] points = chunk.join();
+      submitChunks();
+      return points;
+    }
+  }
+
+  private void submitChunks() {
+    final LasZipChunkTable chunkTable = this.chunkTable;
+    final int[] chunkIndexes = this.chunkIndexes;
+    while (this.chunks.size() < this.maxChunksInFlight && this.nextChunk < chunkIndexes.length) {
+      final int chunkIndex = chunkIndexes[this.nextChunk++];
+      final byte[] bytes = this.decoder.readChunkBytes(this.reader, chunkTable, chunkIndex);
+      final int pointCount = (int)chunkTable.getChunkPointCount(chunkIndex);
+      final ForkJoinTask<LasPoint[]> chunk = this.pool
+        .submit(() -> this.decoder.decode(bytes, pointCount));
+      this.chunks.add(chunk);
+    }
+  }
+}
@@ -1,21 +1,38 @@
 package com.revolsys.elevation.gridded;
 
-import java.util.Map;
-
-import org.jeometry.common.collection.map.LruMap;
+import java.util.concurrent.Executor;
 
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.grid.AbstractGrid;
-import com.revolsys.util.IntPair;
-
+import com.revolsys.grid.DoubleArrayGrid;
+import com.revolsys.grid.Grid;
+import com.revolsys.grid.GridTileCache;
+import com.revolsys.grid.GridTileCache.EvictionPolicy;
+
+/**
+ * <p>An elevation model made up of tiles that are loaded on demand. The tiles are held in a
+ * {@link GridTileCache} that is limited to {@link #setCacheSize(int)} tiles and
+ * {@link #setMaxMemory(long)} bytes of heap. When a scan moves from one tile to the next, the next
+ * tile in the same direction within the grid is loaded in the background.</p>
+ *
+ * <p>The files of {@link DirectFileElevationModel} tiles are closed when the tile is evicted. The
+ * model itself is not closed as it may still be used by another thread, a read from an evicted
+ * model reopens the file.</p>
+ */
 public abstract class AbstractTiledGriddedDigitalElevationModel extends AbstractGrid
   implements GriddedElevationModel {
 
-  protected int gridTileSize;
+  private static void evictModel(final GriddedElevationModel model) {
+    if (model instanceof DirectFileElevationModel) {
+      ((DirectFileElevationModel)model).closeFile();
+    }
+  }
 
-  private final LruMap<IntPair, GriddedElevationModel> models = new LruMap<>(5000);
+  protected int gridTileSize;
 
-  private final IntPair getKey = new IntPair();
+  private final GridTileCache<GriddedElevationModel> models = new GridTileCache<>(
+    this::loadModel, this::getModelMemorySize, EvictionPolicy.LRU).setMaxTileCount(5000)
+      .setEvictAction(AbstractTiledGriddedDigitalElevationModel::evictModel);
 
   private final double tileWidth;
 
@@ -27,13 +44,12 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     this.gridTileSize = gridTileSize;
     this.tileWidth = gridTileSize * gridCellSize;
     this.tileHeight = gridTileSize * gridCellSize;
+    setTileIndexRange();
   }
 
   @Override
   public void clear() {
-    synchronized (this.models) {
-      this.models.clear();
-    }
+    this.models.clear();
   }
 
   @Override
@@ -41,9 +57,7 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     try {
       closeDo();
     } finally {
-      synchronized (this.models) {
-        this.models.clear();
-      }
+      this.models.clear();
     }
   }
 
@@ -56,23 +70,35 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
   }
 
   protected GriddedElevationModel getModel(final int gridX, final int gridY) {
-    GriddedElevationModel model;
-    final Map<IntPair, GriddedElevationModel> models = this.models;
-    final int tileIndexX = (int)Math.floor(gridX / this.tileWidth);
-    final int tileIndexY = (int)Math.floor(gridY / this.tileHeight);
-    synchronized (models) {
-      final IntPair getKey = this.getKey;
-      getKey.setValues(tileIndexX, tileIndexY);
-
-      model = models.get(getKey);
-      if (model == null) {
-        final double tileX = tileIndexX * this.tileWidth;
-        final double tileY = tileIndexY * this.tileHeight;
-        model = newModel(tileX, tileY);
-        models.put(getKey.clone(), model);
+    final int tileSize = this.gridTileSize;
+    final int tileIndexX = Math.floorDiv(gridX, tileSize);
+    final int tileIndexY = Math.floorDiv(gridY, tileSize);
+    return this.models.getTile(tileIndexX, tileIndexY);
+  }
+
+  public GridTileCache<GriddedElevationModel> getModelCache() {
+    return this.models;
+  }
+
+  /**
+   * Get the heap memory used by a model. Direct file models read each value from the file so only
+   * the array backed models are counted.
+   *
+   * @param model The model.
+   * @return The memory size in bytes.
+   */
+  protected long getModelMemorySize(final GriddedElevationModel model) {
+    if (model instanceof DirectFileElevationModel) {
+      return 0;
+    } else {
+      final Grid grid = model;
+      final long cellCount = (long)grid.getGridWidth() * grid.getGridHeight();
+      if (grid instanceof DoubleArrayGrid) {
+        return cellCount * 8;
+      } else {
+        return cellCount * 4;
       }
     }
-    return model;
   }
 
   @Override
@@ -82,8 +108,8 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
       return Double.NaN;
     } else {
       final int tileSize = this.gridTileSize;
-      final int gridCellX = gridX % tileSize;
-      final int gridCellY = gridY % tileSize;
+      final int gridCellX = Math.floorMod(gridX, tileSize);
+      final int gridCellY = Math.floorMod(gridY, tileSize);
       return model.getValue(gridCellX, gridCellY);
     }
   }
@@ -98,6 +124,12 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     return false;
   }
 
+  private GriddedElevationModel loadModel(final int tileIndexX, final int tileIndexY) {
+    final double tileX = tileIndexX * this.tileWidth;
+    final double tileY = tileIndexY * this.tileHeight;
+    return newModel(tileX, tileY);
+  }
+
   @Override
   public GriddedElevationModel newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double gridCellSize) {
@@ -107,12 +139,58 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
   protected abstract GriddedElevationModel newModel(double tileX, double tileY);
 
   public AbstractTiledGriddedDigitalElevationModel setCacheSize(final int cacheSize) {
-    this.models.setMaxSize(cacheSize);
+    this.models.setMaxTileCount(cacheSize);
+    return this;
+  }
+
+  public AbstractTiledGriddedDigitalElevationModel setEvictionPolicy(
+    final EvictionPolicy evictionPolicy) {
+    this.models.setEvictionPolicy(evictionPolicy);
+    return this;
+  }
+
+  /**
+   * Set the executor used to load the next tiles in the direction of access.
+   *
+   * @param executor The executor.
+   * @return this
+   */
+  public AbstractTiledGriddedDigitalElevationModel setExecutor(final Executor executor) {
+    this.models.setExecutor(executor);
     return this;
   }
 
   public void setGridTileSize(final int gridTileSize) {
     this.gridTileSize = gridTileSize;
+    setTileIndexRange();
+  }
+
+  /**
+   * Set the maximum heap memory in bytes used by the cached tiles, defaults to
+   * {@link GridTileCache#DEFAULT_MAX_MEMORY}.
+   *
+   * @param maxMemory The maximum memory.
+   * @return this
+   */
+  public AbstractTiledGriddedDigitalElevationModel setMaxMemory(final long maxMemory) {
+    this.models.setMaxMemory(maxMemory);
+    return this;
+  }
+
+  public AbstractTiledGriddedDigitalElevationModel setPrefetchDistance(
+    final int prefetchDistance) {
+    this.models.setPrefetchDistance(prefetchDistance);
+    return this;
+  }
+
+  /**
+   * Limit the prefetched tiles to the tiles that contain grid cells.
+   */
+  private void setTileIndexRange() {
+    final int tileSize = this.gridTileSize;
+    final int maxTileIndexX = (getGridWidth() - 1) / tileSize;
+    final int maxTileIndexY = (getGridHeight() - 1) / tileSize;
+    this.models.setTileIndexRange(0, 0, maxTileIndexX, maxTileIndexY);
   }
 
   @Override
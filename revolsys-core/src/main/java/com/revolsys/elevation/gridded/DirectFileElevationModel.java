@@ -35,12 +35,26 @@ public abstract class DirectFileElevationModel extends AbstractGrid
     this.open = false;
   }
 
+  /**
+   * Close the model's open file without closing the model. The file is reopened if the model is
+   * read or written again.
+   */
+  public void closeFile() {
+  }
+
   @Override
   protected void finalize() throws Throwable {
     super.finalize();
     close();
   }
 
+  @Override
+  protected void getRowValues(final int gridY, final double[] values, final int offset) {
+    final int gridWidth = this.gridWidth;
+    final int fileOffset = this.headerSize + gridY * gridWidth * this.elevationByteCount;
+    readElevations(fileOffset, values, offset, gridWidth);
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
     final int offset = this.headerSize + (gridY * this.gridWidth + gridX) * this.elevationByteCount;
@@ -70,6 +84,17 @@ public abstract class DirectFileElevationModel extends AbstractGrid
 
   protected abstract double readElevation(final int offset);
 
+  /**
+   * Read count consecutive elevations starting at the file offset. Subclasses should override this
+   * to read the values with a single read.
+   */
+  protected void readElevations(final int offset, final double[] values, final int valueOffset,
+    final int count) {
+    for (int i = 0; i < count; i++) {
+      values[valueOffset + i] = readElevation(offset + i * this.elevationByteCount);
+    }
+  }
+
   @Override
   public void setValue(final int gridX, final int gridY, final double elevation) {
     final int gridWidth = getGridWidth();
@@ -111,6 +111,14 @@ public class DoubleArrayGriddedElevationModel extends DoubleArrayGrid
     return new DoubleArrayGriddedElevationModel(geometryFactory, x, y, width, height, cellSize);
   }
 
+  @Override
+  public DoubleArrayGriddedElevationModel newGrid(final GeometryFactory geometryFactory,
+    final double x, final double y, final int width, final int height, final double gridCellWidth,
+    final double gridCellHeight) {
+    return new DoubleArrayGriddedElevationModel(geometryFactory, x, y, width, height, gridCellWidth,
+      gridCellHeight);
+  }
+
   @Override
   public DoubleArrayGriddedElevationModel newGrid(final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight, final double[] newValues) {
@@ -111,6 +111,14 @@ public class FloatArrayGriddedElevationModel extends FloatArrayGrid
     return new FloatArrayGriddedElevationModel(geometryFactory, x, y, width, height, cellSize);
   }
 
+  @Override
+  public FloatArrayGriddedElevationModel newGrid(final GeometryFactory geometryFactory,
+    final double x, final double y, final int width, final int height, final double gridCellWidth,
+    final double gridCellHeight) {
+    return new FloatArrayGriddedElevationModel(geometryFactory, x, y, width, height, gridCellWidth,
+      gridCellHeight);
+  }
+
   @Override
   public FloatArrayGriddedElevationModel newGrid(final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight, final float[] newValues) {
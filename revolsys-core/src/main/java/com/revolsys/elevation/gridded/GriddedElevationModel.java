@@ -295,6 +295,18 @@ public interface GriddedElevationModel extends Grid {
     return (GriddedElevationModel)Grid.super.resample(newGridCellSize);
   }
 
+  @Override
+  default GriddedElevationModel resampleBicubic(final double newGridCellWidth,
+    final double newGridCellHeight) {
+    return (GriddedElevationModel)Grid.super.resampleBicubic(newGridCellWidth, newGridCellHeight);
+  }
+
+  @Override
+  default GriddedElevationModel resampleBilinear(final double newGridCellWidth,
+    final double newGridCellHeight) {
+    return (GriddedElevationModel)Grid.super.resampleBilinear(newGridCellWidth, newGridCellHeight);
+  }
+
   default void setElevations(final Geometry geometry) {
     if (geometry != null) {
       geometry.forEachVertex(getGeometryFactory(), point -> {
@@ -91,6 +91,14 @@ public class IntArrayScaleGriddedElevationModel extends IntArrayScaleGrid
     return new IntArrayScaleGriddedElevationModel(geometryFactory, x, y, width, height, cellSize);
   }
 
+  @Override
+  public IntArrayScaleGriddedElevationModel newGrid(final GeometryFactory geometryFactory,
+    final double x, final double y, final int width, final int height, final double gridCellWidth,
+    final double gridCellHeight) {
+    return new IntArrayScaleGriddedElevationModel(geometryFactory, x, y, width, height,
+      gridCellWidth, gridCellHeight);
+  }
+
   @Override
   public IntArrayScaleGriddedElevationModel newGrid(final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight, final int[] newValues) {
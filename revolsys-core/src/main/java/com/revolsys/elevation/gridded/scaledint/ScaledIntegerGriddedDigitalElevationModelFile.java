@@ -52,6 +52,8 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
 
   private final ByteBuffer buffer = ByteBuffer.allocateDirect(ELEVATION_BYTE_COUNT);
 
+  private ByteBuffer readBuffer;
+
   private ByteBuffer rowBuffer;
 
   private double scaleZ;
@@ -87,6 +89,14 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
   @Override
   public void close() {
     super.close();
+    closeFile();
+  }
+
+  /**
+   * Close the file channel, it is reopened by the next read or write as the model is still open.
+   */
+  @Override
+  public synchronized void closeFile() {
     final FileChannel fileChannel = this.channel;
     this.channel = null;
     if (fileChannel != null) {
@@ -182,6 +192,50 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
     }
   }
 
+  @Override
+  protected synchronized void readElevations(final int offset, final double[] values,
+    final int valueOffset, final int count) {
+    final int byteCount = count * ELEVATION_BYTE_COUNT;
+    ByteBuffer buffer = this.readBuffer;
+    if (buffer == null || buffer.capacity() < byteCount) {
+      buffer = ByteBuffer.allocateDirect(byteCount);
+      this.readBuffer = buffer;
+    }
+    buffer.clear();
+    buffer.limit(byteCount);
+    try {
+      final FileChannel fileChannel = getFileChannel();
+      if (fileChannel != null) {
+        int readOffset = offset;
+        while (buffer.hasRemaining()) {
+          final int readCount = fileChannel.read(buffer, readOffset);
+          if (readCount == -1) {
+            break;
+          } else {
+            readOffset += readCount;
+          }
+        }
+      }
+    } catch (final NoSuchFileException e) {
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + this.path, e);
+    }
+    buffer.flip();
+    final double scaleZ = this.scaleZ;
+    int i = 0;
+    for (; buffer.remaining() >= ELEVATION_BYTE_COUNT; i++) {
+      final int elevationInt = buffer.getInt();
+      if (elevationInt == Integer.MIN_VALUE) {
+        values[valueOffset + i] = Double.NaN;
+      } else {
+        values[valueOffset + i] = elevationInt / scaleZ;
+      }
+    }
+    for (; i < count; i++) {
+      values[valueOffset + i] = Double.NaN;
+    }
+  }
+
   private void readHeader() {
     try {
       final ChannelReader reader = getReader();
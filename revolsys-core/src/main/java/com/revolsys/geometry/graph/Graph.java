@@ -81,8 +81,6 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     }
   }
 
-  private final Map<Edge<T>, Integer> edgeIds = new TreeMap<>();
-
   private IdObjectIndex<Edge<T>> edgeIndex;
 
   private Map<Integer, LineString> edgeLinesById = new IntHashMap<>();
@@ -107,6 +105,10 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
 
   private int nextNodeId;
 
+  private NodeCoordinates nodeCoordinates = new NodeCoordinates();
+
+  private Map<Point, Integer> nodeIdsByPoint;
+
   private IdObjectIndex<Node<T>> nodeIndex;
 
   private final NodeEventListenerList<T> nodeListeners = new NodeEventListenerList<>();
@@ -115,12 +117,8 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
 
   private Map<Integer, Node<T>> nodesById = new IntHashMap<>();
 
-  private Map<Point, Integer> nodesIdsByPoint = new TreeMap<>(PointComparators.leftLowest());
-
   private GeometryFactory precisionModel = GeometryFactory.DEFAULT_3D;
 
-  private final PointDoubleXY findPoint = new PointDoubleXY();
-
   public Graph() {
     this(true);
   }
@@ -163,17 +161,21 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     final double fromY, final double toX, final double toY) {
     if (this.inMemory && getEdgeCount() >= this.maxEdgesInMemory) {
       this.edgePropertiesById = BPlusTreeMap.newIntSeralizableTempDisk(this.edgePropertiesById);
-      // TODO edgIds
       // TODO edgeIndex
       this.edgeLinesById = BPlusTreeMap.newIntSeralizableTempDisk(this.edgeLinesById);
       this.edgeObjectsById = BPlusTreeMap.newIntSeralizableTempDisk(this.edgeObjectsById);
       this.edgesById = BPlusTreeMap.newIntSeralizableTempDisk(this.edgesById);
 
       // TODO nodeIndex
+      final Map<Point, Integer> nodeIdsByPoint = new TreeMap<>();
+      for (final Node<T> node : this.nodesById.values()) {
+        nodeIdsByPoint.put(node.newPoint2D(), node.getId());
+      }
+      this.nodeIdsByPoint = BPlusTreeMap.newTempDisk(nodeIdsByPoint,
+        new SerializablePageValueManager<Point>(), PageValueManager.INT);
+      this.nodeCoordinates = null;
       this.nodePropertiesById = BPlusTreeMap.newIntSeralizableTempDisk(this.nodePropertiesById);
       this.nodesById = BPlusTreeMap.newIntSeralizableTempDisk(this.nodesById);
-      this.nodesIdsByPoint = BPlusTreeMap.newTempDisk(this.nodesIdsByPoint,
-        new SerializablePageValueManager<Point>(), PageValueManager.INT);
       this.inMemory = false;
     }
     final Node<T> fromNode = getNode(fromX, fromY);
@@ -185,7 +187,6 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     }
     this.edgeObjectsById.put(edgeId, object);
     this.edgesById.put(edgeId, edge);
-    this.edgeIds.put(edge, edgeId);
     if (this.edgeIndex != null) {
       this.edgeIndex.add(edge);
     }
@@ -206,13 +207,9 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
   }
 
   public void clear() {
-    if (this.edgeIds != null) {
-      this.edgeIds.clear();
-    }
     if (this.edgePropertiesById != null) {
       this.edgePropertiesById.clear();
     }
-    this.edgeIds.clear();
     // TODO edgeIndex
     if (this.edgeLinesById != null) {
       this.edgeLinesById.clear();
@@ -229,7 +226,16 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     if (this.nodePropertiesById != null) {
       this.nodePropertiesById.clear();
     }
-    this.nodesIdsByPoint.clear();
+    clearNodeIds();
+  }
+
+  private void clearNodeIds() {
+    if (this.nodeCoordinates != null) {
+      this.nodeCoordinates.clear();
+    }
+    if (this.nodeIdsByPoint != null) {
+      this.nodeIdsByPoint.clear();
+    }
   }
 
   /**
@@ -257,9 +263,6 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
   @Override
   @PreDestroy
   public void close() {
-    if (this.edgeIds != null) {
-      this.edgeIds.clear();
-    }
     if (this.edgeIndex != null) {
       this.edgeIndex.clear();
     }
@@ -285,9 +288,7 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     if (this.nodesById != null) {
       this.nodesById.clear();
     }
-    if (this.nodesIdsByPoint != null) {
-      this.nodesIdsByPoint.clear();
-    }
+    clearNodeIds();
   }
 
   public boolean contains(final Edge<T> edge) {
@@ -315,12 +316,22 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
   }
 
   public Node<T> findNode(final double x, final double y) {
-    synchronized (this.findPoint) {
-      this.findPoint.setX(x);
-      this.findPoint.setY(y);
-      return findNode(this.findPoint);
+    final int nodeId;
+    if (this.nodeIdsByPoint == null) {
+      nodeId = this.nodeCoordinates.getNodeId(x, y);
+    } else {
+      final Integer id = this.nodeIdsByPoint.get(new PointDoubleXY(x, y));
+      if (id == null) {
+        nodeId = 0;
+      } else {
+        nodeId = id;
+      }
+    }
+    if (nodeId == 0) {
+      return null;
+    } else {
+      return getNode(nodeId);
     }
-
   }
 
   /**
@@ -331,12 +342,9 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
    * @return The nod or null if not found.
    */
   public Node<T> findNode(final Point point) {
-    final Integer nodeId = this.nodesIdsByPoint.get(point);
-    if (nodeId == null) {
-      return null;
-    } else {
-      return getNode(nodeId);
-    }
+    final double x = point.getX();
+    final double y = point.getY();
+    return findNode(x, y);
   }
 
   public List<Node<T>> findNodes(BoundingBox boundingBox) {
@@ -768,12 +776,15 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
    * @return The node.
    */
   public Node<T> getNode(final double x, final double y) {
-    final PointDoubleXY point = new PointDoubleXY(x, y);
-    Node<T> node = findNode(point);
+    Node<T> node = findNode(x, y);
     if (node == null) {
       final int nodeId = ++this.nextNodeId;
       node = new Node<>(nodeId, this, x, y);
-      this.nodesIdsByPoint.put(point, nodeId);
+      if (this.nodeIdsByPoint == null) {
+        this.nodeCoordinates.add(nodeId, x, y);
+      } else {
+        this.nodeIdsByPoint.put(new PointDoubleXY(x, y), nodeId);
+      }
       this.nodesById.put(nodeId, node);
       if (this.nodeIndex != null) {
         this.nodeIndex.add(node);
@@ -794,18 +805,9 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
    * @return The node.
    */
   public Node<T> getNode(final Point point) {
-    Node<T> node = findNode(point);
-    if (node == null) {
-      final int nodeId = ++this.nextNodeId;
-      node = new Node<>(nodeId, this, point.getX(), point.getY());
-      this.nodesIdsByPoint.put(node.newPoint2D(), nodeId);
-      this.nodesById.put(nodeId, node);
-      if (this.nodeIndex != null) {
-        this.nodeIndex.add(node);
-      }
-      this.nodeListeners.nodeEvent(node, null, null, NodeEvent.NODE_ADDED, null);
-    }
-    return node;
+    final double x = point.getX();
+    final double y = point.getY();
+    return getNode(x, y);
   }
 
   public int getNodeCount() {
@@ -828,7 +830,7 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
   }
 
   public List<Node<T>> getNodes() {
-    final List<Integer> nodeIds = new ArrayList<>(this.nodesIdsByPoint.values());
+    final List<Integer> nodeIds = new ArrayList<>(this.nodesById.keySet());
     final NodeList<T> nodeList = new NodeList<>(this, nodeIds);
     nodeList.sort(PointComparators.leftLowest());
     return nodeList;
@@ -1169,7 +1171,6 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     if (!edge.isRemoved()) {
       this.edgeListeners.edgeEvent(edge, null, EdgeEvent.EDGE_REMOVED, null);
       final int edgeId = edge.getId();
-      this.edgeIds.remove(edge);
       this.edgesById.remove(edgeId);
       this.edgePropertiesById.remove(edgeId);
       if (this.edgeLinesById != null) {
@@ -1197,7 +1198,11 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
       final int nodeId = node.getId();
       this.nodesById.remove(nodeId);
       this.nodePropertiesById.remove(nodeId);
-      this.nodesIdsByPoint.remove(node);
+      if (this.nodeIdsByPoint == null) {
+        this.nodeCoordinates.remove(nodeId);
+      } else {
+        this.nodeIdsByPoint.remove(node.newPoint2D());
+      }
       if (this.nodeIndex != null) {
         this.nodeIndex.remove(node);
       }
@@ -0,0 +1,174 @@
+package com.revolsys.geometry.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>The coordinates of the nodes in a {@link Graph} stored in x and y arrays indexed by node id,
+ * with an open addressing hash table to find the node id at an x, y coordinate.</p>
+ *
+ * <p>Coordinates must match exactly, the same as
+ * {@link com.revolsys.geometry.model.coordinates.comparator.PointComparators#leftLowest()}, except
+ * that NaN matches NaN. Using primitive arrays avoids a tree map entry, point and Integer per node
+ * and gives constant time lookup instead of O(log n) point comparisons.</p>
+ *
+ * <p>The coordinates are held in memory. Once a graph has more than
+ * {@link Graph#getMaxEdgesInMemory()} edges it moves the node ids to a disk based map instead.</p>
+ */
+public class NodeCoordinates {
+  private static final int NULL_NODE_ID = 0;
+
+  private static boolean equal(final double value1, final double value2) {
+    return value1 == value2 || Double.isNaN(value1) && Double.isNaN(value2);
+  }
+
+  private static int hash(final double x, final double y) {
+    // + 0.0 so that -0.0 and 0.0 have the same hash as they are equal
+    long hash = Double.doubleToLongBits(x + 0.0) * 0x9E3779B97F4A7C15L;
+    hash ^= Double.doubleToLongBits(y + 0.0);
+    hash *= 0xBF58476D1CE4E5B9L;
+    return (int)(hash ^ hash >>> 31);
+  }
+
+  private int mask;
+
+  private int[] nodeIds;
+
+  private int size;
+
+  private double[] xs = new double[16];
+
+  private double[] ys = new double[16];
+
+  public NodeCoordinates() {
+    this.nodeIds = new int[16];
+    this.mask = this.nodeIds.length - 1;
+  }
+
+  /**
+   * Add the node, the node id must be greater than 0 and not already in the index.
+   *
+   * @param nodeId The node id.
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   */
+  public void add(final int nodeId, final double x, final double y) {
+    if (nodeId >= this.xs.length) {
+      final int capacity = Math.max(nodeId + 1, this.xs.length + (this.xs.length >> 1));
+      this.xs = Arrays.copyOf(this.xs, capacity);
+      this.ys = Arrays.copyOf(this.ys, capacity);
+    }
+    this.xs[nodeId] = x;
+    this.ys[nodeId] = y;
+    if ((this.size + 1) * 2 > this.nodeIds.length) {
+      rehash(this.nodeIds.length * 2);
+    }
+    insert(nodeId);
+    this.size++;
+  }
+
+  public void clear() {
+    Arrays.fill(this.nodeIds, NULL_NODE_ID);
+    this.size = 0;
+  }
+
+  /**
+   * Get the id of the node at the coordinates.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The node id or 0 if there isn't a node at the coordinates.
+   */
+  public int getNodeId(final double x, final double y) {
+    final int[] nodeIds = this.nodeIds;
+    final int mask = this.mask;
+    for (int i = hash(x, y) & mask;; i = i + 1 & mask) {
+      final int nodeId = nodeIds[i];
+      if (nodeId == NULL_NODE_ID) {
+        return NULL_NODE_ID;
+      } else if (equal(this.xs[nodeId], x) && equal(this.ys[nodeId], y)) {
+        return nodeId;
+      }
+    }
+  }
+
+  public double getX(final int nodeId) {
+    return this.xs[nodeId];
+  }
+
+  public double getY(final int nodeId) {
+    return this.ys[nodeId];
+  }
+
+  private void insert(final int nodeId) {
+    final int[] nodeIds = this.nodeIds;
+    final int mask = this.mask;
+    int i = hash(this.xs[nodeId], this.ys[nodeId]) & mask;
+    while (nodeIds[i] != NULL_NODE_ID) {
+      i = i + 1 & mask;
+    }
+    nodeIds[i] = nodeId;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  private void rehash(final int capacity) {
+    final int[] oldNodeIds = this.nodeIds;
+    this.nodeIds = new int[capacity];
+    this.mask = capacity - 1;
+    for (final int nodeId : oldNodeIds) {
+      if (nodeId != NULL_NODE_ID) {
+        insert(nodeId);
+      }
+    }
+  }
+
+  /**
+   * Remove the node from the index. The following entries in the probe sequence are shifted back
+   * so that no tombstones are required.
+   *
+   * @param nodeId The node id.
+   * @return True if the node was removed.
+   */
+  public boolean remove(final int nodeId) {
+    if (nodeId <= NULL_NODE_ID || nodeId >= this.xs.length) {
+      return false;
+    }
+    final int[] nodeIds = this.nodeIds;
+    final int mask = this.mask;
+    int i = hash(this.xs[nodeId], this.ys[nodeId]) & mask;
+    while (nodeIds[i] != nodeId) {
+      if (nodeIds[i] == NULL_NODE_ID) {
+        return false;
+      }
+      i = i + 1 & mask;
+    }
+    int j = i;
+    while (true) {
+      j = j + 1 & mask;
+      final int nextNodeId = nodeIds[j];
+      if (nextNodeId == NULL_NODE_ID) {
+        break;
+      }
+      final int home = hash(this.xs[nextNodeId], this.ys[nextNodeId]) & mask;
+      // Move the entry back if its home slot is not cyclically in (i, j]
+      if (i <= j ? home <= i || home > j : home <= i && home > j) {
+        nodeIds[i] = nextNodeId;
+        i = j;
+      }
+    }
+    nodeIds[i] = NULL_NODE_ID;
+    this.size--;
+    return true;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return "NodeCoordinates size=" + this.size;
+  }
+}
@@ -0,0 +1,356 @@
+package com.revolsys.geometry.index;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.index.strtree.PackedStrTree;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.page.FileMappedPageManager;
+import com.revolsys.io.page.Page;
+import com.revolsys.util.ExitLoopException;
+
+/**
+ * A persistent spatial index of the records in a file, stored in a sidecar file next to the
+ * source file (e.g. roads.shp.sidx). The index stores the offset (or record number) and bounding
+ * box of each record in an R-tree of fixed size pages managed by a {@link FileMappedPageManager}.
+ * Opening an index only reads the header page and queries only read the pages they visit, so
+ * large files can be queried without reading the whole file or building an in memory index.
+ *
+ * <p>
+ * Indexes are only written by {@link #newIndex(File, int, long[], double[])}, {@link #open(File)}
+ * opens an existing index read only.
+ * </p>
+ *
+ * <p>
+ * The header page stores the path, size and last modified time of the source file. The index is
+ * only used by {@link #open(File)} if these match the source file.
+ * </p>
+ *
+ * <p>
+ * Queries can run concurrently. Each page is read from a shared read only view of the page using
+ * absolute positions, only adding a newly mapped page to the page cache takes the write lock.
+ * </p>
+ */
+public class PagedSpatialIndex implements BaseCloseable {
+  private static final int BRANCH_ENTRY_SIZE = 36;
+
+  private static final int BRANCH_PAGE = 2;
+
+  public static final String FILE_EXTENSION = "sidx";
+
+  private static final int FILE_MAGIC = 0x53494458;
+
+  private static final int FILE_VERSION = 1;
+
+  private static final int HEADER_SIZE = 38;
+
+  private static final int LEAF_ENTRY_SIZE = 40;
+
+  private static final int LEAF_PAGE = 1;
+
+  private static final int PAGE_HEADER_SIZE = 8;
+
+  public static File getIndexFile(final File sourceFile) {
+    return new File(sourceFile.getParentFile(), sourceFile.getName() + "." + FILE_EXTENSION);
+  }
+
+  /**
+   * Create a new index file for the source file, replacing any existing index file.
+   *
+   * @param sourceFile The source file.
+   * @param count The number of records.
+   * @param offsets The offset (or record number) of each record.
+   * @param bounds The bounds (minX, minY, maxX, maxY) of each record.
+   * @return The index.
+   */
+  public static PagedSpatialIndex newIndex(final File sourceFile, final int count,
+    final long[] offsets, final double[] bounds) {
+    final File indexFile = getIndexFile(sourceFile);
+    indexFile.delete();
+    final FileMappedPageManager pageManager = new FileMappedPageManager(indexFile);
+    try {
+      final int pageSize = pageManager.getPageSize();
+      final Page headerPage = pageManager.newPage();
+
+      int rootPageIndex = -1;
+      if (count > 0) {
+        final int leafCapacity = (pageSize - PAGE_HEADER_SIZE) / LEAF_ENTRY_SIZE;
+        final int[] order = PackedStrTree.sortStr(bounds, count, leafCapacity);
+        int levelPageCount = (count + leafCapacity - 1) / leafCapacity;
+        int[] levelPageIndexes = new int[levelPageCount];
+        double[] levelBounds = new double[levelPageCount * 4];
+        for (int pageNumber = 0; pageNumber < levelPageCount; pageNumber++) {
+          final int start = pageNumber * leafCapacity;
+          final int end = Math.min(start + leafCapacity, count);
+          final Page page = pageManager.newPage();
+          try {
+            page.writeInt(LEAF_PAGE);
+            page.writeInt(end - start);
+            for (int i = start; i < end; i++) {
+              final int entryIndex = order[i];
+              page.writeLong(offsets[entryIndex]);
+              writeBounds(page, bounds, entryIndex, levelBounds, pageNumber, i == start);
+            }
+            levelPageIndexes[pageNumber] = page.getIndex();
+          } finally {
+            pageManager.releasePage(page);
+          }
+        }
+
+        final int branchCapacity = (pageSize - PAGE_HEADER_SIZE) / BRANCH_ENTRY_SIZE;
+        while (levelPageCount > 1) {
+          final int[] childOrder = PackedStrTree.sortStr(levelBounds, levelPageCount,
+            branchCapacity);
+          final int parentPageCount = (levelPageCount + branchCapacity - 1) / branchCapacity;
+          final int[] parentPageIndexes = new int[parentPageCount];
+          final double[] parentBounds = new double[parentPageCount * 4];
+          for (int pageNumber = 0; pageNumber < parentPageCount; pageNumber++) {
+            final int start = pageNumber * branchCapacity;
+            final int end = Math.min(start + branchCapacity, levelPageCount);
+            final Page page = pageManager.newPage();
+            try {
+              page.writeInt(BRANCH_PAGE);
+              page.writeInt(end - start);
+              for (int i = start; i < end; i++) {
+                final int childIndex = childOrder[i];
+                page.writeInt(levelPageIndexes[childIndex]);
+                writeBounds(page, levelBounds, childIndex, parentBounds, pageNumber, i == start);
+              }
+              parentPageIndexes[pageNumber] = page.getIndex();
+            } finally {
+              pageManager.releasePage(page);
+            }
+          }
+          levelPageCount = parentPageCount;
+          levelPageIndexes = parentPageIndexes;
+          levelBounds = parentBounds;
+        }
+        rootPageIndex = levelPageIndexes[0];
+      }
+
+      // The header is written last so an incomplete file will not be used
+      try {
+        headerPage.setOffset(0);
+        headerPage.writeInt(FILE_MAGIC);
+        headerPage.writeInt(FILE_VERSION);
+        headerPage.writeLong(sourceFile.length());
+        headerPage.writeLong(sourceFile.lastModified());
+        headerPage.writeLong(count);
+        headerPage.writeInt(rootPageIndex);
+        byte[] pathBytes = getPath(sourceFile).getBytes(StandardCharsets.UTF_8);
+        if (HEADER_SIZE + pathBytes.length > pageSize) {
+          pathBytes = new byte[0];
+        }
+        headerPage.writeShort((short)pathBytes.length);
+        headerPage.writeBytes(pathBytes);
+      } finally {
+        pageManager.releasePage(headerPage);
+      }
+      return new PagedSpatialIndex(pageManager, rootPageIndex, count);
+    } catch (final RuntimeException | Error e) {
+      pageManager.close();
+      indexFile.delete();
+      throw e;
+    }
+  }
+
+  /**
+   * Open the existing index file for the source file. The index file is opened read only and is
+   * never created or modified, use {@link #newIndex(File, int, long[], double[])} to create it.
+   *
+   * @param sourceFile The source file.
+   * @return The index or null if the index file doesn't exist or was created for a different
+   * version of the source file.
+   */
+  public static PagedSpatialIndex open(final File sourceFile) {
+    final File indexFile = getIndexFile(sourceFile);
+    if (indexFile.isFile()) {
+      final FileMappedPageManager pageManager;
+      try {
+        pageManager = new FileMappedPageManager(indexFile, true);
+      } catch (final IllegalArgumentException e) {
+        Logs.debug(PagedSpatialIndex.class, "Unable to open spatial index: " + indexFile, e);
+        return null;
+      }
+      try {
+        if (indexFile.length() >= pageManager.getPageSize()) {
+          final Page page = pageManager.getPage(0);
+          try {
+            if (page.readInt() == FILE_MAGIC && page.readInt() == FILE_VERSION
+              && page.readLong() == sourceFile.length()
+              && page.readLong() == sourceFile.lastModified()) {
+              final long count = page.readLong();
+              final int rootPageIndex = page.readInt();
+              final int pathLength = page.readShort();
+              final String path = new String(page.readBytes(pathLength), StandardCharsets.UTF_8);
+              if (pathLength == 0 || path.equals(getPath(sourceFile))) {
+                return new PagedSpatialIndex(pageManager, rootPageIndex, count);
+              }
+            }
+          } finally {
+            pageManager.releasePage(page);
+          }
+        }
+      } catch (final RuntimeException e) {
+        Logs.debug(PagedSpatialIndex.class, "Unable to read spatial index: " + indexFile, e);
+      }
+      pageManager.close();
+    }
+    return null;
+  }
+
+  private static String getPath(final File sourceFile) {
+    return sourceFile.getAbsolutePath();
+  }
+
+  private static void writeBounds(final Page page, final double[] bounds, final int entryIndex,
+    final double[] parentBounds, final int parentIndex, final boolean first) {
+    final int boundsIndex = entryIndex * 4;
+    final int parentBoundsIndex = parentIndex * 4;
+    for (int axisIndex = 0; axisIndex < 4; axisIndex++) {
+      final double value = bounds[boundsIndex + axisIndex];
+      page.writeDouble(value);
+      final int index = parentBoundsIndex + axisIndex;
+      if (first) {
+        parentBounds[index] = value;
+      } else if (axisIndex < 2) {
+        parentBounds[index] = Math.min(parentBounds[index], value);
+      } else {
+        parentBounds[index] = Math.max(parentBounds[index], value);
+      }
+    }
+  }
+
+  private final long count;
+
+  /** The read only views of the pages read by queries. */
+  private final Map<Integer, ByteBuffer> pageBuffers = new HashMap<>();
+
+  private final ReadWriteLock pageBuffersLock = new ReentrantReadWriteLock();
+
+  private final FileMappedPageManager pageManager;
+
+  private final int rootPageIndex;
+
+  private PagedSpatialIndex(final FileMappedPageManager pageManager, final int rootPageIndex,
+    final long count) {
+    this.pageManager = pageManager;
+    this.rootPageIndex = rootPageIndex;
+    this.count = count;
+  }
+
+  @Override
+  public void close() {
+    final Lock writeLock = this.pageBuffersLock.writeLock();
+    writeLock.lock();
+    try {
+      this.pageBuffers.clear();
+    } finally {
+      writeLock.unlock();
+    }
+    this.pageManager.close();
+  }
+
+  public boolean forEach(final BoundingBox boundingBox, final LongConsumer action) {
+    final double minX = boundingBox.getMinX();
+    final double minY = boundingBox.getMinY();
+    final double maxX = boundingBox.getMaxX();
+    final double maxY = boundingBox.getMaxY();
+    return forEach(minX, minY, maxX, maxY, action);
+  }
+
+  /**
+   * Call the action with the offset of each record whose bounding box intersects the bounds.
+   *
+   * @return False if the action threw an {@link ExitLoopException} to stop the query.
+   */
+  public boolean forEach(final double minX, final double minY, final double maxX,
+    final double maxY, final LongConsumer action) {
+    if (this.rootPageIndex >= 0) {
+      try {
+        forEachPage(this.rootPageIndex, minX, minY, maxX, maxY, action);
+      } catch (final ExitLoopException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void forEachPage(final int pageIndex, final double minX, final double minY,
+    final double maxX, final double maxY, final LongConsumer action) {
+    final ByteBuffer page = getPageBuffer(pageIndex);
+    final int pageType = page.getInt(0);
+    final int entryCount = page.getInt(4);
+    int position = PAGE_HEADER_SIZE;
+    for (int i = 0; i < entryCount; i++) {
+      final long offset;
+      if (pageType == LEAF_PAGE) {
+        offset = page.getLong(position);
+        position += 8;
+      } else {
+        offset = page.getInt(position);
+        position += 4;
+      }
+      final double entryMinX = page.getDouble(position);
+      final double entryMinY = page.getDouble(position + 8);
+      final double entryMaxX = page.getDouble(position + 16);
+      final double entryMaxY = page.getDouble(position + 24);
+      position += 32;
+      if (!(entryMinX > maxX || entryMinY > maxY || entryMaxX < minX || entryMaxY < minY)) {
+        if (pageType == LEAF_PAGE) {
+          action.accept(offset);
+        } else {
+          forEachPage((int)offset, minX, minY, maxX, maxY, action);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of records in the index.
+   *
+   * @return The number of records.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Get the read only view of the page. The views are cached, the read lock is used to find a
+   * cached view and the write lock is only used to add a newly mapped view.
+   */
+  private ByteBuffer getPageBuffer(final int pageIndex) {
+    final Lock readLock = this.pageBuffersLock.readLock();
+    readLock.lock();
+    try {
+      final ByteBuffer buffer = this.pageBuffers.get(pageIndex);
+      if (buffer != null) {
+        return buffer;
+      }
+    } finally {
+      readLock.unlock();
+    }
+    final Lock writeLock = this.pageBuffersLock.writeLock();
+    writeLock.lock();
+    try {
+      return this.pageBuffers.computeIfAbsent(pageIndex, this.pageManager::mapPageReadOnly);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PagedSpatialIndex(" + this.count + ")";
+  }
+}
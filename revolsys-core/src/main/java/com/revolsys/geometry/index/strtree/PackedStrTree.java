@@ -0,0 +1,645 @@
+package com.revolsys.geometry.index.strtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+import com.revolsys.geometry.index.SpatialIndex;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.util.Emptyable;
+import com.revolsys.util.ExitLoopException;
+
+/**
+ * An R-tree packed using the Sort-Tile-Recursive (STR) algorithm and stored in flat
+ * arrays instead of node objects. The bounds of all items and nodes are stored in a single
+ * <code>double[]</code> (minX, minY, maxX, maxY) and the children of each node are a contiguous
+ * range of entries stored as a start and end offset in an <code>int[]</code>.
+ *
+ * <p>
+ * Items are added using {@link #insertItem(BoundingBox, Object)} and the tree is bulk loaded on
+ * the first query or when {@link #build()} is called. The sorts used to pack the tree run in
+ * parallel. After the tree is built items can't be added.
+ * {@link #removeItem(BoundingBox, Object)} replaces a removed item with a tombstone that is
+ * skipped by queries, the bounds of the nodes are not shrunk. Queries using
+ * {@link #forEach(double, double, double, double, Consumer)} don't allocate any objects.
+ * </p>
+ *
+ * <p>
+ * The tree can be written to a file using {@link #writeFile(File, ToIntFunction)} and read
+ * using {@link #readFile(File, IntFunction)}. The file stores an integer id for each item instead
+ * of the item, removed items are stored with the id -1. The file is little endian with the
+ * arrays 8 byte aligned so it can be memory mapped.
+ * </p>
+ *
+ * @param <I> The type of item.
+ */
+public class PackedStrTree<I> implements Emptyable, SpatialIndex<I> {
+
+  @FunctionalInterface
+  private interface ValuesReader {
+    void read(ByteBuffer buffer, int offset, int count);
+  }
+
+  private static final int DEFAULT_NODE_CAPACITY = 16;
+
+  private static final int FILE_HEADER_SIZE = 24;
+
+  private static final int FILE_MAGIC = 0x52535452;
+
+  private static final int FILE_VERSION = 1;
+
+  /** The maximum number of bytes to memory map at a time when reading a file. */
+  private static final int MAPPED_CHUNK_SIZE = 1 << 30;
+
+  /** The tombstone that replaces a removed item in the items of a built tree. */
+  private static final Object REMOVED = new Object();
+
+  /** The item id stored in a file for a removed item. */
+  private static final int REMOVED_ITEM_ID = -1;
+
+  private static int quantize(final double value, final double min, final double range) {
+    if (range > 0) {
+      return (int)((value - min) / range * Integer.MAX_VALUE);
+    } else {
+      return 0;
+    }
+  }
+
+  /**
+   * Read a tree from a file written by {@link #writeFile(File, ToIntFunction)}.
+   *
+   * @param file The file.
+   * @param itemFunction The function to get the item for an item id.
+   * @return The tree.
+   * @throws IOException If the file couldn't be read.
+   */
+  public static <V> PackedStrTree<V> readFile(final File file, final IntFunction<V> itemFunction)
+    throws IOException {
+    try (
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, FILE_HEADER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getInt() != FILE_MAGIC) {
+        throw new IllegalArgumentException("Not a packed STR tree file: " + file);
+      }
+      final int version = header.getInt();
+      if (version != FILE_VERSION) {
+        throw new IllegalArgumentException(
+          "Unsupported packed STR tree file version " + version + ": " + file);
+      }
+      final int nodeCapacity = header.getInt();
+      final int itemCount = header.getInt();
+      final int entryCount = header.getInt();
+
+      final PackedStrTree<V> tree = new PackedStrTree<>(nodeCapacity);
+      final double[] bounds = new double[entryCount * 4];
+      final int[] children = new int[(entryCount - itemCount) * 2];
+      final int[] itemIds = new int[itemCount];
+      long position = FILE_HEADER_SIZE;
+      position = readFileValues(channel, position, bounds.length * 8L,
+        (buffer, offset, count) -> buffer.asDoubleBuffer().get(bounds, offset, count), 8);
+      position = readFileValues(channel, position, children.length * 4L,
+        (buffer, offset, count) -> buffer.asIntBuffer().get(children, offset, count), 4);
+      readFileValues(channel, position, itemIds.length * 4L,
+        (buffer, offset, count) -> buffer.asIntBuffer().get(itemIds, offset, count), 4);
+
+      final Object[] items = new Object[itemCount];
+      int removedCount = 0;
+      for (int i = 0; i < itemCount; i++) {
+        final int itemId = itemIds[i];
+        if (itemId == REMOVED_ITEM_ID) {
+          items[i] = REMOVED;
+          removedCount++;
+        } else {
+          items[i] = itemFunction.apply(itemId);
+        }
+      }
+      tree.setBuilt(itemCount, entryCount, bounds, children, items);
+      tree.removedCount = removedCount;
+      return tree;
+    }
+  }
+
+  private static long readFileValues(final FileChannel channel, long position, final long size,
+    final ValuesReader reader, final int valueSize) throws IOException {
+    int offset = 0;
+    long remaining = size;
+    while (remaining > 0) {
+      final int chunkSize = (int)Math.min(remaining, MAPPED_CHUNK_SIZE);
+      final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, chunkSize)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      final int count = chunkSize / valueSize;
+      reader.read(buffer, offset, count);
+      offset += count;
+      position += chunkSize;
+      remaining -= chunkSize;
+    }
+    return position;
+  }
+
+  /**
+   * Get the Sort-Tile-Recursive order of the entries. The entries are sorted by the X centre and
+   * split into vertical slices, the entries in each slice are sorted by the Y centre. Each slice
+   * contains a multiple of the node capacity entries so that nodes don't span slices.
+   *
+   * The centres are quantized to 31 bits and combined with the entry index into a long so the
+   * sorts are primitive sorts.
+   *
+   * @param bounds The bounds (minX, minY, maxX, maxY) of the entries.
+   * @param count The number of entries.
+   * @param nodeCapacity The maximum number of entries per node.
+   * @return The entry indexes in sorted order.
+   */
+  public static int[] sortStr(final double[] bounds, final int count, final int nodeCapacity) {
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      final int boundsIndex = i * 4;
+      final double centreX = (bounds[boundsIndex] + bounds[boundsIndex + 2]) / 2;
+      final double centreY = (bounds[boundsIndex + 1] + bounds[boundsIndex + 3]) / 2;
+      minX = Math.min(minX, centreX);
+      minY = Math.min(minY, centreY);
+      maxX = Math.max(maxX, centreX);
+      maxY = Math.max(maxY, centreY);
+    }
+    final double originX = minX;
+    final double originY = minY;
+    final double rangeX = maxX - minX;
+    final double rangeY = maxY - minY;
+
+    final long[] keys = new long[count];
+    IntStream.range(0, count).parallel().forEach(i -> {
+      final int boundsIndex = i * 4;
+      final double centreX = (bounds[boundsIndex] + bounds[boundsIndex + 2]) / 2;
+      keys[i] = (long)quantize(centreX, originX, rangeX) << 32 | i;
+    });
+    Arrays.parallelSort(keys);
+
+    final int nodeCount = (count + nodeCapacity - 1) / nodeCapacity;
+    final int sliceCount = (int)Math.ceil(Math.sqrt(nodeCount));
+    final int sliceSize = (nodeCount + sliceCount - 1) / sliceCount * nodeCapacity;
+    IntStream.range(0, sliceCount).parallel().forEach(sliceIndex -> {
+      final int start = sliceIndex * sliceSize;
+      final int end = Math.min(start + sliceSize, count);
+      for (int i = start; i < end; i++) {
+        final int entryIndex = (int)keys[i];
+        final int boundsIndex = entryIndex * 4;
+        final double centreY = (bounds[boundsIndex + 1] + bounds[boundsIndex + 3]) / 2;
+        keys[i] = (long)quantize(centreY, originY, rangeY) << 32 | entryIndex;
+      }
+      if (start < end) {
+        Arrays.sort(keys, start, end);
+      }
+    });
+
+    final int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = (int)keys[i];
+    }
+    return order;
+  }
+
+  /** The bounds (minX, minY, maxX, maxY) of the items followed by the nodes. */
+  private double[] bounds = new double[0];
+
+  private volatile boolean built = false;
+
+  /** The start and end entry index of the children of each node. */
+  private int[] children = new int[0];
+
+  private int entryCount;
+
+  private GeometryFactory geometryFactory;
+
+  private int itemCount;
+
+  /** The items, in the order of the leaf entries once built. */
+  private Object[] items = new Object[0];
+
+  private final int nodeCapacity;
+
+  /** The number of items in a built tree that have been replaced by a tombstone. */
+  private int removedCount;
+
+  public PackedStrTree() {
+    this(DEFAULT_NODE_CAPACITY);
+  }
+
+  public PackedStrTree(final GeometryFactory geometryFactory) {
+    this();
+    this.geometryFactory = geometryFactory;
+  }
+
+  /**
+   * Construct a new tree with the given maximum number of children per node.
+   *
+   * @param nodeCapacity The maximum number of children per node.
+   */
+  public PackedStrTree(final int nodeCapacity) {
+    if (nodeCapacity < 2) {
+      throw new IllegalArgumentException("Node capacity must be greater than 1");
+    }
+    this.nodeCapacity = nodeCapacity;
+  }
+
+  /**
+   * Bulk load the tree from the inserted items. Can only be called once, after which no more
+   * items can be inserted.
+   */
+  public void build() {
+    if (!this.built) {
+      synchronized (this) {
+        if (!this.built) {
+          buildDo();
+        }
+      }
+    }
+  }
+
+  private void buildDo() {
+    final int nodeCapacity = this.nodeCapacity;
+    final int itemCount = this.itemCount;
+    if (itemCount == 0) {
+      setBuilt(0, 0, new double[0], new int[0], new Object[0]);
+      return;
+    }
+    int entryCount = itemCount;
+    int levelSize = itemCount;
+    do {
+      levelSize = (levelSize + nodeCapacity - 1) / nodeCapacity;
+      entryCount += levelSize;
+    } while (levelSize > 1);
+
+    final double[] itemBounds = this.bounds;
+    final Object[] unsortedItems = this.items;
+    final double[] bounds = new double[entryCount * 4];
+    final int[] children = new int[(entryCount - itemCount) * 2];
+    final Object[] items = new Object[itemCount];
+
+    final int[] itemOrder = sortStr(itemBounds, itemCount, nodeCapacity);
+    IntStream.range(0, itemCount).parallel().forEach(i -> {
+      final int itemIndex = itemOrder[i];
+      System.arraycopy(itemBounds, itemIndex * 4, bounds, i * 4, 4);
+      items[i] = unsortedItems[itemIndex];
+    });
+
+    int levelStart = 0;
+    levelSize = itemCount;
+    int nextEntryIndex = itemCount;
+    do {
+      final int childStart = levelStart;
+      final int childEnd = levelStart + levelSize;
+      final int parentCount = (levelSize + nodeCapacity - 1) / nodeCapacity;
+      final double[] parentBounds = new double[parentCount * 4];
+      final int[] parentChildren = new int[parentCount * 2];
+      IntStream.range(0, parentCount).parallel().forEach(parentIndex -> {
+        final int start = childStart + parentIndex * nodeCapacity;
+        final int end = Math.min(start + nodeCapacity, childEnd);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = start; i < end; i++) {
+          final int boundsIndex = i * 4;
+          minX = Math.min(minX, bounds[boundsIndex]);
+          minY = Math.min(minY, bounds[boundsIndex + 1]);
+          maxX = Math.max(maxX, bounds[boundsIndex + 2]);
+          maxY = Math.max(maxY, bounds[boundsIndex + 3]);
+        }
+        final int boundsIndex = parentIndex * 4;
+        parentBounds[boundsIndex] = minX;
+        parentBounds[boundsIndex + 1] = minY;
+        parentBounds[boundsIndex + 2] = maxX;
+        parentBounds[boundsIndex + 3] = maxY;
+        parentChildren[parentIndex * 2] = start;
+        parentChildren[parentIndex * 2 + 1] = end;
+      });
+      final int[] parentOrder = sortStr(parentBounds, parentCount, nodeCapacity);
+      final int parentStart = nextEntryIndex;
+      IntStream.range(0, parentCount).parallel().forEach(i -> {
+        final int parentIndex = parentOrder[i];
+        System.arraycopy(parentBounds, parentIndex * 4, bounds, (parentStart + i) * 4, 4);
+        final int nodeIndex = parentStart + i - itemCount;
+        children[nodeIndex * 2] = parentChildren[parentIndex * 2];
+        children[nodeIndex * 2 + 1] = parentChildren[parentIndex * 2 + 1];
+      });
+      levelStart = parentStart;
+      levelSize = parentCount;
+      nextEntryIndex += parentCount;
+    } while (levelSize > 1);
+
+    setBuilt(itemCount, entryCount, bounds, children, items);
+  }
+
+  @Override
+  public synchronized void clear() {
+    this.bounds = new double[0];
+    this.children = new int[0];
+    this.items = new Object[0];
+    this.itemCount = 0;
+    this.entryCount = 0;
+    this.removedCount = 0;
+    this.built = false;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean forEach(final Consumer<? super I> action) {
+    build();
+    try {
+      final Object[] items = this.items;
+      for (int i = 0; i < this.itemCount; i++) {
+        final Object item = items[i];
+        if (item != REMOVED) {
+          action.accept((I)item);
+        }
+      }
+      return true;
+    } catch (final ExitLoopException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean forEach(final double x, final double y, final Consumer<? super I> action) {
+    return forEach(x, y, x, y, action);
+  }
+
+  @Override
+  public boolean forEach(final double minX, final double minY, final double maxX,
+    final double maxY, final Consumer<? super I> action) {
+    build();
+    if (this.itemCount > 0) {
+      final int rootIndex = this.entryCount - 1;
+      if (intersects(rootIndex, minX, minY, maxX, maxY)) {
+        try {
+          forEachNode(rootIndex, minX, minY, maxX, maxY, action);
+        } catch (final ExitLoopException e) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void forEachNode(final int entryIndex, final double minX, final double minY,
+    final double maxX, final double maxY, final Consumer<? super I> action) {
+    final int childrenIndex = (entryIndex - this.itemCount) * 2;
+    final int start = this.children[childrenIndex];
+    final int end = this.children[childrenIndex + 1];
+    if (start < this.itemCount) {
+      final Object[] items = this.items;
+      for (int i = start; i < end; i++) {
+        final Object item = items[i];
+        if (item != REMOVED && intersects(i, minX, minY, maxX, maxY)) {
+          action.accept((I)item);
+        }
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        if (intersects(i, minX, minY, maxX, maxY)) {
+          forEachNode(i, minX, minY, maxX, maxY, action);
+        }
+      }
+    }
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    if (this.geometryFactory == null) {
+      return SpatialIndex.super.getGeometryFactory();
+    } else {
+      return this.geometryFactory;
+    }
+  }
+
+  public int getNodeCapacity() {
+    return this.nodeCapacity;
+  }
+
+  @Override
+  public int getSize() {
+    return this.itemCount - this.removedCount;
+  }
+
+  @Override
+  public void insertItem(final BoundingBox boundingBox, final I item) {
+    if (!boundingBox.isEmpty()) {
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+      insertItem(minX, minY, maxX, maxY, item);
+    }
+  }
+
+  /**
+   * Insert an item with the given bounds into the tree. This can only be called before the tree
+   * is built.
+   */
+  public synchronized void insertItem(final double minX, final double minY, final double maxX,
+    final double maxY, final I item) {
+    if (this.built) {
+      throw new IllegalStateException(
+        "Cannot insert items into a packed STR R-tree after it has been built.");
+    }
+    final int itemIndex = this.itemCount;
+    if (itemIndex == this.items.length) {
+      final int capacity = Math.max(16, itemIndex + (itemIndex >> 1));
+      this.items = Arrays.copyOf(this.items, capacity);
+      this.bounds = Arrays.copyOf(this.bounds, capacity * 4);
+    }
+    final int boundsIndex = itemIndex * 4;
+    this.bounds[boundsIndex] = minX;
+    this.bounds[boundsIndex + 1] = minY;
+    this.bounds[boundsIndex + 2] = maxX;
+    this.bounds[boundsIndex + 3] = maxY;
+    this.items[itemIndex] = item;
+    this.itemCount++;
+  }
+
+  private boolean intersects(final int entryIndex, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    final double[] bounds = this.bounds;
+    final int boundsIndex = entryIndex * 4;
+    return !(bounds[boundsIndex] > maxX || bounds[boundsIndex + 1] > maxY
+      || bounds[boundsIndex + 2] < minX || bounds[boundsIndex + 3] < minY);
+  }
+
+  public boolean isBuilt() {
+    return this.built;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return getSize() == 0;
+  }
+
+  @Override
+  public boolean removeItem(final BoundingBox boundingBox, final I item) {
+    if (boundingBox.isEmpty()) {
+      return false;
+    } else {
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+      return removeItem(minX, minY, maxX, maxY, item);
+    }
+  }
+
+  /**
+   * Remove the item whose bounds intersect the given bounds from the tree. Before the tree is
+   * built the item is removed from the inserted items. After the tree is built the item is
+   * replaced by a tombstone that queries skip.
+   *
+   * @return True if the item was removed.
+   */
+  public synchronized boolean removeItem(final double minX, final double minY, final double maxX,
+    final double maxY, final I item) {
+    if (this.built) {
+      if (this.itemCount > 0) {
+        final int rootIndex = this.entryCount - 1;
+        if (intersects(rootIndex, minX, minY, maxX, maxY)) {
+          return removeItemNode(rootIndex, minX, minY, maxX, maxY, item);
+        }
+      }
+    } else {
+      final Object[] items = this.items;
+      final int itemCount = this.itemCount;
+      for (int i = 0; i < itemCount; i++) {
+        if (items[i].equals(item) && intersects(i, minX, minY, maxX, maxY)) {
+          final int moveCount = itemCount - i - 1;
+          System.arraycopy(items, i + 1, items, i, moveCount);
+          System.arraycopy(this.bounds, (i + 1) * 4, this.bounds, i * 4, moveCount * 4);
+          items[itemCount - 1] = null;
+          this.itemCount--;
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean removeItemNode(final int entryIndex, final double minX, final double minY,
+    final double maxX, final double maxY, final I item) {
+    final int childrenIndex = (entryIndex - this.itemCount) * 2;
+    final int start = this.children[childrenIndex];
+    final int end = this.children[childrenIndex + 1];
+    if (start < this.itemCount) {
+      final Object[] items = this.items;
+      for (int i = start; i < end; i++) {
+        final Object leafItem = items[i];
+        if (leafItem != REMOVED && leafItem.equals(item)
+          && intersects(i, minX, minY, maxX, maxY)) {
+          items[i] = REMOVED;
+          this.removedCount++;
+          return true;
+        }
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        if (intersects(i, minX, minY, maxX, maxY)
+          && removeItemNode(i, minX, minY, maxX, maxY, item)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void setBuilt(final int itemCount, final int entryCount, final double[] bounds,
+    final int[] children, final Object[] items) {
+    this.itemCount = itemCount;
+    this.entryCount = entryCount;
+    this.bounds = bounds;
+    this.children = children;
+    this.items = items;
+    this.built = true;
+  }
+
+  @Override
+  public void setGeometryFactory(final GeometryFactory geometryFactory) {
+    this.geometryFactory = geometryFactory;
+  }
+
+  @Override
+  public String toString() {
+    return "PackedStrTree(" + getSize() + ")";
+  }
+
+  /**
+   * Write the tree to a file. The item id function is used to get the id to store in the file
+   * for each item, the items are not written. The id -1 is used for removed items so it can't be
+   * used as an item id.
+   *
+   * @param file The file.
+   * @param itemIdFunction The function to get the id of an item.
+   * @throws IOException If the file couldn't be written.
+   */
+  @SuppressWarnings("unchecked")
+  public void writeFile(final File file, final ToIntFunction<? super I> itemIdFunction)
+    throws IOException {
+    build();
+    try (
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(FILE_MAGIC);
+      buffer.putInt(FILE_VERSION);
+      buffer.putInt(this.nodeCapacity);
+      buffer.putInt(this.itemCount);
+      buffer.putInt(this.entryCount);
+      buffer.putInt(0);
+      for (final double value : this.bounds) {
+        if (buffer.remaining() < 8) {
+          writeBuffer(channel, buffer);
+        }
+        buffer.putDouble(value);
+      }
+      for (final int value : this.children) {
+        if (buffer.remaining() < 4) {
+          writeBuffer(channel, buffer);
+        }
+        buffer.putInt(value);
+      }
+      final Object[] items = this.items;
+      for (int i = 0; i < this.itemCount; i++) {
+        if (buffer.remaining() < 4) {
+          writeBuffer(channel, buffer);
+        }
+        final Object item = items[i];
+        final int itemId;
+        if (item == REMOVED) {
+          itemId = REMOVED_ITEM_ID;
+        } else {
+          itemId = itemIdFunction.applyAsInt((I)item);
+        }
+        buffer.putInt(itemId);
+      }
+      writeBuffer(channel, buffer);
+    }
+  }
+
+  private void writeBuffer(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
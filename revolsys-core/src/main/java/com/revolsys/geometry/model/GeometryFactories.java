@@ -1,22 +1,31 @@
 package com.revolsys.geometry.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.jeometry.coordinatesystem.model.CoordinateSystem;
 import org.jeometry.coordinatesystem.model.systems.EpsgCoordinateSystems;
 import org.jeometry.coordinatesystem.model.systems.EsriCoordinateSystems;
 
+/**
+ * The shared {@link GeometryFactory} instances for a coordinate system. The
+ * lookups are lock-free, the floating instances are stored by axis count and
+ * the fixed instances are stored in a copy on write array by axis count that
+ * is searched for a matching scale. A lock is only taken to add a new fixed
+ * instance.
+ */
 public class GeometryFactories {
 
+  private static final GeometryFactory[] EMPTY_FACTORIES = new GeometryFactory[0];
+
   private final CoordinateSystem coordinateSystem;
 
   private final int coordinateSystemId;
 
-  private final GeometryFactory[] floatingByAxisCount = new GeometryFactory[3];
+  private final AtomicReferenceArray<GeometryFactory[]> fixedByAxisCount = new AtomicReferenceArray<>(
+    3);
 
-  @SuppressWarnings("unchecked")
-  private final List<GeometryFactory>[] fixedByAxisCount = new List[3];
+  private final AtomicReferenceArray<GeometryFactory> floatingByAxisCount = new AtomicReferenceArray<>(
+    3);
 
   public GeometryFactories(final CoordinateSystem coordinateSystem) {
     this.coordinateSystem = coordinateSystem;
@@ -35,7 +44,7 @@ public class GeometryFactories {
     this.coordinateSystem = coordinateSystem;
   }
 
-  public synchronized GeometryFactory fixed(final int axisCount, final double... scales) {
+  public GeometryFactory fixed(final int axisCount, final double... scales) {
     if (axisCount < 2 || axisCount > 4) {
       throw new IllegalArgumentException("AxisCount must be in the range 2..4 not " + axisCount);
     } else {
@@ -53,27 +62,10 @@ public class GeometryFactories {
         }
       }
       final int index = axisCount - 2;
-      List<GeometryFactory> geometryFactories;
-      synchronized (this.fixedByAxisCount) {
-
-        geometryFactories = this.fixedByAxisCount[index];
-        if (geometryFactories == null) {
-          synchronized (this.fixedByAxisCount) {
-            if (geometryFactories == null) {
-              geometryFactories = new ArrayList<>();
-              this.fixedByAxisCount[index] = geometryFactories;
-            }
-          }
-        }
-      }
-      synchronized (geometryFactories) {
-        for (final GeometryFactory matchFactory : geometryFactories) {
-          if (matchFactory.equalsScales(scales)) {
-            return matchFactory;
-          }
-        }
-        final GeometryFactory geometryFactory = new GeometryFactoryFixed(this, axisCount, scales);
-        geometryFactories.add(geometryFactory);
+      final GeometryFactory geometryFactory = getFixed(index, scales);
+      if (geometryFactory == null) {
+        return newFixed(index, axisCount, scales);
+      } else {
         return geometryFactory;
       }
     }
@@ -90,17 +82,15 @@ public class GeometryFactories {
     }
   }
 
-  public synchronized GeometryFactory floating(final int axisCount) {
+  public GeometryFactory floating(final int axisCount) {
     if (axisCount < 2 || axisCount > 4) {
       throw new IllegalArgumentException("AxisCount must be in the range 2..4 not " + axisCount);
     } else {
       final int index = axisCount - 2;
-      synchronized (this.floatingByAxisCount) {
-        GeometryFactory geometryFactory = this.floatingByAxisCount[index];
-        if (geometryFactory == null) {
-          geometryFactory = new GeometryFactoryFloating(this, axisCount);
-          this.floatingByAxisCount[index] = geometryFactory;
-        }
+      final GeometryFactory geometryFactory = this.floatingByAxisCount.get(index);
+      if (geometryFactory == null) {
+        return newFloating(index, axisCount);
+      } else {
         return geometryFactory;
       }
     }
@@ -114,6 +104,48 @@ public class GeometryFactories {
     return this.coordinateSystemId;
   }
 
+  private GeometryFactory getFixed(final int index, final double[] scales) {
+    final GeometryFactory[] geometryFactories = this.fixedByAxisCount.get(index);
+    if (geometryFactories != null) {
+      for (final GeometryFactory matchFactory : geometryFactories) {
+        if (matchFactory.equalsScales(scales)) {
+          return matchFactory;
+        }
+      }
+    }
+    return null;
+  }
+
+  private synchronized GeometryFactory newFixed(final int index, final int axisCount,
+    final double[] scales) {
+    // Check again in case another thread added it
+    final GeometryFactory matchFactory = getFixed(index, scales);
+    if (matchFactory == null) {
+      GeometryFactory[] geometryFactories = this.fixedByAxisCount.get(index);
+      if (geometryFactories == null) {
+        geometryFactories = EMPTY_FACTORIES;
+      }
+      final int factoryCount = geometryFactories.length;
+      final GeometryFactory[] newFactories = new GeometryFactory[factoryCount + 1];
+      System.arraycopy(geometryFactories, 0, newFactories, 0, factoryCount);
+      final GeometryFactory geometryFactory = new GeometryFactoryFixed(this, axisCount, scales);
+      newFactories[factoryCount] = geometryFactory;
+      this.fixedByAxisCount.set(index, newFactories);
+      return geometryFactory;
+    } else {
+      return matchFactory;
+    }
+  }
+
+  private synchronized GeometryFactory newFloating(final int index, final int axisCount) {
+    GeometryFactory geometryFactory = this.floatingByAxisCount.get(index);
+    if (geometryFactory == null) {
+      geometryFactory = new GeometryFactoryFloating(this, axisCount);
+      this.floatingByAxisCount.set(index, geometryFactory);
+    }
+    return geometryFactory;
+  }
+
   @Override
   public String toString() {
     if (this.coordinateSystem == null) {
@@ -40,11 +40,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -75,7 +76,6 @@ import org.jeometry.coordinatesystem.operation.CoordinatesOperation;
 import org.jeometry.coordinatesystem.operation.CoordinatesOperationPoint;
 
 import com.revolsys.collection.CollectionUtil;
-import com.revolsys.collection.map.IntHashMap;
 import com.revolsys.collection.map.Maps;
 import com.revolsys.geometry.graph.linemerge.LineMerger;
 import com.revolsys.geometry.model.editor.BoundingBoxEditor;
@@ -89,6 +89,8 @@ import com.revolsys.geometry.model.impl.BoundingBoxDoubleXYGeometryFactory;
 import com.revolsys.geometry.model.impl.BoundingBoxEmpty;
 import com.revolsys.geometry.model.impl.GeometryCollectionImpl;
 import com.revolsys.geometry.model.impl.LineStringDoubleGf;
+import com.revolsys.geometry.model.impl.LineStringFloat;
+import com.revolsys.geometry.model.impl.LineStringScaledInt;
 import com.revolsys.geometry.model.impl.LinearRingDoubleGf;
 import com.revolsys.geometry.model.impl.MultiLineStringImpl;
 import com.revolsys.geometry.model.impl.MultiPointImpl;
@@ -457,9 +459,21 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
 
   public static final double[] SCALES_FLOATING_3 = new double[3];
 
-  private static final IntHashMap<GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM_ID = new IntHashMap<>();
+  /**
+   * The size of the array used for the lock-free fast path lookup of the
+   * instances by coordinate system id. This covers all of the EPSG coordinate
+   * system ids, other ids use {@link #INSTANCES_BY_COORDINATE_SYSTEM_ID}.
+   */
+  private static final int INSTANCES_ARRAY_SIZE = 32768;
+
+  private static final AtomicReferenceArray<GeometryFactories> INSTANCES_ARRAY_BY_COORDINATE_SYSTEM_ID = //
+    new AtomicReferenceArray<>(INSTANCES_ARRAY_SIZE);
 
-  private static final HashMap<CoordinateSystem, GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM = new HashMap<>();
+  private static final ConcurrentHashMap<Integer, GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM_ID = //
+    new ConcurrentHashMap<>();
+
+  private static final ConcurrentHashMap<CoordinateSystem, GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM = //
+    new ConcurrentHashMap<>();
 
   public static final GeometryFactory DEFAULT_2D = floating(0, 2);
 
@@ -470,6 +484,9 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
 
   public static void clear() {
     INSTANCES_BY_COORDINATE_SYSTEM_ID.clear();
+    for (int i = 0; i < INSTANCES_ARRAY_SIZE; i++) {
+      INSTANCES_ARRAY_BY_COORDINATE_SYSTEM_ID.set(i, null);
+    }
   }
 
   public static GeometryFactory fixed(final CoordinateSystem coordinateSystem, final int axisCount,
@@ -720,28 +737,46 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
           return instances(coordinateSystemId);
         }
       }
-      synchronized (INSTANCES_BY_COORDINATE_SYSTEM) {
-        GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM.get(coordinateSystem);
-        if (instances == null) {
-          instances = new GeometryFactories(coordinateSystem);
-          INSTANCES_BY_COORDINATE_SYSTEM.put(coordinateSystem, instances);
-        }
+      final GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM.get(coordinateSystem);
+      if (instances == null) {
+        return INSTANCES_BY_COORDINATE_SYSTEM.computeIfAbsent(coordinateSystem,
+          GeometryFactories::new);
+      } else {
         return instances;
       }
     }
   }
 
+  /**
+   * Get the instances for the coordinate system id. The lookup is lock-free
+   * once the instances have been created. Ids less than
+   * {@link #INSTANCES_ARRAY_SIZE} use an array lookup to avoid boxing the id.
+   *
+   * @param coordinateSystemId The coordinate system id.
+   * @return The instances.
+   */
   protected static GeometryFactories instances(int coordinateSystemId) {
     if (coordinateSystemId < 0) {
       coordinateSystemId = 0;
     }
-    synchronized (INSTANCES_BY_COORDINATE_SYSTEM_ID) {
-      GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM_ID.get(coordinateSystemId);
+    if (coordinateSystemId < INSTANCES_ARRAY_SIZE) {
+      GeometryFactories instances = INSTANCES_ARRAY_BY_COORDINATE_SYSTEM_ID
+        .get(coordinateSystemId);
       if (instances == null) {
-        instances = new GeometryFactories(coordinateSystemId);
-        INSTANCES_BY_COORDINATE_SYSTEM_ID.put(coordinateSystemId, instances);
+        instances = INSTANCES_BY_COORDINATE_SYSTEM_ID.computeIfAbsent(coordinateSystemId,
+          GeometryFactories::new);
+        INSTANCES_ARRAY_BY_COORDINATE_SYSTEM_ID.set(coordinateSystemId, instances);
       }
       return instances;
+    } else {
+      final GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM_ID
+        .get(coordinateSystemId);
+      if (instances == null) {
+        return INSTANCES_BY_COORDINATE_SYSTEM_ID.computeIfAbsent(coordinateSystemId,
+          GeometryFactories::new);
+      } else {
+        return instances;
+      }
     }
   }
 
@@ -2003,6 +2038,50 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
     }
   }
 
+  /**
+   * Construct a new line that stores the coordinates as floats. This uses less
+   * memory but the coordinates are not exact so should only be used for display
+   * only layers.
+   *
+   * @param line The line to copy.
+   * @return The line.
+   */
+  public LineString lineStringFloat(final LineString line) {
+    if (line == null || line.isEmpty()) {
+      return lineString();
+    } else {
+      final int vertexCount = line.getVertexCount();
+      final double[] coordinates = LineStringDoubleGf.getNewCoordinates(this, line);
+      return LineStringFloat.newLineStringFloat(this, vertexCount, coordinates);
+    }
+  }
+
+  /**
+   * Construct a new line that stores the coordinates as int multiples of this
+   * geometry factory's scales. The coordinates are the same as the line
+   * returned by {@link #lineString(LineString)} but use less memory. If an axis
+   * doesn't have a scale or the line's extent is too large to store as ints
+   * the line returned by {@link #lineString(LineString)} is used.
+   *
+   * @param line The line to copy.
+   * @return The line.
+   */
+  public LineString lineStringScaledInt(final LineString line) {
+    if (line == null || line.isEmpty()) {
+      return lineString();
+    } else {
+      final int vertexCount = line.getVertexCount();
+      final double[] coordinates = LineStringDoubleGf.getNewCoordinates(this, line);
+      final LineString scaledLine = LineStringScaledInt.newLineStringScaledInt(this, vertexCount,
+        coordinates);
+      if (scaledLine == null) {
+        return new LineStringDoubleGf(this, this.axisCount, vertexCount, coordinates);
+      } else {
+        return scaledLine;
+      }
+    }
+  }
+
   public void makePrecise(final double[] values, final double[] valuesPrecise) {
     for (int i = 0; i < valuesPrecise.length; i++) {
       valuesPrecise[i] = values[i];
@@ -0,0 +1,240 @@
+package com.revolsys.geometry.model.impl;
+
+import java.util.Arrays;
+
+import org.jeometry.common.function.BiConsumerDouble;
+import org.jeometry.common.function.Consumer4Double;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+
+/**
+ * A {@link LineString} that stores the coordinates as floats instead of
+ * doubles. The conversion to float is lossy so this should only be used for
+ * display only layers, not for data that will be edited or saved.
+ *
+ * To minimize the loss of precision for projected coordinate systems the X and
+ * Y coordinates are stored as an offset from the first vertex. The Z and M
+ * coordinates are stored as is.
+ */
+public class LineStringFloat extends AbstractLineString {
+  private static final float[] EMPTY_COORDINATES = new float[0];
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Construct a new line from the coordinates which must have the same axis
+   * count as the geometry factory.
+   *
+   * @param geometryFactory The geometry factory.
+   * @param vertexCount The number of vertices.
+   * @param coordinates The coordinates.
+   * @return The line.
+   */
+  public static LineStringFloat newLineStringFloat(final GeometryFactory geometryFactory,
+    final int vertexCount, final double[] coordinates) {
+    final int axisCount = geometryFactory.getAxisCount();
+    if (coordinates == null || vertexCount == 0) {
+      return new LineStringFloat(geometryFactory, axisCount, 0, 0, 0, EMPTY_COORDINATES);
+    } else {
+      final int coordinateCount = vertexCount * axisCount;
+      if (coordinateCount > coordinates.length) {
+        throw new IllegalArgumentException("axisCount=" + axisCount + " * vertexCount="
+          + vertexCount + " > coordinates.length=" + coordinates.length);
+      }
+      final double originX = coordinates[0];
+      final double originY = coordinates[1];
+      final float[] floatCoordinates = new float[coordinateCount];
+      for (int i = 0; i < coordinateCount; i++) {
+        final int axisIndex = i % axisCount;
+        final double value = coordinates[i];
+        if (axisIndex == 0) {
+          floatCoordinates[i] = (float)(value - originX);
+        } else if (axisIndex == 1) {
+          floatCoordinates[i] = (float)(value - originY);
+        } else {
+          floatCoordinates[i] = (float)value;
+        }
+      }
+      return new LineStringFloat(geometryFactory, axisCount, vertexCount, originX, originY,
+        floatCoordinates);
+    }
+  }
+
+  private final int axisCount;
+
+  private BoundingBox boundingBox;
+
+  private float[] coordinates;
+
+  private final GeometryFactory geometryFactory;
+
+  private final double originX;
+
+  private final double originY;
+
+  private final int vertexCount;
+
+  protected LineStringFloat(final GeometryFactory geometryFactory, final int axisCount,
+    final int vertexCount, final double originX, final double originY,
+    final float[] coordinates) {
+    this.geometryFactory = geometryFactory;
+    this.axisCount = axisCount;
+    this.vertexCount = vertexCount;
+    this.originX = originX;
+    this.originY = originY;
+    this.coordinates = coordinates;
+  }
+
+  @Override
+  public LineStringFloat clone() {
+    final LineStringFloat clone = (LineStringFloat)super.clone();
+    clone.coordinates = this.coordinates.clone();
+    return clone;
+  }
+
+  @Override
+  public void copyPoint(final int vertexIndex, final int axisCount, final double[] coordinates) {
+    if (vertexIndex < this.vertexCount) {
+      final int copyAxisCount = Math.min(axisCount, this.axisCount);
+      final int offset = vertexIndex * this.axisCount;
+      for (int axisIndex = 0; axisIndex < copyAxisCount; axisIndex++) {
+        coordinates[axisIndex] = toDouble(axisIndex, this.coordinates[offset + axisIndex]);
+      }
+      Arrays.fill(coordinates, copyAxisCount, axisCount, Double.NaN);
+    } else {
+      Arrays.fill(coordinates, 0, axisCount, Double.NaN);
+    }
+  }
+
+  @Override
+  public void forEachSegment(final Consumer4Double action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final float[] coordinates = this.coordinates;
+    final double originX = this.originX;
+    final double originY = this.originY;
+    double x1 = originX + coordinates[0];
+    double y1 = originY + coordinates[1];
+    int coordinateIndex = axisCount;
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final double x2 = originX + coordinates[coordinateIndex];
+      final double y2 = originY + coordinates[coordinateIndex + 1];
+      action.accept(x1, y1, x2, y2);
+      coordinateIndex += axisCount;
+      x1 = x2;
+      y1 = y2;
+    }
+  }
+
+  @Override
+  public void forEachVertex(final BiConsumerDouble action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final float[] coordinates = this.coordinates;
+    final double originX = this.originX;
+    final double originY = this.originY;
+    int coordinateIndex = 0;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      final double x = originX + coordinates[coordinateIndex];
+      final double y = originY + coordinates[coordinateIndex + 1];
+      action.accept(x, y);
+      coordinateIndex += axisCount;
+    }
+  }
+
+  @Override
+  public int getAxisCount() {
+    return this.axisCount;
+  }
+
+  @Override
+  public BoundingBox getBoundingBox() {
+    if (this.boundingBox == null) {
+      this.boundingBox = newBoundingBox();
+    }
+    return this.boundingBox;
+  }
+
+  @Override
+  public double getCoordinate(int vertexIndex, final int axisIndex) {
+    final int axisCount = this.axisCount;
+    if (axisIndex < axisCount) {
+      final int vertexCount = this.vertexCount;
+      if (vertexIndex < vertexCount) {
+        while (vertexIndex < 0) {
+          vertexIndex += vertexCount;
+        }
+        return toDouble(axisIndex, this.coordinates[vertexIndex * axisCount + axisIndex]);
+      }
+    }
+    return Double.NaN;
+  }
+
+  @Override
+  public double getCoordinateFast(final int vertexIndex, final int axisIndex) {
+    final int axisCount = this.axisCount;
+    if (axisIndex < axisCount) {
+      return toDouble(axisIndex, this.coordinates[vertexIndex * axisCount + axisIndex]);
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public double[] getCoordinates() {
+    final int axisCount = this.axisCount;
+    final float[] coordinates = this.coordinates;
+    final double[] doubleCoordinates = new double[coordinates.length];
+    for (int i = 0; i < coordinates.length; i++) {
+      doubleCoordinates[i] = toDouble(i % axisCount, coordinates[i]);
+    }
+    return doubleCoordinates;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  public int getVertexCount() {
+    return this.vertexCount;
+  }
+
+  @Override
+  public double getX(final int vertexIndex) {
+    return this.originX + this.coordinates[vertexIndex * this.axisCount];
+  }
+
+  @Override
+  public double getY(final int vertexIndex) {
+    return this.originY + this.coordinates[vertexIndex * this.axisCount + 1];
+  }
+
+  @Override
+  public double getZ(final int vertexIndex) {
+    final int axisCount = this.axisCount;
+    if (axisCount > 2) {
+      return this.coordinates[vertexIndex * axisCount + 2];
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.vertexCount == 0;
+  }
+
+  private double toDouble(final int axisIndex, final float value) {
+    if (axisIndex == 0) {
+      return this.originX + value;
+    } else if (axisIndex == 1) {
+      return this.originY + value;
+    } else {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,400 @@
+package com.revolsys.geometry.model.impl;
+
+import java.util.Arrays;
+
+import org.jeometry.common.function.BiConsumerDouble;
+import org.jeometry.common.function.BiFunctionDouble;
+import org.jeometry.common.function.Consumer3Double;
+import org.jeometry.common.function.Consumer4Double;
+import org.jeometry.common.function.Function4Double;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+
+/**
+ * A {@link LineString} for a fixed scale {@link GeometryFactory} that stores
+ * the coordinates as scaled int values (value * scale) instead of doubles. As
+ * the coordinates are already precise to the scale of the geometry factory the
+ * values returned are identical to those stored in a {@link LineStringDoubleGf}
+ * but use half the memory.
+ *
+ * The X and Y coordinates are stored as an offset from the scaled X and Y of
+ * the first vertex so that large coordinates (e.g. UTM northings) can be stored
+ * as long as the extent of the line fits in an int. A NaN Z or M coordinate is
+ * stored as {@link Integer#MIN_VALUE}.
+ * Use {@link GeometryFactory#lineStringScaledInt(LineString)} or
+ * {@link #newLineStringScaledInt(GeometryFactory, int, double[])} to create a
+ * line, the latter returns null if the coordinates can't be stored as scaled
+ * ints. Geometry factories don't create these lines unless requested.
+ */
+public class LineStringScaledInt extends AbstractLineString {
+  private static final int[] EMPTY_COORDINATES = new int[0];
+
+  private static final int NAN = Integer.MIN_VALUE;
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Check if all the axes of the geometry factory have a scale so coordinates
+   * can be stored as scaled ints.
+   *
+   * @param geometryFactory The geometry factory.
+   * @return True if the geometry factory supports scaled int coordinates.
+   */
+  public static boolean isSupported(final GeometryFactory geometryFactory) {
+    if (geometryFactory == null || geometryFactory.isFloating()) {
+      return false;
+    } else {
+      final int axisCount = geometryFactory.getAxisCount();
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        if (!(geometryFactory.getScale(axisIndex) > 0)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Construct a new line from the coordinates which must have the same axis
+   * count as the geometry factory and already be precise to the geometry
+   * factory's scale.
+   *
+   * @param geometryFactory The geometry factory.
+   * @param vertexCount The number of vertices.
+   * @param coordinates The precise coordinates.
+   * @return The line or null if the coordinates can't be stored as scaled ints.
+   */
+  public static LineStringScaledInt newLineStringScaledInt(final GeometryFactory geometryFactory,
+    final int vertexCount, final double[] coordinates) {
+    if (!isSupported(geometryFactory)) {
+      return null;
+    }
+    final int axisCount = geometryFactory.getAxisCount();
+    if (coordinates == null || vertexCount == 0) {
+      return new LineStringScaledInt(geometryFactory, axisCount, 0, 0, 0, EMPTY_COORDINATES);
+    }
+    final int coordinateCount = vertexCount * axisCount;
+    if (coordinateCount > coordinates.length) {
+      return null;
+    }
+    final double originXValue = coordinates[0];
+    final double originYValue = coordinates[1];
+    if (!Double.isFinite(originXValue) || !Double.isFinite(originYValue)) {
+      return null;
+    }
+    final long originX = Math.round(originXValue * geometryFactory.getScaleX());
+    final long originY = Math.round(originYValue * geometryFactory.getScaleY());
+    final int[] intCoordinates = new int[coordinateCount];
+    for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+      final double scale = geometryFactory.getScale(axisIndex);
+      long origin = 0;
+      if (axisIndex == 0) {
+        origin = originX;
+      } else if (axisIndex == 1) {
+        origin = originY;
+      }
+      for (int i = axisIndex; i < coordinateCount; i += axisCount) {
+        final double value = coordinates[i];
+        if (Double.isNaN(value)) {
+          if (axisIndex < 2) {
+            return null;
+          } else {
+            intCoordinates[i] = NAN;
+          }
+        } else if (Double.isInfinite(value)) {
+          return null;
+        } else {
+          final long scaledValue = Math.round(value * scale) - origin;
+          if (scaledValue > Integer.MAX_VALUE || scaledValue <= NAN) {
+            return null;
+          } else {
+            intCoordinates[i] = (int)scaledValue;
+          }
+        }
+      }
+    }
+    return new LineStringScaledInt(geometryFactory, axisCount, vertexCount, originX, originY,
+      intCoordinates);
+  }
+
+  private final int axisCount;
+
+  private BoundingBox boundingBox;
+
+  private int[] coordinates;
+
+  private final GeometryFactory geometryFactory;
+
+  /** The scaled X coordinate of the first vertex */
+  private final long originX;
+
+  /** The scaled Y coordinate of the first vertex */
+  private final long originY;
+
+  private final int vertexCount;
+
+  protected LineStringScaledInt(final GeometryFactory geometryFactory, final int axisCount,
+    final int vertexCount, final long originX, final long originY, final int[] coordinates) {
+    this.geometryFactory = geometryFactory;
+    this.axisCount = axisCount;
+    this.vertexCount = vertexCount;
+    this.originX = originX;
+    this.originY = originY;
+    this.coordinates = coordinates;
+  }
+
+  @Override
+  public LineStringScaledInt clone() {
+    final LineStringScaledInt clone = (LineStringScaledInt)super.clone();
+    clone.coordinates = this.coordinates.clone();
+    return clone;
+  }
+
+  @Override
+  public void copyPoint(final int vertexIndex, final int axisCount, final double[] coordinates) {
+    if (vertexIndex < this.vertexCount) {
+      final int copyAxisCount = Math.min(axisCount, this.axisCount);
+      final int offset = vertexIndex * this.axisCount;
+      for (int axisIndex = 0; axisIndex < copyAxisCount; axisIndex++) {
+        coordinates[axisIndex] = toDouble(axisIndex, this.coordinates[offset + axisIndex]);
+      }
+      Arrays.fill(coordinates, copyAxisCount, axisCount, Double.NaN);
+    } else {
+      Arrays.fill(coordinates, 0, axisCount, Double.NaN);
+    }
+  }
+
+  @Override
+  public <R> R findSegment(final Function4Double<R> action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double scaleX = this.geometryFactory.getScaleX();
+    final double scaleY = this.geometryFactory.getScaleY();
+    final long originX = this.originX;
+    final long originY = this.originY;
+    double x1 = (originX + coordinates[0]) / scaleX;
+    double y1 = (originY + coordinates[1]) / scaleY;
+    int coordinateIndex = axisCount;
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final double x2 = (originX + coordinates[coordinateIndex]) / scaleX;
+      final double y2 = (originY + coordinates[coordinateIndex + 1]) / scaleY;
+      final R result = action.accept(x1, y1, x2, y2);
+      if (result != null) {
+        return result;
+      }
+      coordinateIndex += axisCount;
+      x1 = x2;
+      y1 = y2;
+    }
+    return null;
+  }
+
+  @Override
+  public <R> R findVertex(final BiFunctionDouble<R> action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double scaleX = this.geometryFactory.getScaleX();
+    final double scaleY = this.geometryFactory.getScaleY();
+    final long originX = this.originX;
+    final long originY = this.originY;
+    int coordinateIndex = 0;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      final double x = (originX + coordinates[coordinateIndex]) / scaleX;
+      final double y = (originY + coordinates[coordinateIndex + 1]) / scaleY;
+      final R result = action.accept(x, y);
+      if (result != null) {
+        return result;
+      }
+      coordinateIndex += axisCount;
+    }
+    return null;
+  }
+
+  @Override
+  public void forEachLineVertex(final BiConsumerDouble firstPointAction,
+    final BiConsumerDouble action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double scaleX = this.geometryFactory.getScaleX();
+    final double scaleY = this.geometryFactory.getScaleY();
+    final long originX = this.originX;
+    final long originY = this.originY;
+    final double x1 = (originX + coordinates[0]) / scaleX;
+    final double y1 = (originY + coordinates[1]) / scaleY;
+    firstPointAction.accept(x1, y1);
+    int coordinateIndex = axisCount;
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final double x = (originX + coordinates[coordinateIndex]) / scaleX;
+      final double y = (originY + coordinates[coordinateIndex + 1]) / scaleY;
+      action.accept(x, y);
+      coordinateIndex += axisCount;
+    }
+  }
+
+  @Override
+  public void forEachSegment(final Consumer4Double action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double scaleX = this.geometryFactory.getScaleX();
+    final double scaleY = this.geometryFactory.getScaleY();
+    final long originX = this.originX;
+    final long originY = this.originY;
+    double x1 = (originX + coordinates[0]) / scaleX;
+    double y1 = (originY + coordinates[1]) / scaleY;
+    int coordinateIndex = axisCount;
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final double x2 = (originX + coordinates[coordinateIndex]) / scaleX;
+      final double y2 = (originY + coordinates[coordinateIndex + 1]) / scaleY;
+      action.accept(x1, y1, x2, y2);
+      coordinateIndex += axisCount;
+      x1 = x2;
+      y1 = y2;
+    }
+  }
+
+  @Override
+  public void forEachVertex(final BiConsumerDouble action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double scaleX = this.geometryFactory.getScaleX();
+    final double scaleY = this.geometryFactory.getScaleY();
+    final long originX = this.originX;
+    final long originY = this.originY;
+    int coordinateIndex = 0;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      final double x = (originX + coordinates[coordinateIndex]) / scaleX;
+      final double y = (originY + coordinates[coordinateIndex + 1]) / scaleY;
+      action.accept(x, y);
+      coordinateIndex += axisCount;
+    }
+  }
+
+  @Override
+  public void forEachVertex(final Consumer3Double action) {
+    final int vertexCount = this.vertexCount;
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double scaleX = this.geometryFactory.getScaleX();
+    final double scaleY = this.geometryFactory.getScaleY();
+    final long originX = this.originX;
+    final long originY = this.originY;
+    int coordinateIndex = 0;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      final double x = (originX + coordinates[coordinateIndex]) / scaleX;
+      final double y = (originY + coordinates[coordinateIndex + 1]) / scaleY;
+      double z;
+      if (axisCount > 2) {
+        z = toDouble(2, coordinates[coordinateIndex + 2]);
+      } else {
+        z = Double.NaN;
+      }
+      action.accept(x, y, z);
+      coordinateIndex += axisCount;
+    }
+  }
+
+  @Override
+  public int getAxisCount() {
+    return this.axisCount;
+  }
+
+  @Override
+  public BoundingBox getBoundingBox() {
+    if (this.boundingBox == null) {
+      this.boundingBox = newBoundingBox();
+    }
+    return this.boundingBox;
+  }
+
+  @Override
+  public double getCoordinate(int vertexIndex, final int axisIndex) {
+    final int axisCount = this.axisCount;
+    if (axisIndex < axisCount) {
+      final int vertexCount = this.vertexCount;
+      if (vertexIndex < vertexCount) {
+        while (vertexIndex < 0) {
+          vertexIndex += vertexCount;
+        }
+        return toDouble(axisIndex, this.coordinates[vertexIndex * axisCount + axisIndex]);
+      }
+    }
+    return Double.NaN;
+  }
+
+  @Override
+  public double getCoordinateFast(final int vertexIndex, final int axisIndex) {
+    final int axisCount = this.axisCount;
+    if (axisIndex < axisCount) {
+      return toDouble(axisIndex, this.coordinates[vertexIndex * axisCount + axisIndex]);
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public double[] getCoordinates() {
+    final int axisCount = this.axisCount;
+    final int[] coordinates = this.coordinates;
+    final double[] doubleCoordinates = new double[coordinates.length];
+    for (int i = 0; i < coordinates.length; i++) {
+      doubleCoordinates[i] = toDouble(i % axisCount, coordinates[i]);
+    }
+    return doubleCoordinates;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  public int getVertexCount() {
+    return this.vertexCount;
+  }
+
+  @Override
+  public double getX(final int vertexIndex) {
+    final int value = this.coordinates[vertexIndex * this.axisCount];
+    return (this.originX + value) / this.geometryFactory.getScaleX();
+  }
+
+  @Override
+  public double getY(final int vertexIndex) {
+    final int value = this.coordinates[vertexIndex * this.axisCount + 1];
+    return (this.originY + value) / this.geometryFactory.getScaleY();
+  }
+
+  @Override
+  public double getZ(final int vertexIndex) {
+    final int axisCount = this.axisCount;
+    if (axisCount > 2) {
+      return toDouble(2, this.coordinates[vertexIndex * axisCount + 2]);
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.vertexCount == 0;
+  }
+
+  private double toDouble(final int axisIndex, final int value) {
+    if (axisIndex == 0) {
+      return (this.originX + value) / this.geometryFactory.getScaleX();
+    } else if (axisIndex == 1) {
+      return (this.originY + value) / this.geometryFactory.getScaleY();
+    } else if (value == NAN) {
+      return Double.NaN;
+    } else {
+      return value / this.geometryFactory.getScale(axisIndex);
+    }
+  }
+}
@@ -32,6 +32,7 @@
  */
 package com.revolsys.geometry.noding;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -65,7 +66,7 @@ public class FastNodingValidator {
 
   private boolean isValid = true;
 
-  private final LineIntersector li = new RobustLineIntersector();
+  private List intersections;
 
   private InteriorIntersectionFinder segInt = null;
 
@@ -87,11 +88,31 @@ public class FastNodingValidator {
      * since noding should have split any true interior intersections already.
      */
     this.isValid = true;
-    this.segInt = new InteriorIntersectionFinder(this.li);
-    this.segInt.setFindAllIntersections(this.findAllIntersections);
+    this.segInt = newInteriorIntersectionFinder();
     final MCIndexNoder noder = new MCIndexNoder();
     noder.setSegmentIntersector(this.segInt);
+    noder.setSegmentIntersectorFactory(this::newInteriorIntersectionFinder);
     noder.computeNodes(this.segStrings);
+    final List<SegmentIntersector> segmentIntersectors = noder.getSegmentIntersectors();
+    if (segmentIntersectors.isEmpty()) {
+      this.intersections = this.segInt.getIntersections();
+    } else {
+      // Searched in parallel, use the first intersection in chain order
+      this.intersections = new ArrayList();
+      InteriorIntersectionFinder intersectionFinder = null;
+      for (final SegmentIntersector segmentIntersector : segmentIntersectors) {
+        final InteriorIntersectionFinder finder = (InteriorIntersectionFinder)segmentIntersector;
+        if (finder.hasIntersection()) {
+          if (intersectionFinder == null) {
+            intersectionFinder = finder;
+          }
+          this.intersections.addAll(finder.getIntersections());
+        }
+      }
+      if (intersectionFinder != null) {
+        this.segInt = intersectionFinder;
+      }
+    }
     if (this.segInt.hasIntersection()) {
       this.isValid = false;
       return;
@@ -137,7 +158,7 @@ public class FastNodingValidator {
   }
 
   public List getIntersections() {
-    return this.segInt.getIntersections();
+    return this.intersections;
   }
 
   /**
@@ -151,6 +172,13 @@ public class FastNodingValidator {
     return this.isValid;
   }
 
+  private InteriorIntersectionFinder newInteriorIntersectionFinder() {
+    final LineIntersector li = new RobustLineIntersector();
+    final InteriorIntersectionFinder finder = new InteriorIntersectionFinder(li);
+    finder.setFindAllIntersections(this.findAllIntersections);
+    return finder;
+  }
+
   public void setFindAllIntersections(final boolean findAllIntersections) {
     this.findAllIntersections = findAllIntersections;
   }
@@ -60,7 +60,10 @@ public class IteratedNoder implements Noder {
 
   private Collection nodedSegStrings;
 
+  private final double scale;
+
   public IteratedNoder(final double scale) {
+    this.scale = scale;
     this.li = new RobustLineIntersector(scale);
   }
 
@@ -114,9 +117,15 @@ public class IteratedNoder implements Noder {
     final IntersectionAdder si = new IntersectionAdder(this.li);
     final MCIndexNoder noder = new MCIndexNoder();
     noder.setSegmentIntersector(si);
+    noder.setSegmentIntersectorFactory(
+      () -> new IntersectionAdder(new RobustLineIntersector(this.scale)));
     noder.computeNodes(segStrings);
     this.nodedSegStrings = noder.getNodedSubstrings();
-    numInteriorIntersections[0] = si.numInteriorIntersections;
+    int interiorIntersectionCount = si.numInteriorIntersections;
+    for (final SegmentIntersector segmentIntersector : noder.getSegmentIntersectors()) {
+      interiorIntersectionCount += ((IntersectionAdder)segmentIntersector).numInteriorIntersections;
+    }
+    numInteriorIntersections[0] = interiorIntersectionCount;
     // System.out.println("# intersection tests: " + si.numTests);
   }
 
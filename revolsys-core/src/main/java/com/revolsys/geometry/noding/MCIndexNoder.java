@@ -32,8 +32,13 @@
  */
 package com.revolsys.geometry.noding;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import com.revolsys.geometry.index.SpatialIndex;
 import com.revolsys.geometry.index.chain.MonotoneChain;
@@ -45,12 +50,30 @@ import com.revolsys.geometry.index.strtree.StrTree;
  * The {@link SpatialIndex} used should be something that supports
  * envelope (range) queries efficiently (such as a <code>Quadtree</code>}
  * or {@link StrTree} (which is the default index provided).
+ * <p>
+ * If a {@link #setSegmentIntersectorFactory(Supplier)} is set, large sets of
+ * segments are searched for overlapping chains using {@link #getParallelism()}
+ * threads and the shared read only chain index. Each thread processes the
+ * intersections with its own {@link SegmentIntersector}, and all the threads
+ * stop once any of the intersectors is done. Without a factory the chains are
+ * searched on the current thread.
  *
  * @version 1.7
  */
 public class MCIndexNoder extends SinglePassNoder {
+  /**
+   * The minimum number of chains to search in parallel, below this the
+   * overhead of the threads is greater than the time saved.
+   */
+  private static final int PARALLEL_MIN_CHAIN_COUNT = 4096;
+
   private final MonotoneChain[] EMPTY = new MonotoneChain[0];
 
+  private int chainCount = 0;
+
+  /** Flag to stop the search on all threads once a segment intersector is done. */
+  private volatile boolean done;
+
   private int idCounter = 0;
 
   private final MonotoneChainIndex index = new MonotoneChainIndex();
@@ -59,6 +82,12 @@ public class MCIndexNoder extends SinglePassNoder {
 
   private Collection<NodedSegmentString> nodedSegStrings;
 
+  private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
+  private Supplier<? extends SegmentIntersector> segmentIntersectorFactory;
+
+  private List<SegmentIntersector> segmentIntersectors = Collections.emptyList();
+
   public MCIndexNoder() {
   }
 
@@ -70,11 +99,14 @@ public class MCIndexNoder extends SinglePassNoder {
     final MonotoneChain[] addChains = MonotoneChain.getChainsArray(segStr.getLineString(), segStr);
     final int addLength = addChains.length;
     if (addLength > 0) {
-      final int oldLength = this.monoChains.length;
-      final MonotoneChain[] newChains = new MonotoneChain[oldLength + addLength];
-      System.arraycopy(this.monoChains, 0, newChains, 0, oldLength);
-      System.arraycopy(addChains, 0, newChains, oldLength, addLength);
-      this.monoChains = newChains;
+      final int oldLength = this.chainCount;
+      final int newLength = oldLength + addLength;
+      if (newLength > this.monoChains.length) {
+        final int capacity = Math.max(newLength, this.monoChains.length * 2);
+        this.monoChains = Arrays.copyOf(this.monoChains, capacity);
+      }
+      System.arraycopy(addChains, 0, this.monoChains, oldLength, addLength);
+      this.chainCount = newLength;
       for (final MonotoneChain chain : addChains) {
         chain.setId(this.idCounter++);
         this.index.insertItem(chain);
@@ -88,7 +120,17 @@ public class MCIndexNoder extends SinglePassNoder {
     for (final SegmentString segment : segments) {
       add(segment);
     }
-    intersectChains();
+    if (this.monoChains.length != this.chainCount) {
+      this.monoChains = Arrays.copyOf(this.monoChains, this.chainCount);
+    }
+    this.done = false;
+    this.segmentIntersectors = Collections.emptyList();
+    if (this.segmentIntersectorFactory != null && this.parallelism > 1
+      && this.chainCount >= PARALLEL_MIN_CHAIN_COUNT) {
+      intersectChainsParallel();
+    } else {
+      intersectChains(0, this.chainCount, this.segInt);
+    }
   }
 
   public MonotoneChainIndex getIndex() {
@@ -100,8 +142,26 @@ public class MCIndexNoder extends SinglePassNoder {
     return NodedSegmentString.getNodedSubstrings(this.nodedSegStrings);
   }
 
-  private void intersectChains() {
-    for (final MonotoneChain queryChain : this.monoChains) {
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Get the segment intersectors created by the
+   * {@link #setSegmentIntersectorFactory(Supplier)} for the last parallel
+   * {@link #computeNodes(Collection)}, in the order of the chains they searched.
+   *
+   * @return The segment intersectors.
+   */
+  public List<SegmentIntersector> getSegmentIntersectors() {
+    return this.segmentIntersectors;
+  }
+
+  private void intersectChains(final int startIndex, final int endIndex,
+    final SegmentIntersector segInt) {
+    final MonotoneChain[] monoChains = this.monoChains;
+    for (int i = startIndex; i < endIndex; i++) {
+      final MonotoneChain queryChain = monoChains[i];
       final List<MonotoneChain> overlapChains = this.index.getItems(queryChain);
       for (final MonotoneChain testChain : overlapChains) {
         /**
@@ -109,13 +169,75 @@ public class MCIndexNoder extends SinglePassNoder {
          * and that we don't compare a chain to itself
          */
         if (testChain.getId() > queryChain.getId()) {
-          queryChain.computeOverlaps(testChain, this.segInt);
+          queryChain.computeOverlaps(testChain, segInt);
         }
         // short-circuit if possible
-        if (this.segInt.isDone()) {
+        if (segInt.isDone()) {
+          this.done = true;
+          return;
+        } else if (this.done) {
           return;
         }
       }
     }
   }
+
+  /**
+   * Split the chains into partitions and search each partition on a separate thread.
+   */
+  private void intersectChainsParallel() {
+    this.index.build();
+    final int chainCount = this.chainCount;
+    final int partitionCount = Math.min(chainCount, this.parallelism * 4);
+    final IntStream partitions = IntStream.range(0, partitionCount).parallel();
+    final Supplier<? extends SegmentIntersector> factory = this.segmentIntersectorFactory;
+    final SegmentIntersector[] intersectors = new SegmentIntersector[partitionCount];
+    runParallel(() -> partitions.forEach(partition -> {
+      final SegmentIntersector segInt = factory.get();
+      final int startIndex = (int)((long)chainCount * partition / partitionCount);
+      final int endIndex = (int)((long)chainCount * (partition + 1) / partitionCount);
+      intersectChains(startIndex, endIndex, segInt);
+      intersectors[partition] = segInt;
+    }));
+    this.segmentIntersectors = Arrays.asList(intersectors);
+  }
+
+  private void runParallel(final Runnable action) {
+    if (this.parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+      action.run();
+    } else {
+      final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+      try {
+        pool.submit(action).join();
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Set the number of threads used to find the intersections if a
+   * {@link #setSegmentIntersectorFactory(Supplier)} is set. Defaults to the
+   * parallelism of the {@link ForkJoinPool#commonPool()}.
+   *
+   * @param parallelism The number of threads, 1 to use the current thread.
+   */
+  public void setParallelism(final int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * Set the factory used to create a {@link SegmentIntersector} for each thread
+   * of a parallel search. The intersectors created must be safe to use at the
+   * same time as each other, for example an {@link IntersectionAdder} with its own
+   * {@link com.revolsys.geometry.algorithm.LineIntersector}. The
+   * {@link SegmentNodeList} of the segment strings is safe to add nodes to
+   * from multiple threads.
+   *
+   * @param segmentIntersectorFactory The factory.
+   */
+  public void setSegmentIntersectorFactory(
+    final Supplier<? extends SegmentIntersector> segmentIntersectorFactory) {
+    this.segmentIntersectorFactory = segmentIntersectorFactory;
+  }
 }
@@ -126,10 +126,11 @@ public class SegmentNodeList implements Iterable<SegmentNode> {
   /**
    * Adds an intersection into the list, if it isn't already there.
    * The input segmentIndex and dist are expected to be normalized.
+   * Nodes can be added from multiple threads by a parallel {@link MCIndexNoder}.
    *
    * @return the SegmentIntersection found or added
    */
-  public SegmentNode add(final double x, final double y, final int segmentIndex) {
+  public synchronized SegmentNode add(final double x, final double y, final int segmentIndex) {
     if (!Double.isFinite(x) || !Double.isFinite(y)) {
       throw new IllegalArgumentException("Cannot add an empty point to a SegmentNodeList");
     } else {
@@ -132,6 +132,7 @@ public class Buffer {
       final MCIndexNoder noder = new MCIndexNoder();
       final LineIntersector li = new RobustLineIntersector();
       noder.setSegmentIntersector(new IntersectionAdder(li));
+      noder.setSegmentIntersectorFactory(() -> new IntersectionAdder(new RobustLineIntersector()));
       return (G)buffer(noder, geometryFactory, geometry, distance, parameters);
     } catch (final RuntimeException e) {
       if (geometryFactory.isFloating()) {
@@ -34,7 +34,10 @@ package com.revolsys.geometry.operation.union;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import com.revolsys.collection.list.Lists;
 import com.revolsys.geometry.index.strtree.StrTree;
@@ -70,11 +73,61 @@ import com.revolsys.util.Property;
  * The best situation for using <tt>buffer(0)</tt> is the trivial case
  * where there is <i>no</i> overlap between the input geometries.
  * However, this case is likely rare in practice.
+ * <p>
+ * If the parallelism is greater than 1 the subtrees of the index are unioned
+ * in parallel using a {@link ForkJoinPool}. The subtree results are merged
+ * in the same order as the sequential union so the result is the same
+ * for any parallelism. Use {@link #setDeterministic(boolean)} to also make the
+ * result independent of the order of the input polygons.
  *
  * @author Martin Davis
  *
  */
 public class CascadedPolygonUnion {
+  /**
+   * Unions the child subtrees of an index node in parallel and then merges them.
+   */
+  private class UnionTreeTask extends RecursiveTask<Polygonal> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<?> items;
+
+    private UnionTreeTask(final List<?> items) {
+      this.items = items;
+    }
+
+    @Override
+    protected Polygonal compute() {
+      final List<?> items = this.items;
+      final List<UnionTreeTask> tasks = new ArrayList<>();
+      for (final Object item : items) {
+        if (item instanceof List) {
+          tasks.add(new UnionTreeTask((List<?>)item));
+        }
+      }
+      invokeAll(tasks);
+
+      final List<Polygonal> geoms = new ArrayList<>();
+      int taskIndex = 0;
+      for (final Object item : items) {
+        Polygonal polygon = null;
+        if (item instanceof List) {
+          polygon = tasks.get(taskIndex++).join();
+        } else if (item instanceof Polygonal) {
+          polygon = (Polygonal)item;
+        }
+        geoms.add(polygon);
+      }
+      return binaryUnion(geoms);
+    }
+  }
+
+  /**
+   * The minimum number of polygons to union in parallel, below this the
+   * overhead of the tasks is greater than the time saved.
+   */
+  private static final int PARALLEL_MIN_POLYGON_COUNT = 64;
+
   /**
    * The effectiveness of the index is somewhat sensitive
    * to the node capacity.
@@ -138,12 +191,31 @@ public class CascadedPolygonUnion {
     return op.union();
   }
 
+  /**
+   * Computes the union of
+   * a collection of {@link Polygonal} {@link Polygonal}s
+   * using the specified number of threads.
+   *
+   * @param polygons a collection of {@link Polygonal} {@link Polygonal}s
+   * @param parallelism the number of threads, 1 to union on the current thread
+   */
+  public static Polygonal union(final Iterable<? extends Polygonal> polygons,
+    final int parallelism) {
+    final CascadedPolygonUnion op = new CascadedPolygonUnion(polygons);
+    op.setParallelism(parallelism);
+    return op.union();
+  }
+
   public static Polygonal union(final Polygonal... polygons) {
     return union(Arrays.asList(polygons));
   }
 
+  private boolean deterministic = false;
+
   private GeometryFactory geometryFactory;
 
+  private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
   private List<Polygon> polygons = new ArrayList<>();
 
   /**
@@ -223,6 +295,14 @@ public class CascadedPolygonUnion {
     }
   }
 
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public boolean isDeterministic() {
+    return this.deterministic;
+  }
+
   /**
    * Reduces a tree of geometries to a list of geometries
    * by recursively unioning the subtrees in the list.
@@ -245,6 +325,28 @@ public class CascadedPolygonUnion {
     return geoms;
   }
 
+  /**
+   * Set the flag to sort the input polygons before they are indexed. The index
+   * groups the polygons by their order in the input where their bounding boxes
+   * have the same centre. Sorting makes the result the same for any
+   * order of the input polygons.
+   *
+   * @param deterministic True if the input polygons are sorted.
+   */
+  public void setDeterministic(final boolean deterministic) {
+    this.deterministic = deterministic;
+  }
+
+  /**
+   * Set the number of threads used to union the polygons. Defaults to the
+   * parallelism of the {@link ForkJoinPool#commonPool()}.
+   *
+   * @param parallelism the number of threads, 1 to union on the current thread
+   */
+  public void setParallelism(final int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
   /**
    * Computes the union of the input geometries.
    * <p>
@@ -266,6 +368,10 @@ public class CascadedPolygonUnion {
       return GeometryFactory.DEFAULT_2D.polygon();
     } else {
       this.geometryFactory = this.polygons.get(0).getGeometryFactory();
+      if (this.deterministic) {
+        Collections.sort(this.polygons);
+      }
+      final int polygonCount = this.polygons.size();
 
       /**
        * A spatial index to organize the collection
@@ -281,8 +387,23 @@ public class CascadedPolygonUnion {
       this.polygons = null;
 
       final List<?> itemTree = index.itemsTree();
-      final Polygonal unionAll = unionTree(itemTree);
-      return unionAll;
+      final int parallelism = this.parallelism;
+      if (parallelism > 1 && polygonCount >= PARALLEL_MIN_POLYGON_COUNT) {
+        final UnionTreeTask task = new UnionTreeTask(itemTree);
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+          return ForkJoinPool.commonPool().invoke(task);
+        } else {
+          final ForkJoinPool pool = new ForkJoinPool(parallelism);
+          try {
+            return pool.invoke(task);
+          } finally {
+            pool.shutdown();
+          }
+        }
+      } else {
+        final Polygonal unionAll = unionTree(itemTree);
+        return unionAll;
+      }
     }
   }
 
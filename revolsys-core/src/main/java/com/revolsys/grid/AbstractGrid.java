@@ -1,5 +1,9 @@
 package com.revolsys.grid;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 import org.jeometry.common.awt.WebColors;
 
 import com.revolsys.geometry.model.BoundingBox;
@@ -9,6 +13,37 @@ import com.revolsys.properties.BaseObjectWithProperties;
 import com.revolsys.spring.resource.Resource;
 
 public abstract class AbstractGrid extends BaseObjectWithProperties implements Grid {
+  /** The minimum number of cells in a row band before the bulk operations use multiple threads. */
+  private static final int ROW_BAND_CELL_COUNT = 64 * 1024;
+
+  private static double getPaddedValue(final double[] values, final int gridX) {
+    final int index = gridX + 1;
+    if (index >= 0 && index < values.length) {
+      return values[index];
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  protected static IntStream newRowBandStream(final int bandCount) {
+    final IntStream bands = IntStream.range(0, bandCount);
+    if (bandCount > 1) {
+      return bands.parallel();
+    } else {
+      return bands;
+    }
+  }
+
+  protected static int[] sumBandCounts(final int[][] bandCounts, final int binCount) {
+    final int[] counts = new int[binCount];
+    for (final int[] bandCount : bandCounts) {
+      for (int i = 0; i < binCount; i++) {
+        counts[i] += bandCount[i];
+      }
+    }
+    return counts;
+  }
+
   protected double[] bounds = RectangleUtil.newBounds(3);
 
   protected int gridHeight;
@@ -220,6 +255,100 @@ public abstract class AbstractGrid extends BaseObjectWithProperties implements G
     return this.resource;
   }
 
+  /**
+   * Get the number of row bands to split the grid into for the bulk operations. Each band has at
+   * least {@link #ROW_BAND_CELL_COUNT} cells.
+   *
+   * @return The number of row bands.
+   */
+  protected int getRowBandCount() {
+    final int gridHeight = this.gridHeight;
+    final long cellCount = (long)this.gridWidth * gridHeight;
+    final long bandCount = Math.min(cellCount / ROW_BAND_CELL_COUNT,
+      ForkJoinPool.getCommonPoolParallelism() * 4L);
+    return (int)Math.max(1, Math.min(bandCount, gridHeight));
+  }
+
+  protected int getRowBandMinY(final int band, final int bandCount) {
+    return (int)((long)this.gridHeight * band / bandCount);
+  }
+
+  /**
+   * Copy the values for the row into the values array starting at offset. Null values are
+   * returned as NaN.
+   *
+   * @param gridY The grid row.
+   * @param values The array to copy the values to.
+   * @param offset The index in values for gridX = 0.
+   */
+  protected void getRowValues(final int gridY, final double[] values, final int offset) {
+    final int gridWidth = this.gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      values[offset + gridX] = getValueFast(gridX, gridY);
+    }
+  }
+
+  /**
+   * Load the row values with the same edge handling as {@link #getValue(int, int)}. The values
+   * array is gridWidth + 3 long with values[gridX + 1] = getValue(gridX, gridY).
+   */
+  private void getRowValuesPadded(final int gridY, final double[] values) {
+    final int gridWidth = this.gridWidth;
+    int rowGridY = gridY;
+    if (rowGridY == this.gridHeight) {
+      rowGridY--;
+    }
+    if (gridWidth == 0 || rowGridY < 0 || rowGridY >= this.gridHeight) {
+      Arrays.fill(values, Double.NaN);
+    } else {
+      values[0] = Double.NaN;
+      getRowValues(rowGridY, values, 1);
+      values[gridWidth + 1] = values[gridWidth];
+      values[gridWidth + 2] = Double.NaN;
+    }
+  }
+
+  /**
+   * Load the padded rows starting at gridY into rows, reusing the rows already loaded from
+   * rowsGridY.
+   *
+   * @return The gridY of the first row.
+   */
+  private int getRowValuesPadded(final double[][] rows, final int rowsGridY, final int gridY) {
+    final int rowCount = rows.length;
+    final int shift = gridY - rowsGridY;
+    if (shift != 0) {
+      int loadIndex = 0;
+      if (shift > 0 && shift < rowCount) {
+        for (int i = 0; i < shift; i++) {
+          final double[] first = rows[0];
+          System.arraycopy(rows, 1, rows, 0, rowCount - 1);
+          rows[rowCount - 1] = first;
+        }
+        loadIndex = rowCount - shift;
+      }
+      for (int i = loadIndex; i < rowCount; i++) {
+        getRowValuesPadded(gridY + i, rows[i]);
+      }
+    }
+    return gridY;
+  }
+
+  /**
+   * Get the number of row bands for the bulk operations that write the rows using
+   * {@link #setRowValues(int, double[])}. The rows are only written from multiple threads if
+   * {@link #isSetRowValuesParallel()} is true, otherwise a single band is used.
+   *
+   * @return The number of row bands.
+   */
+  protected int getSetRowBandCount() {
+    if (isSetRowValuesParallel()) {
+      return getRowBandCount();
+    } else {
+      return 1;
+    }
+  }
+
   @Override
   public double getScaleX() {
     return this.scaleX;
@@ -240,6 +369,39 @@ public abstract class AbstractGrid extends BaseObjectWithProperties implements G
     return this.modified;
   }
 
+  /**
+   * Check if {@link #setRowValues(int, double[])} can be called for different rows from multiple
+   * threads. The default setRowValues sets each cell using setValue, which isn't thread safe, so
+   * this returns false. Grids that override setRowValues to only write the row's cells override
+   * this to return true.
+   *
+   * @return True if the rows can be set in parallel.
+   */
+  protected boolean isSetRowValuesParallel() {
+    return false;
+  }
+
+  /**
+   * Get the source grid x for each column of this grid and the percent of the cell width
+   * from that source grid x.
+   */
+  private int[] newSourceGridXs(final AbstractGrid source, final double[] xPercents) {
+    final double minX = getGridMinX();
+    final double gridCellWidth = this.gridCellWidth;
+    final double sourceMinX = source.getGridMinX();
+    final double sourceGridCellWidth = source.gridCellWidth;
+    final int gridWidth = this.gridWidth;
+    final int[] sourceGridXs = new int[gridWidth];
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      final double x = minX + gridX * gridCellWidth;
+      final double xGrid = (x - sourceMinX) / sourceGridCellWidth;
+      final int sourceGridX = (int)Math.floor(xGrid);
+      sourceGridXs[gridX] = sourceGridX;
+      xPercents[gridX] = xGrid - sourceGridX;
+    }
+    return sourceGridXs;
+  }
+
   @Override
   public void setBoundingBox(final BoundingBox boundingBox) {
     this.bounds = boundingBox.getMinMaxValues(3);
@@ -288,6 +450,19 @@ public abstract class AbstractGrid extends BaseObjectWithProperties implements G
     this.resource = resource;
   }
 
+  /**
+   * Set the values for the row from the values array. NaN values are set to null.
+   *
+   * @param gridY The grid row.
+   * @param values The values indexed by gridX.
+   */
+  protected void setRowValues(final int gridY, final double[] values) {
+    final int gridWidth = this.gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      setValue(gridX, gridY, values[gridX]);
+    }
+  }
+
   protected void setValueRange(final double minValue, final double maxValue) {
     final double oldMinZ = this.bounds[2];
     if (minValue < oldMinZ || !Double.isFinite(oldMinZ)) {
@@ -299,6 +474,164 @@ public abstract class AbstractGrid extends BaseObjectWithProperties implements G
     }
   }
 
+  @Override
+  public void setValuesBicubic(final Grid grid) {
+    if (grid instanceof AbstractGrid) {
+      final AbstractGrid source = (AbstractGrid)grid;
+      final int sourceGridWidth = source.gridWidth;
+      final double sourceMinY = source.getGridMinY();
+      final double sourceGridCellHeight = source.gridCellHeight;
+      final double minY = getGridMinY();
+      final double gridCellHeight = this.gridCellHeight;
+      final int gridWidth = this.gridWidth;
+      final double[] xPercents = new double[gridWidth];
+      final int[] sourceGridXs = newSourceGridXs(source, xPercents);
+      final int bandCount = getSetRowBandCount();
+      newRowBandStream(bandCount).forEach(band -> {
+        final int startY = getRowBandMinY(band, bandCount);
+        final int endY = getRowBandMinY(band + 1, bandCount);
+        final double[][] rows = new double[4][sourceGridWidth + 3];
+        final double[] values = new double[gridWidth];
+        int rowsGridY = Integer.MIN_VALUE;
+        for (int gridY = startY; gridY < endY; gridY++) {
+          final double y = minY + gridY * gridCellHeight;
+          final double yGrid = (y - sourceMinY) / sourceGridCellHeight;
+          final int sourceGridY = (int)Math.floor(yGrid);
+          final double yPercent = yGrid - sourceGridY;
+          rowsGridY = source.getRowValuesPadded(rows, rowsGridY, sourceGridY - 1);
+          final double[] row1 = rows[0];
+          final double[] row2 = rows[1];
+          final double[] row3 = rows[2];
+          final double[] row4 = rows[3];
+          for (int gridX = 0; gridX < gridWidth; gridX++) {
+            final int gridX1 = sourceGridXs[gridX] - 1;
+            final int gridX2 = gridX1 + 1;
+            final int gridX3 = gridX1 + 2;
+            final int gridX4 = gridX1 + 3;
+            final double xPercent = xPercents[gridX];
+            final double z1 = Grid.cubicInterpolate(getPaddedValue(row1, gridX1),
+              getPaddedValue(row1, gridX2), getPaddedValue(row1, gridX3),
+              getPaddedValue(row1, gridX4), xPercent);
+            final double z2 = Grid.cubicInterpolate(getPaddedValue(row2, gridX1),
+              getPaddedValue(row2, gridX2), getPaddedValue(row2, gridX3),
+              getPaddedValue(row2, gridX4), xPercent);
+            final double z3 = Grid.cubicInterpolate(getPaddedValue(row3, gridX1),
+              getPaddedValue(row3, gridX2), getPaddedValue(row3, gridX3),
+              getPaddedValue(row3, gridX4), xPercent);
+            final double z4 = Grid.cubicInterpolate(getPaddedValue(row4, gridX1),
+              getPaddedValue(row4, gridX2), getPaddedValue(row4, gridX3),
+              getPaddedValue(row4, gridX4), xPercent);
+            values[gridX] = Grid.cubicInterpolate(z1, z2, z3, z4, yPercent);
+          }
+          setRowValues(gridY, values);
+        }
+      });
+    } else {
+      Grid.super.setValuesBicubic(grid);
+    }
+  }
+
+  @Override
+  public void setValuesBilinear(final Grid grid) {
+    if (grid instanceof AbstractGrid) {
+      final AbstractGrid source = (AbstractGrid)grid;
+      final int sourceGridWidth = source.gridWidth;
+      final double sourceMinY = source.getGridMinY();
+      final double sourceGridCellHeight = source.gridCellHeight;
+      final double minY = getGridMinY();
+      final double gridCellHeight = this.gridCellHeight;
+      final int gridWidth = this.gridWidth;
+      final double[] xPercents = new double[gridWidth];
+      final int[] sourceGridXs = newSourceGridXs(source, xPercents);
+      final int bandCount = getSetRowBandCount();
+      newRowBandStream(bandCount).forEach(band -> {
+        final int startY = getRowBandMinY(band, bandCount);
+        final int endY = getRowBandMinY(band + 1, bandCount);
+        final double[][] rows = new double[2][sourceGridWidth + 3];
+        final double[] values = new double[gridWidth];
+        int rowsGridY = Integer.MIN_VALUE;
+        for (int gridY = startY; gridY < endY; gridY++) {
+          final double y = minY + gridY * gridCellHeight;
+          final double yGrid = (y - sourceMinY) / sourceGridCellHeight;
+          final int sourceGridY = (int)Math.floor(yGrid);
+          final double yPercent = yGrid - sourceGridY;
+          final double y2y = 1 - yPercent;
+          rowsGridY = source.getRowValuesPadded(rows, rowsGridY, sourceGridY);
+          final double[] row1 = rows[0];
+          final double[] row2 = rows[1];
+          for (int gridX = 0; gridX < gridWidth; gridX++) {
+            final int sourceGridX = sourceGridXs[gridX];
+            final double z11 = getPaddedValue(row1, sourceGridX);
+            double z21 = getPaddedValue(row1, sourceGridX + 1);
+            if (!Double.isFinite(z21)) {
+              z21 = z11;
+            }
+            double z12 = getPaddedValue(row2, sourceGridX);
+            if (!Double.isFinite(z12)) {
+              z12 = z11;
+            }
+            double z22 = getPaddedValue(row2, sourceGridX + 1);
+            if (!Double.isFinite(z22)) {
+              z22 = z21;
+            }
+            final double xPercent = xPercents[gridX];
+            final double x2x = 1 - xPercent;
+            values[gridX] = z11 * x2x * y2y + z21 * xPercent * y2y + z12 * x2x * yPercent
+              + z22 * xPercent * yPercent;
+          }
+          setRowValues(gridY, values);
+        }
+      });
+    } else {
+      Grid.super.setValuesBilinear(grid);
+    }
+  }
+
+  @Override
+  public void setValuesFinite(final Grid grid) {
+    if (grid instanceof AbstractGrid) {
+      final AbstractGrid source = (AbstractGrid)grid;
+      final double gridCellWidth = this.gridCellWidth;
+      final double gridCellHeight = this.gridCellHeight;
+      if (source.gridCellWidth == gridCellWidth && source.gridCellHeight == gridCellHeight) {
+        final double offsetX = (source.getGridMinX() - getGridMinX()) / gridCellWidth;
+        final double offsetY = (source.getGridMinY() - getGridMinY()) / gridCellHeight;
+        final int gridOffsetX = (int)Math.round(offsetX);
+        final int gridOffsetY = (int)Math.round(offsetY);
+        if (Math.abs(offsetX - gridOffsetX) < 1e-6 && Math.abs(offsetY - gridOffsetY) < 1e-6) {
+          final int gridWidth = this.gridWidth;
+          final int startX = Math.max(0, gridOffsetX);
+          final int endX = Math.min(gridWidth, gridOffsetX + source.gridWidth);
+          final int startY = Math.max(0, gridOffsetY);
+          final int endY = Math.min(this.gridHeight, gridOffsetY + source.gridHeight);
+          if (startX < endX) {
+            final int sourceGridWidth = source.gridWidth;
+            final int bandCount = getSetRowBandCount();
+            newRowBandStream(bandCount).forEach(band -> {
+              final int bandStartY = Math.max(startY, getRowBandMinY(band, bandCount));
+              final int bandEndY = Math.min(endY, getRowBandMinY(band + 1, bandCount));
+              final double[] sourceValues = new double[sourceGridWidth];
+              final double[] values = new double[gridWidth];
+              for (int gridY = bandStartY; gridY < bandEndY; gridY++) {
+                source.getRowValues(gridY - gridOffsetY, sourceValues, 0);
+                getRowValues(gridY, values, 0);
+                for (int gridX = startX; gridX < endX; gridX++) {
+                  final double value = sourceValues[gridX - gridOffsetX];
+                  if (Double.isFinite(value)) {
+                    values[gridX] = value;
+                  }
+                }
+                setRowValues(gridY, values);
+              }
+            });
+          }
+          return;
+        }
+      }
+    }
+    Grid.super.setValuesFinite(grid);
+  }
+
   @Override
   public void setValuesForTriangle(final double x1, final double y1, final double z1,
     final double x2, final double y2, final double z2, final double x3, final double y3,
@@ -5,6 +5,7 @@ import java.util.function.DoubleConsumer;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.util.count.DoubleStatistics;
 
 public class DoubleArrayGrid extends AbstractGrid {
   protected static final double NULL_VALUE = Double.NaN;
@@ -102,6 +103,61 @@ public class DoubleArrayGrid extends AbstractGrid {
     return this.cells;
   }
 
+  @Override
+  public int[] getHistogram(final double minValue, final double maxValue, final int binCount) {
+    final double[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final double binScale = binCount / (maxValue - minValue);
+    final int bandCount = getRowBandCount();
+    final int[][] bandCounts = new int[bandCount][binCount];
+    newRowBandStream(bandCount).forEach(band -> {
+      final int[] counts = bandCounts[band];
+      final int startIndex = getRowBandMinY(band, bandCount) * gridWidth;
+      final int endIndex = getRowBandMinY(band + 1, bandCount) * gridWidth;
+      for (int i = startIndex; i < endIndex; i++) {
+        final double value = cells[i];
+        final int bin = Grid.getHistogramBin(minValue, maxValue, binScale, binCount, value);
+        if (bin >= 0) {
+          counts[bin]++;
+        }
+      }
+    });
+    return sumBandCounts(bandCounts, binCount);
+  }
+
+  @Override
+  protected void getRowValues(final int gridY, final double[] values, final int offset) {
+    final int gridWidth = this.gridWidth;
+    System.arraycopy(this.cells, gridY * gridWidth, values, offset, gridWidth);
+  }
+
+  @Override
+  public DoubleStatistics getStatistics() {
+    final double[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final DoubleStatistics statistics = new DoubleStatistics();
+    final int bandCount = getRowBandCount();
+    newRowBandStream(bandCount).forEach(band -> {
+      final int startIndex = getRowBandMinY(band, bandCount) * gridWidth;
+      final int endIndex = getRowBandMinY(band + 1, bandCount) * gridWidth;
+      int count = 0;
+      double sum = 0;
+      double min = Double.MAX_VALUE;
+      double max = -Double.MAX_VALUE;
+      for (int i = startIndex; i < endIndex; i++) {
+        final double value = cells[i];
+        if (Double.isFinite(value)) {
+          count++;
+          sum += value;
+          min = Math.min(min, value);
+          max = Math.max(max, value);
+        }
+      }
+      statistics.addValues(count, sum, min, max);
+    });
+    return statistics;
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
     final int index = gridY * this.gridWidth + gridX;
@@ -120,12 +176,25 @@ public class DoubleArrayGrid extends AbstractGrid {
     }
   }
 
+  @Override
+  protected boolean isSetRowValuesParallel() {
+    return true;
+  }
+
   @Override
   public DoubleArrayGrid newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double cellSize) {
     return new DoubleArrayGrid(geometryFactory, x, y, width, height, cellSize);
   }
 
+  @Override
+  public DoubleArrayGrid newGrid(final GeometryFactory geometryFactory, final double x,
+    final double y, final int width, final int height, final double gridCellWidth,
+    final double gridCellHeight) {
+    return new DoubleArrayGrid(geometryFactory, x, y, width, height, gridCellWidth,
+      gridCellHeight);
+  }
+
   public DoubleArrayGrid newGrid(final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight, final double[] newValues) {
     final GeometryFactory geometryFactory = getGeometryFactory();
@@ -178,6 +247,13 @@ public class DoubleArrayGrid extends AbstractGrid {
     return newGrid(newGridWidth, newGridHeight, newGridCellSize, newGridCellSize, newValues);
   }
 
+  @Override
+  protected void setRowValues(final int gridY, final double[] values) {
+    final int gridWidth = this.gridWidth;
+    System.arraycopy(values, 0, this.cells, gridY * gridWidth, gridWidth);
+    clearCachedObjects();
+  }
+
   @Override
   public void setValue(final int gridX, final int gridY, final double value) {
     final int width = getGridWidth();
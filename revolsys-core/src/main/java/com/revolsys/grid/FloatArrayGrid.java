@@ -5,6 +5,7 @@ import java.util.function.DoubleConsumer;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.util.count.DoubleStatistics;
 
 public class FloatArrayGrid extends AbstractGrid {
   public static final float NULL_VALUE = -Float.MAX_VALUE;
@@ -72,7 +73,7 @@ public class FloatArrayGrid extends AbstractGrid {
     float min = Float.MAX_VALUE;
     float max = -Float.MAX_VALUE;
     for (final float value : this.cells) {
-      if (Double.isFinite(value)) {
+      if (value != NULL_VALUE && Float.isFinite(value)) {
         if (value < min) {
           min = value;
         }
@@ -90,7 +91,7 @@ public class FloatArrayGrid extends AbstractGrid {
   @Override
   public void forEachValueFinite(final DoubleConsumer action) {
     for (final float value : this.cells) {
-      if (Double.isFinite(value)) {
+      if (value != NULL_VALUE && Float.isFinite(value)) {
         action.accept(value);
       }
     }
@@ -100,30 +101,113 @@ public class FloatArrayGrid extends AbstractGrid {
     return this.cells;
   }
 
+  @Override
+  public int[] getHistogram(final double minValue, final double maxValue, final int binCount) {
+    final float[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final double binScale = binCount / (maxValue - minValue);
+    final int bandCount = getRowBandCount();
+    final int[][] bandCounts = new int[bandCount][binCount];
+    newRowBandStream(bandCount).forEach(band -> {
+      final int[] counts = bandCounts[band];
+      final int startIndex = getRowBandMinY(band, bandCount) * gridWidth;
+      final int endIndex = getRowBandMinY(band + 1, bandCount) * gridWidth;
+      for (int i = startIndex; i < endIndex; i++) {
+        final float value = cells[i];
+        if (value != NULL_VALUE) {
+          final int bin = Grid.getHistogramBin(minValue, maxValue, binScale, binCount, value);
+          if (bin >= 0) {
+            counts[bin]++;
+          }
+        }
+      }
+    });
+    return sumBandCounts(bandCounts, binCount);
+  }
+
+  @Override
+  protected void getRowValues(final int gridY, final double[] values, final int offset) {
+    final float[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final int startIndex = gridY * gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      final float value = cells[startIndex + gridX];
+      if (value == NULL_VALUE) {
+        values[offset + gridX] = Double.NaN;
+      } else {
+        values[offset + gridX] = value;
+      }
+    }
+  }
+
+  @Override
+  public DoubleStatistics getStatistics() {
+    final float[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final DoubleStatistics statistics = new DoubleStatistics();
+    final int bandCount = getRowBandCount();
+    newRowBandStream(bandCount).forEach(band -> {
+      final int startIndex = getRowBandMinY(band, bandCount) * gridWidth;
+      final int endIndex = getRowBandMinY(band + 1, bandCount) * gridWidth;
+      int count = 0;
+      double sum = 0;
+      float min = Float.MAX_VALUE;
+      float max = -Float.MAX_VALUE;
+      for (int i = startIndex; i < endIndex; i++) {
+        final float value = cells[i];
+        if (value != NULL_VALUE && Float.isFinite(value)) {
+          count++;
+          sum += value;
+          min = Math.min(min, value);
+          max = Math.max(max, value);
+        }
+      }
+      statistics.addValues(count, sum, min, max);
+    });
+    return statistics;
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
     final int index = gridY * this.gridWidth + gridX;
     final float value = this.cells[index];
-    return value;
+    if (value == NULL_VALUE) {
+      return Double.NaN;
+    } else {
+      return value;
+    }
   }
 
   @Override
   public boolean hasValueFast(final int gridX, final int gridY) {
     final int index = gridY * this.gridWidth + gridX;
     final float value = this.cells[index];
-    if (Double.isFinite(value)) {
+    if (value != NULL_VALUE && Float.isFinite(value)) {
       return true;
     } else {
       return false;
     }
   }
 
+  @Override
+  protected boolean isSetRowValuesParallel() {
+    return true;
+  }
+
   @Override
   public FloatArrayGrid newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double cellSize) {
     return new FloatArrayGrid(geometryFactory, x, y, width, height, cellSize);
   }
 
+  @Override
+  public FloatArrayGrid newGrid(final GeometryFactory geometryFactory, final double x,
+    final double y, final int width, final int height, final double gridCellWidth,
+    final double gridCellHeight) {
+    return new FloatArrayGrid(geometryFactory, x, y, width, height, gridCellWidth,
+      gridCellHeight);
+  }
+
   public FloatArrayGrid newGrid(final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight, final float[] newValues) {
     final GeometryFactory geometryFactory = getGeometryFactory();
@@ -176,6 +260,17 @@ public class FloatArrayGrid extends AbstractGrid {
     return newGrid(newGridWidth, newGridHeight, newGridCellSize, newGridCellSize, newValues);
   }
 
+  @Override
+  protected void setRowValues(final int gridY, final double[] values) {
+    final float[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final int startIndex = gridY * gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      cells[startIndex + gridX] = (float)values[gridX];
+    }
+    clearCachedObjects();
+  }
+
   @Override
   public void setValue(final int gridX, final int gridY, final double value) {
     final int width = getGridWidth();
@@ -20,6 +20,7 @@ import com.revolsys.geometry.model.Polygonal;
 import com.revolsys.geometry.simplify.DouglasPeuckerSimplifier;
 import com.revolsys.properties.ObjectWithProperties;
 import com.revolsys.spring.resource.Resource;
+import com.revolsys.util.count.DoubleStatistics;
 
 /**
  * <p>A grid is a two dimensional array of values. The value could represent and double value and
@@ -90,6 +91,30 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     return gridY;
   }
 
+  /**
+   * Get the histogram bin for the value.
+   *
+   * @param minValue The minimum value of the first bin.
+   * @param maxValue The maximum value of the last bin (inclusive).
+   * @param binScale The binCount / (maxValue - minValue).
+   * @param binCount The number of bins.
+   * @param value The value.
+   * @return The bin index or -1 if the value is NaN or outside the range.
+   */
+  static int getHistogramBin(final double minValue, final double maxValue, final double binScale,
+    final int binCount, final double value) {
+    if (value >= minValue && value <= maxValue) {
+      final int bin = (int)((value - minValue) * binScale);
+      if (bin >= binCount) {
+        return binCount - 1;
+      } else {
+        return bin;
+      }
+    } else {
+      return -1;
+    }
+  }
+
   void clear();
 
   default Grid copyGrid(final BoundingBoxProxy boundingBox) {
@@ -316,6 +341,27 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
 
   int getGridWidth();
 
+  /**
+   * Get the count of the values in each of the binCount equal width bins from minValue to
+   * maxValue. Values outside the range are ignored and maxValue is counted in the last bin.
+   *
+   * @param minValue The minimum value of the first bin.
+   * @param maxValue The maximum value of the last bin (inclusive).
+   * @param binCount The number of bins.
+   * @return The counts for each bin.
+   */
+  default int[] getHistogram(final double minValue, final double maxValue, final int binCount) {
+    final int[] counts = new int[binCount];
+    final double binScale = binCount / (maxValue - minValue);
+    forEachValueFinite(value -> {
+      final int bin = getHistogramBin(minValue, maxValue, binScale, binCount, value);
+      if (bin >= 0) {
+        counts[bin]++;
+      }
+    });
+    return counts;
+  }
+
   double getMaxValue();
 
   double getMinValue();
@@ -384,6 +430,17 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     return scaleX;
   }
 
+  /**
+   * Get the count, sum, minimum, maximum and mean of the finite values in the grid.
+   *
+   * @return The statistics.
+   */
+  default DoubleStatistics getStatistics() {
+    final DoubleStatistics statistics = new DoubleStatistics();
+    forEachValueFinite(statistics::addValue);
+    return statistics;
+  }
+
   /**
    * <p>Get the value at the given coordinates by rounding down to the grid cell.</p>
    *
@@ -483,9 +540,9 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     if (!Double.isFinite(z21)) {
       z21 = z11;
     }
-    final double z12 = getValue(gridX, gridY + 1);
+    double z12 = getValue(gridX, gridY + 1);
     if (!Double.isFinite(z12)) {
-      z21 = z11;
+      z12 = z11;
     }
     double z22 = getValue(gridX + 1, gridY + 1);
     if (!Double.isFinite(z22)) {
@@ -630,6 +687,18 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
       gridCellHeight);
   }
 
+  private Grid newGridResample(final double newGridCellWidth, final double newGridCellHeight) {
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final double minX = getGridMinX();
+    final double minY = getGridMinY();
+    final int newGridWidth = (int)Math
+      .round(getGridWidth() * getGridCellWidth() / newGridCellWidth);
+    final int newGridHeight = (int)Math
+      .round(getGridHeight() * getGridCellHeight() / newGridCellHeight);
+    return newGrid(geometryFactory, minX, minY, newGridWidth, newGridHeight, newGridCellWidth,
+      newGridCellHeight);
+  }
+
   default Grid resample(final int newGridCellSize) {
     return resample(newGridCellSize, newGridCellSize);
   }
@@ -681,6 +750,36 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     return newDem;
   }
 
+  /**
+   * Create a new grid covering the same area with the new cell size, with the values calculated
+   * using {@link #getValueBicubic(double, double)}.
+   *
+   * @param newGridCellWidth The new grid cell width.
+   * @param newGridCellHeight The new grid cell height.
+   * @return The new grid.
+   */
+  default Grid resampleBicubic(final double newGridCellWidth, final double newGridCellHeight) {
+    final Grid newGrid = newGridResample(newGridCellWidth, newGridCellHeight);
+    newGrid.setValuesBicubic(this);
+    newGrid.updateValues();
+    return newGrid;
+  }
+
+  /**
+   * Create a new grid covering the same area with the new cell size, with the values calculated
+   * using {@link #getValueBilinear(double, double)}.
+   *
+   * @param newGridCellWidth The new grid cell width.
+   * @param newGridCellHeight The new grid cell height.
+   * @return The new grid.
+   */
+  default Grid resampleBilinear(final double newGridCellWidth, final double newGridCellHeight) {
+    final Grid newGrid = newGridResample(newGridCellWidth, newGridCellHeight);
+    newGrid.setValuesBilinear(this);
+    newGrid.updateValues();
+    return newGrid;
+  }
+
   void setBoundingBox(BoundingBox boundingBox);
 
   default void setValue(final double x, final double y, final double elevation) {
@@ -774,6 +873,101 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     }
   }
 
+  /**
+   * Set the value of each cell to the {@link #getValueBicubic(double, double)} of the grid at the
+   * cell's x,y. The grid must use the same coordinate system.
+   *
+   * @param grid The grid to read the values from.
+   */
+  default void setValuesBicubic(final Grid grid) {
+    final double minX = getGridMinX();
+    final double minY = getGridMinY();
+    final double gridCellWidth = getGridCellWidth();
+    final double gridCellHeight = getGridCellHeight();
+    final int gridWidth = getGridWidth();
+    final int gridHeight = getGridHeight();
+    for (int gridY = 0; gridY < gridHeight; gridY++) {
+      final double y = minY + gridY * gridCellHeight;
+      for (int gridX = 0; gridX < gridWidth; gridX++) {
+        final double x = minX + gridX * gridCellWidth;
+        final double value = grid.getValueBicubic(x, y);
+        setValue(gridX, gridY, value);
+      }
+    }
+  }
+
+  /**
+   * Set the value of each cell to the {@link #getValueBilinear(double, double)} of the grid at the
+   * cell's x,y. The grid must use the same coordinate system.
+   *
+   * @param grid The grid to read the values from.
+   */
+  default void setValuesBilinear(final Grid grid) {
+    final double minX = getGridMinX();
+    final double minY = getGridMinY();
+    final double gridCellWidth = getGridCellWidth();
+    final double gridCellHeight = getGridCellHeight();
+    final int gridWidth = getGridWidth();
+    final int gridHeight = getGridHeight();
+    for (int gridY = 0; gridY < gridHeight; gridY++) {
+      final double y = minY + gridY * gridCellHeight;
+      for (int gridX = 0; gridX < gridWidth; gridX++) {
+        final double x = minX + gridX * gridCellWidth;
+        final double value = grid.getValueBilinear(x, y);
+        setValue(gridX, gridY, value);
+      }
+    }
+  }
+
+  /**
+   * Merge the finite values from the grid into this grid, leaving the cells where the grid has no
+   * value unchanged. Used to mosaic tiles into a larger grid. The grid must have the same cell
+   * size.
+   *
+   * @param grid The grid to read the values from.
+   */
+  default void setValuesFinite(final Grid grid) {
+    final double gridCellWidth = getGridCellWidth();
+    final double gridCellHeight = getGridCellHeight();
+    if (grid.getGridCellWidth() == gridCellWidth && grid.getGridCellHeight() == gridCellHeight) {
+      final int gridWidth = getGridWidth();
+      final int gridHeight = getGridHeight();
+
+      int startX = getGridCellXRound(grid.getGridMinX());
+      int endX = startX + grid.getGridWidth();
+      if (startX < 0) {
+        startX = 0;
+      }
+      if (endX > gridWidth) {
+        endX = gridWidth;
+      }
+      int startY = getGridCellYRound(grid.getGridMinY());
+      int endY = startY + grid.getGridHeight();
+      if (startY < 0) {
+        startY = 0;
+      }
+      if (endY > gridHeight) {
+        endY = gridHeight;
+      }
+      final double minX = getGridMinX() + gridCellWidth / 2;
+      final double minY = getGridMinY() + gridCellHeight / 2;
+      for (int gridY = startY; gridY < endY; gridY++) {
+        final double y = minY + gridY * gridCellHeight;
+        for (int gridX = startX; gridX < endX; gridX++) {
+          final double x = minX + gridX * gridCellWidth;
+          final double value = grid.getValue(x, y);
+          if (Double.isFinite(value)) {
+            setValue(gridX, gridY, value);
+          }
+        }
+      }
+    } else {
+      throw new IllegalArgumentException(
+        "gridCellWidth " + grid.getGridCellWidth() + " != " + gridCellWidth + " or "
+          + "gridCellHeight " + grid.getGridCellHeight() + " != " + gridCellHeight);
+    }
+  }
+
   void setValuesForTriangle(final double x1, final double y1, final double z1, final double x2,
     final double y2, final double z2, final double x3, final double y3, final double z3);
 
@@ -0,0 +1,474 @@
+package com.revolsys.grid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.parallel.ExecutorServiceFactory;
+
+/**
+ * <p>A cache of the tiles of a tiled grid indexed by the tile's x and y index. Tiles are loaded on
+ * demand and evicted when the total memory size of the tiles exceeds the maximum memory or the
+ * number of tiles exceeds the maximum tile count. The maximum memory defaults to
+ * {@link #DEFAULT_MAX_MEMORY}.</p>
+ *
+ * <p>The {@link EvictionPolicy#LRU} policy evicts the least recently used tile. The
+ * {@link EvictionPolicy#CLOCK} policy gives tiles accessed since they were last checked a second
+ * chance, it has a lower overhead per access and keeps tiles that are revisited during a
+ * sequential scan.</p>
+ *
+ * <p>When the tile being accessed changes, the next {@link #getPrefetchDistance()} tiles in the
+ * same direction are loaded on the executor so that sequential scans don't wait for tile
+ * reads. Tiles outside the range set using
+ * {@link #setTileIndexRange(int, int, int, int)} are not prefetched.</p>
+ *
+ * <p>Tiles that are evicted or cleared are passed to the action set using
+ * {@link #setEvictAction(Consumer)} so that any open files can be released. The action is called
+ * outside the cache's lock.</p>
+ *
+ * @param <T> The type of tile.
+ */
+public class GridTileCache<T> {
+
+  /** The default maximum memory of the tiles, a quarter of the maximum heap size. */
+  public static final long DEFAULT_MAX_MEMORY = Runtime.getRuntime().maxMemory() / 4;
+
+  public enum EvictionPolicy {
+    CLOCK, LRU
+  }
+
+  @FunctionalInterface
+  public interface TileLoader<T> {
+    T loadTile(int tileIndexX, int tileIndexY);
+  }
+
+  private static class TileEntry<T> {
+    private final Long key;
+
+    private final int tileIndexX;
+
+    private final int tileIndexY;
+
+    private final CompletableFuture<T> tile = new CompletableFuture<>();
+
+    private boolean loaded;
+
+    private long memorySize;
+
+    private volatile boolean referenced;
+
+    private T value;
+
+    private TileEntry(final Long key, final int tileIndexX, final int tileIndexY,
+      final boolean referenced) {
+      this.key = key;
+      this.tileIndexX = tileIndexX;
+      this.tileIndexY = tileIndexY;
+      this.referenced = referenced;
+    }
+
+    @Override
+    public String toString() {
+      return this.tileIndexX + "," + this.tileIndexY;
+    }
+  }
+
+  private static long toKey(final int tileIndexX, final int tileIndexY) {
+    return (long)tileIndexX << 32 | tileIndexY & 0xFFFFFFFFL;
+  }
+
+  private Consumer<? super T> evictAction;
+
+  private EvictionPolicy evictionPolicy;
+
+  private Executor executor = ExecutorServiceFactory.getIoExecutorService();
+
+  private volatile TileEntry<T> lastEntry;
+
+  private final TileLoader<T> loader;
+
+  private long maxMemory = DEFAULT_MAX_MEMORY;
+
+  private int maxTileCount = Integer.MAX_VALUE;
+
+  private int maxTileIndexX = Integer.MAX_VALUE;
+
+  private int maxTileIndexY = Integer.MAX_VALUE;
+
+  private long memorySize;
+
+  private int minTileIndexX = Integer.MIN_VALUE;
+
+  private int minTileIndexY = Integer.MIN_VALUE;
+
+  private int prefetchDistance = 1;
+
+  private LinkedHashMap<Long, TileEntry<T>> tiles;
+
+  private final ToLongFunction<T> tileMemorySize;
+
+  /**
+   * @param loader The loader to read a tile. Can return null for tiles that don't exist.
+   * @param tileMemorySize The function to calculate the memory size of a tile in bytes.
+   * @param evictionPolicy The policy to select the tiles to evict.
+   */
+  public GridTileCache(final TileLoader<T> loader, final ToLongFunction<T> tileMemorySize,
+    final EvictionPolicy evictionPolicy) {
+    this.loader = loader;
+    this.tileMemorySize = tileMemorySize;
+    this.evictionPolicy = evictionPolicy;
+    this.tiles = newTileMap(evictionPolicy);
+  }
+
+  public void clear() {
+    final List<T> clearedTiles = new ArrayList<>();
+    synchronized (this) {
+      for (final TileEntry<T> entry : this.tiles.values()) {
+        if (entry.value != null) {
+          clearedTiles.add(entry.value);
+        }
+      }
+      this.lastEntry = null;
+      this.tiles.clear();
+      this.memorySize = 0;
+    }
+    evicted(clearedTiles);
+  }
+
+  public boolean containsTile(final int tileIndexX, final int tileIndexY) {
+    final Long key = toKey(tileIndexX, tileIndexY);
+    synchronized (this) {
+      return this.tiles.containsKey(key);
+    }
+  }
+
+  /**
+   * Evict tiles until the cache is within the maximum memory and tile count. The tile being
+   * loaded and tiles still loading are never evicted.
+   *
+   * @return The evicted tiles to pass to {@link #evicted(List)} once the lock is released.
+   */
+  private List<T> evict(final TileEntry<T> currentEntry) {
+    List<T> evictedTiles = Collections.emptyList();
+    final LinkedHashMap<Long, TileEntry<T>> tiles = this.tiles;
+    while (this.memorySize > this.maxMemory || tiles.size() > this.maxTileCount) {
+      final TileEntry<T> entry;
+      if (this.evictionPolicy == EvictionPolicy.CLOCK) {
+        entry = evictClock(currentEntry);
+      } else {
+        entry = evictLru(currentEntry);
+      }
+      if (entry == null) {
+        return evictedTiles;
+      } else {
+        this.memorySize -= entry.memorySize;
+        if (this.lastEntry == entry) {
+          this.lastEntry = null;
+        }
+        if (entry.value != null) {
+          if (evictedTiles.isEmpty()) {
+            evictedTiles = new ArrayList<>();
+          }
+          evictedTiles.add(entry.value);
+        }
+      }
+    }
+    return evictedTiles;
+  }
+
+  private TileEntry<T> evictClock(final TileEntry<T> currentEntry) {
+    final LinkedHashMap<Long, TileEntry<T>> tiles = this.tiles;
+    final int maxSteps = tiles.size() * 2;
+    for (int i = 0; i < maxSteps; i++) {
+      final Iterator<TileEntry<T>> iterator = tiles.values().iterator();
+      final TileEntry<T> entry = iterator.next();
+      iterator.remove();
+      if (entry.loaded && entry != currentEntry && !entry.referenced) {
+        return entry;
+      } else {
+        entry.referenced = false;
+        tiles.put(entry.key, entry);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Pass the evicted tiles to the evict action. Errors from the action are ignored so that the
+   * remaining tiles are still released.
+   */
+  private void evicted(final List<T> evictedTiles) {
+    final Consumer<? super T> evictAction = this.evictAction;
+    if (evictAction != null) {
+      for (final T tile : evictedTiles) {
+        try {
+          evictAction.accept(tile);
+        } catch (final Throwable e) {
+        }
+      }
+    }
+  }
+
+  private TileEntry<T> evictLru(final TileEntry<T> currentEntry) {
+    for (final Iterator<TileEntry<T>> iterator = this.tiles.values().iterator(); iterator
+      .hasNext();) {
+      final TileEntry<T> entry = iterator.next();
+      if (entry.loaded && entry != currentEntry) {
+        iterator.remove();
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  public EvictionPolicy getEvictionPolicy() {
+    return this.evictionPolicy;
+  }
+
+  public long getMaxMemory() {
+    return this.maxMemory;
+  }
+
+  public int getMaxTileCount() {
+    return this.maxTileCount;
+  }
+
+  public long getMemorySize() {
+    synchronized (this) {
+      return this.memorySize;
+    }
+  }
+
+  public int getPrefetchDistance() {
+    return this.prefetchDistance;
+  }
+
+  /**
+   * Get the tile, waiting for it to be loaded if it isn't in the cache.
+   *
+   * @param tileIndexX The tile x index.
+   * @param tileIndexY The tile y index.
+   * @return The tile or null if the tile doesn't exist.
+   */
+  public T getTile(final int tileIndexX, final int tileIndexY) {
+    final long key = toKey(tileIndexX, tileIndexY);
+    final TileEntry<T> lastEntry = this.lastEntry;
+    TileEntry<T> entry;
+    if (lastEntry != null && lastEntry.key == key) {
+      entry = lastEntry;
+      entry.referenced = true;
+    } else {
+      TileEntry<T> newEntry = null;
+      synchronized (this) {
+        entry = this.tiles.get(key);
+        if (entry == null) {
+          entry = newEntry = new TileEntry<>(key, tileIndexX, tileIndexY, true);
+          this.tiles.put(entry.key, entry);
+        } else {
+          entry.referenced = true;
+        }
+      }
+      this.lastEntry = entry;
+      if (newEntry != null) {
+        loadTile(newEntry);
+      }
+      if (lastEntry != null) {
+        prefetch(tileIndexX, tileIndexY, tileIndexX - lastEntry.tileIndexX,
+          tileIndexY - lastEntry.tileIndexY);
+      }
+    }
+    try {
+      return entry.tile.join();
+    } catch (final CompletionException e) {
+      throw Exceptions.wrap("Unable to load tile " + entry, e.getCause());
+    }
+  }
+
+  public int getTileCount() {
+    synchronized (this) {
+      return this.tiles.size();
+    }
+  }
+
+  private void loadTile(final TileEntry<T> entry) {
+    try {
+      final T tile = this.loader.loadTile(entry.tileIndexX, entry.tileIndexY);
+      long memorySize = 0;
+      if (tile != null) {
+        memorySize = this.tileMemorySize.applyAsLong(tile);
+      }
+      List<T> evictedTiles = Collections.emptyList();
+      synchronized (this) {
+        entry.loaded = true;
+        if (this.tiles.get(entry.key) == entry) {
+          entry.value = tile;
+          entry.memorySize = memorySize;
+          this.memorySize += memorySize;
+          evictedTiles = evict(entry);
+        }
+      }
+      entry.tile.complete(tile);
+      evicted(evictedTiles);
+    } catch (final Throwable e) {
+      synchronized (this) {
+        this.tiles.remove(entry.key, entry);
+        if (this.lastEntry == entry) {
+          this.lastEntry = null;
+        }
+      }
+      entry.tile.completeExceptionally(e);
+    }
+  }
+
+  private LinkedHashMap<Long, TileEntry<T>> newTileMap(final EvictionPolicy evictionPolicy) {
+    final boolean accessOrder = evictionPolicy == EvictionPolicy.LRU;
+    return new LinkedHashMap<>(16, 0.75f, accessOrder);
+  }
+
+  /**
+   * Load the next tiles in the direction from the previous tile to the current tile, stopping at
+   * the edge of the tile index range.
+   */
+  private void prefetch(final int tileIndexX, final int tileIndexY, final int deltaX,
+    final int deltaY) {
+    final int directionX = Integer.signum(deltaX);
+    final int directionY = Integer.signum(deltaY);
+    for (int i = 1; i <= this.prefetchDistance; i++) {
+      final long nextIndexX = (long)tileIndexX + directionX * i;
+      final long nextIndexY = (long)tileIndexY + directionY * i;
+      if (nextIndexX < this.minTileIndexX || nextIndexX > this.maxTileIndexX
+        || nextIndexY < this.minTileIndexY || nextIndexY > this.maxTileIndexY) {
+        return;
+      }
+      final int prefetchIndexX = (int)nextIndexX;
+      final int prefetchIndexY = (int)nextIndexY;
+      final Long key = toKey(prefetchIndexX, prefetchIndexY);
+      final TileEntry<T> entry;
+      synchronized (this) {
+        if (this.tiles.containsKey(key)) {
+          continue;
+        } else {
+          entry = new TileEntry<>(key, prefetchIndexX, prefetchIndexY, false);
+          this.tiles.put(key, entry);
+        }
+      }
+      try {
+        this.executor.execute(() -> loadTile(entry));
+      } catch (final RejectedExecutionException e) {
+        synchronized (this) {
+          this.tiles.remove(key, entry);
+        }
+        entry.tile.cancel(false);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Set the action called with each tile that is evicted or cleared from the cache, for example to
+   * release the tile's open files. The tile may still be in use by another thread that got it from
+   * the cache before it was evicted.
+   *
+   * @param evictAction The action.
+   * @return this
+   */
+  public GridTileCache<T> setEvictAction(final Consumer<? super T> evictAction) {
+    this.evictAction = evictAction;
+    return this;
+  }
+
+  public GridTileCache<T> setEvictionPolicy(final EvictionPolicy evictionPolicy) {
+    synchronized (this) {
+      if (this.evictionPolicy != evictionPolicy) {
+        final LinkedHashMap<Long, TileEntry<T>> tiles = newTileMap(evictionPolicy);
+        tiles.putAll(this.tiles);
+        this.tiles = tiles;
+        this.evictionPolicy = evictionPolicy;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Set the executor used to prefetch tiles, defaults to
+   * {@link ExecutorServiceFactory#getIoExecutorService()} as loading a tile blocks on I/O.
+   *
+   * @param executor The executor.
+   * @return this
+   */
+  public GridTileCache<T> setExecutor(final Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Set the maximum total memory size of the tiles in bytes, defaults to
+   * {@link #DEFAULT_MAX_MEMORY}.
+   *
+   * @param maxMemory The maximum memory.
+   * @return this
+   */
+  public GridTileCache<T> setMaxMemory(final long maxMemory) {
+    final List<T> evictedTiles;
+    synchronized (this) {
+      this.maxMemory = maxMemory;
+      evictedTiles = evict(null);
+    }
+    evicted(evictedTiles);
+    return this;
+  }
+
+  public GridTileCache<T> setMaxTileCount(final int maxTileCount) {
+    final List<T> evictedTiles;
+    synchronized (this) {
+      this.maxTileCount = maxTileCount;
+      evictedTiles = evict(null);
+    }
+    evicted(evictedTiles);
+    return this;
+  }
+
+  /**
+   * Set the number of tiles to load ahead in the direction of access, 0 to disable prefetch.
+   *
+   * @param prefetchDistance The number of tiles.
+   * @return this
+   */
+  public GridTileCache<T> setPrefetchDistance(final int prefetchDistance) {
+    this.prefetchDistance = prefetchDistance;
+    return this;
+  }
+
+  /**
+   * Set the range of valid tile indexes. Tiles outside the range are not prefetched.
+   *
+   * @param minTileIndexX The minimum tile x index.
+   * @param minTileIndexY The minimum tile y index.
+   * @param maxTileIndexX The maximum tile x index.
+   * @param maxTileIndexY The maximum tile y index.
+   * @return this
+   */
+  public GridTileCache<T> setTileIndexRange(final int minTileIndexX, final int minTileIndexY,
+    final int maxTileIndexX, final int maxTileIndexY) {
+    this.minTileIndexX = minTileIndexX;
+    this.minTileIndexY = minTileIndexY;
+    this.maxTileIndexX = maxTileIndexX;
+    this.maxTileIndexY = maxTileIndexY;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return this.evictionPolicy + " tiles=" + getTileCount() + " memory=" + getMemorySize();
+  }
+}
@@ -5,6 +5,7 @@ import java.util.function.DoubleConsumer;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.util.count.DoubleStatistics;
 
 public class IntArrayScaleGrid extends AbstractGrid {
   public static final int NULL_VALUE = Integer.MIN_VALUE;
@@ -79,6 +80,79 @@ public class IntArrayScaleGrid extends AbstractGrid {
     return this.cells;
   }
 
+  @Override
+  public int[] getHistogram(final double minValue, final double maxValue, final int binCount) {
+    final int[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final double binScale = binCount / (maxValue - minValue);
+    final int bandCount = getRowBandCount();
+    final int[][] bandCounts = new int[bandCount][binCount];
+    newRowBandStream(bandCount).forEach(band -> {
+      final int[] counts = bandCounts[band];
+      final int startIndex = getRowBandMinY(band, bandCount) * gridWidth;
+      final int endIndex = getRowBandMinY(band + 1, bandCount) * gridWidth;
+      for (int i = startIndex; i < endIndex; i++) {
+        final int valueInt = cells[i];
+        if (valueInt != NULL_VALUE) {
+          final double value = geometryFactory.toDoubleZ(valueInt);
+          final int bin = Grid.getHistogramBin(minValue, maxValue, binScale, binCount, value);
+          if (bin >= 0) {
+            counts[bin]++;
+          }
+        }
+      }
+    });
+    return sumBandCounts(bandCounts, binCount);
+  }
+
+  @Override
+  protected void getRowValues(final int gridY, final double[] values, final int offset) {
+    final int[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final int startIndex = gridY * gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      final int valueInt = cells[startIndex + gridX];
+      if (valueInt == NULL_VALUE) {
+        values[offset + gridX] = Double.NaN;
+      } else {
+        values[offset + gridX] = geometryFactory.toDoubleZ(valueInt);
+      }
+    }
+  }
+
+  @Override
+  public DoubleStatistics getStatistics() {
+    final int[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final DoubleStatistics statistics = new DoubleStatistics();
+    final int bandCount = getRowBandCount();
+    newRowBandStream(bandCount).forEach(band -> {
+      final int startIndex = getRowBandMinY(band, bandCount) * gridWidth;
+      final int endIndex = getRowBandMinY(band + 1, bandCount) * gridWidth;
+      int count = 0;
+      double sum = 0;
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (int i = startIndex; i < endIndex; i++) {
+        final int valueInt = cells[i];
+        if (valueInt != NULL_VALUE) {
+          count++;
+          sum += geometryFactory.toDoubleZ(valueInt);
+          min = Math.min(min, valueInt);
+          max = Math.max(max, valueInt);
+        }
+      }
+      if (count > 0) {
+        statistics.addValues(count, sum, geometryFactory.toDoubleZ(min),
+          geometryFactory.toDoubleZ(max));
+      }
+    });
+    return statistics;
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
     final int index = gridY * this.gridWidth + gridX;
@@ -113,12 +187,25 @@ public class IntArrayScaleGrid extends AbstractGrid {
     }
   }
 
+  @Override
+  protected boolean isSetRowValuesParallel() {
+    return true;
+  }
+
   @Override
   public IntArrayScaleGrid newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double cellSize) {
     return new IntArrayScaleGrid(geometryFactory, x, y, width, height, cellSize);
   }
 
+  @Override
+  public IntArrayScaleGrid newGrid(final GeometryFactory geometryFactory, final double x,
+    final double y, final int width, final int height, final double gridCellWidth,
+    final double gridCellHeight) {
+    return new IntArrayScaleGrid(geometryFactory, x, y, width, height, gridCellWidth,
+      gridCellHeight);
+  }
+
   public IntArrayScaleGrid newGrid(final int gridWidth, final int gridHeight,
     final double gridCellWidth, final double gridCellHeight, final int[] newValues) {
     final GeometryFactory geometryFactory = getGeometryFactory();
@@ -184,6 +271,18 @@ public class IntArrayScaleGrid extends AbstractGrid {
     super.setGeometryFactory(geometryFactory);
   }
 
+  @Override
+  protected void setRowValues(final int gridY, final double[] values) {
+    final int[] cells = this.cells;
+    final int gridWidth = this.gridWidth;
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final int startIndex = gridY * gridWidth;
+    for (int gridX = 0; gridX < gridWidth; gridX++) {
+      cells[startIndex + gridX] = geometryFactory.toIntZ(values[gridX]);
+    }
+    clearCachedObjects();
+  }
+
   @Override
   public void setValue(final int gridX, final int gridY, final double elevation) {
     final int width = getGridWidth();
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteOrder;
 
 import org.jeometry.common.exception.Exceptions;
 
@@ -16,11 +17,16 @@ public class HttpChannelReader extends ChannelReader {
     this.url = url;
   }
 
+  public HttpChannelReader(final URL url, final int capacity, final ByteOrder byteOrder) {
+    super(new HttpSeekableByteChannel(url), capacity, byteOrder);
+    this.url = url;
+  }
+
   @Override
   public InputStream getInputStream(final long offset, final int size) {
     try {
       final URLConnection connection = this.url.openConnection();
-      final String range = "bytes=" + offset + "-" + (offset + size);
+      final String range = "bytes=" + offset + "-" + (offset + size - 1);
       connection.addRequestProperty("Range", range);
       return connection.getInputStream();
     } catch (final IOException e) {
@@ -8,8 +8,16 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 
+/**
+ * A read only {@link SeekableByteChannel} for a HTTP resource. A seek opens a new connection with
+ * a Range request from the new position, except for short forward seeks which read and discard
+ * the bytes from the current connection.
+ */
 public class HttpSeekableByteChannel implements SeekableByteChannel {
 
+  /** The maximum number of bytes to skip on the current connection instead of reconnecting. */
+  private static final long MAX_SKIP_BYTES = 64 * 1024;
+
   private final URL url;
 
   private ReadableByteChannel channel;
@@ -24,8 +32,11 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
 
   @Override
   public void close() throws IOException {
-    this.channel.close();
+    final ReadableByteChannel channel = this.channel;
     this.channel = null;
+    if (channel != null) {
+      channel.close();
+    }
   }
 
   private ReadableByteChannel getChannel() throws IOException {
@@ -61,8 +72,10 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
   public SeekableByteChannel position(final long position) throws IOException {
     if (position != this.position) {
       if (this.channel != null) {
-        this.channel.close();
-        this.channel = null;
+        final long skipCount = position - this.position;
+        if (skipCount <= 0 || skipCount > MAX_SKIP_BYTES || !skip(skipCount)) {
+          close();
+        }
       }
     }
     this.position = position;
@@ -84,6 +97,23 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
     return this.length;
   }
 
+  private boolean skip(final long count) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(count, 8192));
+    long remaining = count;
+    while (remaining > 0) {
+      buffer.clear();
+      if (remaining < buffer.capacity()) {
+        buffer.limit((int)remaining);
+      }
+      final int readCount = this.channel.read(buffer);
+      if (readCount == -1) {
+        return false;
+      }
+      remaining -= readCount;
+    }
+    return true;
+  }
+
   @Override
   public SeekableByteChannel truncate(final long size) throws IOException {
     throw new UnsupportedOperationException();
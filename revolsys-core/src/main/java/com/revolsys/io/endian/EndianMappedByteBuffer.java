@@ -23,6 +23,7 @@ package com.revolsys.io.endian;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
@@ -30,26 +31,92 @@ import java.nio.channels.FileChannel.MapMode;
 
 import org.jeometry.common.exception.Exceptions;
 
+/**
+ * An {@link EndianInputOutput} backed by a memory mapped file. By default the whole file is
+ * mapped. Files larger than 2GB can be accessed by mapping a window of the file, the window is
+ * re-mapped when {@link #seek(long)} or {@link #getBuffer(long, int)} are called for a position
+ * outside the current window, or when a read or write would cross the end of the window.
+ *
+ * {@link #getBuffer(long, int)} can be called from multiple threads, the other methods use the
+ * current position so must only be used by one thread at a time.
+ */
 public class EndianMappedByteBuffer implements EndianInputOutput {
-  private final MappedByteBuffer buffer;
+  private MappedByteBuffer buffer;
+
+  private final FileChannel channel;
+
+  private final MapMode mapMode;
+
+  /** The position in the file of the start of the mapped window. */
+  private long offset;
 
   private final RandomAccessFile randomAccessFile;
 
+  /** The window used by {@link #getBuffer(long, int)}. */
+  private MappedByteBuffer sliceBuffer;
+
+  /** The position in the file of the start of the {@link #sliceBuffer} window. */
+  private long sliceOffset;
+
+  private final long windowSize;
+
   public EndianMappedByteBuffer(final File file, final MapMode mapMode) throws IOException {
+    this(file, mapMode, -1);
+  }
+
+  /**
+   * Map a window of the file of up to windowSize bytes starting at the start of the file.
+   *
+   * @param file The file.
+   * @param mapMode The map mode.
+   * @param windowSize The maximum number of bytes to map, -1 to map the whole file.
+   * @throws IOException If the file could not be mapped.
+   */
+  public EndianMappedByteBuffer(final File file, final MapMode mapMode, final long windowSize)
+    throws IOException {
     String mode = "r";
     if (mapMode.equals(MapMode.READ_WRITE)) {
       mode = "rw";
     }
+    this.mapMode = mapMode;
     this.randomAccessFile = new RandomAccessFile(file, mode);
-    final FileChannel channel = this.randomAccessFile.getChannel();
-    this.buffer = channel.map(mapMode, 0, this.randomAccessFile.length());
-    this.buffer.order(ByteOrder.BIG_ENDIAN);
+    this.channel = this.randomAccessFile.getChannel();
+    if (windowSize < 0) {
+      this.windowSize = this.randomAccessFile.length();
+    } else {
+      this.windowSize = windowSize;
+    }
+    map(0, this.windowSize);
+    this.sliceBuffer = this.buffer;
   }
 
   public EndianMappedByteBuffer(final String name, final MapMode mapMode) throws IOException {
     this(new File(name), mapMode);
   }
 
+  /**
+   * Get the mapped buffer, re-mapping the window at the current position if there are fewer than
+   * byteCount bytes left in the window and the window doesn't extend to the end of the file.
+   *
+   * @param byteCount The number of bytes that will be read or written.
+   * @return The buffer.
+   */
+  private MappedByteBuffer buffer(final int byteCount) {
+    MappedByteBuffer buffer = this.buffer;
+    if (buffer.remaining() < byteCount) {
+      try {
+        final long windowEnd = this.offset + buffer.capacity();
+        if (windowEnd < this.randomAccessFile.length()) {
+          map(getFilePointer(), Math.max(byteCount, this.windowSize));
+          buffer = this.buffer;
+        }
+      } catch (final IOException e) {
+        throw Exceptions.wrap(e);
+      }
+    }
+    return buffer;
+  }
+
   @Override
   public void close() {
     try {
@@ -63,9 +130,34 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
   public void flush() {
   }
 
+  /**
+   * Get a view of length bytes of the mapped file starting at the position in the file. The
+   * bytes are not copied. The returned buffer has a position of 0 and big endian byte order.
+   * The views use a separate window from the read and write methods so don't change the file
+   * pointer, and this method can be called from multiple threads.
+   *
+   * @param position The position in the file.
+   * @param length The number of bytes.
+   * @return The buffer.
+   * @throws IOException If the window could not be mapped.
+   */
+  public synchronized ByteBuffer getBuffer(final long position, final int length)
+    throws IOException {
+    if (position < this.sliceOffset
+      || position + length > this.sliceOffset + this.sliceBuffer.capacity()) {
+      this.sliceBuffer = newMappedBuffer(position, Math.max(length, this.windowSize));
+      this.sliceOffset = position;
+    }
+    final int start = (int)(position - this.sliceOffset);
+    final ByteBuffer buffer = this.sliceBuffer.duplicate();
+    buffer.position(start);
+    buffer.limit(start + length);
+    return buffer.slice();
+  }
+
   @Override
   public long getFilePointer() {
-    return this.buffer.position();
+    return this.offset + this.buffer.position();
   }
 
   @Override
@@ -73,34 +165,49 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
     return this.randomAccessFile.length();
   }
 
+  private void map(final long position, final long size) throws IOException {
+    this.buffer = newMappedBuffer(position, size);
+    this.offset = position;
+  }
+
+  private MappedByteBuffer newMappedBuffer(final long position, final long size)
+    throws IOException {
+    final long mapSize = Math.min(size, this.randomAccessFile.length() - position);
+    final MappedByteBuffer buffer = this.channel.map(this.mapMode, position,
+      Math.max(0, mapSize));
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    return buffer;
+  }
+
   @Override
   public int read() throws IOException {
-    return this.buffer.get();
+    return buffer(1).get();
   }
 
   @Override
   public int read(final byte[] bytes) throws IOException {
-    this.buffer.get(bytes);
+    buffer(bytes.length).get(bytes);
     return bytes.length;
   }
 
   @Override
   public double readDouble() throws IOException {
-    return this.buffer.getDouble();
+    return buffer(8).getDouble();
   }
 
   @Override
   public int readInt() throws IOException {
-    return this.buffer.getInt();
+    return buffer(4).getInt();
   }
 
   @Override
   public double readLEDouble() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(8);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      return this.buffer.getDouble();
+      return buffer.getDouble();
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
@@ -112,47 +219,53 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public int readLEInt() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(4);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      return this.buffer.getInt();
+      return buffer.getInt();
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public long readLELong() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(8);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      return this.buffer.getLong();
+      return buffer.getLong();
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public short readLEShort() throws IOException {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(2);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      return this.buffer.getShort();
+      return buffer.getShort();
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public long readLong() throws IOException {
-    return this.buffer.getLong();
+    return buffer(8).getLong();
   }
 
   @Override
   public short readShort() throws IOException {
-    return this.buffer.getShort();
+    return buffer(2).getShort();
   }
 
   @Override
   public void seek(final long index) throws IOException {
-    this.buffer.position((int)index);
+    if (index < this.offset || index > this.offset + this.buffer.capacity()) {
+      map(index, this.windowSize);
+    }
+    this.buffer.position((int)(index - this.offset));
   }
 
   @Override
@@ -162,23 +275,23 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public int skipBytes(final int i) throws IOException {
-    this.buffer.position(this.buffer.position() + i);
+    seek(getFilePointer() + i);
     return this.buffer.position();
   }
 
   @Override
   public void write(final byte[] bytes) {
-    this.buffer.put(bytes);
+    buffer(bytes.length).put(bytes);
   }
 
   @Override
   public void write(final byte[] bytes, final int offset, final int length) {
-    this.buffer.put(bytes, offset, length);
+    buffer(length).put(bytes, offset, length);
   }
 
   @Override
   public void write(final int i) {
-    this.buffer.put((byte)i);
+    buffer(1).put((byte)i);
   }
 
   @Override
@@ -191,82 +304,88 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public void writeDouble(final double value) {
-    this.buffer.putDouble(value);
+    buffer(8).putDouble(value);
   }
 
   @Override
   public void writeFloat(final float value) {
-    this.buffer.putFloat(value);
+    buffer(4).putFloat(value);
   }
 
   @Override
   public void writeInt(final int value) {
-    this.buffer.putInt(value);
+    buffer(4).putInt(value);
   }
 
   @Override
   public void writeLEDouble(final double value) {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(8);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      this.buffer.putDouble(value);
+      buffer.putDouble(value);
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public void writeLEFloat(final float value) {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(4);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      this.buffer.putFloat(value);
+      buffer.putFloat(value);
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public void writeLEInt(final int value) {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(4);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      this.buffer.putInt(value);
+      buffer.putInt(value);
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public void writeLELong(final long value) {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(8);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      this.buffer.putLong(value);
+      buffer.putLong(value);
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public void writeLEShort(final short value) {
-    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final MappedByteBuffer buffer = buffer(2);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
     try {
-      this.buffer.putShort(value);
+      buffer.putShort(value);
     } finally {
-      this.buffer.order(ByteOrder.BIG_ENDIAN);
+      buffer.order(ByteOrder.BIG_ENDIAN);
     }
   }
 
   @Override
   public void writeLEUnsignedShort(final int s) {
-    this.buffer.put((byte)(s >>> 0));
-    this.buffer.put((byte)(s >>> 8));
+    final MappedByteBuffer buffer = buffer(2);
+    buffer.put((byte)(s >>> 0));
+    buffer.put((byte)(s >>> 8));
   }
 
   @Override
   public void writeLong(final long value) {
-    this.buffer.putLong(value);
+    buffer(8).putLong(value);
   }
 
   @Override
   public void writeShort(final short value) {
-    this.buffer.putShort(value);
+    buffer(2).putShort(value);
   }
 }
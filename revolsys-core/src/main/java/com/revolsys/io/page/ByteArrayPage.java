@@ -51,4 +51,14 @@ public class ByteArrayPage extends AbstractPage {
   protected void writeByte(final int b) {
     this.content[this.offset++] = (byte)b;
   }
+
+  @Override
+  public void writeBytes(final byte[] bytes, final int offset, final int count) {
+    if (this.offset + count > this.content.length) {
+      throw new ArrayIndexOutOfBoundsException("Unable to write past end of record");
+    } else {
+      System.arraycopy(bytes, offset, this.content, this.offset, count);
+      this.offset += count;
+    }
+  }
 }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -15,9 +16,10 @@ import java.util.TreeSet;
 
 import org.jeometry.common.collection.map.LruMap;
 
+import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.FileUtil;
 
-public class FileMappedPageManager implements PageManager {
+public class FileMappedPageManager implements PageManager, BaseCloseable {
   private FileChannel fileChannel;
 
   private final Set<Integer> freePageIndexes = new TreeSet<>();
@@ -31,19 +33,46 @@ public class FileMappedPageManager implements PageManager {
 
   private RandomAccessFile randomAccessFile;
 
+  private final boolean readOnly;
+
   public FileMappedPageManager() {
     this(FileUtil.newTempFile("pages", ".pf"));
   }
 
   public FileMappedPageManager(final File file) {
+    this(file, false);
+  }
+
+  /**
+   * Construct a page manager for the file. If readOnly is true the file is opened and mapped read
+   * only, and pages can't be created or removed.
+   *
+   * @param file The file.
+   * @param readOnly True if the file is read only.
+   */
+  public FileMappedPageManager(final File file, final boolean readOnly) {
+    this.readOnly = readOnly;
     try {
-      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      if (readOnly) {
+        this.randomAccessFile = new RandomAccessFile(file, "r");
+      } else {
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+      }
       this.fileChannel = this.randomAccessFile.getChannel();
     } catch (final FileNotFoundException e) {
       throw new IllegalArgumentException("Unable to open file " + file.getAbsolutePath(), e);
     }
   }
 
+  @Override
+  public synchronized void close() {
+    synchronized (this.pages) {
+      this.pages.clear();
+      this.pagesInUse.clear();
+      FileUtil.closeSilent(this.randomAccessFile);
+    }
+  }
+
   @Override
   public int getNumPages() {
     return this.pages.size();
@@ -75,10 +104,20 @@ public class FileMappedPageManager implements PageManager {
     return this.pageSize;
   }
 
+  public boolean isReadOnly() {
+    return this.readOnly;
+  }
+
   private Page loadPage(final int index) {
     try {
-      final MappedByteBuffer buffer = this.fileChannel.map(MapMode.READ_WRITE,
-        (long)index * this.pageSize, this.pageSize);
+      final MapMode mapMode;
+      if (this.readOnly) {
+        mapMode = MapMode.READ_ONLY;
+      } else {
+        mapMode = MapMode.READ_WRITE;
+      }
+      final MappedByteBuffer buffer = this.fileChannel.map(mapMode, (long)index * this.pageSize,
+        this.pageSize);
       final Page page = new FileMappedPage(this, index, buffer);
       this.pages.put(index, page);
       return page;
@@ -87,8 +126,26 @@ public class FileMappedPageManager implements PageManager {
     }
   }
 
+  /**
+   * Map a read only view of the page. The view isn't cached or tracked as in use, so readers that
+   * only use absolute positions can share it between threads.
+   *
+   * @param index The page index.
+   * @return The read only view of the page.
+   */
+  public ByteBuffer mapPageReadOnly(final int index) {
+    try {
+      return this.fileChannel.map(MapMode.READ_ONLY, (long)index * this.pageSize, this.pageSize);
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public synchronized Page newPage() {
+    if (this.readOnly) {
+      throw new UnsupportedOperationException("Cannot create pages in a read only file");
+    }
     synchronized (this.pages) {
       Page page;
       if (this.freePageIndexes.isEmpty()) {
@@ -128,6 +185,9 @@ public class FileMappedPageManager implements PageManager {
 
   @Override
   public synchronized void removePage(final Page page) {
+    if (this.readOnly) {
+      throw new UnsupportedOperationException("Cannot remove pages from a read only file");
+    }
     synchronized (this.pages) {
       page.clear();
       write(page);
@@ -137,7 +197,7 @@ public class FileMappedPageManager implements PageManager {
 
   @Override
   public synchronized void write(final Page page) {
-    if (page.getPageManager() == this) {
+    if (page.getPageManager() == this && !this.readOnly) {
       if (page instanceof FileMappedPage) {
         page.flush();
       }
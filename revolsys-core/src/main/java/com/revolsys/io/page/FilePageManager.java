@@ -11,9 +11,12 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import com.revolsys.collection.map.WeakKeyValueMap;
+import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.FileUtil;
 
-public class FilePageManager implements PageManager {
+public class FilePageManager implements PageManager, BaseCloseable {
+  private final File file;
+
   private final Set<Integer> freePageIndexes = new TreeSet<>();
 
   // TODO
@@ -21,15 +24,24 @@ public class FilePageManager implements PageManager {
 
   private final Set<Page> pagesInUse = new HashSet<>();
 
-  int pageSize = 64;
+  final int pageSize;
 
   private RandomAccessFile randomAccessFile;
 
+  private final boolean temporary;
+
   public FilePageManager() {
-    this(FileUtil.newTempFile("pages", ".pf"));
+    this(64);
   }
 
   public FilePageManager(final File file) {
+    this(file, 64, false);
+  }
+
+  private FilePageManager(final File file, final int pageSize, final boolean temporary) {
+    this.file = file;
+    this.pageSize = pageSize;
+    this.temporary = temporary;
     try {
       this.randomAccessFile = new RandomAccessFile(file, "rw");
     } catch (final FileNotFoundException e) {
@@ -37,6 +49,31 @@ public class FilePageManager implements PageManager {
     }
   }
 
+  /**
+   * Create a page manager using a temporary file that is deleted when the page manager is closed.
+   *
+   * @param pageSize The size of the pages in bytes.
+   */
+  public FilePageManager(final int pageSize) {
+    this(FileUtil.newTempFile("pages", ".pf"), pageSize, true);
+  }
+
+  @Override
+  public synchronized void close() {
+    synchronized (this.pages) {
+      this.pages.clear();
+      this.pagesInUse.clear();
+      this.freePageIndexes.clear();
+    }
+    try {
+      this.randomAccessFile.close();
+    } catch (final IOException e) {
+    }
+    if (this.temporary) {
+      this.file.delete();
+    }
+  }
+
   @Override
   public int getNumPages() {
     return this.pages.size();
@@ -0,0 +1,83 @@
+package com.revolsys.io.page;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An input stream that reads the bytes written by a {@link PageOutputStream} from the pages.
+ */
+public class PageInputStream extends InputStream {
+
+  private Page page;
+
+  private int pageIndex;
+
+  private final List<Integer> pageIndexes;
+
+  private final PageManager pageManager;
+
+  private long remaining;
+
+  public PageInputStream(final PageManager pageManager, final List<Integer> pageIndexes,
+    final long size) {
+    this.pageManager = pageManager;
+    this.pageIndexes = new ArrayList<>(pageIndexes);
+    this.remaining = size;
+  }
+
+  @Override
+  public int available() {
+    return (int)Math.min(Integer.MAX_VALUE, this.remaining);
+  }
+
+  @Override
+  public void close() {
+    if (this.page != null) {
+      this.pageManager.releasePage(this.page);
+      this.page = null;
+    }
+    this.remaining = 0;
+  }
+
+  private Page nextPage() {
+    Page page = this.page;
+    if (page == null || page.getOffset() == page.getSize()) {
+      if (page != null) {
+        this.pageManager.releasePage(page);
+      }
+      final int index = this.pageIndexes.get(this.pageIndex++);
+      page = this.pageManager.getPage(index);
+      page.setOffset(0);
+      this.page = page;
+    }
+    return page;
+  }
+
+  @Override
+  public int read() {
+    if (this.remaining <= 0) {
+      return -1;
+    } else {
+      final Page page = nextPage();
+      this.remaining--;
+      return page.readByte() & 0xff;
+    }
+  }
+
+  @Override
+  public int read(final byte[] bytes, final int offset, final int length) {
+    if (this.remaining <= 0) {
+      return -1;
+    } else if (length == 0) {
+      return 0;
+    } else {
+      final Page page = nextPage();
+      final int count = (int)Math.min(Math.min(length, page.getSize() - page.getOffset()),
+        this.remaining);
+      page.readBytes(bytes, offset, count);
+      this.remaining -= count;
+      return count;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.revolsys.io.page;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An output stream that writes the bytes to a sequence of new pages from a {@link PageManager}.
+ * The page indexes and size are used to read the bytes back using a {@link PageInputStream}.
+ */
+public class PageOutputStream extends OutputStream {
+
+  private Page page;
+
+  private final List<Integer> pageIndexes = new ArrayList<>();
+
+  private final PageManager pageManager;
+
+  private long size;
+
+  public PageOutputStream(final PageManager pageManager) {
+    this.pageManager = pageManager;
+  }
+
+  @Override
+  public void close() {
+    if (this.page != null) {
+      this.pageManager.releasePage(this.page);
+      this.page = null;
+    }
+  }
+
+  public List<Integer> getPageIndexes() {
+    return Collections.unmodifiableList(this.pageIndexes);
+  }
+
+  public PageManager getPageManager() {
+    return this.pageManager;
+  }
+
+  public long getSize() {
+    return this.size;
+  }
+
+  public PageInputStream newInputStream() {
+    return new PageInputStream(this.pageManager, this.pageIndexes, this.size);
+  }
+
+  private Page nextPage() {
+    Page page = this.page;
+    if (page == null || page.getOffset() == page.getSize()) {
+      if (page != null) {
+        this.pageManager.releasePage(page);
+      }
+      page = this.pageManager.newPage();
+      page.setOffset(0);
+      this.pageIndexes.add(page.getIndex());
+      this.page = page;
+    }
+    return page;
+  }
+
+  @Override
+  public void write(final byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      final Page page = nextPage();
+      final int count = Math.min(length, page.getSize() - page.getOffset());
+      page.writeBytes(bytes, offset, count);
+      offset += count;
+      length -= count;
+      this.size += count;
+    }
+  }
+
+  @Override
+  public void write(final int b) {
+    final Page page = nextPage();
+    page.writeByte((byte)b);
+    this.size++;
+  }
+}
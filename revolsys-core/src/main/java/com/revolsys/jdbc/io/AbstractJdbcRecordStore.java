@@ -812,7 +812,7 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
 
   protected JdbcRecordWriter newRecordWriter(final RecordDefinitionProxy recordDefinition,
     final int batchSize) {
-    final JdbcRecordWriter writer = new JdbcRecordWriter(this, recordDefinition, batchSize);
+    final JdbcRecordWriter writer = newRecordWriterDo(recordDefinition, batchSize);
     writer.setSqlPrefix(this.sqlPrefix);
     writer.setSqlSuffix(this.sqlSuffix);
     writer.setLabel(getLabel());
@@ -821,6 +821,11 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return writer;
   }
 
+  protected JdbcRecordWriter newRecordWriterDo(final RecordDefinitionProxy recordDefinition,
+    final int batchSize) {
+    return new JdbcRecordWriter(this, recordDefinition, batchSize);
+  }
+
   @Override
   protected RecordStoreSchema newRootSchema() {
     return new JdbcRecordStoreSchema(this);
@@ -4,16 +4,18 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.jeometry.common.io.PathName;
+import org.jeometry.common.logging.Logs;
+import org.jeometry.common.number.Integers;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.UncategorizedSQLException;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.Geometry;
 import com.revolsys.io.FileUtil;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
@@ -24,46 +26,159 @@ import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.query.ColumnIndexes;
 import com.revolsys.record.query.Query;
 import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Booleans;
 import com.revolsys.util.count.LabelCountMap;
 import com.revolsys.util.count.LabelCounters;
 
+/**
+ * Iterate over the records returned by a query. The results are streamed using a forward only,
+ * read only cursor with a fetch size sized to the record definition's row width so that large
+ * result sets use bounded memory. For PostgreSQL the connection must not be in auto commit mode
+ * (the default) for the fetch size to be used.
+ */
 public class JdbcQueryIterator extends AbstractIterator<Record> implements RecordReader {
+  /** The default fetch size if the record definition isn't known before the query. */
+  private static final int DEFAULT_FETCH_SIZE = 1000;
+
+  /** The target size in bytes of the rows fetched in one round trip. */
+  private static final int FETCH_BUFFER_SIZE = 4 * 1024 * 1024;
+
+  private static final int MAX_FETCH_SIZE = 10000;
+
+  private static final int MIN_FETCH_SIZE = 100;
+
+  /**
+   * Get the fetch size for the record definition so that each fetch returns approximately
+   * {@link #FETCH_BUFFER_SIZE} bytes.
+   *
+   * @param recordDefinition The record definition.
+   * @return The fetch size.
+   */
+  public static int getFetchSize(final RecordDefinition recordDefinition) {
+    if (recordDefinition == null) {
+      return DEFAULT_FETCH_SIZE;
+    } else {
+      int rowSize = 0;
+      for (final FieldDefinition field : recordDefinition.getFieldDefinitions()) {
+        final Class<?> typeClass = field.getTypeClass();
+        if (Geometry.class.isAssignableFrom(typeClass)) {
+          rowSize += 256;
+        } else if (Number.class.isAssignableFrom(typeClass)) {
+          rowSize += 8;
+        } else if (String.class.equals(typeClass)) {
+          final int length = field.getLength();
+          if (length > 0) {
+            rowSize += Math.min(length, 1024);
+          } else {
+            rowSize += 32;
+          }
+        } else {
+          rowSize += 16;
+        }
+      }
+      if (rowSize == 0) {
+        return DEFAULT_FETCH_SIZE;
+      } else {
+        final int fetchSize = FETCH_BUFFER_SIZE / rowSize;
+        return Math.max(MIN_FETCH_SIZE, Math.min(fetchSize, MAX_FETCH_SIZE));
+      }
+    }
+  }
+
+  /**
+   * Construct a new record from the current row of the result set and add it to the query
+   * statistics for the record store. Used by the result pagers.
+   */
   public static Record getNextRecord(final JdbcRecordStore recordStore,
-    final RecordDefinition recordDefinition, final List<QueryValue> selectExpression,
+    final RecordDefinition recordDefinition, final List<QueryValue> selectExpressions,
     final RecordFactory<Record> recordFactory, final ResultSet resultSet,
     final boolean internStrings) {
+    final Record record = getNextRecord(recordDefinition, selectExpressions, recordFactory,
+      resultSet, new ColumnIndexes(), internStrings);
+    if (record != null) {
+      recordStore.addStatistic("query", record);
+    }
+    return record;
+  }
+
+  /**
+   * Construct a new record from the current row of the result set. The values are read directly
+   * from the select expressions without copying the list. The indexes are reset so the same
+   * instance can be reused for each row.
+   */
+  public static Record getNextRecord(final RecordDefinition recordDefinition,
+    final List<QueryValue> selectExpressions, final RecordFactory<Record> recordFactory,
+    final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings) {
     final Record record = recordFactory.newRecord(recordDefinition);
     if (record != null) {
       record.setState(RecordState.INITIALIZING);
-      final ColumnIndexes indexes = new ColumnIndexes();
-      int fieldIndex = 0;
-      for (final QueryValue expression : selectExpression) {
-        try {
-          final Object value = expression.getValueFromResultSet(resultSet, indexes, internStrings);
-          record.setValue(fieldIndex, value);
-          fieldIndex++;
-        } catch (final SQLException e) {
-          throw new RuntimeException(
-            "Unable to get value " + indexes.columnIndex + " from result set", e);
-        }
+      indexes.columnIndex = 0;
+      final int fieldCount = selectExpressions.size();
+      for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+        final QueryValue expression = selectExpressions.get(fieldIndex);
+        final Object value = getValue(expression, resultSet, indexes, internStrings);
+        record.setValue(fieldIndex, value);
+      }
+      record.setState(RecordState.PERSISTED);
+    }
+    return record;
+  }
+
+  /**
+   * Construct a new record from the current row of the result set. The indexes are reset so
+   * the same instance can be reused for each row.
+   */
+  public static Record getNextRecord(final RecordDefinition recordDefinition,
+    final QueryValue[] selectExpressions, final RecordFactory<Record> recordFactory,
+    final ResultSet resultSet, final ColumnIndexes indexes, final boolean internStrings) {
+    final Record record = recordFactory.newRecord(recordDefinition);
+    if (record != null) {
+      record.setState(RecordState.INITIALIZING);
+      indexes.columnIndex = 0;
+      for (int fieldIndex = 0; fieldIndex < selectExpressions.length; fieldIndex++) {
+        final QueryValue expression = selectExpressions[fieldIndex];
+        final Object value = getValue(expression, resultSet, indexes, internStrings);
+        record.setValue(fieldIndex, value);
       }
       record.setState(RecordState.PERSISTED);
-      recordStore.addStatistic("query", record);
     }
     return record;
   }
 
+  private static Object getValue(final QueryValue expression, final ResultSet resultSet,
+    final ColumnIndexes indexes, final boolean internStrings) {
+    try {
+      return expression.getValueFromResultSet(resultSet, indexes, internStrings);
+    } catch (final SQLException e) {
+      throw new RuntimeException("Unable to get value " + indexes.columnIndex + " from result set",
+        e);
+    }
+  }
+
   private boolean internStrings;
 
   private JdbcConnection connection;
 
   private final int currentQueryIndex = -1;
 
-  private final int fetchSize = 10;
+  private int fetchSize;
+
+  private final ColumnIndexes indexes = new ColumnIndexes();
+
+  /** The number of records read but not yet added to the statistics. */
+  private int pendingCount;
+
+  private long recordCount;
+
+  private QueryValue[] selectExpressions = new QueryValue[0];
 
-  private List<QueryValue> selectExpressions = new ArrayList<>();
+  private String sql;
+
+  private long startTime;
+
+  private LabelCounters statistics;
 
   private List<Query> queries;
 
@@ -87,6 +202,10 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
     final boolean autoCommit = Booleans.getBoolean(properties.get("autoCommit"));
     this.internStrings = Booleans.getBoolean(properties.get("internStrings"));
+    final Object fetchSize = properties.get("fetchSize");
+    if (fetchSize != null) {
+      this.fetchSize = Integers.toValid(fetchSize);
+    }
     this.connection = recordStore.getJdbcConnection(autoCommit);
     this.recordFactory = query.getRecordFactory();
     if (this.recordFactory == null) {
@@ -102,6 +221,12 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   @Override
   public synchronized void closeDo() {
+    flushCounts();
+    if (this.startTime > 0) {
+      final long time = System.nanoTime() - this.startTime;
+      Logs.debug(this, "Query " + this.recordCount + " records in " + time / 1000000 + " ms ("
+        + Math.round(getRecordsPerSecond()) + " records/s)\n" + this.sql);
+    }
     JdbcUtils.close(this.statement, this.resultSet);
     FileUtil.closeSilent(this.connection);
     this.selectExpressions = null;
@@ -114,6 +239,23 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     this.resultSet = null;
     this.statement = null;
     this.labelCountMap = null;
+    this.statistics = null;
+  }
+
+  private void flushCounts() {
+    final int count = this.pendingCount;
+    if (count > 0) {
+      this.pendingCount = 0;
+      final RecordDefinition recordDefinition = this.recordDefinition;
+      if (recordDefinition != null) {
+        if (this.statistics != null) {
+          this.statistics.addCount(recordDefinition, count);
+        }
+        if (this.labelCountMap != null) {
+          this.labelCountMap.addCount(recordDefinition, count);
+        }
+      }
+    }
   }
 
   protected String getErrorMessage() {
@@ -124,14 +266,24 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
   }
 
+  /**
+   * Get the fetch size used for the query. This is only valid after the query was executed.
+   *
+   * @return The fetch size.
+   */
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   @Override
   protected Record getNext() throws NoSuchElementException {
     try {
       if (this.resultSet != null && !this.query.isCancelled() && this.resultSet.next()) {
-        final Record record = getNextRecord(this.recordStore, this.recordDefinition,
-          this.selectExpressions, this.recordFactory, this.resultSet, this.internStrings);
-        if (this.labelCountMap != null) {
-          this.labelCountMap.addCount(record);
+        final Record record = getNextRecord(this.recordDefinition, this.selectExpressions,
+          this.recordFactory, this.resultSet, this.indexes, this.internStrings);
+        this.recordCount++;
+        if (record != null && ++this.pendingCount >= this.fetchSize) {
+          flushCounts();
         }
         return record;
       } else {
@@ -175,6 +327,30 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     return this.recordDefinition;
   }
 
+  /**
+   * Get the number of records read from the result set.
+   *
+   * @return The number of records.
+   */
+  public long getRecordCount() {
+    return this.recordCount;
+  }
+
+  /**
+   * Get the number of records read per second since the query was executed.
+   *
+   * @return The records per second.
+   */
+  public double getRecordsPerSecond() {
+    if (this.startTime > 0) {
+      final long time = System.nanoTime() - this.startTime;
+      if (time > 0) {
+        return this.recordCount * 1e9 / time;
+      }
+    }
+    return 0;
+  }
+
   @Override
   public JdbcRecordStore getRecordStore() {
     return this.recordStore;
@@ -211,10 +387,16 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
 
     final String sql = getSql(query);
+    this.sql = sql;
     try {
-      this.statement = this.connection.prepareStatement(sql);
+      this.statement = this.connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+        ResultSet.CONCUR_READ_ONLY);
+      if (this.fetchSize <= 0) {
+        this.fetchSize = getFetchSize(this.recordDefinition);
+      }
       this.statement.setFetchSize(this.fetchSize);
 
+      this.startTime = System.nanoTime();
       this.resultSet = this.recordStore.getResultSet(this.statement, query);
       final ResultSetMetaData resultSetMetaData = this.resultSet.getMetaData();
 
@@ -225,10 +407,12 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
       } else if (query.isCustomResult()) {
         this.recordDefinition = this.recordStore.getRecordDefinition(query, resultSetMetaData);
       }
-      this.selectExpressions = query.getSelectExpressions();
-      if (this.selectExpressions.isEmpty()) {
-        this.selectExpressions = (List)this.recordDefinition.getFieldDefinitions();
+      List<QueryValue> selectExpressions = query.getSelectExpressions();
+      if (selectExpressions.isEmpty()) {
+        selectExpressions = (List)this.recordDefinition.getFieldDefinitions();
       }
+      this.selectExpressions = selectExpressions.toArray(new QueryValue[0]);
+      this.statistics = this.recordStore.getStatistics("query");
 
     } catch (final SQLException e) {
       JdbcUtils.close(this.statement, this.resultSet);
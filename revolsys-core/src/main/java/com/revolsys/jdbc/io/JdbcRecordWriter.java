@@ -185,6 +185,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
   private void deleteRecord(final JdbcRecordDefinition recordDefinition, final Record record)
     throws SQLException {
     flushIfRequired(recordDefinition);
+    insertBulkFlush();
     JdbcRecordWriterTypeData data = this.typeDeleteData.get(recordDefinition);
     if (data == null) {
       final String sql = getDeleteSql(recordDefinition);
@@ -204,6 +205,8 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
 
   @Override
   public synchronized void flush() {
+    insertBulkFlush();
+
     flush(this.typeInsertData);
 
     flush(this.typeInsertSequenceData);
@@ -434,24 +437,44 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
 
   protected void insert(final Record record, final JdbcRecordDefinition recordDefinition)
     throws SQLException {
-    final JdbcRecordWriterTypeData data = insertStatementGet(recordDefinition, this.typeInsertData,
-      false, recordDefinition.isHasGeneratedFields());
-    if (data != null) {
-      final PreparedStatement statement = data.getStatement();
-      int parameterIndex = 1;
-      for (final FieldDefinition fieldDefinition : recordDefinition.getFields()) {
-        final JdbcFieldDefinition jdbcField = (JdbcFieldDefinition)fieldDefinition;
-        if (!jdbcField.isGenerated()) {
-          parameterIndex = jdbcField.setInsertPreparedStatementValue(statement, parameterIndex,
-            record);
-        }
-      }
-      data.insertRecord(record);
+    if (!insertBulk(recordDefinition, record)) {
+      insertBulkFlush();
+      insertStatement(record, recordDefinition);
     }
   }
 
+  /**
+   * Write the record using a bulk load protocol (e.g. PostgreSQL COPY) instead of an insert
+   * statement. Called for new records of tables that don't use a row id where the table has no
+   * primary key or the record has values for all of the primary key fields. Records that need
+   * a generated primary key are always inserted using a statement.
+   *
+   * Implementations can buffer the records but must send them to the database in
+   * {@link #insertBulkFlush()}. That is called before any update, delete or other insert
+   * statement is executed on the connection and from {@link #flush()}, {@link #commit()} and
+   * {@link #close()}.
+   *
+   * @param recordDefinition The record definition.
+   * @param record The record to insert.
+   * @return True if the record was written, false to insert the record using
+   * {@link #insertStatement(Record, JdbcRecordDefinition)}.
+   * @throws SQLException If the record could not be written.
+   */
+  protected boolean insertBulk(final JdbcRecordDefinition recordDefinition, final Record record)
+    throws SQLException {
+    return false;
+  }
+
+  /**
+   * Send any records buffered by {@link #insertBulk(JdbcRecordDefinition, Record)} to the
+   * database.
+   */
+  protected void insertBulkFlush() {
+  }
+
   private void insertRecordSequence(final Record record,
     final JdbcRecordDefinition recordDefinition) throws SQLException {
+    insertBulkFlush();
     final JdbcRecordWriterTypeData data = insertStatementGet(recordDefinition,
       this.typeInsertSequenceData, true, true);
     if (data != null) {
@@ -463,6 +486,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
 
   private void insertRowId(final Record record, final JdbcRecordDefinition recordDefinition)
     throws SQLException {
+    insertBulkFlush();
     final JdbcRecordWriterTypeData data = insertStatementGet(recordDefinition,
       this.typeInsertRowIdData, false, true);
     if (data != null) {
@@ -484,6 +508,32 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     }
   }
 
+  /**
+   * Insert the record using an insert statement, the statements are executed in batches of
+   * {@link #getBatchSize()}.
+   *
+   * @param record The record to insert.
+   * @param recordDefinition The record definition.
+   * @throws SQLException If the record could not be written.
+   */
+  protected void insertStatement(final Record record, final JdbcRecordDefinition recordDefinition)
+    throws SQLException {
+    final JdbcRecordWriterTypeData data = insertStatementGet(recordDefinition,
+      this.typeInsertData, false, recordDefinition.isHasGeneratedFields());
+    if (data != null) {
+      final PreparedStatement statement = data.getStatement();
+      int parameterIndex = 1;
+      for (final FieldDefinition fieldDefinition : recordDefinition.getFields()) {
+        final JdbcFieldDefinition jdbcField = (JdbcFieldDefinition)fieldDefinition;
+        if (!jdbcField.isGenerated()) {
+          parameterIndex = jdbcField.setInsertPreparedStatementValue(statement, parameterIndex,
+            record);
+        }
+      }
+      data.insertRecord(record);
+    }
+  }
+
   private JdbcRecordWriterTypeData insertStatementGet(final JdbcRecordDefinition recordDefinition,
     final Map<JdbcRecordDefinition, JdbcRecordWriterTypeData> typeDataMap,
     final boolean generatePrimaryKey, final boolean returnGeneratedKeys) {
@@ -567,6 +617,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
   private void updateRecord(final JdbcRecordDefinition recordDefinition, final Record record)
     throws SQLException {
     flushIfRequired(recordDefinition);
+    insertBulkFlush();
     JdbcRecordWriterTypeData data = this.typeUpdateData.get(recordDefinition);
     if (data == null) {
       final String sql = getUpdateSql(recordDefinition);
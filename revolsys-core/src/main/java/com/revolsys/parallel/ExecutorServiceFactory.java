@@ -1,7 +1,9 @@
 package com.revolsys.parallel;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import com.revolsys.collection.map.ThreadSharedProperties;
 
@@ -10,6 +12,8 @@ public class ExecutorServiceFactory {
 
   private static final Object SYNC = new Object();
 
+  private static ExecutorService ioExecutorService;
+
   public static ExecutorService getExecutorService() {
     synchronized (SYNC) {
       ExecutorService executorService = ThreadSharedProperties.getProperty(KEY);
@@ -22,6 +26,50 @@ public class ExecutorServiceFactory {
     }
   }
 
+  /**
+   * Get the shared executor for tasks that block on I/O, such as HTTP range requests, so they
+   * don't tie up the threads of the common fork join pool. If virtual threads are supported each
+   * task is run on a new virtual thread, otherwise on daemon threads from a cached pool.
+   *
+   * @return The executor service.
+   */
+  public static ExecutorService getIoExecutorService() {
+    synchronized (SYNC) {
+      if (ioExecutorService == null) {
+        final VirtualThreadFactory threadFactory = new VirtualThreadFactory().setNamePrefix("io-");
+        if (VirtualThreadFactory.isSupported()) {
+          ioExecutorService = newThreadPerTaskExecutor(threadFactory);
+        }
+        if (ioExecutorService == null) {
+          ioExecutorService = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = threadFactory.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+          });
+        }
+      }
+      return ioExecutorService;
+    }
+  }
+
+  /**
+   * Create an executor that starts a new thread for each task using
+   * Executors.newThreadPerTaskExecutor (Java 21+). The method is looked up using reflection so the
+   * library can still be compiled for and run on older JDKs.
+   *
+   * @param threadFactory The factory used to create the threads.
+   * @return The executor service or null if not supported.
+   */
+  private static ExecutorService newThreadPerTaskExecutor(final ThreadFactory threadFactory) {
+    try {
+      final Method method = Executors.class.getMethod("newThreadPerTaskExecutor",
+        ThreadFactory.class);
+      return (ExecutorService)method.invoke(null, threadFactory);
+    } catch (final Throwable e) {
+      return null;
+    }
+  }
+
   public static void setDefaultExecutorService(final ExecutorService executorService) {
     ThreadSharedProperties.setDefaultProperty(KEY, executorService);
   }
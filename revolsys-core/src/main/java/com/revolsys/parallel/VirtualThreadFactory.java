@@ -0,0 +1,98 @@
+package com.revolsys.parallel;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jeometry.common.logging.Logs;
+
+/**
+ * A {@link ThreadFactory} that creates virtual threads on JDKs that support
+ * them (Java 21+). The virtual thread builder is looked up using reflection so
+ * the library can still be compiled for and run on older JDKs. If virtual
+ * threads are not supported a platform thread is created in the parent thread
+ * group instead.
+ *
+ * Virtual threads are all members of the same thread group, use
+ * {@link com.revolsys.collection.map.ThreadSharedProperties#setThreadGroup(ThreadGroup)}
+ * to associate a virtual thread with a logical thread group.
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+
+  private static final ThreadFactory VIRTUAL_THREAD_FACTORY = newVirtualThreadFactory();
+
+  /**
+   * Check if the JDK supports virtual threads.
+   *
+   * @return True if virtual threads are supported.
+   */
+  public static boolean isSupported() {
+    return VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  private static ThreadFactory newVirtualThreadFactory() {
+    try {
+      final Method ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      final Method factoryMethod = builderClass.getMethod("factory");
+      final Object builder = ofVirtualMethod.invoke(null);
+      final ThreadFactory factory = (ThreadFactory)factoryMethod.invoke(builder);
+      // Preview versions of the JDK throw an exception when creating the thread
+      factory.newThread(() -> {
+      });
+      return factory;
+    } catch (final Throwable e) {
+      return null;
+    }
+  }
+
+  private String namePrefix = "virtual-";
+
+  private ThreadGroup parentGroup;
+
+  private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+  public VirtualThreadFactory() {
+    if (!isSupported()) {
+      Logs.debug(this, "Virtual threads not supported, using platform threads");
+    }
+  }
+
+  public String getNamePrefix() {
+    return this.namePrefix;
+  }
+
+  public ThreadGroup getParentGroup() {
+    return this.parentGroup;
+  }
+
+  @Override
+  public Thread newThread(final Runnable runnable) {
+    final String threadName = this.namePrefix + this.threadNumber.getAndIncrement();
+    final Thread thread;
+    if (VIRTUAL_THREAD_FACTORY == null) {
+      thread = new Thread(this.parentGroup, runnable, threadName);
+    } else {
+      thread = VIRTUAL_THREAD_FACTORY.newThread(runnable);
+      thread.setName(threadName);
+    }
+    return thread;
+  }
+
+  public VirtualThreadFactory setNamePrefix(final String namePrefix) {
+    this.namePrefix = namePrefix;
+    return this;
+  }
+
+  /**
+   * Set the thread group used for platform threads if virtual threads are not
+   * supported.
+   *
+   * @param parentGroup The thread group.
+   * @return this
+   */
+  public VirtualThreadFactory setParentGroup(final ThreadGroup parentGroup) {
+    this.parentGroup = parentGroup;
+    return this;
+  }
+}
@@ -1,13 +1,14 @@
 package com.revolsys.parallel.channel;
 
 import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class AbstractChannelInput<T> implements ChannelInput<T> {
   /** Flag indicating if the channel has been closed. */
   private boolean closed = false;
 
-  /** The monitor reads must synchronize on */
-  private final Object monitor = new Object();
+  /** The lock that must be held when changing the state of the channel */
+  private final ReentrantLock lock = new ReentrantLock();
 
   /** The name of the channel. */
   private String name;
@@ -15,8 +16,8 @@ public abstract class AbstractChannelInput<T> implements ChannelInput<T> {
   /** Number of readers connected to the channel. */
   private int numReaders = 0;
 
-  /** The monitor reads must synchronize on */
-  private final Object readMonitor = new Object();
+  /** The lock reads must hold */
+  private final ReentrantLock readLock = new ReentrantLock();
 
   public AbstractChannelInput() {
 
@@ -52,13 +53,20 @@ public abstract class AbstractChannelInput<T> implements ChannelInput<T> {
    */
   @Override
   public T read() {
-    synchronized (this.readMonitor) {
-      synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    this.readLock.lock();
+    try {
+      lock.lock();
+      try {
         if (isClosed()) {
           throw new ClosedException();
         }
         return readDo();
+      } finally {
+        lock.unlock();
       }
+    } finally {
+      this.readLock.unlock();
     }
   }
 
@@ -73,39 +81,51 @@ public abstract class AbstractChannelInput<T> implements ChannelInput<T> {
    */
   @Override
   public T read(final long timeout) {
-    synchronized (this.readMonitor) {
-      synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    this.readLock.lock();
+    try {
+      lock.lock();
+      try {
         if (isClosed()) {
           throw new ClosedException();
         }
         return readDo(timeout);
+      } finally {
+        lock.unlock();
       }
+    } finally {
+      this.readLock.unlock();
     }
   }
 
   @Override
   public void readConnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (isClosed()) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numReaders++;
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void readDisconnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (!this.closed) {
         this.numReaders--;
         if (this.numReaders <= 0) {
           close();
-          this.monitor.notifyAll();
         }
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
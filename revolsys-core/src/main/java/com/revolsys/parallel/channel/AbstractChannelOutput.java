@@ -1,11 +1,13 @@
 package com.revolsys.parallel.channel;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 public abstract class AbstractChannelOutput<T> implements ChannelOutput<T> {
   /** Flag indicating if the channel has been closed. */
   private boolean closed = false;
 
-  /** The monitor reads must synchronize on */
-  private final Object monitor = new Object();
+  /** The lock that must be held when changing the state of the channel */
+  private final ReentrantLock lock = new ReentrantLock();
 
   /** The name of the channel. */
   private String name;
@@ -16,8 +18,8 @@ public abstract class AbstractChannelOutput<T> implements ChannelOutput<T> {
   /** Flag indicating if the channel is closed for writing. */
   private boolean writeClosed;
 
-  /** The monitor writes must synchronize on */
-  private final Object writeMonitor = new Object();
+  /** The lock writes must hold */
+  private final ReentrantLock writeLock = new ReentrantLock();
 
   /**
    * Constructs a new Channel<T> with a ZeroBuffer ChannelValueStore.
@@ -59,37 +61,51 @@ public abstract class AbstractChannelOutput<T> implements ChannelOutput<T> {
    */
   @Override
   public void write(final T value) {
-    synchronized (this.writeMonitor) {
-      synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    this.writeLock.lock();
+    try {
+      lock.lock();
+      try {
         if (this.closed) {
           throw new ClosedException();
         }
         writeDo(value);
+      } finally {
+        lock.unlock();
       }
+    } finally {
+      this.writeLock.unlock();
     }
   }
 
   @Override
   public void writeConnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (this.writeClosed) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numWriters++;
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void writeDisconnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (!this.writeClosed) {
         this.numWriters--;
         if (this.numWriters <= 0) {
           this.writeClosed = true;
         }
       }
+    } finally {
+      lock.unlock();
     }
   }
 
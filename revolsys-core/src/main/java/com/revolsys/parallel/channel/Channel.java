@@ -1,22 +1,35 @@
 package com.revolsys.parallel.channel;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
-import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
+/**
+ * A channel between one or more writer and reader processes. The channel uses
+ * {@link ReentrantLock}s rather than synchronized monitors so that a virtual
+ * thread blocked reading or writing the channel does not pin its carrier
+ * thread.
+ */
 public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** The Alternative class which will control the selection */
-  protected MultiInputSelector alt;
+  protected volatile MultiInputSelector alt;
 
   /** Flag indicating if the channel has been closed. */
-  private boolean closed = false;
+  private volatile boolean closed = false;
 
   /** The ChannelValueStore used to store the data for the Channel */
   protected ChannelValueStore<T> data;
 
-  /** The monitor reads must synchronize on */
-  protected Object monitor = new Object();
+  /** The lock that must be held when changing the state of the channel */
+  protected final ReentrantLock lock = new ReentrantLock();
+
+  /** The condition readers and writers wait on for the state to change */
+  protected final Condition lockCondition = this.lock.newCondition();
 
   /** The name of the channel. */
   private String name;
@@ -27,14 +40,20 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** Number of writers connected to the channel. */
   private int numWriters = 0;
 
-  /** The monitor reads must synchronize on */
-  protected Object readMonitor = new Object();
+  /** The lock reads must hold */
+  protected final ReentrantLock readLock = new ReentrantLock();
+
+  /** Number of readers waiting on the lock for a lock-free ChannelValueStore. */
+  private final AtomicInteger waitingReaderCount = new AtomicInteger();
+
+  /** Number of writers waiting on the lock for a lock-free ChannelValueStore. */
+  private final AtomicInteger waitingWriterCount = new AtomicInteger();
 
   /** Flag indicating if the channel is closed for writing. */
-  private boolean writeClosed;
+  private volatile boolean writeClosed;
 
-  /** The monitor writes must synchronize on */
-  protected Object writeMonitor = new Object();
+  /** The lock writes must hold */
+  protected final ReentrantLock writeLock = new ReentrantLock();
 
   /**
    * Constructs a new Channel<T> with a ZeroBuffer ChannelValueStore.
@@ -62,6 +81,20 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     this.data = data;
   }
 
+  /**
+   * Wait on the lock condition. The lock must be held.
+   *
+   * @param timeout The maximum time to wait in milliseconds, 0 to wait forever.
+   * @throws InterruptedException If the thread was interrupted.
+   */
+  private void await(final long timeout) throws InterruptedException {
+    if (timeout <= 0) {
+      this.lockCondition.await();
+    } else {
+      this.lockCondition.await(timeout, TimeUnit.MILLISECONDS);
+    }
+  }
+
   public void close() {
     this.closed = true;
   }
@@ -74,13 +107,21 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
 
   @Override
   public boolean enable(final MultiInputSelector alt) {
-    synchronized (this.monitor) {
-      if (this.data.getState() == ChannelValueStore.EMPTY) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
+      if (this.data.isLockFree()) {
+        // Set before checking the state so a concurrent write will schedule alt
+        this.alt = alt;
+        return this.data.getState() != ChannelValueStore.EMPTY;
+      } else if (this.data.getState() == ChannelValueStore.EMPTY) {
         this.alt = alt;
         return false;
       } else {
         return true;
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -129,24 +170,26 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public T read(final long timeout) {
-    synchronized (this.readMonitor) {
-      synchronized (this.monitor) {
+    if (this.data.isLockFree()) {
+      return readLockFree(timeout);
+    }
+    final ReentrantLock lock = this.lock;
+    this.readLock.lock();
+    try {
+      lock.lock();
+      try {
         if (isClosed()) {
           throw new ClosedException();
         }
         if (this.data.getState() == ChannelValueStore.EMPTY) {
           try {
-            try {
-              this.monitor.wait(timeout);
-            } catch (final InterruptedException e) {
-              throw new ThreadInterruptedException(e);
-            }
-            if (isClosed()) {
-              throw new ClosedException();
-            }
-          } catch (final ThreadInterruptedException e) {
+            await(timeout);
+          } catch (final InterruptedException e) {
             close();
-            this.monitor.notifyAll();
+            this.lockCondition.signalAll();
+            throw new ClosedException();
+          }
+          if (isClosed()) {
             throw new ClosedException();
           }
         }
@@ -154,36 +197,171 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           return null;
         } else {
           final T value = this.data.get();
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
           return value;
         }
+      } finally {
+        lock.unlock();
       }
+    } finally {
+      this.readLock.unlock();
     }
   }
 
+  /**
+   * Read up to maxCount values from the channel into the collection. Blocks
+   * until at least one value is available and then reads any other values that
+   * are available without waiting.
+   *
+   * @param values The collection to add the values to.
+   * @param maxCount The maximum number of values to read.
+   * @return The number of values read.
+   */
+  @Override
+  public int readBatch(final Collection<? super T> values, final int maxCount) {
+    final T firstValue = read();
+    values.add(firstValue);
+    int count = 1;
+    if (this.data.isLockFree()) {
+      while (count < maxCount) {
+        final T value = this.data.poll();
+        if (value == null) {
+          break;
+        } else {
+          values.add(value);
+          count++;
+        }
+      }
+      signalWriters();
+    } else {
+      final ReentrantLock lock = this.lock;
+      this.readLock.lock();
+      try {
+        lock.lock();
+        try {
+          while (count < maxCount && this.data.getState() != ChannelValueStore.EMPTY) {
+            final T value = this.data.get();
+            values.add(value);
+            count++;
+          }
+          this.lockCondition.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      } finally {
+        this.readLock.unlock();
+      }
+    }
+    return count;
+  }
+
   @Override
   public void readConnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (isClosed()) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numReaders++;
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void readDisconnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (!this.closed) {
         this.numReaders--;
         if (this.numReaders <= 0) {
           close();
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private T readLockFree(final long timeout) {
+    if (isClosed()) {
+      throw new ClosedException();
+    }
+    T value = this.data.poll();
+    if (value == null) {
+      value = readLockFreeWait(timeout);
+    }
+    if (value != null) {
+      signalWriters();
+    }
+    return value;
+  }
+
+  private T readLockFreeWait(final long timeout) {
+    final long endTime = System.currentTimeMillis() + timeout;
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
+      // Increment before polling so a concurrent write will signal the lock
+      this.waitingReaderCount.incrementAndGet();
+      try {
+        while (true) {
+          final T value = this.data.poll();
+          if (value != null) {
+            return value;
+          } else if (isClosed()) {
+            throw new ClosedException();
+          }
+          long waitTime = 0;
+          if (timeout > 0) {
+            waitTime = endTime - System.currentTimeMillis();
+            if (waitTime <= 0) {
+              return null;
+            }
+          }
+          try {
+            await(waitTime);
+          } catch (final InterruptedException e) {
+            close();
+            this.lockCondition.signalAll();
+            throw new ClosedException();
+          }
         }
+      } finally {
+        this.waitingReaderCount.decrementAndGet();
       }
+    } finally {
+      lock.unlock();
+    }
+  }
 
+  private void signalAll() {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
+      this.lockCondition.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void signalReaders() {
+    final MultiInputSelector tempAlt = this.alt;
+    if (tempAlt != null) {
+      tempAlt.schedule();
+    }
+    if (this.waitingReaderCount.get() > 0) {
+      signalAll();
+    }
+  }
+
+  private void signalWriters() {
+    if (this.waitingWriterCount.get() > 0) {
+      signalAll();
     }
   }
 
@@ -205,8 +383,16 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public void write(final T value) {
-    synchronized (this.writeMonitor) {
-      synchronized (this.monitor) {
+    if (this.data.isLockFree()) {
+      writeLockFree(value);
+      signalReaders();
+      return;
+    }
+    final ReentrantLock lock = this.lock;
+    this.writeLock.lock();
+    try {
+      lock.lock();
+      try {
         if (this.closed) {
           throw new ClosedException();
         }
@@ -215,43 +401,108 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
         if (tempAlt != null) {
           tempAlt.schedule();
         } else {
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
         }
         if (this.data.getState() == ChannelValueStore.FULL) {
           try {
-            try {
-              this.monitor.wait();
-            } catch (final InterruptedException e) {
-              throw new ThreadInterruptedException(e);
-            }
-            if (this.closed) {
-              throw new ClosedException();
-            }
-          } catch (final ThreadInterruptedException e) {
+            this.lockCondition.await();
+          } catch (final InterruptedException e) {
             close();
-            this.monitor.notifyAll();
+            this.lockCondition.signalAll();
             throw new ClosedException(e);
           }
+          if (this.closed) {
+            throw new ClosedException();
+          }
         }
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Writes the values to the Channel. For a lock-free ChannelValueStore the
+   * readers are only signalled once for the batch (or when the store is full).
+   *
+   * @param values The values to write to the Channel.
+   */
+  @Override
+  public void writeBatch(final Iterable<? extends T> values) {
+    if (this.data.isLockFree()) {
+      for (final T value : values) {
+        if (this.closed) {
+          throw new ClosedException();
+        } else if (!this.data.offer(value)) {
+          signalReaders();
+          writeLockFreeWait(value);
+        }
+      }
+      signalReaders();
+    } else {
+      for (final T value : values) {
+        write(value);
       }
     }
   }
 
   @Override
   public void writeConnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (this.writeClosed) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numWriters++;
       }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void writeLockFree(final T value) {
+    if (this.closed) {
+      throw new ClosedException();
+    } else if (!this.data.offer(value)) {
+      writeLockFreeWait(value);
+    }
+  }
 
+  private void writeLockFreeWait(final T value) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
+      // Increment before offering so a concurrent read will signal the lock
+      this.waitingWriterCount.incrementAndGet();
+      try {
+        while (!this.data.offer(value)) {
+          if (this.closed) {
+            throw new ClosedException();
+          }
+          try {
+            this.lockCondition.await();
+          } catch (final InterruptedException e) {
+            close();
+            this.lockCondition.signalAll();
+            throw new ClosedException(e);
+          }
+        }
+      } finally {
+        this.waitingWriterCount.decrementAndGet();
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void writeDisconnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (!this.writeClosed) {
         this.numWriters--;
         if (this.numWriters <= 0) {
@@ -260,11 +511,12 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           if (tempAlt != null) {
             tempAlt.closeChannel();
           } else {
-            this.monitor.notifyAll();
+            this.lockCondition.signalAll();
           }
         }
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 }
@@ -1,5 +1,7 @@
 package com.revolsys.parallel.channel;
 
+import java.util.Collection;
+
 public interface ChannelInput<T> extends Iterable<T> {
   /**
    * Reads an Object from the Channel. This method also ensures only one of the
@@ -21,6 +23,21 @@ public interface ChannelInput<T> extends Iterable<T> {
    */
   T read(long timeout);
 
+  /**
+   * Reads up to maxCount Objects from the Channel into the collection. Blocks
+   * until at least one Object is available. The default implementation only
+   * reads one Object.
+   *
+   * @param values The collection to add the Objects to.
+   * @param maxCount The maximum number of Objects to read.
+   * @return The number of Objects read.
+   */
+  default int readBatch(final Collection<? super T> values, final int maxCount) {
+    final T value = read();
+    values.add(value);
+    return 1;
+  }
+
   void readConnect();
 
   void readDisconnect();
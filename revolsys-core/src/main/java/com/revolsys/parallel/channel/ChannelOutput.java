@@ -10,6 +10,18 @@ public interface ChannelOutput<T> {
    */
   void write(final T value);
 
+  /**
+   * Writes the Objects to the Channel. The default implementation writes each
+   * Object in turn.
+   *
+   * @param values The Objects to write to the Channel.
+   */
+  default void writeBatch(final Iterable<? extends T> values) {
+    for (final T value : values) {
+      write(value);
+    }
+  }
+
   void writeConnect();
 
   void writeDisconnect();
@@ -49,6 +49,38 @@ public abstract class ChannelValueStore<T> implements Cloneable {
    */
   protected abstract int getState();
 
+  /**
+   * Check if the ChannelValueStore is thread safe and supports the non-blocking
+   * {@link #offer(Object)} and {@link #poll()} methods. If true the
+   * {@link Channel} reads and writes without synchronizing on its monitors
+   * unless it needs to wait.
+   *
+   * @return True if the ChannelValueStore is lock-free.
+   */
+  protected boolean isLockFree() {
+    return false;
+  }
+
+  /**
+   * Puts a new Object into the ChannelValueStore if it is not FULL. If
+   * {@link #isLockFree()} is false the caller must hold the {@link Channel}
+   * lock.
+   *
+   * @param value The object to put in the ChannelValueStore
+   * @return True if the value was accepted, false if the ChannelValueStore was
+   *         full.
+   */
+  protected abstract boolean offer(T value);
+
+  /**
+   * Returns the next available Object from the ChannelValueStore or null if it
+   * is EMPTY. If {@link #isLockFree()} is false the caller must hold the
+   * {@link Channel} lock.
+   *
+   * @return The next available Object or null if EMPTY.
+   */
+  protected abstract T poll();
+
   /**
    * Puts a new Object into the ChannelValueStore. <I>NOTE: getState should be
    * called before this method to check that the state is not FULL. If the state
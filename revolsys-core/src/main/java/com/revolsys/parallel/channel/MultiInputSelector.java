@@ -3,9 +3,15 @@ package com.revolsys.parallel.channel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-
-import com.revolsys.parallel.ThreadInterruptedException;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Select the next {@link SelectableInput} that has data available. The
+ * selector uses {@link ReentrantLock}s rather than synchronized monitors so
+ * that a virtual thread blocked in a select does not pin its carrier thread.
+ */
 public class MultiInputSelector {
   private int enabledChannels = 0;
 
@@ -13,16 +19,51 @@ public class MultiInputSelector {
 
   private long maxWait;
 
-  private final Object monitor = new Object();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition lockCondition = this.lock.newCondition();
 
   private boolean scheduled;
 
+  private final ReentrantLock selectLock = new ReentrantLock();
+
+  /**
+   * Wait until a channel is scheduled or the timeout expires. The select lock
+   * must be held.
+   */
+  private void await(final long msecs, final int nsecs) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
+      if (!this.scheduled) {
+        final long waitMillis = Math.min(msecs, this.maxWait);
+        if (waitMillis == 0 && nsecs == 0) {
+          this.lockCondition.await();
+        } else {
+          long waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+          if (waitNanos < Long.MAX_VALUE - nsecs) {
+            waitNanos += nsecs;
+          }
+          this.lockCondition.awaitNanos(waitNanos);
+        }
+      }
+    } catch (final InterruptedException e) {
+      throw new ClosedException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
   void closeChannel() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       this.enabledChannels--;
       if (this.enabledChannels <= 0) {
-        this.monitor.notifyAll();
+        this.lockCondition.signalAll();
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -114,114 +155,118 @@ public class MultiInputSelector {
   }
 
   void schedule() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       this.scheduled = true;
-      this.monitor.notifyAll();
+      this.lockCondition.signalAll();
+    } finally {
+      lock.unlock();
     }
   }
 
-  public synchronized int select(final List<? extends SelectableInput> channels) {
+  public int select(final List<? extends SelectableInput> channels) {
     return select(Long.MAX_VALUE, channels);
   }
 
-  public synchronized int select(final List<? extends SelectableInput> channels,
+  public int select(final List<? extends SelectableInput> channels,
     final boolean skip) {
     if (skip) {
-      enableChannels(channels);
-      return disableChannels(channels);
+      final ReentrantLock selectLock = this.selectLock;
+      selectLock.lock();
+      try {
+        enableChannels(channels);
+        return disableChannels(channels);
+      } finally {
+        selectLock.unlock();
+      }
     } else {
       return select(channels);
     }
   }
 
-  public synchronized int select(final List<? extends SelectableInput> channels,
+  public int select(final List<? extends SelectableInput> channels,
     final List<Boolean> guard) {
     return select(channels, guard, Long.MAX_VALUE);
   }
 
-  public synchronized int select(final List<? extends SelectableInput> channels,
+  public int select(final List<? extends SelectableInput> channels,
     final List<Boolean> guard, final boolean skip) {
     if (skip) {
-      enableChannels(channels, guard);
-      return disableChannels(channels, guard);
+      final ReentrantLock selectLock = this.selectLock;
+      selectLock.lock();
+      try {
+        enableChannels(channels, guard);
+        return disableChannels(channels, guard);
+      } finally {
+        selectLock.unlock();
+      }
     } else {
       return select(channels, guard);
     }
   }
 
-  public synchronized int select(final List<? extends SelectableInput> channels,
+  public int select(final List<? extends SelectableInput> channels,
     final List<Boolean> guard, final long msecs) {
     return select(channels, guard, msecs, 0);
   }
 
-  public synchronized int select(final List<? extends SelectableInput> channels,
+  public int select(final List<? extends SelectableInput> channels,
     final List<Boolean> guard, final long msecs, final int nsecs) {
-    if (!enableChannels(channels, guard) && this.guardEnabledChannels > 0) {
-      synchronized (this.monitor) {
-        if (!this.scheduled) {
-          try {
-            try {
-              this.monitor.wait(Math.min(msecs, this.maxWait), nsecs);
-            } catch (final InterruptedException e) {
-              throw new ThreadInterruptedException(e);
-            }
-          } catch (final ThreadInterruptedException e) {
-            throw new ClosedException(e);
-          }
-        }
+    final ReentrantLock selectLock = this.selectLock;
+    selectLock.lock();
+    try {
+      if (!enableChannels(channels, guard) && this.guardEnabledChannels > 0) {
+        await(msecs, nsecs);
       }
+      return disableChannels(channels, guard);
+    } finally {
+      selectLock.unlock();
     }
-    return disableChannels(channels, guard);
   }
 
-  public synchronized int select(final long msecs, final int nsecs,
+  public int select(final long msecs, final int nsecs,
     final List<? extends SelectableInput> channels) {
-    if (!enableChannels(channels)) {
-      if (msecs + nsecs >= 0) {
-        synchronized (this.monitor) {
-          try {
-            if (!this.scheduled) {
-              try {
-                this.monitor.wait(Math.min(msecs, this.maxWait), nsecs);
-              } catch (final InterruptedException e) {
-                throw new ThreadInterruptedException(e);
-              }
-            }
-          } catch (final ThreadInterruptedException e) {
-            throw new ClosedException(e);
-          }
+    final ReentrantLock selectLock = this.selectLock;
+    selectLock.lock();
+    try {
+      if (!enableChannels(channels)) {
+        if (msecs + nsecs >= 0) {
+          await(msecs, nsecs);
         }
       }
+      return disableChannels(channels);
+    } finally {
+      selectLock.unlock();
     }
-    return disableChannels(channels);
   }
 
-  public synchronized int select(final long msecs, final int nsecs,
+  public int select(final long msecs, final int nsecs,
     final SelectableInput... channels) {
     return select(msecs, nsecs, Arrays.asList(channels));
   }
 
-  public synchronized int select(final long msecs, final List<? extends SelectableInput> channels) {
+  public int select(final long msecs, final List<? extends SelectableInput> channels) {
     return select(msecs, 0, channels);
   }
 
-  public synchronized int select(final long msecs, final SelectableInput... channels) {
+  public int select(final long msecs, final SelectableInput... channels) {
     return select(msecs, 0, channels);
   }
 
-  public synchronized int select(final SelectableInput... channels) {
+  public int select(final SelectableInput... channels) {
     return select(Long.MAX_VALUE, channels);
   }
 
-  public synchronized int select(final SelectableInput[] channels, final boolean skip) {
+  public int select(final SelectableInput[] channels, final boolean skip) {
     return select(Arrays.asList(channels), skip);
   }
 
-  public synchronized int select(final SelectableInput[] channels, final boolean[] guard) {
+  public int select(final SelectableInput[] channels, final boolean[] guard) {
     return select(channels, guard, Long.MAX_VALUE);
   }
 
-  public synchronized int select(final SelectableInput[] channels, final boolean[] guard,
+  public int select(final SelectableInput[] channels, final boolean[] guard,
     final boolean skip) {
     final List<Boolean> guardList = new ArrayList<>();
     for (final boolean enabled : guard) {
@@ -230,12 +275,12 @@ public class MultiInputSelector {
     return select(Arrays.asList(channels), guardList, skip);
   }
 
-  public synchronized int select(final SelectableInput[] channels, final boolean[] guard,
+  public int select(final SelectableInput[] channels, final boolean[] guard,
     final long msecs) {
     return select(channels, guard, msecs, 0);
   }
 
-  public synchronized int select(final SelectableInput[] channels, final boolean[] guard,
+  public int select(final SelectableInput[] channels, final boolean[] guard,
     final long msecs, final int nsecs) {
     final List<Boolean> guardList = new ArrayList<>();
     for (final boolean enabled : guard) {
@@ -244,7 +289,7 @@ public class MultiInputSelector {
     return select(Arrays.asList(channels), guardList, msecs, nsecs);
   }
 
-  public synchronized <T extends SelectableInput> T selectChannelInput(final List<T> channels) {
+  public <T extends SelectableInput> T selectChannelInput(final List<T> channels) {
     final int index = select(Long.MAX_VALUE, channels);
     if (index == -1) {
       return null;
@@ -7,17 +7,28 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.revolsys.parallel.ThreadInterruptedException;
 
+/**
+ * A bundle of named queues read in the order the values were written. The bundle uses
+ * {@link ReentrantLock}s rather than synchronized monitors so that a virtual thread blocked
+ * reading the bundle does not pin its carrier thread.
+ */
 public class NamedChannelBundle<T> {
 
   /** Flag indicating if the channel has been closed. */
   private boolean closed = false;
 
-  /** The monitor reads must synchronize on */
-  private final Object monitor = new Object();
+  /** The lock that must be held when changing the state of the bundle */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** The condition readers wait on for the state to change */
+  private final Condition lockCondition = this.lock.newCondition();
 
   /** The name of the channel. */
   private String name;
@@ -30,8 +41,8 @@ public class NamedChannelBundle<T> {
 
   private int readerNotifyCount = 0;
 
-  /** The monitor reads must synchronize on */
-  private final Object readMonitor = new Object();
+  /** The lock reads must hold */
+  private final ReentrantLock readLock = new ReentrantLock();
 
   private AtomicLong sequence = new AtomicLong();
 
@@ -43,8 +54,8 @@ public class NamedChannelBundle<T> {
   /** Flag indicating if the channel is closed for writing. */
   private boolean writeClosed;
 
-  /** The monitor writes must synchronize on */
-  private final Object writeMonitor = new Object();
+  /** The lock writes must hold */
+  private final ReentrantLock writeLock = new ReentrantLock();
 
   public NamedChannelBundle() {
   }
@@ -55,11 +66,15 @@ public class NamedChannelBundle<T> {
 
   public void close() {
     this.closed = true;
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       this.valueQueueByName = null;
       this.sequence = null;
       this.sequenceQueueByName = null;
-      this.monitor.notifyAll();
+      this.lockCondition.signalAll();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -114,7 +129,9 @@ public class NamedChannelBundle<T> {
     if (!this.closed) {
       if (this.writeClosed) {
         boolean empty = true;
-        synchronized (this.monitor) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
           for (final Queue<T> queue : this.valueQueueByName.values()) {
             if (!queue.isEmpty()) {
               empty = false;
@@ -123,6 +140,8 @@ public class NamedChannelBundle<T> {
           if (empty) {
             close();
           }
+        } finally {
+          lock.unlock();
         }
       }
     }
@@ -131,9 +150,13 @@ public class NamedChannelBundle<T> {
   }
 
   public void notifyReaders() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       this.readerNotifyCount++;
-      this.monitor.notifyAll();
+      this.lockCondition.signalAll();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -166,8 +189,11 @@ public class NamedChannelBundle<T> {
   }
 
   public T read(final long timeout, final Collection<String> names) {
-    synchronized (this.readMonitor) {
-      synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    this.readLock.lock();
+    try {
+      lock.lock();
+      try {
         final int readerNotifyCount = this.readerNotifyCount;
         try {
           long maxTime = 0;
@@ -181,7 +207,7 @@ public class NamedChannelBundle<T> {
           if (timeout == 0) {
             while (queue == null && readerNotifyCount == this.readerNotifyCount) {
               try {
-                this.monitor.wait();
+                this.lockCondition.await();
               } catch (final InterruptedException e) {
                 throw new ThreadInterruptedException(e);
               }
@@ -196,7 +222,7 @@ public class NamedChannelBundle<T> {
             while (queue == null && waitTime > 0 && readerNotifyCount == this.readerNotifyCount) {
               final long milliSeconds = waitTime;
               try {
-                this.monitor.wait(milliSeconds);
+                this.lockCondition.await(milliSeconds, TimeUnit.MILLISECONDS);
               } catch (final InterruptedException e) {
                 throw new ThreadInterruptedException(e);
               }
@@ -214,15 +240,19 @@ public class NamedChannelBundle<T> {
             return null;
           } else {
             final T value = queue.remove();
-            this.monitor.notifyAll();
+            this.lockCondition.signalAll();
             return value;
           }
         } catch (final ThreadInterruptedException e) {
           close();
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
           throw new ClosedException();
         }
+      } finally {
+        lock.unlock();
       }
+    } finally {
+      this.readLock.unlock();
     }
   }
 
@@ -235,35 +265,45 @@ public class NamedChannelBundle<T> {
   }
 
   public void readConnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (isClosed()) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numReaders++;
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
   public void readDisconnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (!this.closed) {
         this.numReaders--;
         if (this.numReaders <= 0) {
           close();
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
         }
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
   public Collection<T> remove(final String name) {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       this.sequenceQueueByName.remove(name);
       final Queue<T> values = this.valueQueueByName.remove(name);
-      this.monitor.notifyAll();
+      this.lockCondition.signalAll();
       return values;
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -276,10 +316,13 @@ public class NamedChannelBundle<T> {
    * @param value The object to write to the Channel.
    */
   public void write(final String name, final T value) {
-    synchronized (this.writeMonitor) {
-      synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    this.writeLock.lock();
+    try {
+      lock.lock();
+      try {
         if (this.closed) {
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
           throw new ClosedException();
         } else {
           final Long sequence = this.sequence.getAndIncrement();
@@ -289,32 +332,43 @@ public class NamedChannelBundle<T> {
           final Queue<T> queue = getValueQueue(name);
           queue.add(value);
 
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
         }
+      } finally {
+        lock.unlock();
       }
+    } finally {
+      this.writeLock.unlock();
     }
   }
 
   public void writeConnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (this.writeClosed) {
         throw new IllegalStateException("Cannot connect to a closed channel");
       } else {
         this.numWriters++;
       }
-
+    } finally {
+      lock.unlock();
     }
   }
 
   public void writeDisconnect() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       if (!this.writeClosed) {
         this.numWriters--;
         if (this.numWriters <= 0) {
           this.writeClosed = true;
-          this.monitor.notifyAll();
+          this.lockCondition.signalAll();
         }
       }
+    } finally {
+      lock.unlock();
     }
   }
 }
@@ -55,6 +55,27 @@ public class BlackHoleBuffer<T> extends ChannelValueStore<T> {
     return EMPTY;
   }
 
+  /**
+   * Discards the Object. The BlackHoleBuffer is never full.
+   *
+   * @param value The object to discard.
+   * @return True.
+   */
+  @Override
+  protected boolean offer(final T value) {
+    return true;
+  }
+
+  /**
+   * The BlackHoleBuffer is always EMPTY.
+   *
+   * @return null.
+   */
+  @Override
+  protected T poll() {
+    return null;
+  }
+
   /**
    * Puts a new Object into the ZeroBuffer.
    * <P>
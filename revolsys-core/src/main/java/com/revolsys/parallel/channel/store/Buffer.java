@@ -121,6 +121,33 @@ public class Buffer<T> extends ChannelValueStore<T> {
     }
   }
 
+  /**
+   * Puts a new Object into the Buffer if it is not FULL.
+   *
+   * @param value The object to put in the Buffer
+   * @return True if the value was accepted, false if the Buffer was FULL.
+   */
+  @Override
+  protected synchronized boolean offer(final T value) {
+    if (getState() == FULL) {
+      return false;
+    } else {
+      put(value);
+      return true;
+    }
+  }
+
+  /**
+   * Returns the first Object from the Buffer and removes the Object from the
+   * Buffer, or null if the Buffer is EMPTY.
+   *
+   * @return The next available Object or null if EMPTY.
+   */
+  @Override
+  protected synchronized T poll() {
+    return this.buffer.poll();
+  }
+
   /**
    * Puts a new Object into the Buffer.
    * <P>
@@ -25,6 +25,25 @@ public class Overwrite<T> extends ChannelValueStore<T> {
     return this.state;
   }
 
+  /**
+   * Puts a new Object into the Overwrite, replacing any existing Object. The
+   * Overwrite is never full.
+   */
+  @Override
+  protected boolean offer(final T value) {
+    put(value);
+    return true;
+  }
+
+  @Override
+  protected T poll() {
+    if (this.state == EMPTY) {
+      return null;
+    } else {
+      return get();
+    }
+  }
+
   @Override
   protected void put(final T value) {
     this.state = NONEMPTYFULL;
@@ -0,0 +1,225 @@
+package com.revolsys.parallel.channel.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.revolsys.parallel.channel.ChannelValueStore;
+
+/**
+ * <h2>Description</h2>
+ * <p>
+ * The RingBuffer class is a lock-free bounded implementation of
+ * ChannelValueStore. The values are stored in a fixed size array and each slot
+ * has a sequence number that is used to hand the slot between the writers and
+ * readers without locking. The {@link com.revolsys.parallel.channel.Channel}
+ * reads and writes values from a RingBuffer without synchronizing on its
+ * monitors, it only blocks when the buffer is empty (readers) or full (writers).
+ * </p>
+ * <p>
+ * If the buffer is created as single producer only one thread may write to the
+ * buffer at a time, which avoids a compare and set on each write. Any number of
+ * threads can read from the buffer. Null values cannot be stored.
+ * </p>
+ */
+public class RingBuffer<T> extends ChannelValueStore<T> {
+  private static int capacity(final int maxSize) {
+    if (maxSize < 2) {
+      return 2;
+    } else if (maxSize > 1 << 30) {
+      return 1 << 30;
+    } else {
+      return Integer.highestOneBit(maxSize - 1) << 1;
+    }
+  }
+
+  /** The index of the next slot to read from. */
+  private final AtomicLong head = new AtomicLong();
+
+  /** The mask to convert a position to a slot index. */
+  private final int mask;
+
+  /** Flag indicating if multiple threads can write to the buffer. */
+  private final boolean multipleProducer;
+
+  /** The sequence number for each slot. */
+  private final AtomicLongArray sequences;
+
+  /** The index of the next slot to write to. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** The storage for the buffered Objects */
+  private final Object[] values;
+
+  /**
+   * Construct a new multiple producer RingBuffer with the specified maximum
+   * size. The size is rounded up to the next power of 2.
+   *
+   * @param maxSize The maximum number of Objects the RingBuffer can store
+   */
+  public RingBuffer(final int maxSize) {
+    this(maxSize, true);
+  }
+
+  /**
+   * Construct a new RingBuffer with the specified maximum size. The size is
+   * rounded up to the next power of 2.
+   *
+   * @param maxSize The maximum number of Objects the RingBuffer can store
+   * @param multipleProducer False if only one thread will write to the buffer.
+   */
+  public RingBuffer(final int maxSize, final boolean multipleProducer) {
+    final int capacity = capacity(maxSize);
+    this.multipleProducer = multipleProducer;
+    this.mask = capacity - 1;
+    this.values = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      this.sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Returns a new Object with the same creation parameters as this Object.
+   * <I>NOTE: Only the sizes of the data should be cloned not the stored
+   * data.</I>
+   *
+   * @return The cloned instance of this Object.
+   */
+  @Override
+  protected Object clone() {
+    return new RingBuffer<T>(getCapacity(), this.multipleProducer);
+  }
+
+  /**
+   * Returns the first Object from the RingBuffer and removes the Object from
+   * the RingBuffer.
+   * <P>
+   * Pre-condition: The state must not be EMPTY
+   *
+   * @return The next available Object from the RingBuffer
+   */
+  @Override
+  protected T get() {
+    return poll();
+  }
+
+  public int getCapacity() {
+    return this.values.length;
+  }
+
+  /**
+   * Returns the current state of the RingBuffer. As the buffer is lock-free the
+   * state may have changed by the time the method returns.
+   *
+   * @return The current state of the RingBuffer (EMPTY, NONEMPTYFULL or FULL)
+   */
+  @Override
+  protected int getState() {
+    final int size = size();
+    if (size == 0) {
+      return EMPTY;
+    } else if (size >= this.values.length) {
+      return FULL;
+    } else {
+      return NONEMPTYFULL;
+    }
+  }
+
+  @Override
+  protected boolean isLockFree() {
+    return true;
+  }
+
+  public boolean isMultipleProducer() {
+    return this.multipleProducer;
+  }
+
+  @Override
+  protected boolean offer(final T value) {
+    if (value == null) {
+      throw new IllegalArgumentException("RingBuffer cannot store null values");
+    }
+    final AtomicLongArray sequences = this.sequences;
+    final AtomicLong tail = this.tail;
+    long position = tail.get();
+    while (true) {
+      final int index = (int)position & this.mask;
+      final long sequence = sequences.get(index);
+      final long difference = sequence - position;
+      if (difference == 0) {
+        if (this.multipleProducer) {
+          if (tail.compareAndSet(position, position + 1)) {
+            this.values[index] = value;
+            sequences.set(index, position + 1);
+            return true;
+          }
+        } else {
+          tail.set(position + 1);
+          this.values[index] = value;
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+      position = tail.get();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T poll() {
+    final AtomicLongArray sequences = this.sequences;
+    final AtomicLong head = this.head;
+    long position = head.get();
+    while (true) {
+      final int index = (int)position & this.mask;
+      final long sequence = sequences.get(index);
+      final long difference = sequence - (position + 1);
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          final T value = (T)this.values[index];
+          this.values[index] = null;
+          sequences.set(index, position + this.values.length);
+          return value;
+        }
+      } else if (difference < 0) {
+        return null;
+      }
+      position = head.get();
+    }
+  }
+
+  /**
+   * Puts a new Object into the RingBuffer.
+   * <P>
+   * Pre-condition: The state must not be FULL
+   *
+   * @param value The object to put in the RingBuffer
+   */
+  @Override
+  protected void put(final T value) {
+    offer(value);
+  }
+
+  /**
+   * The number of items in the buffer.
+   *
+   * @return The number of items in the buffer.
+   */
+  public int size() {
+    final long size = this.tail.get() - this.head.get();
+    if (size < 0) {
+      return 0;
+    } else if (size > this.values.length) {
+      return this.values.length;
+    } else {
+      return (int)size;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RingBuffer[size=" + size() + ", capacity=" + getCapacity() + "]";
+  }
+}
@@ -64,6 +64,36 @@ public class ZeroBuffer<T> extends ChannelValueStore<T> {
     return this.state;
   }
 
+  /**
+   * Puts a new Object into the ZeroBuffer if it is EMPTY.
+   *
+   * @param value The object to put in the ChannelValueStore
+   * @return True if the value was added, false if the ZeroBuffer was FULL.
+   */
+  @Override
+  protected boolean offer(final T value) {
+    if (this.state == FULL) {
+      return false;
+    } else {
+      put(value);
+      return true;
+    }
+  }
+
+  /**
+   * Returns the Object from the ZeroBuffer or null if it is EMPTY.
+   *
+   * @return The Object or null if EMPTY.
+   */
+  @Override
+  protected T poll() {
+    if (this.state == EMPTY) {
+      return null;
+    } else {
+      return get();
+    }
+  }
+
   /**
    * Puts a new Object into the ZeroBuffer.
    * <P>
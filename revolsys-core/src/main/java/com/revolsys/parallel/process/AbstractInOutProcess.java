@@ -6,6 +6,7 @@ import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ChannelValueStore;
 import com.revolsys.parallel.channel.ClosedException;
 import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.RingBuffer;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
 public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
@@ -21,6 +22,8 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
 
   private boolean initialized;
 
+  private boolean ringBuffer;
+
   public AbstractInOutProcess() {
   }
 
@@ -79,11 +82,20 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
   protected void initializeDo() {
   }
 
+  /**
+   * @return True if bounded channels use a lock-free {@link RingBuffer}.
+   */
+  public boolean isRingBuffer() {
+    return this.ringBuffer;
+  }
+
   protected ChannelValueStore<I> newInValueStore() {
     if (this.inBufferSize == 0) {
       return new ZeroBuffer<>();
     } else if (this.inBufferSize < 0) {
       return new Buffer<>();
+    } else if (this.ringBuffer) {
+      return new RingBuffer<>(this.inBufferSize);
     } else {
       return new Buffer<>(this.inBufferSize);
     }
@@ -94,6 +106,8 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
       return new ZeroBuffer<>();
     } else if (this.outBufferSize < 0) {
       return new Buffer<>();
+    } else if (this.ringBuffer) {
+      return new RingBuffer<>(this.outBufferSize);
     } else {
       return new Buffer<>(this.outBufferSize);
     }
@@ -181,4 +195,15 @@ public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
     return this;
   }
 
+  /**
+   * Use a lock-free {@link RingBuffer} instead of a {@link Buffer} for the
+   * channels created with a bounded buffer size.
+   *
+   * @param ringBuffer True if a RingBuffer should be used.
+   */
+  public AbstractInOutProcess<I, O> setRingBuffer(final boolean ringBuffer) {
+    this.ringBuffer = ringBuffer;
+    return this;
+  }
+
 }
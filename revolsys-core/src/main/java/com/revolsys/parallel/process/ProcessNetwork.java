@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
 
 import javax.annotation.PostConstruct;
@@ -17,6 +18,7 @@ import org.jeometry.common.logging.Logs;
 
 import com.revolsys.collection.map.ThreadSharedProperties;
 import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.VirtualThreadFactory;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.spring.TargetBeanProcess;
 
@@ -123,6 +125,8 @@ public class ProcessNetwork {
 
   private final Object sync = new Object();
 
+  private ThreadFactory threadFactory;
+
   private ThreadGroup threadGroup;
 
   public ProcessNetwork() {
@@ -233,6 +237,10 @@ public class ProcessNetwork {
     return this.sync;
   }
 
+  public ThreadFactory getThreadFactory() {
+    return this.threadFactory;
+  }
+
   public ThreadGroup getThreadGroup() {
     return this.threadGroup;
   }
@@ -246,6 +254,9 @@ public class ProcessNetwork {
     if (this.parent == null) {
       this.threadGroup = new ThreadGroup(this.name);
       ThreadSharedProperties.initialiseThreadGroup(this.threadGroup);
+      if (this.threadFactory instanceof VirtualThreadFactory) {
+        ((VirtualThreadFactory)this.threadFactory).setParentGroup(this.threadGroup);
+      }
     }
   }
 
@@ -253,6 +264,27 @@ public class ProcessNetwork {
     return this.autoStart;
   }
 
+  public boolean isVirtualThreads() {
+    return this.threadFactory instanceof VirtualThreadFactory;
+  }
+
+  private Thread newThread(final Runnable runnable, final String name) {
+    final ThreadFactory threadFactory = this.threadFactory;
+    if (threadFactory == null) {
+      if (name == null) {
+        return new Thread(this.threadGroup, runnable);
+      } else {
+        return new Thread(this.threadGroup, runnable, name);
+      }
+    } else {
+      final Thread thread = threadFactory.newThread(runnable);
+      if (name != null) {
+        thread.setName(name);
+      }
+      return thread;
+    }
+  }
+
   void removeProcess(final Process process) {
     synchronized (this.sync) {
       if (this.processes != null) {
@@ -292,6 +324,37 @@ public class ProcessNetwork {
     }
   }
 
+  /**
+   * Set the factory used to create the thread for each process. If not set a
+   * platform thread is created in the network's thread group. Threads created
+   * by the factory can be in any thread group, {@link ThreadSharedProperties}
+   * uses the network's thread group as the logical thread group for the
+   * process.
+   *
+   * @param threadFactory The thread factory.
+   */
+  public void setThreadFactory(final ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+  }
+
+  /**
+   * Run each process in a virtual thread instead of a platform thread. If the
+   * JDK does not support virtual threads platform threads are used.
+   *
+   * @param virtualThreads True if virtual threads should be used.
+   */
+  public void setVirtualThreads(final boolean virtualThreads) {
+    if (virtualThreads) {
+      if (!isVirtualThreads()) {
+        this.threadFactory = new VirtualThreadFactory() //
+          .setNamePrefix(this.name + "-") //
+          .setParentGroup(this.threadGroup);
+      }
+    } else if (isVirtualThreads()) {
+      this.threadFactory = null;
+    }
+  }
+
   public void start() {
     if (this.parent == null) {
       synchronized (this.sync) {
@@ -320,8 +383,12 @@ public class ProcessNetwork {
             runProcess = process;
           }
           final String name = runProcess.toString();
+          final ThreadGroup threadGroup = this.threadGroup;
           final Runnable runnable = () -> {
             try {
+              if (threadGroup != null) {
+                ThreadSharedProperties.setThreadGroup(threadGroup);
+              }
               runProcess.run();
             } catch (final Throwable e) {
               Logs.error(this, e);
@@ -333,11 +400,7 @@ public class ProcessNetwork {
               }
             }
           };
-          if (name == null) {
-            thread = new Thread(this.threadGroup, runnable);
-          } else {
-            thread = new Thread(this.threadGroup, runnable, name);
-          }
+          thread = newThread(runnable, name);
           this.processes.put(runProcess, thread);
           if (!thread.isAlive()) {
             thread.start();
@@ -9,6 +9,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -27,7 +29,11 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
 
   private List<Channel<Runnable>> channels = new ArrayList<>();
 
-  private final Object monitor = new Object();
+  /** The lock that must be held when changing the channels */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** The condition execute waits on for a task to complete */
+  private final Condition lockCondition = this.lock.newCondition();
 
   private ProcessNetwork processNetwork;
 
@@ -40,13 +46,13 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
   @Override
   protected void afterExecute(final Runnable r, final Throwable t) {
     this.taskCount.decrementAndGet();
-    synchronized (this.monitor) {
-      this.monitor.notifyAll();
-    }
+    signalAll();
   }
 
   public void closeChannels() {
-    synchronized (this.monitor) {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
       final List<Channel<Runnable>> channels = this.channels;
       if (channels != null) {
         for (final Channel<Runnable> channel : channels) {
@@ -54,6 +60,8 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
         }
       }
       this.channels = null;
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -62,12 +70,17 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
     if (command != null) {
       while (!isShutdown()) {
         if (this.taskCount.get() >= getMaximumPoolSize()) {
-          synchronized (this.monitor) {
-            try {
-              this.monitor.wait();
-            } catch (final InterruptedException e) {
-              throw new ThreadInterruptedException(e);
+          final ReentrantLock lock = this.lock;
+          lock.lock();
+          try {
+            // Check again with the lock held so a task completing isn't missed
+            if (this.taskCount.get() >= getMaximumPoolSize() && !isShutdown()) {
+              this.lockCondition.await();
             }
+          } catch (final InterruptedException e) {
+            throw new ThreadInterruptedException(e);
+          } finally {
+            lock.unlock();
           }
         }
         this.taskCount.incrementAndGet();
@@ -140,7 +153,9 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
           if (cause instanceof ThreadInterruptedException) {
             throw (ThreadInterruptedException)cause;
           }
-          synchronized (this.monitor) {
+          final ReentrantLock lock = this.lock;
+          lock.lock();
+          try {
             for (final Iterator<Channel<Runnable>> iterator = channels.iterator(); iterator
               .hasNext();) {
               final Channel<Runnable> channel = iterator.next();
@@ -151,6 +166,8 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
             if (channels.isEmpty()) {
               return;
             }
+          } finally {
+            lock.unlock();
           }
         }
       }
@@ -195,14 +212,22 @@ public class RunnableChannelExecutor extends ThreadPoolExecutor implements Proce
     }
   }
 
+  private void signalAll() {
+    final ReentrantLock lock = this.lock;
+    lock.lock();
+    try {
+      this.lockCondition.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
   @PreDestroy
   public void stop() {
     shutdownNow();
     closeChannels();
     this.processNetwork = null;
-    synchronized (this.monitor) {
-      this.monitor.notifyAll();
-    }
+    signalAll();
   }
 
   @Override
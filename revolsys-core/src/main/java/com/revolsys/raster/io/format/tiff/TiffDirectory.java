@@ -126,7 +126,7 @@ public class TiffDirectory {
     return this.byteOrder;
   }
 
-  private TiffCompression getCompression() {
+  public TiffCompression getCompression() {
     final int id = getInt(TiffBaselineTag.Compression, 1);
     return TiffCompression.getById(id);
   }
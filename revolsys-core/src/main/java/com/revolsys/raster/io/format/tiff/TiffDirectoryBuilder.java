@@ -1,6 +1,17 @@
 package com.revolsys.raster.io.format.tiff;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.zip.DeflaterOutputStream;
+
+import org.jeometry.common.exception.Exceptions;
 
 import com.revolsys.io.channels.ChannelWriter;
 import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
@@ -8,13 +19,20 @@ import com.revolsys.raster.io.format.tiff.code.TiffCompression;
 import com.revolsys.raster.io.format.tiff.code.TiffExtensionTag;
 import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
 import com.revolsys.raster.io.format.tiff.code.TiffTag;
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwOutputStream;
+import com.revolsys.raster.io.format.tiff.compression.TiffPackbitsOutputStream;
 import com.revolsys.raster.io.format.tiff.directory.entry.AbstractTiffDirectoryEntry;
+import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryAscii;
+import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryDoubleArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedIntArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedLongArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedShortArray;
 
 public class TiffDirectoryBuilder extends TiffDirectory {
 
+  /** The maximum number of tiles per processor being compressed or waiting to be written. */
+  private static final int MAX_PENDING_TILES_PER_PROCESSOR = 4;
+
   private final TiffFileBuilder fileBuilder;
 
   private int writtenSize = 0;
@@ -27,6 +45,14 @@ public class TiffDirectoryBuilder extends TiffDirectory {
 
   private int tileHeight;
 
+  private long[] tileByteCounts;
+
+  private int tileCountX;
+
+  private int tileCountY;
+
+  private long[] tileOffsets;
+
   public TiffDirectoryBuilder(final TiffFileBuilder fileBuilder,
     final TiffPhotogrametricInterpretation photogrametricInterpretation) {
     super(fileBuilder.getResource(), fileBuilder.getDirectoryCount(), fileBuilder.getByteOrder(),
@@ -41,10 +67,64 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     super.addEntry(entry);
   }
 
+  /**
+   * Compress the data for a tile or strip using the directory's compression.
+   *
+   * @param data The uncompressed data.
+   * @param rowByteCount The number of bytes in each row.
+   * @return The compressed data.
+   */
+  protected byte[] compress(final byte[] data, final int rowByteCount) {
+    final TiffCompression compression = getCompression();
+    if (compression == TiffCompression.NONE) {
+      return data;
+    }
+    final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(data.length / 2 + 64);
+    try {
+      switch (compression) {
+        case LZW: // 5
+          try (
+            OutputStream out = new TiffLzwOutputStream(bytesOut)) {
+            out.write(data);
+          }
+        break;
+        case ADOBE_DEFLATE: // 8
+        case DEFLATE: // 32946
+          try (
+            OutputStream out = new DeflaterOutputStream(bytesOut)) {
+            out.write(data);
+          }
+        break;
+        case PACKBITS: // 32773
+          try (
+            OutputStream out = new TiffPackbitsOutputStream(bytesOut)) {
+            for (int offset = 0; offset < data.length; offset += rowByteCount) {
+              out.write(data, offset, Math.min(rowByteCount, data.length - offset));
+            }
+          }
+        break;
+        default:
+          throw new IllegalArgumentException(
+            "Compression " + compression + " not supported for writing");
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+    return bytesOut.toByteArray();
+  }
+
   public TiffFileBuilder getFileBuilder() {
     return this.fileBuilder;
   }
 
+  public int getImageHeight() {
+    return this.imageHeight;
+  }
+
+  public int getImageWidth() {
+    return this.imageWidth;
+  }
+
   public int getSize() {
     final int recordCount = getEntryCount();
     if (isBigTiff()) {
@@ -54,6 +134,22 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     }
   }
 
+  public int getTileCountX() {
+    return this.tileCountX;
+  }
+
+  public int getTileCountY() {
+    return this.tileCountY;
+  }
+
+  public int getTileHeight() {
+    return this.tileHeight;
+  }
+
+  public int getTileWidth() {
+    return this.tileWidth;
+  }
+
   boolean isSizeIncreased() {
     return this.writtenSize != getSize();
   }
@@ -73,6 +169,11 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return entry;
   }
 
+  public TiffDirectoryBuilder setAscii(final TiffTag tag, final String value) {
+    newEntryValue(tag, TiffDirectoryEntryAscii::new, value);
+    return this;
+  }
+
   public TiffDirectoryBuilder setBitsPerSample(final int... value) {
     setUnsignedShort(TiffBaselineTag.SamplesPerPixel, value.length);
     setUnsignedShort(TiffBaselineTag.BitsPerSample, value);
@@ -84,6 +185,11 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this;
   }
 
+  public TiffDirectoryBuilder setDouble(final TiffTag tag, final double... value) {
+    newEntryValue(tag, TiffDirectoryEntryDoubleArray::new, value);
+    return this;
+  }
+
   public TiffDirectoryBuilder setImageHeight(final int height) {
     this.imageHeight = height;
     if (height < 1 << 16) {
@@ -150,18 +256,18 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     if (this.imageWidth == 0 || this.imageHeight == 0) {
       throw new IllegalStateException("Image width and height not set");
     } else if (this.tileWidth > 0 && this.tileHeight > 0) {
-      final int tileCountX = (this.imageWidth + this.tileWidth - 1) / this.tileWidth;
-      final int tileCountY = (this.imageHeight + this.tileHeight - 1) / this.tileHeight;
-      final int tileCount = tileCountX * tileCountY;
+      this.tileCountX = (this.imageWidth + this.tileWidth - 1) / this.tileWidth;
+      this.tileCountY = (this.imageHeight + this.tileHeight - 1) / this.tileHeight;
+      final int tileCount = this.tileCountX * this.tileCountY;
       if (isBigTiff()) {
-        newEntryArray(TiffExtensionTag.TileOffsets, TiffDirectoryEntryUnsignedLongArray::new,
-          tileCount);
+        this.tileOffsets = newEntryArray(TiffExtensionTag.TileOffsets,
+          TiffDirectoryEntryUnsignedLongArray::new, tileCount).getValue();
       } else {
-        newEntryArray(TiffExtensionTag.TileOffsets, TiffDirectoryEntryUnsignedIntArray::new,
-          tileCount);
+        this.tileOffsets = newEntryArray(TiffExtensionTag.TileOffsets,
+          TiffDirectoryEntryUnsignedIntArray::new, tileCount).getValue();
       }
-      newEntryArray(TiffExtensionTag.TileByteCounts, TiffDirectoryEntryUnsignedIntArray::new,
-        tileCount);
+      this.tileByteCounts = newEntryArray(TiffExtensionTag.TileByteCounts,
+        TiffDirectoryEntryUnsignedIntArray::new, tileCount).getValue();
     }
   }
 
@@ -193,4 +299,57 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     }
   }
 
+  private void writeTile(final int tileIndex, final CompletableFuture<byte[]> pendingTile) {
+    byte[] bytes;
+    try {
+      bytes = pendingTile.join();
+    } catch (final CompletionException e) {
+      throw Exceptions.wrap("Error compressing tile " + tileIndex, e.getCause());
+    }
+    this.tileOffsets[tileIndex] = this.fileBuilder.writeBytes(bytes);
+    this.tileByteCounts[tileIndex] = bytes.length;
+  }
+
+  /**
+   * Compress the tiles in parallel on the common fork join pool and write them to the file in tile
+   * order, setting the TileOffsets and TileByteCounts. The number of tiles being compressed or
+   * waiting to be written is limited to bound the memory used. If a tile can't be compressed or
+   * written the outstanding tiles are cancelled.
+   *
+   * @param rowByteCount The number of bytes in each row of a tile.
+   * @param tileData Function to get the uncompressed data for a tile index (row major). Called
+   * from multiple threads.
+   */
+  public void writeTiles(final int rowByteCount, final IntFunction<byte[]> tileData) {
+    if (this.tileOffsets == null) {
+      throw new IllegalStateException("Tile size not set");
+    }
+    final int tileCount = this.tileOffsets.length;
+    final int maxPendingCount = Runtime.getRuntime().availableProcessors()
+      * MAX_PENDING_TILES_PER_PROCESSOR;
+    final Deque<CompletableFuture<byte[]>> pendingTiles = new ArrayDeque<>();
+    int writeTileIndex = 0;
+    try {
+      for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+        final int index = tileIndex;
+        pendingTiles.add(CompletableFuture.supplyAsync(() -> {
+          final byte[] data = tileData.apply(index);
+          return compress(data, rowByteCount);
+        }));
+        if (pendingTiles.size() >= maxPendingCount) {
+          writeTile(writeTileIndex++, pendingTiles.removeFirst());
+        }
+      }
+      while (!pendingTiles.isEmpty()) {
+        writeTile(writeTileIndex++, pendingTiles.removeFirst());
+      }
+    } catch (final RuntimeException | Error e) {
+      // Don't compress the remaining tiles if one failed or the file couldn't be written
+      for (final CompletableFuture<byte[]> pendingTile : pendingTiles) {
+        pendingTile.cancel(true);
+      }
+      throw e;
+    }
+  }
+
 }
@@ -13,6 +13,10 @@ import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
 import com.revolsys.raster.io.format.tiff.code.TiffCompression;
 import com.revolsys.spring.resource.Resource;
 
+/**
+ * Build a TIFF file. Image data is written as it is added using {@link #writeBytes(byte[])} and the
+ * directories are written after the image data when the builder is closed.
+ */
 public class TiffFileBuilder implements BaseCloseable {
   private boolean bigTiff = false;
 
@@ -27,8 +31,13 @@ public class TiffFileBuilder implements BaseCloseable {
   private final ChannelWriter out;
 
   public TiffFileBuilder(final Path file) {
-    this.resource = Resource.getResource(file);
+    this(Resource.getResource(file));
+  }
+
+  public TiffFileBuilder(final Resource resource) {
+    this.resource = resource;
     this.out = this.resource.newChannelWriter();
+    this.out.setByteOrder(this.byteOrder);
   }
 
   void addDirectory(final TiffDirectoryBuilder directory) {
@@ -57,6 +66,17 @@ public class TiffFileBuilder implements BaseCloseable {
     return this.directories.size();
   }
 
+  /**
+   * Get the size of the file header including the offset of the first directory.
+   */
+  private int getHeaderSize() {
+    if (this.bigTiff) {
+      return 16;
+    } else {
+      return 8;
+    }
+  }
+
   public Resource getResource() {
     return this.resource;
   }
@@ -102,26 +122,50 @@ public class TiffFileBuilder implements BaseCloseable {
     return directories;
   }
 
-  long reserveSpace(final int size) {
+  long reserveSpace(final long size) {
+    if (this.size == 0) {
+      this.size = getHeaderSize();
+    }
     final long offset = this.size;
     this.size += size;
     return offset;
   }
 
+  /**
+   * Set the file to be a BigTIFF file. Must be called before any images are added.
+   *
+   * @param bigTiff True for a BigTIFF file.
+   */
   public void setBigTiff(final boolean bigTiff) {
     this.bigTiff = bigTiff;
   }
 
+  /**
+   * Set the byte order of the file. Must be called before any images are added.
+   *
+   * @param byteOrder The byte order.
+   */
   public void setByteOrder(final ByteOrder byteOrder) {
     this.byteOrder = byteOrder;
+    this.out.setByteOrder(byteOrder);
+  }
+
+  /**
+   * Write the bytes to the end of the file.
+   *
+   * @param bytes The bytes to write.
+   * @return The offset of the bytes in the file.
+   */
+  public synchronized long writeBytes(final byte[] bytes) {
+    final long offset = reserveSpace(bytes.length);
+    this.out.seek(offset);
+    this.out.putBytes(bytes);
+    return offset;
   }
 
   private void writeDirectories(final ChannelWriter out) {
     for (final TiffDirectoryBuilder directory : this.directories) {
       long offset = directory.getOffset();
-      if (offset == -1 && directory.getIndex() == 0) {
-        reserveSpace(4);
-      }
       if (offset == -1 || directory.isSizeIncreased()) {
         offset = reserveSpace(directory.getSize());
       }
@@ -155,7 +199,7 @@ public class TiffFileBuilder implements BaseCloseable {
       out.putShort((short)42); // magic
     }
     if (this.size == 0) {
-      this.size = out.position();
+      this.size = getHeaderSize();
     }
 
     writeDirectories(out);
@@ -4,8 +4,11 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.apache.commons.imaging.ImageWriteException;
 import org.apache.commons.imaging.formats.tiff.constants.GeoTiffTagConstants;
@@ -30,18 +33,236 @@ import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.AbstractWriter;
 import com.revolsys.raster.GeoreferencedImage;
 import com.revolsys.raster.GeoreferencedImageWriter;
+import com.revolsys.raster.io.format.tiff.builder.TiffImageBuilderRgb;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffConstants;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffCoordinateTransformationCode;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffKey;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffKeyProjectionParameterName;
 import com.revolsys.raster.io.format.tiff.code.GeoTiffKeys;
+import com.revolsys.raster.io.format.tiff.code.TiffCompression;
+import com.revolsys.raster.io.format.tiff.code.TiffPrivateTag;
 import com.revolsys.spring.resource.Resource;
 
+/**
+ * Write a {@link GeoreferencedImage} to a GeoTIFF file.
+ *
+ * <p>By default the image is written as a single strip using commons imaging. If the
+ * <code>tiled</code> property is true the image is written as an internally tiled GeoTIFF with
+ * the tiles compressed in parallel. The following properties are supported in tiled mode.</p>
+ *
+ * <dl>
+ * <dt>compression</dt><dd>DEFLATE (default, written as ADOBE_DEFLATE 8), LZW, PACKBITS or
+ * NONE.</dd>
+ * <dt>tileSize</dt><dd>The width and height of the tiles (default 512), must be a multiple of
+ * 16.</dd>
+ * <dt>overviews</dt><dd>Write reduced resolution overviews (default true). The levels are
+ * written one after the other. Each overview is a 2x2 box filter of the previous level and is
+ * built while the previous level is written.</dd>
+ * </dl>
+ */
 public class TiffGeoreferencedImageWriter extends AbstractWriter<GeoreferencedImage>
   implements GeoreferencedImageWriter, GeoTiffConstants {
 
+  /**
+   * Build the GeoKeyDirectory and the double and ASCII parameters for a coordinate system.
+   */
+  private static class GeoKeysBuilder {
+
+    private final StringBuilder geoAsciiParams = new StringBuilder();
+
+    private final List<Double> geoDoubleParams = new ArrayList<>();
+
+    private final List<Integer> geoKeys = new ArrayList<>();
+
+    public GeoKeysBuilder(final GeometryFactory geometryFactory) {
+      if (geometryFactory.isProjected()) {
+        addProjectedCoordinateSystem(geometryFactory);
+      } else if (geometryFactory.isGeographic()) {
+        addGeographicCoordinateSystem(geometryFactory);
+      }
+      addGeoKeyShort(GeoTiffKeys.GTRasterTypeGeoKey, RasterPixelIsArea);
+    }
+
+    private void addGeographicCoordinateSystem(final GeographicCoordinateSystem coordinateSystem) {
+      if (!addGeoKeyAuthority(GeoTiffKeys.GeographicTypeGeoKey, coordinateSystem.getAuthority())) {
+        final AngularUnit angularUnit = coordinateSystem.getAngularUnit();
+        final AngularUnit unit = angularUnit;
+        final Authority authority = unit.getAuthority();
+        if (!addGeoKeyAuthority(GeoTiffKeys.GeogAngularUnitsGeoKey, authority)) {
+          addGeoKeyDouble(GeoTiffKeys.GeogAngularUnitSizeGeoKey, unit.toDegrees(1));
+        }
+        final GeodeticDatum datum = coordinateSystem.getGeodeticDatum();
+        if (!addGeoKeyAuthority(GeoTiffKeys.GeogGeodeticDatumGeoKey, datum.getAuthority())) {
+          final Ellipsoid ellipsoid = datum.getEllipsoid();
+          if (!addGeoKeyAuthority(GeoTiffKeys.GeogEllipsoidGeoKey, ellipsoid.getAuthority())) {
+            addGeoKeyDouble(GeoTiffKeys.GeogSemiMajorAxisGeoKey, ellipsoid.getSemiMajorAxis());
+            addGeoKeyDouble(GeoTiffKeys.GeogSemiMinorAxisGeoKey, ellipsoid.getSemiMinorAxis());
+          }
+        }
+        final PrimeMeridian primeMeridian = coordinateSystem.getPrimeMeridian();
+        if (!addGeoKeyAuthority(GeoTiffKeys.GeogPrimeMeridianGeoKey,
+          primeMeridian.getAuthority())) {
+          addGeoKeyShort(GeoTiffKeys.GeogPrimeMeridianGeoKey, 32767);
+          addGeoKeyDouble(GeoTiffKeys.GeogPrimeMeridianLongGeoKey, primeMeridian.getLongitude());
+        }
+      }
+    }
+
+    private void addGeographicCoordinateSystem(final GeometryFactory geometryFactory) {
+      addGeoKeyShort(GeoTiffKeys.GTModelTypeGeoKey, ModelTypeGeographic);
+
+      final GeographicCoordinateSystem coordinateSystem = geometryFactory
+        .getHorizontalCoordinateSystem();
+      final String coordinateSystemName = coordinateSystem.getCoordinateSystemName();
+      addGeoKeyString(GeoTiffKeys.GTCitationGeoKey, coordinateSystemName);
+      addGeoKeyString(GeoTiffKeys.GeogCitationGeoKey, coordinateSystemName);
+
+      addGeographicCoordinateSystem(coordinateSystem);
+    }
+
+    private void addGeoKey(final GeoTiffKey keyId, final int tiffTag, final int valueCount,
+      final int valueOrOffset) {
+      this.geoKeys.add(keyId.getId());
+      this.geoKeys.add(tiffTag);
+      this.geoKeys.add(valueCount);
+      this.geoKeys.add(valueOrOffset);
+    }
+
+    private boolean addGeoKeyAuthority(final GeoTiffKeys keyId, final Authority authority) {
+      final int id = authority.getId();
+      if (id > 0 && id <= 65535 && id != CUSTOM) {
+        addGeoKeyShort(keyId, id);
+        return true;
+      } else {
+        addGeoKeyShort(keyId, CUSTOM);
+        return false;
+      }
+    }
+
+    private void addGeoKeyDouble(final GeoTiffKey keyId, final double value) {
+      addGeoKey(keyId, 34736, 1, this.geoDoubleParams.size());
+      this.geoDoubleParams.add(value);
+    }
+
+    private void addGeoKeyShort(final GeoTiffKey keyId, final int value) {
+      addGeoKey(keyId, 0, 1, value);
+    }
+
+    private void addGeoKeyString(final GeoTiffKey keyId, final String value) {
+      if (value != null && value.length() > 0) {
+        final int offset = this.geoAsciiParams.length();
+        final int stringLength = value.length() + 1;
+        addGeoKey(keyId, 34737, stringLength, offset);
+        this.geoAsciiParams.append(value);
+        this.geoAsciiParams.append('|');
+      }
+    }
+
+    private void addProjectedCoordinateSystem(final GeometryFactory geometryFactory) {
+      final ProjectedCoordinateSystem projectedCoordinateSystem = geometryFactory
+        .getCoordinateSystem();
+      final GeographicCoordinateSystem geographicCoordinateSystem = projectedCoordinateSystem
+        .getGeographicCoordinateSystem();
+      final int coordinateSystemId = geometryFactory.getHorizontalCoordinateSystemId();
+      final String coordinateSystemName = geometryFactory.getCoordinateSystemName();
+
+      final String geographicCSName = geographicCoordinateSystem.getCoordinateSystemName();
+
+      final LinearUnit linearUnit = projectedCoordinateSystem.getLinearUnit();
+
+      addGeoKeyShort(GeoTiffKeys.GTModelTypeGeoKey, ModelTypeProjected);
+      addGeoKeyString(GeoTiffKeys.GTCitationGeoKey, coordinateSystemName);
+      addGeoKeyString(GeoTiffKeys.PCSCitationGeoKey, coordinateSystemName);
+      addGeoKeyString(GeoTiffKeys.GeogCitationGeoKey, geographicCSName);
+
+      if (!addGeoKeyAuthority(GeoTiffKeys.ProjectedCSTypeGeoKey,
+        projectedCoordinateSystem.getAuthority())) {
+        addGeographicCoordinateSystem(geographicCoordinateSystem);
+
+        addGeoKeyShort(GeoTiffKeys.ProjectedCSTypeGeoKey, coordinateSystemId);
+
+        final int projectionCode = GeoTiffCoordinateTransformationCode
+          .getCode(projectedCoordinateSystem);
+        addGeoKeyShort(GeoTiffKeys.ProjCoordTransGeoKey, projectionCode);
+
+        final Authority authority = linearUnit.getAuthority();
+        if (!addGeoKeyAuthority(GeoTiffKeys.ProjLinearUnitsGeoKey, authority)) {
+          addGeoKeyDouble(GeoTiffKeys.ProjLinearUnitSizeGeoKey, linearUnit.toMetres(1));
+        }
+        for (final Entry<ParameterName, ParameterValue> entry : projectedCoordinateSystem
+          .getParameterValues()
+          .entrySet()) {
+          final ParameterName parameterName = entry.getKey();
+          final ParameterValue value = entry.getValue();
+
+          final GeoTiffKey key = GeoTiffKeyProjectionParameterName.getById(parameterName);
+          final double valueDouble = ((Number)value.getValue()).doubleValue();
+          addGeoKeyDouble(key, valueDouble);
+        }
+      }
+    }
+
+    public String getGeoAsciiParams() {
+      return this.geoAsciiParams.toString();
+    }
+
+    public double[] getGeoDoubleParams() {
+      final double[] geoDoubleParams = new double[this.geoDoubleParams.size()];
+      for (int i = 0; i < geoDoubleParams.length; i++) {
+        geoDoubleParams[i] = this.geoDoubleParams.get(i);
+      }
+      return geoDoubleParams;
+    }
+
+    /**
+     * Get the GeoKeyDirectory values including the header.
+     *
+     * @return The unsigned short values.
+     */
+    public int[] getGeoKeyDirectory() {
+      final int[] geoKeyDirectory = new int[this.geoKeys.size() + 4];
+      geoKeyDirectory[0] = 1;
+      geoKeyDirectory[1] = 1;
+      geoKeyDirectory[2] = 1;
+      geoKeyDirectory[3] = this.geoKeys.size() / 4;
+      for (int i = 0; i < this.geoKeys.size(); i++) {
+        geoKeyDirectory[i + 4] = this.geoKeys.get(i);
+      }
+      return geoKeyDirectory;
+    }
+
+    public boolean hasGeoAsciiParams() {
+      return this.geoAsciiParams.length() > 0;
+    }
+
+    public boolean hasGeoDoubleParams() {
+      return !this.geoDoubleParams.isEmpty();
+    }
+  }
+
   private static final int CUSTOM = 32767;
 
+  /** Switch to BigTIFF if the uncompressed image is larger than this. */
+  private static final long MAX_CLASSIC_TIFF_SIZE = 3_000_000_000L;
+
+  private static double[] getModelPixelScale(final GeoreferencedImage image) {
+    final double resolutionX = image.getResolutionX();
+    final double resolutionY = image.getResolutionY();
+    return new double[] {
+      resolutionX, resolutionY, 0
+    };
+  }
+
+  private static double[] getModelTiepoint(final GeoreferencedImage image) {
+    final BoundingBox boundingBox = image.getBoundingBox();
+    final double minX = boundingBox.getMinX();
+    final double maxY = boundingBox.getMaxY();
+    return new double[] {
+      0, 0, 0, //
+      minX, maxY, 0//
+    };
+  }
+
   private final Resource resource;
 
   public TiffGeoreferencedImageWriter(final Resource resource) {
@@ -52,204 +273,139 @@ public class TiffGeoreferencedImageWriter extends AbstractWriter<GeoreferencedIm
   public void write(final GeoreferencedImage image) {
     final BufferedImage bufferedImage = image.getBufferedImage();
     if (bufferedImage != null) {
-      try (
-        OutputStream out = this.resource.newBufferedOutputStream()) {
-        final MapEx params = getProperties();
-
-        final TiffImageWriterLossy writer = new TiffImageWriterLossy() {
-
-          private final List<Short> geoKeys = new ArrayList<>();
-
-          private final List<Double> geoDoubleParams = new ArrayList<>();
-
-          private final StringBuilder geoAsciiParams = new StringBuilder();
-
-          private void addGeographicCoordinateSystem(
-            final GeographicCoordinateSystem coordinateSystem) {
-            if (!addGeoKeyAuthority(GeoTiffKeys.GeographicTypeGeoKey,
-              coordinateSystem.getAuthority())) {
-              final AngularUnit angularUnit = coordinateSystem.getAngularUnit();
-              final AngularUnit unit = angularUnit;
-              final Authority authority = unit.getAuthority();
-              if (!addGeoKeyAuthority(GeoTiffKeys.GeogAngularUnitsGeoKey, authority)) {
-                addGeoKeyDouble(GeoTiffKeys.GeogAngularUnitSizeGeoKey, unit.toDegrees(1));
-              }
-              final GeodeticDatum datum = coordinateSystem.getGeodeticDatum();
-              if (!addGeoKeyAuthority(GeoTiffKeys.GeogGeodeticDatumGeoKey, datum.getAuthority())) {
-                final Ellipsoid ellipsoid = datum.getEllipsoid();
-                if (!addGeoKeyAuthority(GeoTiffKeys.GeogEllipsoidGeoKey,
-                  ellipsoid.getAuthority())) {
-                  addGeoKeyDouble(GeoTiffKeys.GeogSemiMajorAxisGeoKey,
-                    ellipsoid.getSemiMajorAxis());
-                  addGeoKeyDouble(GeoTiffKeys.GeogSemiMinorAxisGeoKey,
-                    ellipsoid.getSemiMinorAxis());
-                }
-              }
-              final PrimeMeridian primeMeridian = coordinateSystem.getPrimeMeridian();
-              if (!addGeoKeyAuthority(GeoTiffKeys.GeogPrimeMeridianGeoKey,
-                primeMeridian.getAuthority())) {
-                addGeoKeyShort(GeoTiffKeys.GeogPrimeMeridianGeoKey, 32767);
-                addGeoKeyDouble(GeoTiffKeys.GeogPrimeMeridianLongGeoKey,
-                  primeMeridian.getLongitude());
-              }
-            }
-          }
-
-          private void addGeographicCoordinateSystem(final GeometryFactory geometryFactory) {
-            addGeoKeyShort(GeoTiffKeys.GTModelTypeGeoKey, ModelTypeGeographic);
-
-            final GeographicCoordinateSystem coordinateSystem = geometryFactory
-              .getHorizontalCoordinateSystem();
-            final String coordinateSystemName = coordinateSystem.getCoordinateSystemName();
-            addGeoKeyString(GeoTiffKeys.GTCitationGeoKey, coordinateSystemName);
-            addGeoKeyString(GeoTiffKeys.GeogCitationGeoKey, coordinateSystemName);
-
-            addGeographicCoordinateSystem(coordinateSystem);
-          }
-
-          private void addGeoKey(final GeoTiffKey keyId, final int tiffTag, final int valueCount,
-            final int valueOrOffset) {
-            this.geoKeys.add((short)keyId.getId());
-            this.geoKeys.add((short)tiffTag);
-            this.geoKeys.add((short)valueCount);
-            this.geoKeys.add((short)valueOrOffset);
-          }
+      final MapEx params = getProperties();
+      if (params.getBoolean("tiled", false)) {
+        writeTiled(image, bufferedImage, params);
+      } else {
+        writeStrip(image, bufferedImage, params);
+      }
+    }
+  }
 
-          private boolean addGeoKeyAuthority(final GeoTiffKeys keyId, final Authority authority) {
-            final int id = authority.getId();
-            if (id > 0 && id <= 65535 && id != CUSTOM) {
-              addGeoKeyShort(keyId, id);
-              return true;
-            } else {
-              addGeoKeyShort(keyId, CUSTOM);
-              return false;
-            }
+  private void writeStrip(final GeoreferencedImage image, final BufferedImage bufferedImage,
+    final MapEx params) {
+    try (
+      OutputStream out = this.resource.newBufferedOutputStream()) {
+      final TiffImageWriterLossy writer = new TiffImageWriterLossy() {
+
+        @Override
+        public void write(final OutputStream os, final TiffOutputSet outputSet)
+          throws IOException, ImageWriteException {
+          final TiffOutputDirectory rootDirectory = outputSet.getRootDirectory();
+          rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_MODEL_TIEPOINT_TAG,
+            getModelTiepoint(image));
+          rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_MODEL_PIXEL_SCALE_TAG,
+            getModelPixelScale(image));
+
+          final GeoKeysBuilder geoKeys = new GeoKeysBuilder(image.getGeometryFactory());
+          final int[] geoKeyDirectory = geoKeys.getGeoKeyDirectory();
+          final short[] geoKeysArray = new short[geoKeyDirectory.length];
+          for (int i = 0; i < geoKeyDirectory.length; i++) {
+            geoKeysArray[i] = (short)geoKeyDirectory[i];
           }
-
-          private void addGeoKeyDouble(final GeoTiffKey keyId, final double value) {
-            addGeoKey(keyId, 34736, 1, this.geoDoubleParams.size());
-            this.geoDoubleParams.add(value);
+          rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_GEO_KEY_DIRECTORY_TAG, geoKeysArray);
+          if (geoKeys.hasGeoAsciiParams()) {
+            rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_GEO_ASCII_PARAMS_TAG,
+              geoKeys.getGeoAsciiParams());
           }
-
-          private void addGeoKeyShort(final GeoTiffKey keyId, final int value) {
-            addGeoKey(keyId, 0, 1, value);
+          if (geoKeys.hasGeoDoubleParams()) {
+            rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_GEO_DOUBLE_PARAMS_TAG,
+              geoKeys.getGeoDoubleParams());
           }
+          super.write(os, outputSet);
+        }
+      };
+      writer.writeImage(bufferedImage, out, params);
+    } catch (final ImageWriteException | IOException e) {
+      throw Exceptions.wrap("Unable to write: " + this.resource, e);
+    }
+  }
 
-          private void addGeoKeyString(final GeoTiffKey keyId, final String value) {
-            if (value != null && value.length() > 0) {
-              final int offset = this.geoAsciiParams.length();
-              final int stringLength = value.length() + 1;
-              addGeoKey(keyId, 34737, stringLength, offset);
-              this.geoAsciiParams.append(value);
-              this.geoAsciiParams.append('|');
-            }
-          }
+  private void writeTiled(final GeoreferencedImage image, final BufferedImage bufferedImage,
+    final MapEx params) {
+    final String compressionName = params.getString("compression", "DEFLATE").toUpperCase();
+    final TiffCompression compression;
+    if ("DEFLATE".equals(compressionName)) {
+      // Code 32946 is obsolete and not supported by all readers, use the standard code 8
+      compression = TiffCompression.ADOBE_DEFLATE;
+    } else {
+      compression = TiffCompression.valueOf(compressionName);
+    }
+    final int tileSize = params.getInteger("tileSize", 512);
+    if (tileSize < 16 || tileSize % 16 != 0) {
+      throw new IllegalArgumentException("tileSize must be a multiple of 16: " + tileSize);
+    }
+    final boolean overviews = params.getBoolean("overviews", true);
+
+    final int width = bufferedImage.getWidth();
+    final int height = bufferedImage.getHeight();
+    final boolean alpha = bufferedImage.getColorModel().hasAlpha();
+    final Function<TiffFileBuilder, TiffImageBuilderRgb> constructor;
+    long imageSize = (long)width * height;
+    if (alpha) {
+      constructor = TiffImageBuilderRgb.newRgba();
+      imageSize *= 4;
+    } else {
+      constructor = TiffImageBuilderRgb.newBits(8);
+      imageSize *= 3;
+    }
 
-          private void addProjectedCoordinateSystem(final GeometryFactory geometryFactory) {
-            final ProjectedCoordinateSystem projectedCoordinateSystem = geometryFactory
-              .getCoordinateSystem();
-            final GeographicCoordinateSystem geographicCoordinateSystem = projectedCoordinateSystem
-              .getGeographicCoordinateSystem();
-            final int coordinateSystemId = geometryFactory.getHorizontalCoordinateSystemId();
-            final String coordinateSystemName = geometryFactory.getCoordinateSystemName();
-
-            final String geographicCSName = geographicCoordinateSystem.getCoordinateSystemName();
-
-            final LinearUnit linearUnit = projectedCoordinateSystem.getLinearUnit();
-
-            addGeoKeyShort(GeoTiffKeys.GTModelTypeGeoKey, ModelTypeProjected);
-            addGeoKeyString(GeoTiffKeys.GTCitationGeoKey, coordinateSystemName);
-            addGeoKeyString(GeoTiffKeys.PCSCitationGeoKey, coordinateSystemName);
-            addGeoKeyString(GeoTiffKeys.GeogCitationGeoKey, geographicCSName);
-
-            if (!addGeoKeyAuthority(GeoTiffKeys.ProjectedCSTypeGeoKey,
-              projectedCoordinateSystem.getAuthority())) {
-              addGeographicCoordinateSystem(geographicCoordinateSystem);
-
-              addGeoKeyShort(GeoTiffKeys.ProjectedCSTypeGeoKey, coordinateSystemId);
-
-              final int projectionCode = GeoTiffCoordinateTransformationCode
-                .getCode(projectedCoordinateSystem);
-              addGeoKeyShort(GeoTiffKeys.ProjCoordTransGeoKey, projectionCode);
-
-              final Authority authority = linearUnit.getAuthority();
-              if (!addGeoKeyAuthority(GeoTiffKeys.ProjLinearUnitsGeoKey, authority)) {
-                addGeoKeyDouble(GeoTiffKeys.ProjLinearUnitSizeGeoKey, linearUnit.toMetres(1));
-              }
-              for (final Entry<ParameterName, ParameterValue> entry : projectedCoordinateSystem
-                .getParameterValues()
-                .entrySet()) {
-                final ParameterName parameterName = entry.getKey();
-                final ParameterValue value = entry.getValue();
-
-                final GeoTiffKey key = GeoTiffKeyProjectionParameterName.getById(parameterName);
-                final double valueDouble = ((Number)value.getValue()).doubleValue();
-                addGeoKeyDouble(key, valueDouble);
-              }
-            }
-          }
+    try (
+      TiffFileBuilder fileBuilder = new TiffFileBuilder(this.resource)) {
+      // Overviews add up to 1/3 to the size
+      if (imageSize + imageSize / 3 > MAX_CLASSIC_TIFF_SIZE) {
+        fileBuilder.setBigTiff(true);
+      }
+      final List<TiffImageBuilderRgb> levels;
+      if (overviews) {
+        levels = fileBuilder.newImageWithOverviews(constructor, width, height);
+      } else {
+        levels = Collections.singletonList(fileBuilder.newImage(constructor, width, height));
+      }
+      for (final TiffImageBuilderRgb level : levels) {
+        level.setCompression(compression);
+        level.setTileSize(tileSize);
+      }
 
-          private void addTransformation(final TiffOutputDirectory rootDirectory)
-            throws ImageWriteException {
-            final BoundingBox boundingBox = image.getBoundingBox();
-            final double minX = boundingBox.getMinX();
-            final double maxY = boundingBox.getMaxY();
-            final double[] tiePoints = {
-              0, 0, 0, //
-              minX, maxY, 0//
-            };
-            rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_MODEL_TIEPOINT_TAG, tiePoints);
-            final double resolutionX = image.getResolutionX();
-            final double resolutionY = image.getResolutionY();
-            final double[] pixelScale = {
-              resolutionX, resolutionY, 0
-            };
-            rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_MODEL_PIXEL_SCALE_TAG, pixelScale);
-          }
+      final TiffImageBuilderRgb fullImage = levels.get(0);
+      fullImage.setDouble(TiffPrivateTag.ModelTiepointTag, getModelTiepoint(image));
+      fullImage.setDouble(TiffPrivateTag.ModelPixelScaleTag, getModelPixelScale(image));
+      final GeoKeysBuilder geoKeys = new GeoKeysBuilder(image.getGeometryFactory());
+      fullImage.setUnsignedShort(TiffPrivateTag.GeoKeyDirectoryTag, geoKeys.getGeoKeyDirectory());
+      if (geoKeys.hasGeoAsciiParams()) {
+        fullImage.setAscii(TiffPrivateTag.GeoAsciiParamsTag, geoKeys.getGeoAsciiParams());
+      }
+      if (geoKeys.hasGeoDoubleParams()) {
+        fullImage.setDouble(TiffPrivateTag.GeoDoubleParamsTag, geoKeys.getGeoDoubleParams());
+      }
 
-          @Override
-          public void write(final OutputStream os, final TiffOutputSet outputSet)
-            throws IOException, ImageWriteException {
-            final TiffOutputDirectory rootDirectory = outputSet.getRootDirectory();
-            addTransformation(rootDirectory);
-            final GeometryFactory geometryFactory = image.getGeometryFactory();
-            if (geometryFactory.isProjected()) {
-              addProjectedCoordinateSystem(geometryFactory);
-            } else if (geometryFactory.isGeographic()) {
-              addGeographicCoordinateSystem(geometryFactory);
-            }
-            addGeoKeyShort(GeoTiffKeys.GTRasterTypeGeoKey, RasterPixelIsArea);
-            if (!this.geoKeys.isEmpty()) {
-              final short[] geoKeysArray = new short[this.geoKeys.size() + 4];
-              geoKeysArray[0] = 1;
-              geoKeysArray[1] = 1;
-              geoKeysArray[2] = 1;
-              geoKeysArray[3] = (short)(this.geoKeys.size() / 4);
-              for (int i = 0; i < this.geoKeys.size(); i++) {
-                geoKeysArray[i + 4] = this.geoKeys.get(i);
-              }
-              rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_GEO_KEY_DIRECTORY_TAG, geoKeysArray);
-              if (this.geoAsciiParams.length() > 0) {
-                rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_GEO_ASCII_PARAMS_TAG,
-                  this.geoAsciiParams.toString());
-              }
-
-              if (!this.geoDoubleParams.isEmpty()) {
-                final double[] geoDoubleParamsArray = new double[this.geoDoubleParams.size()];
-                for (int i = 0; i < geoDoubleParamsArray.length; i++) {
-                  geoDoubleParamsArray[i] = this.geoDoubleParams.get(i);
-                }
-                rootDirectory.add(GeoTiffTagConstants.EXIF_TAG_GEO_DOUBLE_PARAMS_TAG,
-                  geoDoubleParamsArray);
-              }
-            }
-            super.write(os, outputSet);
+      // Each overview is created from the previous level while that level is written so only
+      // two levels are in memory
+      BufferedImage levelImage = bufferedImage;
+      for (int levelIndex = 0; levelIndex < levels.size(); levelIndex++) {
+        final TiffImageBuilderRgb level = levels.get(levelIndex);
+        CompletableFuture<BufferedImage> overviewFuture = null;
+        if (levelIndex + 1 < levels.size()) {
+          final TiffImageBuilderRgb overviewLevel = levels.get(levelIndex + 1);
+          final BufferedImage previousImage = levelImage;
+          overviewFuture = CompletableFuture.supplyAsync(() -> TiffImageBuilderRgb
+            .newOverviewImage(previousImage, overviewLevel.getImageWidth(),
+              overviewLevel.getImageHeight()));
+        }
+        try {
+          level.writeImage(levelImage);
+        } catch (final RuntimeException e) {
+          if (overviewFuture != null) {
+            overviewFuture.cancel(false);
           }
-        };
-        writer.writeImage(bufferedImage, out, params);
-      } catch (final ImageWriteException | IOException e) {
-        throw Exceptions.wrap("Unable to write: " + this.resource, e);
+          throw e;
+        }
+        if (overviewFuture != null) {
+          levelImage = overviewFuture.join();
+        }
       }
+    } catch (final RuntimeException e) {
+      throw Exceptions.wrap("Unable to write: " + this.resource, e);
     }
   }
 }
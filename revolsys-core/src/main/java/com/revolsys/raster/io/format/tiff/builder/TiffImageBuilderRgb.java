@@ -1,20 +1,134 @@
 package com.revolsys.raster.io.format.tiff.builder;
 
+import java.awt.image.BufferedImage;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import com.revolsys.raster.io.format.tiff.TiffDirectoryBuilder;
 import com.revolsys.raster.io.format.tiff.TiffFileBuilder;
+import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
 import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
 
 public class TiffImageBuilderRgb extends TiffDirectoryBuilder {
 
+  private static int average(final int color1, final int color2, final int color3,
+    final int color4, final int shift) {
+    final int sum = (color1 >>> shift & 0xff) + (color2 >>> shift & 0xff)
+      + (color3 >>> shift & 0xff) + (color4 >>> shift & 0xff);
+    return (sum + 2) / 4 << shift;
+  }
+
   public static Function<TiffFileBuilder, TiffImageBuilderRgb> newBits(final int bitsPerSample) {
     return fileBuilder -> new TiffImageBuilderRgb(fileBuilder, bitsPerSample);
   }
 
+  /**
+   * Create a new overview image by averaging each 2x2 block of pixels in the image. The rows are
+   * calculated in parallel.
+   *
+   * @param image The image.
+   * @param width The width of the overview, normally ceil(image width / 2).
+   * @param height The height of the overview, normally ceil(image height / 2).
+   * @return The overview image.
+   */
+  public static BufferedImage newOverviewImage(final BufferedImage image, final int width,
+    final int height) {
+    final int imageWidth = image.getWidth();
+    final int imageHeight = image.getHeight();
+    final int imageType = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+      : BufferedImage.TYPE_INT_RGB;
+    final BufferedImage overview = new BufferedImage(width, height, imageType);
+    IntStream.range(0, height).parallel().forEach(y -> {
+      final int imageY1 = Math.min(y * 2, imageHeight - 1);
+      final int imageY2 = Math.min(imageY1 + 1, imageHeight - 1);
+      final int[] row1 = image.getRGB(0, imageY1, imageWidth, 1, null, 0, imageWidth);
+      final int[] row2 = image.getRGB(0, imageY2, imageWidth, 1, null, 0, imageWidth);
+      final int[] overviewRow = new int[width];
+      for (int x = 0; x < width; x++) {
+        final int imageX1 = Math.min(x * 2, imageWidth - 1);
+        final int imageX2 = Math.min(imageX1 + 1, imageWidth - 1);
+        final int color1 = row1[imageX1];
+        final int color2 = row1[imageX2];
+        final int color3 = row2[imageX1];
+        final int color4 = row2[imageX2];
+        overviewRow[x] = average(color1, color2, color3, color4, 24)
+          | average(color1, color2, color3, color4, 16)
+          | average(color1, color2, color3, color4, 8) | average(color1, color2, color3, color4, 0);
+      }
+      overview.setRGB(0, y, width, 1, overviewRow, 0, width);
+    });
+    return overview;
+  }
+
+  public static Function<TiffFileBuilder, TiffImageBuilderRgb> newRgba() {
+    return fileBuilder -> new TiffImageBuilderRgb(fileBuilder, 8, true);
+  }
+
+  private final boolean alpha;
+
+  private final int bitsPerSample;
+
   public TiffImageBuilderRgb(final TiffFileBuilder fileBuilder, final int bitsPerSample) {
+    this(fileBuilder, bitsPerSample, false);
+  }
+
+  public TiffImageBuilderRgb(final TiffFileBuilder fileBuilder, final int bitsPerSample,
+    final boolean alpha) {
     super(fileBuilder, TiffPhotogrametricInterpretation.RGB);
-    setBitsPerSample(bitsPerSample, bitsPerSample, bitsPerSample);
+    this.bitsPerSample = bitsPerSample;
+    this.alpha = alpha;
+    if (alpha) {
+      setBitsPerSample(bitsPerSample, bitsPerSample, bitsPerSample, bitsPerSample);
+      // Unassociated alpha
+      setUnsignedShort(TiffBaselineTag.ExtraSamples, 2);
+    } else {
+      setBitsPerSample(bitsPerSample, bitsPerSample, bitsPerSample);
+    }
   }
 
+  /**
+   * Write the image as tiles, the tiles are compressed in parallel.
+   *
+   * @param image The image, must have the same size as this directory.
+   * @see #writeTiles(int, java.util.function.IntFunction)
+   */
+  public void writeImage(final BufferedImage image) {
+    if (this.bitsPerSample != 8) {
+      throw new IllegalStateException("Only 8 bits per sample supported for writing");
+    }
+    final int imageWidth = getImageWidth();
+    final int imageHeight = getImageHeight();
+    if (image.getWidth() != imageWidth || image.getHeight() != imageHeight) {
+      throw new IllegalArgumentException("Image size " + image.getWidth() + "x"
+        + image.getHeight() + " != " + imageWidth + "x" + imageHeight);
+    }
+    final int samplesPerPixel = this.alpha ? 4 : 3;
+    final int tileWidth = getTileWidth();
+    final int tileHeight = getTileHeight();
+    final int tileCountX = getTileCountX();
+    final int rowByteCount = tileWidth * samplesPerPixel;
+    writeTiles(rowByteCount, tileIndex -> {
+      final int imageX = tileIndex % tileCountX * tileWidth;
+      final int imageY = tileIndex / tileCountX * tileHeight;
+      final int width = Math.min(tileWidth, imageWidth - imageX);
+      final int height = Math.min(tileHeight, imageHeight - imageY);
+      final int[] pixels = image.getRGB(imageX, imageY, width, height, null, 0, width);
+      // Edge tiles are padded to the full tile size
+      final byte[] data = new byte[rowByteCount * tileHeight];
+      for (int y = 0; y < height; y++) {
+        int pixelIndex = y * width;
+        int dataIndex = y * rowByteCount;
+        for (int x = 0; x < width; x++) {
+          final int color = pixels[pixelIndex++];
+          data[dataIndex++] = (byte)(color >>> 16);
+          data[dataIndex++] = (byte)(color >>> 8);
+          data[dataIndex++] = (byte)color;
+          if (this.alpha) {
+            data[dataIndex++] = (byte)(color >>> 24);
+          }
+        }
+      }
+      return data;
+    });
+  }
 }
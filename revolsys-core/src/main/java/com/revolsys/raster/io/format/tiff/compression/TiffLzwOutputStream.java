@@ -0,0 +1,131 @@
+package com.revolsys.raster.io.format.tiff.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compress bytes using the TIFF variant of LZW compression (MSB first codes from 9 to 12 bits
+ * with a clear code when the table is full). The stream can be read by
+ * {@link TiffLzwInputStream}. {@link #close()} writes the end of information code and closes the
+ * wrapped stream.
+ */
+public class TiffLzwOutputStream extends OutputStream {
+
+  private static final int CODE_CLEAR = 256;
+
+  private static final int CODE_EOI = 257;
+
+  private static final int CODE_FIRST = 258;
+
+  /** Clear the table when it reaches this size so the codes don't exceed 12 bits. */
+  private static final int CODE_MAX = 4094;
+
+  private static final int HASH_SIZE = 9001;
+
+  private int bitCount = 0;
+
+  private int bits = 0;
+
+  private int codeBits = 9;
+
+  private boolean closed = false;
+
+  /** The table code for each hash entry. */
+  private final short[] hashCodes = new short[HASH_SIZE];
+
+  /** The (byte << 12 | prefix) key for each hash entry, -1 if the entry is unused. */
+  private final int[] hashKeys = new int[HASH_SIZE];
+
+  private final OutputStream out;
+
+  private int nextCode = CODE_FIRST;
+
+  private int prefix = -1;
+
+  public TiffLzwOutputStream(final OutputStream out) throws IOException {
+    this.out = out;
+    Arrays.fill(this.hashKeys, -1);
+    writeCode(CODE_CLEAR);
+  }
+
+  /**
+   * Add the table entry for a code that was written, increasing the code size or clearing the
+   * table if required.
+   */
+  private void addCode() throws IOException {
+    this.nextCode++;
+    if (this.nextCode == CODE_MAX) {
+      writeCode(CODE_CLEAR);
+      Arrays.fill(this.hashKeys, -1);
+      this.nextCode = CODE_FIRST;
+      this.codeBits = 9;
+    } else if (this.nextCode == 1 << this.codeBits) {
+      this.codeBits++;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!this.closed) {
+      this.closed = true;
+      if (this.prefix != -1) {
+        writeCode(this.prefix);
+        addCode();
+      }
+      writeCode(CODE_EOI);
+      if (this.bitCount > 0) {
+        this.out.write(this.bits << 8 - this.bitCount);
+        this.bitCount = 0;
+      }
+      this.out.close();
+    }
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+    for (int i = offset; i < offset + length; i++) {
+      write(bytes[i]);
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    final int value = b & 0xff;
+    final int prefix = this.prefix;
+    if (prefix == -1) {
+      this.prefix = value;
+    } else {
+      final int key = value << 12 | prefix;
+      int hashIndex = (value << 4 ^ prefix) % HASH_SIZE;
+      while (true) {
+        final int hashKey = this.hashKeys[hashIndex];
+        if (hashKey == key) {
+          this.prefix = this.hashCodes[hashIndex];
+          return;
+        } else if (hashKey == -1) {
+          break;
+        }
+        hashIndex++;
+        if (hashIndex == HASH_SIZE) {
+          hashIndex = 0;
+        }
+      }
+      writeCode(prefix);
+      this.hashKeys[hashIndex] = key;
+      this.hashCodes[hashIndex] = (short)this.nextCode;
+      addCode();
+      this.prefix = value;
+    }
+  }
+
+  private void writeCode(final int code) throws IOException {
+    this.bits = this.bits << this.codeBits | code;
+    this.bitCount += this.codeBits;
+    while (this.bitCount >= 8) {
+      this.bitCount -= 8;
+      this.out.write(this.bits >> this.bitCount);
+    }
+    this.bits &= (1 << this.bitCount) - 1;
+  }
+}
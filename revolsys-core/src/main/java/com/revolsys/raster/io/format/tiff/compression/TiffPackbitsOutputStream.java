@@ -0,0 +1,66 @@
+package com.revolsys.raster.io.format.tiff.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compress bytes using PackBits run length encoding. The stream can be read by
+ * {@link TiffPackbitsInputStream}. Each call to {@link #write(byte[], int, int)} is encoded
+ * separately so runs don't cross rows if each row is written using one call.
+ */
+public class TiffPackbitsOutputStream extends OutputStream {
+
+  private static final int MAX_COUNT = 128;
+
+  private final OutputStream out;
+
+  public TiffPackbitsOutputStream(final OutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.out.close();
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+    final int end = offset + length;
+    int literalStart = offset;
+    int i = offset;
+    while (i < end) {
+      final byte value = bytes[i];
+      int runEnd = i + 1;
+      while (runEnd < end && bytes[runEnd] == value && runEnd - i < MAX_COUNT) {
+        runEnd++;
+      }
+      final int runLength = runEnd - i;
+      // Runs of 2 are only worth encoding if they don't split a literal
+      if (runLength > 2 || runLength == 2 && literalStart == i) {
+        writeLiteral(bytes, literalStart, i);
+        this.out.write(1 - runLength);
+        this.out.write(value);
+        i = runEnd;
+        literalStart = i;
+      } else {
+        i += runLength;
+      }
+    }
+    writeLiteral(bytes, literalStart, end);
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    this.out.write(0);
+    this.out.write(b);
+  }
+
+  private void writeLiteral(final byte[] bytes, int start, final int end) throws IOException {
+    while (start < end) {
+      final int count = Math.min(end - start, MAX_COUNT);
+      this.out.write(count - 1);
+      this.out.write(bytes, start, count);
+      start += count;
+    }
+  }
+}
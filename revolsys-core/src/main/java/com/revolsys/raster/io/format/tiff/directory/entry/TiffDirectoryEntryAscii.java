@@ -1,7 +1,10 @@
 package com.revolsys.raster.io.format.tiff.directory.entry;
 
+import java.nio.charset.StandardCharsets;
+
 import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.raster.io.format.tiff.TiffDirectory;
 import com.revolsys.raster.io.format.tiff.code.TiffFieldType;
 
 public class TiffDirectoryEntryAscii extends AbstractTiffDirectoryEntry<String> {
@@ -9,6 +12,11 @@ public class TiffDirectoryEntryAscii extends AbstractTiffDirectoryEntry<String>
   public TiffDirectoryEntryAscii() {
   }
 
+  public TiffDirectoryEntryAscii(final TiffDirectory directory, final String value) {
+    // Count includes the NUL terminator
+    super(directory, value, value.getBytes(StandardCharsets.UTF_8).length + 1);
+  }
+
   @Override
   public String getString() {
     return this.value;
@@ -26,6 +34,6 @@ public class TiffDirectoryEntryAscii extends AbstractTiffDirectoryEntry<String>
 
   @Override
   public void writeValueDo(final ChannelWriter out) {
-    out.putString(this.value, this.value.length());
+    out.putString(this.value, (int)this.count);
   }
 }
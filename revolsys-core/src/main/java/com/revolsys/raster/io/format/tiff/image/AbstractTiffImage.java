@@ -6,6 +6,7 @@ import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteOrder;
@@ -14,8 +15,13 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.InflaterInputStream;
 
+import org.jeometry.common.collection.map.LruMap;
 import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.logging.Logs;
 import org.jeometry.common.number.Doubles;
@@ -25,6 +31,7 @@ import org.jeometry.common.number.Longs;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.parallel.ExecutorServiceFactory;
 import com.revolsys.raster.AbstractGeoreferencedImage;
 import com.revolsys.raster.GeoreferencedImageMapTile;
 import com.revolsys.raster.io.format.tiff.TiffDirectory;
@@ -44,18 +51,73 @@ import com.revolsys.raster.io.format.tiff.compression.TiffLzwInputStream;
 import com.revolsys.raster.io.format.tiff.compression.TiffPackbitsInputStream;
 import com.revolsys.raster.io.format.tiff.compression.TiffThunderscanInputStream;
 
+/**
+ * Base class for the images in a TIFF directory.
+ *
+ * <p>
+ * In cloud optimized mode ({@link #setCloudOptimized(boolean)}, the default for resources that
+ * aren't local files) the tiles returned by {@link #getOverlappingMapTiles(BoundingBox)} are read
+ * as a batch when the first tile is loaded. The byte ranges of tiles that are close together in
+ * the file are merged into a single range request, the ranges are read and the tiles decoded in
+ * parallel on the {@link ExecutorServiceFactory#getIoExecutorService()}. The decoded tiles are
+ * stored in a bounded LRU cache.
+ * </p>
+ */
 public abstract class AbstractTiffImage extends AbstractGeoreferencedImage implements TiffImage {
 
+  /** The maximum number of decoded tiles to cache. */
+  private static final int TILE_CACHE_SIZE = 128;
+
+  /** The maximum number of unused bytes between two tiles that are read in one range request. */
+  private static final long TILE_RANGE_MAX_GAP = 64 * 1024;
+
+  /** The maximum number of bytes to read in one range request. */
+  private static final long TILE_RANGE_MAX_SIZE = 8 * 1024 * 1024;
+
+  /**
+   * The tiles returned by the same call to {@link #getOverlappingMapTiles(BoundingBox)}. The
+   * first thread to load a tile reads the batch, the other threads wait on the future for that
+   * read instead of holding a monitor while the range requests block.
+   */
+  private class TiffImageTileBatch {
+    private final AtomicReference<CompletableFuture<Map<Integer, BufferedImage>>> read =
+      new AtomicReference<>();
+
+    private final List<TiffImageTiledMapTile> tiles = new ArrayList<>();
+
+    private BufferedImage getTileImage(final int tileIndex) {
+      CompletableFuture<Map<Integer, BufferedImage>> future = this.read.get();
+      if (future == null) {
+        final CompletableFuture<Map<Integer, BufferedImage>> readFuture = new CompletableFuture<>();
+        if (this.read.compareAndSet(null, readFuture)) {
+          try {
+            readFuture.complete(readTiles(this.tiles));
+          } catch (final Throwable e) {
+            readFuture.completeExceptionally(e);
+          }
+        }
+        future = this.read.get();
+      }
+      return future.join().get(tileIndex);
+    }
+  }
+
   private class TiffImageTiledMapTile extends GeoreferencedImageMapTile {
+    private final TiffImageTileBatch batch;
+
+    private final int tileIndex;
+
     private final int tileX;
 
     private final int tileY;
 
-    private TiffImageTiledMapTile(final int tileX, final int tileY, final int tileWidth,
-      final int tileHeight) {
+    private TiffImageTiledMapTile(final TiffImageTileBatch batch, final int tileX,
+      final int tileY, final int tileWidth, final int tileHeight) {
       super(newTileBoundingBox(tileX, tileY, tileWidth, tileHeight), tileWidth, tileHeight);
+      this.batch = batch;
       this.tileX = tileX;
       this.tileY = tileY;
+      this.tileIndex = tileY * AbstractTiffImage.this.tileCountX + tileX;
     }
 
     @Override
@@ -87,9 +149,15 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
     @Override
     protected BufferedImage loadBuffferedImage() {
+      if (isTileBatchRead()) {
+        final BufferedImage bufferedImage = readTileBatch(this);
+        if (bufferedImage != null) {
+          return bufferedImage;
+        }
+      }
       try (
         ChannelReader in = AbstractTiffImage.this.directory.newChannelReader()) {
-        final int tileIndex = this.tileY * AbstractTiffImage.this.tileCountX + this.tileX;
+        final int tileIndex = this.tileIndex;
         final int actualTileWidth = getWidthPixels();
         final int actualTileHeight = getHeightPixels();
         final BufferedImage bufferedImage = newBufferedImage(actualTileWidth, actualTileHeight);
@@ -140,6 +208,8 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return geoKeys;
   }
 
+  private boolean cloudOptimized;
+
   private final TiffCompression compression;
 
   private final TiffDirectory directory;
@@ -160,6 +230,8 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
   private final long[] tileByteCounts;
 
+  private final Map<Integer, BufferedImage> tileCache = new LruMap<>(TILE_CACHE_SIZE);
+
   private final int tileHeightPixels;
 
   private final long[] tileOffsets;
@@ -178,6 +250,7 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
   public AbstractTiffImage(final TiffDirectory directory) {
     this.directory = directory;
+    this.cloudOptimized = !directory.getResource().isFile();
     final int width = directory.getInt(TiffBaselineTag.ImageWidth, -1);
     setImageWidth(width);
     final int height = directory.getInt(TiffBaselineTag.ImageLength, -1);
@@ -268,6 +341,12 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  private BufferedImage getCachedTile(final int tileIndex) {
+    synchronized (this.tileCache) {
+      return this.tileCache.get(tileIndex);
+    }
+  }
+
   private InputStream getInputStream(final ChannelReader in, final long[] offsets,
     final long[] counts, final int index) {
     final long offset = offsets[index];
@@ -280,10 +359,17 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     final BoundingBox imageBoundingBox = getBoundingBox();
     boundingBox = boundingBox.bboxToCs(this);
     if (bboxIntersects(imageBoundingBox)) {
-      final List<GeoreferencedImageMapTile> tiles = new ArrayList<>();
+      final TiffImageTileBatch batch = new TiffImageTileBatch();
+      final List<TiffImageTiledMapTile> tiles = batch.tiles;
       if (isTiled()) {
-        final int lastTileWidthPixels = getImageWidth() % this.tileWidthPixels;
-        final int lastTileHeightPixels = getImageHeight() % this.tileHeightPixels;
+        int lastTileWidthPixels = getImageWidth() % this.tileWidthPixels;
+        if (lastTileWidthPixels == 0) {
+          lastTileWidthPixels = this.tileWidthPixels;
+        }
+        int lastTileHeightPixels = getImageHeight() % this.tileHeightPixels;
+        if (lastTileHeightPixels == 0) {
+          lastTileHeightPixels = this.tileHeightPixels;
+        }
         final double tileWidth = getResolutionX() * this.tileWidthPixels;
         final double tileHeight = getResolutionY() * this.tileHeightPixels;
         final double imageMinX = imageBoundingBox.getMinX();
@@ -322,13 +408,13 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
             if (tileX == this.tileCountX - 1) {
               tileWidthPixels = lastTileWidthPixels;
             }
-            final GeoreferencedImageMapTile tile = new TiffImageTiledMapTile(tileX, tileY,
+            final TiffImageTiledMapTile tile = new TiffImageTiledMapTile(batch, tileX, tileY,
               tileWidthPixels, tileHeightPixels);
             tiles.add(tile);
           }
         }
       }
-      return tiles;
+      return Collections.unmodifiableList(tiles);
     } else {
       return Collections.emptyList();
     }
@@ -380,6 +466,19 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return this.tileWidthPixels;
   }
 
+  /**
+   * Is cloud optimized mode enabled.
+   *
+   * @return True if tiles are read in batches using merged range requests.
+   */
+  public boolean isCloudOptimized() {
+    return this.cloudOptimized;
+  }
+
+  private boolean isTileBatchRead() {
+    return this.cloudOptimized && this.planarConfiguration != 2;
+  }
+
   public boolean isTiled() {
     return this.tileWidthPixels > 0 && this.tileHeightPixels > 0;
   }
@@ -628,6 +727,120 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  /**
+   * Get the decoded image for the tile from the cache, reading all the uncached tiles in the tile's
+   * batch if it isn't cached. Only the first thread to load a tile from a batch reads the batch,
+   * the other threads wait for that read to finish without holding a lock.
+   *
+   * @return The image or null if the tile couldn't be read.
+   */
+  private BufferedImage readTileBatch(final TiffImageTiledMapTile tile) {
+    final int tileIndex = tile.tileIndex;
+    BufferedImage bufferedImage = getCachedTile(tileIndex);
+    if (bufferedImage == null) {
+      bufferedImage = tile.batch.getTileImage(tileIndex);
+    }
+    return bufferedImage;
+  }
+
+  private void readTileRange(final List<TiffImageTiledMapTile> tiles,
+    final Map<Integer, BufferedImage> tileImages) {
+    final long rangeStart = this.tileOffsets[tiles.get(0).tileIndex];
+    long rangeEnd = rangeStart;
+    for (final TiffImageTiledMapTile tile : tiles) {
+      final int tileIndex = tile.tileIndex;
+      rangeEnd = Math.max(rangeEnd, this.tileOffsets[tileIndex] + this.tileByteCounts[tileIndex]);
+    }
+    final int rangeSize = (int)(rangeEnd - rangeStart);
+    final byte[] bytes = new byte[rangeSize];
+    try (
+      ChannelReader in = this.directory.newChannelReader();
+      InputStream rangeIn = in.getInputStream(rangeStart, rangeSize)) {
+      final int readCount = rangeIn.readNBytes(bytes, 0, rangeSize);
+      if (readCount < rangeSize) {
+        throw new IOException("Expecting " + rangeSize + " bytes not " + readCount);
+      }
+    } catch (final IOException | RuntimeException e) {
+      Logs.error(this, "Error reading tiles " + rangeStart + "-" + rangeEnd + " from "
+        + this.directory.getResource(), e);
+      return;
+    }
+    for (final TiffImageTiledMapTile tile : tiles) {
+      final int tileIndex = tile.tileIndex;
+      final int offset = (int)(this.tileOffsets[tileIndex] - rangeStart);
+      final int byteCount = (int)this.tileByteCounts[tileIndex];
+      final int actualTileWidth = tile.getWidthPixels();
+      final int actualTileHeight = tile.getHeightPixels();
+      final BufferedImage bufferedImage = newBufferedImage(actualTileWidth, actualTileHeight);
+      try (
+        TiffDecompressor decompressor = newTiffDecompressor(
+          new ByteArrayInputStream(bytes, offset, byteCount))) {
+        readImagePartDo(bufferedImage, decompressor, 0, 0, this.tileWidthPixels, actualTileHeight,
+          actualTileWidth);
+      } catch (final RuntimeException e) {
+        Logs.error(this, "Error decoding tile " + tileIndex + " from "
+          + this.directory.getResource(), e);
+        continue;
+      }
+      tileImages.put(tileIndex, bufferedImage);
+      synchronized (this.tileCache) {
+        this.tileCache.put(tileIndex, bufferedImage);
+      }
+    }
+  }
+
+  /**
+   * Read the tile bytes using one range request for each group of tiles that are close together
+   * in the file, then decode the tiles. Each range is read and its tiles decoded on the shared
+   * I/O executor so blocked range requests don't use the common fork join pool.
+   */
+  private Map<Integer, BufferedImage> readTiles(final List<TiffImageTiledMapTile> tiles) {
+    final List<TiffImageTiledMapTile> readTiles = new ArrayList<>();
+    for (final TiffImageTiledMapTile tile : tiles) {
+      final int tileIndex = tile.tileIndex;
+      if (this.tileByteCounts[tileIndex] > 0 && getCachedTile(tileIndex) == null) {
+        readTiles.add(tile);
+      }
+    }
+    readTiles.sort((tile1, tile2) -> Long.compare(this.tileOffsets[tile1.tileIndex],
+      this.tileOffsets[tile2.tileIndex]));
+
+    final List<List<TiffImageTiledMapTile>> ranges = new ArrayList<>();
+    List<TiffImageTiledMapTile> rangeTiles = null;
+    long rangeStart = 0;
+    long rangeEnd = 0;
+    for (final TiffImageTiledMapTile tile : readTiles) {
+      final int tileIndex = tile.tileIndex;
+      final long offset = this.tileOffsets[tileIndex];
+      final long end = offset + this.tileByteCounts[tileIndex];
+      if (rangeTiles == null || offset - rangeEnd > TILE_RANGE_MAX_GAP
+        || end - rangeStart > TILE_RANGE_MAX_SIZE) {
+        rangeTiles = new ArrayList<>();
+        ranges.add(rangeTiles);
+        rangeStart = offset;
+        rangeEnd = end;
+      } else {
+        rangeEnd = Math.max(rangeEnd, end);
+      }
+      rangeTiles.add(tile);
+    }
+
+    final Map<Integer, BufferedImage> tileImages = new ConcurrentHashMap<>();
+    if (ranges.size() == 1) {
+      readTileRange(ranges.get(0), tileImages);
+    } else {
+      final ExecutorService executor = ExecutorServiceFactory.getIoExecutorService();
+      final List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (final List<TiffImageTiledMapTile> range : ranges) {
+        futures.add(CompletableFuture.runAsync(() -> readTileRange(range, tileImages), executor));
+      }
+      for (final CompletableFuture<Void> future : futures) {
+        future.join();
+      }
+    }
+    return tileImages;
+  }
+
   @Override
   public void setBoundingBox(final BoundingBox boundingBox) {
     super.setBoundingBox(boundingBox);
@@ -644,6 +857,20 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  /**
+   * Enable or disable cloud optimized mode.
+   *
+   * @param cloudOptimized True if tiles are read in batches using merged range requests.
+   */
+  public void setCloudOptimized(final boolean cloudOptimized) {
+    this.cloudOptimized = cloudOptimized;
+    if (!cloudOptimized) {
+      synchronized (this.tileCache) {
+        this.tileCache.clear();
+      }
+    }
+  }
+
   @Override
   public String toString() {
     return this.photometricInterpretation + " " + this.directory.getIndex() + ": "
@@ -5,8 +5,9 @@ import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.revolsys.collection.map.IntHashMap;
 import com.revolsys.raster.io.format.tiff.TiffDirectory;
 import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
 import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
@@ -20,9 +21,7 @@ public class TiffGrayscaleImage extends AbstractTiffImage {
 
   private final boolean invert;
 
-  private final IntHashMap<Integer> colorMap = new IntHashMap<>();
-
-  private final float[] percents = new float[3];
+  private final Map<Integer, Integer> colorMap = new ConcurrentHashMap<>();
 
   private ComponentColorModel colorModel;
 
@@ -59,24 +58,24 @@ public class TiffGrayscaleImage extends AbstractTiffImage {
   }
 
   private int getColor(final int index) {
-    Integer color = this.colorMap.get(index);
-    if (color == null) {
-      synchronized (this.colorMap) {
-        final float percent = (float)((double)Integer.toUnsignedLong(index) / this.max);
-        this.percents[0] = percent;
-        this.percents[1] = percent;
-        this.percents[2] = percent;
-        final float[] f = colorSpace.fromRGB(this.percents);
-        if (this.bitsPerSample <= 8) {
-          final byte[] dataElements = (byte[])this.colorModel.getDataElements(f, 0, null);
-          color = (int)dataElements[0];
-        } else {
-          final short[] dataElements = (short[])this.colorModel.getDataElements(f, 0, null);
-          color = (int)dataElements[0];
-        }
-        this.colorMap.put(index, color);
-      }
+    final Integer cachedColor = this.colorMap.get(index);
+    if (cachedColor != null) {
+      return cachedColor;
+    }
+    final float percent = (float)((double)Integer.toUnsignedLong(index) / this.max);
+    final float[] percents = {
+      percent, percent, percent
+    };
+    final float[] f = colorSpace.fromRGB(percents);
+    final int color;
+    if (this.bitsPerSample <= 8) {
+      final byte[] dataElements = (byte[])this.colorModel.getDataElements(f, 0, null);
+      color = dataElements[0];
+    } else {
+      final short[] dataElements = (short[])this.colorModel.getDataElements(f, 0, null);
+      color = dataElements[0];
     }
+    this.colorMap.putIfAbsent(index, color);
     return color;
   }
 
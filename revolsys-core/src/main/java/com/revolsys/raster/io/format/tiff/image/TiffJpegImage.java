@@ -4,8 +4,6 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.Reference;
-import java.lang.ref.WeakReference;
 import java.util.Iterator;
 
 import javax.imageio.ImageIO;
@@ -29,23 +27,10 @@ public class TiffJpegImage extends AbstractTiffImage {
 
   private final byte[] jpegTables;
 
-  private ImageReader JPEGReader;
-
-  private ImageReadParam JPEGParam;
-
-  private Reference<BufferedImage> partImageReference = new WeakReference<>(null);
-
   private int jpegTablesLength;
 
   public TiffJpegImage(final TiffDirectory directory) {
     super(directory);
-    final Iterator<ImageReader> iter = ImageIO.getImageReadersByFormatName("jpeg");
-    if (iter.hasNext()) {
-      this.JPEGReader = iter.next();
-      this.JPEGParam = this.JPEGReader.getDefaultReadParam();
-    } else {
-      throw new IllegalStateException("Cannot find a jpeg reader");
-    }
     this.jpegTables = directory.getByteArray(TiffExtensionTag.JPEGTables, null);
     if (this.jpegTables != null) {
       int dataOffset = this.jpegTables.length;
@@ -59,32 +44,41 @@ public class TiffJpegImage extends AbstractTiffImage {
     }
   }
 
-  private synchronized BufferedImage getPartImage() {
-    BufferedImage partImage = this.partImageReference.get();
-    if (partImage == null) {
-      final int tileWidth = getTileWidth();
-      if (tileWidth > 0) {
-        final int tileHeight = getTileHeight();
-        partImage = newBufferedImage(tileWidth, tileHeight);
-      } else {
-        final int imageWidth = getImageWidth();
-        final int rowsPerStrip = getRowsPerStrip();
-        partImage = newBufferedImage(imageWidth, rowsPerStrip);
-      }
-      this.partImageReference = new WeakReference<>(partImage);
-    }
-    return partImage;
-  }
-
   @Override
   protected BufferedImage newBufferedImage(final int imageWidth, final int imageHeight) {
     return new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_3BYTE_BGR);
   }
 
+  /**
+   * Create a new JPEG reader. A new reader is used for each part as image readers aren't thread
+   * safe and tiles can be decoded in parallel.
+   */
+  private ImageReader newJpegReader() {
+    final Iterator<ImageReader> iter = ImageIO.getImageReadersByFormatName("jpeg");
+    if (iter.hasNext()) {
+      return iter.next();
+    } else {
+      throw new IllegalStateException("Cannot find a jpeg reader");
+    }
+  }
+
+  private BufferedImage newPartImage() {
+    final int tileWidth = getTileWidth();
+    if (tileWidth > 0) {
+      final int tileHeight = getTileHeight();
+      return newBufferedImage(tileWidth, tileHeight);
+    } else {
+      final int imageWidth = getImageWidth();
+      final int rowsPerStrip = getRowsPerStrip();
+      return newBufferedImage(imageWidth, rowsPerStrip);
+    }
+  }
+
   @Override
   protected void readImagePartDo(final BufferedImage bufferedImage,
     final TiffDecompressor decompressor, final int imageX, final int imageY, final int dataWidth,
     final int dataHeight, final int cropWidth) {
+    final ImageReader jpegReader = newJpegReader();
     try {
       final InputStream partIn = decompressor.getInputStream();
       ImageInputStream is;
@@ -102,11 +96,12 @@ public class TiffJpegImage extends AbstractTiffImage {
         is = new MemoryCacheImageInputStream(mergedIn);
       }
 
-      this.JPEGReader.setInput(is, false, true);
-      final BufferedImage partImage = getPartImage();
-      this.JPEGParam.setDestination(partImage);
+      jpegReader.setInput(is, false, true);
+      final ImageReadParam jpegParam = jpegReader.getDefaultReadParam();
+      final BufferedImage partImage = newPartImage();
+      jpegParam.setDestination(partImage);
 
-      this.JPEGReader.read(0, this.JPEGParam);
+      jpegReader.read(0, jpegParam);
       int y = imageY;
       for (int yIndex = 0; yIndex < dataHeight; yIndex++) {
         int x = imageX;
@@ -121,6 +116,8 @@ public class TiffJpegImage extends AbstractTiffImage {
       }
     } catch (final IOException e) {
       throw Exceptions.wrap(e);
+    } finally {
+      jpegReader.dispose();
     }
   }
 }
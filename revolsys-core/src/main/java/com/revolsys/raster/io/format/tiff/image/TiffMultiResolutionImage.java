@@ -77,4 +77,18 @@ public class TiffMultiResolutionImage extends AbstractGeoreferencedImage
     final TiffImage image = getImage(boundingBox, resolution);
     return image.getResolutionX();
   }
+
+  /**
+   * Enable or disable cloud optimized mode for the full resolution image and all the overviews.
+   *
+   * @param cloudOptimized True if tiles are read in batches using merged range requests.
+   * @see AbstractTiffImage#setCloudOptimized(boolean)
+   */
+  public void setCloudOptimized(final boolean cloudOptimized) {
+    for (final TiffImage image : this.images) {
+      if (image instanceof AbstractTiffImage) {
+        ((AbstractTiffImage)image).setCloudOptimized(cloudOptimized);
+      }
+    }
+  }
 }
@@ -18,6 +18,7 @@ import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.io.format.zip.ZipRecordReader;
+import com.revolsys.record.query.Query;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionProxy;
 import com.revolsys.spring.resource.Resource;
@@ -108,6 +109,20 @@ public interface RecordReader extends Reader<Record>, RecordDefinitionProxy {
     return ClockDirection.NONE;
   }
 
+  /**
+   * Push down the filter and select list of the query to the reader, see
+   * {@link RecordReaderPushdown}. Readers that support it can skip records that can't match the
+   * query before the geometry is decoded and only decode the fields required by the query.
+   * Records can still be returned that don't match the query so the caller must still apply the
+   * where condition. Must be called before the first record is read.
+   *
+   * @param query The query.
+   * @return True if the query was pushed down to the reader.
+   */
+  default boolean pushDown(final Query query) {
+    return false;
+  }
+
   default Map<Identifier, Record> readRecordsById() {
     try (
       BaseCloseable closeable = this) {
@@ -17,6 +17,7 @@ import com.revolsys.io.map.MapReaderFactory;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.query.Query;
 import com.revolsys.spring.resource.Resource;
 import com.revolsys.util.Property;
 import com.revolsys.util.SupplierWithProperties;
@@ -160,4 +161,23 @@ public interface RecordReaderFactory extends GeometryReaderFactory, MapReaderFac
 
   RecordReader newRecordReader(Resource resource, RecordFactory<? extends Record> factory,
     MapEx properties);
+
+  /**
+   * Construct a new {@link RecordReader} for the resource with the filter and select list of the
+   * query pushed down to the reader using {@link RecordReader#pushDown(Query)}.
+   *
+   * @param resource The resource to read the records from.
+   * @param factory The factory used to create records.
+   * @param properties The properties for the reader.
+   * @param query The query.
+   * @return The reader.
+   */
+  default RecordReader newRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> factory, final MapEx properties, final Query query) {
+    final RecordReader reader = newRecordReader(resource, factory, properties);
+    if (reader != null && query != null) {
+      reader.pushDown(query);
+    }
+    return reader;
+  }
 }
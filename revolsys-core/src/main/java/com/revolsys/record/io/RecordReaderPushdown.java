@@ -0,0 +1,287 @@
+package com.revolsys.record.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.AllColumns;
+import com.revolsys.record.query.And;
+import com.revolsys.record.query.ColumnReference;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Count;
+import com.revolsys.record.query.Equal;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.query.Value;
+import com.revolsys.record.query.functions.EnvelopeIntersects;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * <p>The parts of a {@link Query} that a {@link RecordReader} can apply before a record is
+ * fully decoded, see {@link RecordReader#pushDown(Query)}.</p>
+ *
+ * <ul>
+ * <li>The bounding box from the {@link EnvelopeIntersects} conditions on the geometry field in
+ * the where clause. Readers that store the bounding box in the record header can skip records
+ * without decoding the geometry.</li>
+ * <li>The attribute condition from the {@link Equal} conditions on a field with a literal
+ * value.</li>
+ * <li>The fields required by the select, where, order by and group by. Readers don't need to
+ * decode the other fields.</li>
+ * </ul>
+ *
+ * <p>Only conditions that must be true for the whole where clause to be true are used (the where
+ * clause or the conditions of a top level {@link And}). The pushdown is a pre-filter, the
+ * where clause must still be applied to the returned records.</p>
+ */
+public class RecordReaderPushdown {
+
+  private static void addColumnNames(final Set<String> fieldNames, final QueryValue value) {
+    if (value instanceof Count) {
+      final QueryValue countValue = ((Count)value).getValue();
+      if (countValue instanceof ColumnReference
+        && "*".equals(((ColumnReference)countValue).getName())) {
+        // count(*) doesn't require any fields
+      } else if (!(countValue instanceof AllColumns)) {
+        addColumnNames(fieldNames, countValue);
+      }
+    } else if (value instanceof ColumnReference) {
+      final String name = ((ColumnReference)value).getName();
+      fieldNames.add(name);
+    } else if (value instanceof AllColumns) {
+      fieldNames.add("*");
+    } else if (value != null) {
+      for (final QueryValue childValue : value.getQueryValues()) {
+        addColumnNames(fieldNames, childValue);
+      }
+    }
+  }
+
+  private static BoundingBox getBoundingBox(final QueryValue value) {
+    if (value instanceof Value) {
+      final Object boundingBox = ((Value)value).getValue();
+      if (boundingBox instanceof BoundingBox) {
+        return (BoundingBox)boundingBox;
+      } else if (boundingBox instanceof Geometry) {
+        return ((Geometry)boundingBox).getBoundingBox();
+      }
+    }
+    return null;
+  }
+
+  private static List<Condition> getConditions(final Condition whereCondition) {
+    if (whereCondition instanceof And) {
+      return ((And)whereCondition).getConditions();
+    } else if (whereCondition == null || whereCondition.isEmpty()) {
+      return Collections.emptyList();
+    } else {
+      return Collections.singletonList(whereCondition);
+    }
+  }
+
+  private static boolean isField(final QueryValue value, final String fieldName) {
+    if (value instanceof ColumnReference && fieldName != null) {
+      return fieldName.equals(((ColumnReference)value).getName());
+    } else {
+      return false;
+    }
+  }
+
+  private Condition attributeCondition = Condition.ALL;
+
+  private Predicate<MapEx> attributeFilter = Condition.ALL;
+
+  private BoundingBox boundingBox;
+
+  private final List<Equal> equalConditions = new ArrayList<>();
+
+  private final boolean[] fieldRequired;
+
+  private final int geometryFieldIndex;
+
+  private final RecordDefinition recordDefinition;
+
+  public RecordReaderPushdown(final RecordDefinition recordDefinition, final Query query) {
+    this.recordDefinition = recordDefinition;
+    this.geometryFieldIndex = recordDefinition.getGeometryFieldIndex();
+    final String geometryFieldName = recordDefinition.getGeometryFieldName();
+    for (final Condition condition : getConditions(query.getWhereCondition())) {
+      if (condition instanceof EnvelopeIntersects) {
+        final EnvelopeIntersects intersects = (EnvelopeIntersects)condition;
+        final QueryValue left = intersects.getBoundingBox1Value();
+        final QueryValue right = intersects.getBoundingBox2Value();
+        BoundingBox boundingBox = null;
+        if (isField(left, geometryFieldName)) {
+          boundingBox = getBoundingBox(right);
+        } else if (isField(right, geometryFieldName)) {
+          boundingBox = getBoundingBox(left);
+        }
+        if (boundingBox != null) {
+          if (this.boundingBox == null) {
+            this.boundingBox = boundingBox;
+          } else {
+            this.boundingBox = this.boundingBox.bboxIntersection(boundingBox);
+          }
+        }
+      } else if (condition instanceof Equal) {
+        final Equal equal = (Equal)condition;
+        final QueryValue left = equal.getLeft();
+        if (left instanceof ColumnReference && equal.getRight() instanceof Value) {
+          final String name = ((ColumnReference)left).getName();
+          if (recordDefinition.hasField(name) && !name.equals(geometryFieldName)) {
+            this.equalConditions.add(equal);
+          }
+        }
+      }
+    }
+    if (!this.equalConditions.isEmpty()) {
+      this.attributeCondition = new And(this.equalConditions);
+      this.attributeFilter = this.attributeCondition.compile(recordDefinition);
+    }
+
+    final int fieldCount = recordDefinition.getFieldCount();
+    this.fieldRequired = new boolean[fieldCount];
+    final List<QueryValue> select = query.getSelect();
+    final Set<String> fieldNames = new LinkedHashSet<>();
+    for (final QueryValue value : select) {
+      addColumnNames(fieldNames, value);
+    }
+    if (select.isEmpty() || fieldNames.contains("*")) {
+      for (int i = 0; i < fieldCount; i++) {
+        this.fieldRequired[i] = true;
+      }
+    } else {
+      addColumnNames(fieldNames, query.getWhereCondition());
+      for (final QueryValue value : query.getOrderBy().keySet()) {
+        addColumnNames(fieldNames, value);
+      }
+      for (final QueryValue value : query.getGroupBy()) {
+        addColumnNames(fieldNames, value);
+      }
+      for (final String fieldName : fieldNames) {
+        final int fieldIndex = recordDefinition.getFieldIndex(fieldName);
+        if (fieldIndex != -1) {
+          this.fieldRequired[fieldIndex] = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the condition from the {@link Equal} conditions on a field with a literal value.
+   *
+   * @return The condition or {@link Condition#ALL} if there were no conditions.
+   */
+  public Condition getAttributeCondition() {
+    return this.attributeCondition;
+  }
+
+  /**
+   * Get the bounding box the geometry must intersect.
+   *
+   * @return The bounding box or null if there is no bounding box.
+   */
+  public BoundingBox getBoundingBox() {
+    return this.boundingBox;
+  }
+
+  /**
+   * Get the bounding box converted to the coordinate system of the geometry factory.
+   *
+   * @param geometryFactory The geometry factory of the file.
+   * @return The bounding box or null if there is no bounding box.
+   */
+  public BoundingBox getBoundingBox(final GeometryFactory geometryFactory) {
+    if (this.boundingBox == null) {
+      return null;
+    } else {
+      return this.boundingBox.bboxToCs(geometryFactory);
+    }
+  }
+
+  /**
+   * Get the {@link Equal} conditions in the attribute condition. The left value of each condition
+   * is a {@link ColumnReference} to a field and the right value is a literal {@link Value}.
+   *
+   * @return The conditions.
+   */
+  public List<Equal> getEqualConditions() {
+    return Collections.unmodifiableList(this.equalConditions);
+  }
+
+  /**
+   * Get the names of the fields that must be read.
+   *
+   * @return The field names.
+   */
+  public List<String> getFieldNames() {
+    final List<String> fieldNames = new ArrayList<>();
+    for (int i = 0; i < this.fieldRequired.length; i++) {
+      if (this.fieldRequired[i]) {
+        fieldNames.add(this.recordDefinition.getFieldName(i));
+      }
+    }
+    return fieldNames;
+  }
+
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  /**
+   * Check if all the fields must be read.
+   *
+   * @return True if all the fields must be read.
+   */
+  public boolean isAllFields() {
+    for (final boolean required : this.fieldRequired) {
+      if (!required) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if the value for the field must be read.
+   *
+   * @param fieldIndex The index of the field in the record definition.
+   * @return True if the field must be read.
+   */
+  public boolean isFieldRequired(final int fieldIndex) {
+    if (fieldIndex < 0 || fieldIndex >= this.fieldRequired.length) {
+      return false;
+    } else {
+      return this.fieldRequired[fieldIndex];
+    }
+  }
+
+  public boolean isGeometryRequired() {
+    return isFieldRequired(this.geometryFieldIndex);
+  }
+
+  /**
+   * Test the record's attribute values against the attribute condition. Only the required fields
+   * need to have been read.
+   *
+   * @param record The record.
+   * @return True if the record matches the attribute condition.
+   */
+  public boolean testAttributes(final Record record) {
+    return this.attributeFilter.test(record);
+  }
+
+  @Override
+  public String toString() {
+    return this.recordDefinition.getPathName() + " " + this.boundingBox + " "
+      + this.attributeCondition + " " + getFieldNames();
+  }
+}
@@ -0,0 +1,518 @@
+package com.revolsys.record.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.geometry.wkb.WkbChannelWriter;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.page.FilePageManager;
+import com.revolsys.io.page.PageInputStream;
+import com.revolsys.io.page.PageOutputStream;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * <p>Sort records using a comparator without requiring all the records to fit in memory.</p>
+ *
+ * <p>If the limit is less than half the {@link #getMaxInMemoryCount()} only the top limit records
+ * are kept, the buffer is sorted and truncated to the limit each time it is full. Otherwise when
+ * the buffer reaches the maximum in memory count it is sorted and written as a run to pages in a
+ * temporary {@link FilePageManager}. The runs are merged when the records are iterated. The
+ * sort is stable, records that compare equal are returned in the order they were added.</p>
+ *
+ * <p>All the records must have the same {@link RecordDefinition}. The records read back from the
+ * runs are new records created by the record definition.</p>
+ */
+public class RecordSorter implements BaseCloseable {
+
+  private static class MergeSource {
+    private final Iterator<Record> iterator;
+
+    private final int order;
+
+    private Record record;
+
+    private MergeSource(final int order, final Iterator<Record> iterator) {
+      this.order = order;
+      this.iterator = iterator;
+    }
+
+    private boolean next() {
+      if (this.iterator.hasNext()) {
+        this.record = this.iterator.next();
+        return true;
+      } else {
+        this.record = null;
+        return false;
+      }
+    }
+  }
+
+  private class Run {
+    private final long count;
+
+    private final PageOutputStream out;
+
+    private Run(final PageOutputStream out, final long count) {
+      this.out = out;
+      this.count = count;
+    }
+
+    private Iterator<Record> iterator() {
+      final DataInputStream in = new DataInputStream(
+        new BufferedInputStream(this.out.newInputStream(), BUFFER_SIZE));
+      return new Iterator<Record>() {
+        private long remaining = Run.this.count;
+
+        @Override
+        public boolean hasNext() {
+          if (this.remaining > 0) {
+            return true;
+          } else {
+            try {
+              in.close();
+            } catch (final IOException e) {
+            }
+            return false;
+          }
+        }
+
+        @Override
+        public Record next() {
+          if (this.remaining > 0) {
+            this.remaining--;
+            try {
+              return readRecord(in);
+            } catch (final IOException e) {
+              throw Exceptions.wrap("Unable to read sort run", e);
+            }
+          } else {
+            throw new NoSuchElementException();
+          }
+        }
+      };
+    }
+  }
+
+  private static final byte BIG_DECIMAL = 8;
+
+  private static final byte BIG_INTEGER = 9;
+
+  private static final byte BOOLEAN = 7;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte BYTE = 6;
+
+  private static final byte DATE = 13;
+
+  private static final byte DOUBLE = 4;
+
+  private static final byte FLOAT = 5;
+
+  private static final byte GEOMETRY = 12;
+
+  private static final byte INTEGER = 2;
+
+  private static final byte LONG = 3;
+
+  private static final int MAX_MERGE_RUN_COUNT = 64;
+
+  private static final byte NULL = 0;
+
+  private static final byte OTHER = 15;
+
+  private static final byte SHORT = 10;
+
+  private static final byte SQL_DATE = 11;
+
+  private static final byte STRING = 1;
+
+  private static final byte TIMESTAMP = 14;
+
+  private List<Record> buffer = new ArrayList<>();
+
+  private final Comparator<? super Record> comparator;
+
+  private final List<GeometryFactory> geometryFactories = new ArrayList<>();
+
+  private final Map<GeometryFactory, Integer> geometryFactoryIndexes = new HashMap<>();
+
+  private int limit = Integer.MAX_VALUE;
+
+  private int maxInMemoryCount = 100000;
+
+  private FilePageManager pageManager;
+
+  private RecordDefinition recordDefinition;
+
+  private final List<Run> runs = new ArrayList<>();
+
+  private ByteArrayOutputStream wkbOut;
+
+  private WkbChannelWriter wkbWriter;
+
+  public RecordSorter(final Comparator<? super Record> comparator) {
+    this.comparator = comparator;
+  }
+
+  public void add(final Record record) {
+    if (this.recordDefinition == null) {
+      this.recordDefinition = record.getRecordDefinition();
+    }
+    final List<Record> buffer = this.buffer;
+    buffer.add(record);
+    if (isTopN()) {
+      final int maxBufferSize = Math.max(this.limit * 2, 1024);
+      if (buffer.size() >= maxBufferSize) {
+        sortBuffer();
+      }
+    } else if (buffer.size() >= this.maxInMemoryCount) {
+      sortBuffer();
+      this.runs.add(writeRun(buffer.iterator()));
+      this.buffer = new ArrayList<>();
+    }
+  }
+
+  public void addAll(final Iterable<? extends Record> records) {
+    for (final Record record : records) {
+      add(record);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.buffer = new ArrayList<>();
+    this.runs.clear();
+    if (this.pageManager != null) {
+      this.pageManager.close();
+      this.pageManager = null;
+    }
+  }
+
+  public int getLimit() {
+    return this.limit;
+  }
+
+  public int getMaxInMemoryCount() {
+    return this.maxInMemoryCount;
+  }
+
+  public int getRunCount() {
+    return this.runs.size();
+  }
+
+  private boolean isTopN() {
+    return this.limit <= this.maxInMemoryCount / 2;
+  }
+
+  /**
+   * Get an iterator of the sorted records. The returned records are limited to the limit only if
+   * the top N was used.
+   *
+   * @return The iterator.
+   */
+  public Iterator<Record> iterator() {
+    sortBuffer();
+    if (this.runs.isEmpty()) {
+      return this.buffer.iterator();
+    } else {
+      while (this.runs.size() >= MAX_MERGE_RUN_COUNT) {
+        final List<Run> mergeRuns = this.runs.subList(0, MAX_MERGE_RUN_COUNT);
+        final List<Iterator<Record>> iterators = new ArrayList<>();
+        for (final Run run : mergeRuns) {
+          iterators.add(run.iterator());
+        }
+        final Run mergedRun = writeRun(merge(iterators));
+        mergeRuns.clear();
+        this.runs.add(0, mergedRun);
+      }
+      final List<Iterator<Record>> iterators = new ArrayList<>();
+      for (final Run run : this.runs) {
+        iterators.add(run.iterator());
+      }
+      iterators.add(this.buffer.iterator());
+      return merge(iterators);
+    }
+  }
+
+  private Iterator<Record> merge(final List<Iterator<Record>> iterators) {
+    final Comparator<? super Record> comparator = this.comparator;
+    final PriorityQueue<MergeSource> queue = new PriorityQueue<>(iterators.size() + 1,
+      (source1, source2) -> {
+        final int compare = comparator.compare(source1.record, source2.record);
+        if (compare == 0) {
+          return Integer.compare(source1.order, source2.order);
+        } else {
+          return compare;
+        }
+      });
+    int order = 0;
+    for (final Iterator<Record> iterator : iterators) {
+      final MergeSource source = new MergeSource(order++, iterator);
+      if (source.next()) {
+        queue.add(source);
+      }
+    }
+    return new Iterator<Record>() {
+      @Override
+      public boolean hasNext() {
+        return !queue.isEmpty();
+      }
+
+      @Override
+      public Record next() {
+        final MergeSource source = queue.poll();
+        if (source == null) {
+          throw new NoSuchElementException();
+        } else {
+          final Record record = source.record;
+          if (source.next()) {
+            queue.add(source);
+          }
+          return record;
+        }
+      }
+    };
+  }
+
+  private Record readRecord(final DataInputStream in) throws IOException {
+    final RecordDefinition recordDefinition = this.recordDefinition;
+    final Record record = recordDefinition.newRecord();
+    final int fieldCount = recordDefinition.getFieldCount();
+    for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+      final Object value = readValue(in, fieldIndex);
+      record.setValue(fieldIndex, value);
+    }
+    return record;
+  }
+
+  private String readString(final DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private Object readValue(final DataInputStream in, final int fieldIndex) throws IOException {
+    final byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case BYTE:
+        return in.readByte();
+      case BOOLEAN:
+        return in.readBoolean();
+      case BIG_DECIMAL:
+        return new BigDecimal(readString(in));
+      case BIG_INTEGER:
+        return new BigInteger(readString(in));
+      case SHORT:
+        return in.readShort();
+      case SQL_DATE:
+        return new java.sql.Date(in.readLong());
+      case GEOMETRY: {
+        final GeometryFactory geometryFactory = this.geometryFactories.get(in.readInt());
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return WkbByteBufferReader.readGeometry(geometryFactory, ByteBuffer.wrap(bytes));
+      }
+      case DATE:
+        return new java.util.Date(in.readLong());
+      case TIMESTAMP: {
+        final Timestamp timestamp = new Timestamp(in.readLong());
+        timestamp.setNanos(in.readInt());
+        return timestamp;
+      }
+      case OTHER: {
+        final String string = readString(in);
+        final DataType dataType = this.recordDefinition.getFieldType(fieldIndex);
+        return dataType.toObject(string);
+      }
+      default:
+        throw new IllegalStateException("Invalid sort run value type " + type);
+    }
+  }
+
+  /**
+   * Set the maximum number of records that will be returned. If the limit is less than half the
+   * maximum in memory count only the top limit records are kept in memory.
+   *
+   * @param limit The limit.
+   * @return this
+   */
+  public RecordSorter setLimit(final int limit) {
+    if (limit < 0) {
+      this.limit = Integer.MAX_VALUE;
+    } else {
+      this.limit = limit;
+    }
+    return this;
+  }
+
+  /**
+   * Set the maximum number of records to sort in memory before writing a run to disk.
+   *
+   * @param maxInMemoryCount The maximum number of records.
+   * @return this
+   */
+  public RecordSorter setMaxInMemoryCount(final int maxInMemoryCount) {
+    this.maxInMemoryCount = Math.max(1, maxInMemoryCount);
+    return this;
+  }
+
+  private void sortBuffer() {
+    final List<Record> buffer = this.buffer;
+    buffer.sort(this.comparator);
+    if (isTopN() && buffer.size() > this.limit) {
+      buffer.subList(this.limit, buffer.size()).clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RecordSorter buffer=" + this.buffer.size() + " runs=" + this.runs.size();
+  }
+
+  private void writeGeometry(final DataOutputStream out, final Geometry geometry)
+    throws IOException {
+    final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+    Integer geometryFactoryIndex = this.geometryFactoryIndexes.get(geometryFactory);
+    if (geometryFactoryIndex == null) {
+      geometryFactoryIndex = this.geometryFactories.size();
+      this.geometryFactories.add(geometryFactory);
+      this.geometryFactoryIndexes.put(geometryFactory, geometryFactoryIndex);
+    }
+    if (this.wkbWriter == null) {
+      this.wkbOut = new ByteArrayOutputStream();
+      this.wkbWriter = new WkbChannelWriter(this.wkbOut);
+    }
+    this.wkbOut.reset();
+    this.wkbWriter.writeGeometry(geometry);
+    this.wkbWriter.flush();
+    out.writeInt(geometryFactoryIndex);
+    out.writeInt(this.wkbOut.size());
+    this.wkbOut.writeTo(out);
+  }
+
+  private void writeRecord(final DataOutputStream out, final Record record) throws IOException {
+    final int fieldCount = this.recordDefinition.getFieldCount();
+    for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+      final Object value = record.getValue(fieldIndex);
+      writeValue(out, fieldIndex, value);
+    }
+  }
+
+  private Run writeRun(final Iterator<Record> records) {
+    if (this.pageManager == null) {
+      this.pageManager = new FilePageManager(BUFFER_SIZE);
+    }
+    final PageOutputStream pageOut = new PageOutputStream(this.pageManager);
+    long count = 0;
+    try (
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(pageOut, BUFFER_SIZE))) {
+      while (records.hasNext()) {
+        final Record record = records.next();
+        writeRecord(out, record);
+        count++;
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to write sort run", e);
+    }
+    return new Run(pageOut, count);
+  }
+
+  private void writeString(final DataOutputStream out, final String string) throws IOException {
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private void writeValue(final DataOutputStream out, final int fieldIndex, final Object value)
+    throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String)value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer)value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long)value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double)value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float)value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte)value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean)value);
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      writeString(out, value.toString());
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeString(out, value.toString());
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short)value);
+    } else if (value instanceof Geometry) {
+      out.writeByte(GEOMETRY);
+      writeGeometry(out, (Geometry)value);
+    } else if (value instanceof Timestamp) {
+      final Timestamp timestamp = (Timestamp)value;
+      out.writeByte(TIMESTAMP);
+      out.writeLong(timestamp.getTime());
+      out.writeInt(timestamp.getNanos());
+    } else if (value instanceof java.sql.Date) {
+      out.writeByte(SQL_DATE);
+      out.writeLong(((java.sql.Date)value).getTime());
+    } else if (value.getClass() == java.util.Date.class) {
+      out.writeByte(DATE);
+      out.writeLong(((java.util.Date)value).getTime());
+    } else {
+      final DataType dataType = this.recordDefinition.getFieldType(fieldIndex);
+      out.writeByte(OTHER);
+      writeString(out, dataType.toString(value));
+    }
+  }
+}
@@ -1,45 +1,132 @@
 package com.revolsys.record.io.format.directory;
 
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.collection.map.MapEx;
 import com.revolsys.record.Record;
+import com.revolsys.record.Records;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordSorter;
 import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.GroupByAggregator;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.schema.RecordDefinition;
 
+/**
+ * Iterate over the records from a {@link RecordReader} applying the where condition, group by,
+ * order by, offset and limit of the {@link Query}. Records are only sorted or aggregated if
+ * the query has an order by or group by, otherwise the records are streamed from the reader. The
+ * query is pushed down to the reader using {@link RecordReader#pushDown(Query)}.
+ */
 public class RecordReaderQueryIterator extends AbstractIterator<Record> {
 
+  private int count;
+
+  private Predicate<MapEx> filter;
+
   private Iterator<Record> iterator;
 
+  private int maxInMemoryCount = 100000;
+
+  private final Query query;
+
   private final RecordReader reader;
 
-  private final Condition whereCondition;
+  private int skipCount;
+
+  private RecordSorter sorter;
 
   public RecordReaderQueryIterator(final RecordReader reader, final Query query) {
     this.reader = reader;
-    this.whereCondition = query.getWhereCondition();
+    this.query = query;
   }
 
   @Override
   protected void closeDo() {
     this.reader.close();
+    if (this.sorter != null) {
+      this.sorter.close();
+      this.sorter = null;
+    }
+  }
+
+  public int getMaxInMemoryCount() {
+    return this.maxInMemoryCount;
   }
 
   @Override
   protected Record getNext() throws NoSuchElementException {
+    if (this.count >= this.query.getLimit()) {
+      throw new NoSuchElementException();
+    }
+    final int offset = this.query.getOffset();
     while (true) {
       final Record record = this.iterator.next();
-      if (this.whereCondition.test(record)) {
-        return record;
+      if (this.filter.test(record)) {
+        if (this.skipCount < offset) {
+          this.skipCount++;
+        } else {
+          this.count++;
+          return record;
+        }
       }
     }
   }
 
   @Override
-  public synchronized void init() {
+  protected void initDo() {
+    final Query query = this.query;
+    this.reader.pushDown(query);
     this.reader.open();
-    this.iterator = this.reader.iterator();
+    final RecordDefinition recordDefinition = this.reader.getRecordDefinition();
+    this.filter = query.getWhereCondition().compile(recordDefinition);
+    final Map<QueryValue, Boolean> orderBy = query.getOrderBy();
+    if (GroupByAggregator.isAggregate(query)) {
+      final GroupByAggregator aggregator = new GroupByAggregator(recordDefinition, query);
+      for (final Record record : this.reader) {
+        if (this.filter.test(record)) {
+          aggregator.add(record);
+        }
+      }
+      final List<Record> records = aggregator.getRecords();
+      if (!orderBy.isEmpty()) {
+        final Comparator<Record> comparator = Records.newComparatorOrderBy(orderBy);
+        records.sort(comparator);
+      }
+      this.filter = Condition.ALL;
+      this.iterator = records.iterator();
+    } else if (!orderBy.isEmpty()) {
+      final Comparator<Record> comparator = Records.newComparatorOrderBy(orderBy);
+      final long topCount = (long)query.getOffset() + query.getLimit();
+      this.sorter = new RecordSorter(comparator) //
+        .setMaxInMemoryCount(this.maxInMemoryCount)
+        .setLimit((int)Math.min(topCount, Integer.MAX_VALUE));
+      for (final Record record : this.reader) {
+        if (this.filter.test(record)) {
+          this.sorter.add(record);
+        }
+      }
+      this.filter = Condition.ALL;
+      this.iterator = this.sorter.iterator();
+    } else {
+      this.iterator = this.reader.iterator();
+    }
+  }
+
+  /**
+   * Set the maximum number of records to sort in memory before spilling sorted runs to a
+   * temporary file.
+   *
+   * @param maxInMemoryCount The maximum number of records.
+   */
+  public void setMaxInMemoryCount(final int maxInMemoryCount) {
+    this.maxInMemoryCount = maxInMemoryCount;
   }
 }
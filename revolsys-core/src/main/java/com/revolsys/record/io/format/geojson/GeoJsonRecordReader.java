@@ -0,0 +1,709 @@
+package com.revolsys.record.io.format.geojson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+
+import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.ClockDirection;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.IoConstants;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.format.json.Json;
+import com.revolsys.record.io.format.json.JsonList;
+import com.revolsys.record.io.format.json.JsonObject;
+import com.revolsys.record.io.format.json.JsonParser;
+import com.revolsys.record.io.format.json.JsonParser.EventType;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Streaming reader for GeoJSON FeatureCollection and newline delimited GeoJSON (GeoJSONSeq)
+ * files. The features are read one at a time from the {@link JsonParser} events so the document
+ * is never held in memory. Coordinates are read into reusable buffers, so the only arrays
+ * allocated for each line are the geometry factory's copy of its coordinates.
+ *
+ * <p>The record definition is created from the properties of the first feature. Properties of
+ * later features that are not in the first feature are ignored. Fields with a different JSON
+ * type in a later feature are changed to {@link DataTypes#OBJECT}.</p>
+ */
+public class GeoJsonRecordReader extends AbstractIterator<Record> implements RecordReader {
+
+  private static final String GEOMETRY_FIELD_NAME = "GEOMETRY";
+
+  /** The number of values stored for each position (x, y, z, m). */
+  private static final int POSITION_STRIDE = 4;
+
+  private static int getCoordinatesDepth(final String geometryType) {
+    if (GeoJson.POINT.equals(geometryType)) {
+      return 1;
+    } else if (GeoJson.LINE_STRING.equals(geometryType)
+      || GeoJson.MULTI_POINT.equals(geometryType)) {
+      return 2;
+    } else if (GeoJson.POLYGON.equals(geometryType)
+      || GeoJson.MULTI_LINE_STRING.equals(geometryType)) {
+      return 3;
+    } else if (GeoJson.MULTI_POLYGON.equals(geometryType)) {
+      return 4;
+    } else {
+      return 0;
+    }
+  }
+
+  private static DataType getDataType(final Object value) {
+    if (value instanceof String) {
+      return DataTypes.STRING;
+    } else if (value instanceof Boolean) {
+      return DataTypes.BOOLEAN;
+    } else if (value instanceof Number) {
+      return DataTypes.DECIMAL;
+    } else if (value instanceof JsonObject) {
+      return Json.JSON_OBJECT;
+    } else if (value instanceof JsonList) {
+      return Json.JSON_LIST;
+    } else {
+      return DataTypes.OBJECT;
+    }
+  }
+
+  /** The maximum number of axis of the positions in the current coordinates. */
+  private int coordinatesAxisCount;
+
+  /** The array nesting level of the positions in the current coordinates, 0 if not known. */
+  private int coordinatesDepth;
+
+  private Record firstRecord;
+
+  private GeometryFactory geometryFactory;
+
+  private JsonParser in;
+
+  /** True if the reader is in the features array of a FeatureCollection. */
+  private boolean inFeatures;
+
+  /** The number of positions in each line or ring of the current coordinates. */
+  private int[] lineVertexCounts = new int[16];
+
+  private int lineCount;
+
+  /** Scratch array used to pass a line's coordinates to the geometry factory. */
+  private double[] lineCoordinates = new double[POSITION_STRIDE * 256];
+
+  /** The number of lines in each polygon of the current coordinates. */
+  private int[] polygonLineCounts = new int[16];
+
+  private int polygonCount;
+
+  private int positionCount;
+
+  /** The values of the positions of the current coordinates, missing values are NaN. */
+  private double[] positions = new double[POSITION_STRIDE * 256];
+
+  private RecordDefinition recordDefinition;
+
+  private RecordFactory<? extends Record> recordFactory;
+
+  private final Resource resource;
+
+  public GeoJsonRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory) {
+    this.resource = resource;
+    this.recordFactory = recordFactory;
+    this.in = new JsonParser(resource);
+  }
+
+  private void addLine(final int vertexCount) {
+    if (this.lineCount == this.lineVertexCounts.length) {
+      this.lineVertexCounts = Arrays.copyOf(this.lineVertexCounts, this.lineCount * 2);
+    }
+    this.lineVertexCounts[this.lineCount++] = vertexCount;
+  }
+
+  private void addPolygon(final int lineCount) {
+    if (this.polygonCount == this.polygonLineCounts.length) {
+      this.polygonLineCounts = Arrays.copyOf(this.polygonLineCounts, this.polygonCount * 2);
+    }
+    this.polygonLineCounts[this.polygonCount++] = lineCount;
+  }
+
+  @Override
+  protected void closeDo() {
+    FileUtil.closeSilent(this.in);
+    this.in = null;
+    this.firstRecord = null;
+    this.recordFactory = null;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    open();
+    return this.geometryFactory;
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    final Record firstRecord = this.firstRecord;
+    if (firstRecord != null) {
+      this.firstRecord = null;
+      return firstRecord;
+    }
+    final Record record = readRecord();
+    if (record == null) {
+      throw new NoSuchElementException();
+    } else {
+      return record;
+    }
+  }
+
+  @Override
+  public ClockDirection getPolygonRingDirection() {
+    return ClockDirection.COUNTER_CLOCKWISE;
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    open();
+    return this.recordDefinition;
+  }
+
+  @Override
+  protected void initDo() {
+    this.geometryFactory = getProperty(IoConstants.GEOMETRY_FACTORY);
+    if (this.geometryFactory == null) {
+      this.geometryFactory = GeometryFactory.floating3d(EpsgId.WGS84);
+    }
+    if (this.in.hasNext()) {
+      this.in.next();
+    }
+    this.firstRecord = readRecord();
+    if (this.recordDefinition == null) {
+      initRecordDefinition(null);
+    }
+  }
+
+  private void initRecordDefinition(final Map<String, Object> properties) {
+    final RecordDefinitionBuilder builder = new RecordDefinitionBuilder(
+      "/" + this.resource.getBaseName());
+    if (properties != null) {
+      for (final Entry<String, Object> entry : properties.entrySet()) {
+        final String name = entry.getKey();
+        if (!GEOMETRY_FIELD_NAME.equals(name)) {
+          final DataType dataType = getDataType(entry.getValue());
+          builder.addField(name, dataType);
+        }
+      }
+    }
+    builder.addField(GEOMETRY_FIELD_NAME, GeometryDataTypes.GEOMETRY);
+    builder.setGeometryFactory(this.geometryFactory);
+    this.recordDefinition = builder.getRecordDefinition();
+  }
+
+  private LinearRing newLinearRing(final GeometryFactory geometryFactory, final int positionIndex,
+    final int vertexCount) {
+    final double[] coordinates = newLineCoordinates(positionIndex, vertexCount);
+    return geometryFactory.linearRing(POSITION_STRIDE, vertexCount, coordinates);
+  }
+
+  private double[] newLineCoordinates(final int positionIndex, final int vertexCount) {
+    final int length = vertexCount * POSITION_STRIDE;
+    if (this.lineCoordinates.length < length) {
+      this.lineCoordinates = new double[length];
+    }
+    System.arraycopy(this.positions, positionIndex * POSITION_STRIDE, this.lineCoordinates, 0,
+      length);
+    return this.lineCoordinates;
+  }
+
+  private LineString newLineString(final GeometryFactory geometryFactory, final int positionIndex,
+    final int vertexCount) {
+    if (vertexCount == 0) {
+      return geometryFactory.lineString();
+    } else {
+      final double[] coordinates = newLineCoordinates(positionIndex, vertexCount);
+      return geometryFactory.lineString(POSITION_STRIDE, vertexCount, coordinates);
+    }
+  }
+
+  private Point newPoint(final GeometryFactory geometryFactory, final int positionIndex) {
+    final int offset = positionIndex * POSITION_STRIDE;
+    final double[] coordinates = Arrays.copyOfRange(this.positions, offset,
+      offset + this.coordinatesAxisCount);
+    return geometryFactory.point(coordinates);
+  }
+
+  private Polygon newPolygon(final GeometryFactory geometryFactory, final int lineIndex,
+    final int ringCount, int positionIndex) {
+    final LinearRing[] rings = new LinearRing[ringCount];
+    for (int i = 0; i < ringCount; i++) {
+      final int vertexCount = this.lineVertexCounts[lineIndex + i];
+      rings[i] = newLinearRing(geometryFactory, positionIndex, vertexCount);
+      positionIndex += vertexCount;
+    }
+    return geometryFactory.polygon(rings);
+  }
+
+  private Record newRecord(final Geometry geometry, final Map<String, Object> properties) {
+    if (this.recordDefinition == null) {
+      initRecordDefinition(properties);
+    }
+    final Record record = this.recordFactory.newRecord(this.recordDefinition);
+    if (properties != null) {
+      for (final Entry<String, Object> entry : properties.entrySet()) {
+        final String name = entry.getKey();
+        if (!GEOMETRY_FIELD_NAME.equals(name)) {
+          record.setValue(name, entry.getValue());
+        }
+      }
+    }
+    record.setGeometryValue(geometry);
+    return record;
+  }
+
+  private String readAttributeName() {
+    final JsonParser in = this.in;
+    EventType event = in.next();
+    if (event == EventType.comma) {
+      event = in.next();
+    }
+    if (event == EventType.endObject) {
+      return null;
+    } else if (event == EventType.string) {
+      final String name = in.getCurrentValue();
+      if (in.next() == EventType.colon) {
+        return name;
+      }
+    }
+    throw new IllegalStateException("Expecting attribute name, not: " + in);
+  }
+
+  /**
+   * Read the coordinates array into the positions buffer, recording the number of positions in
+   * each line and lines in each polygon.
+   *
+   * @param geometryType The geometry type if it was before the coordinates, otherwise null.
+   */
+  private void readCoordinates(final String geometryType) {
+    resetCoordinates(geometryType);
+    final EventType event = this.in.next();
+    if (event == EventType.startArray) {
+      readCoordinatesArray(1);
+    } else if (event != EventType.nullValue) {
+      throw new IllegalStateException("Expecting start array, not: " + this.in);
+    }
+  }
+
+  private void readCoordinatesArray(final int level) {
+    final JsonParser in = this.in;
+    EventType event = in.next();
+    if (event == EventType.number) {
+      if (this.coordinatesDepth == 0) {
+        this.coordinatesDepth = level;
+      }
+      readPosition();
+    } else {
+      int childCount = 0;
+      while (event != EventType.endArray) {
+        if (event == EventType.startArray) {
+          readCoordinatesArray(level + 1);
+          childCount++;
+        } else if (event != EventType.comma) {
+          throw new IllegalStateException("Expecting start array, not: " + in);
+        }
+        event = in.next();
+      }
+      final int childDepth = this.coordinatesDepth - level;
+      if (childDepth == 1) {
+        addLine(childCount);
+      } else if (childDepth == 2) {
+        addPolygon(childCount);
+      }
+    }
+  }
+
+  private GeometryFactory readCoordinateSystem(final GeometryFactory geometryFactory) {
+    final Object crs = this.in.getValue();
+    if (crs instanceof JsonObject) {
+      final JsonObject properties = ((JsonObject)crs).getValue(GeoJson.PROPERTIES);
+      if (properties != null) {
+        final String name = properties.getString(GeoJson.NAME);
+        if (name != null) {
+          if (name.startsWith(GeoJson.URN_OGC_DEF_CRS_EPSG)) {
+            final int srid = Integer
+              .parseInt(name.substring(GeoJson.URN_OGC_DEF_CRS_EPSG.length()));
+            return GeometryFactory.floating3d(srid);
+          } else if (name.startsWith(GeoJson.EPSG)) {
+            final int srid = Integer.parseInt(name.substring(GeoJson.EPSG.length()));
+            return GeometryFactory.floating3d(srid);
+          }
+        }
+      }
+    }
+    return geometryFactory;
+  }
+
+  /**
+   * Read the next feature in the features array. At the end of the array the rest of the
+   * FeatureCollection object is skipped.
+   *
+   * @return The record or null if there are no more features.
+   */
+  private Record readFeatureInCollection() {
+    final JsonParser in = this.in;
+    EventType event = in.next();
+    if (event == EventType.comma) {
+      event = in.next();
+    }
+    if (event == EventType.startObject) {
+      return readObject(false);
+    } else if (event == EventType.endArray) {
+      this.inFeatures = false;
+      while (readAttributeName() != null) {
+        skipValue();
+      }
+      return null;
+    } else {
+      throw new IllegalStateException("Expecting feature object, not: " + in);
+    }
+  }
+
+  /**
+   * Read the attributes of a geometry object up to the end of the object.
+   *
+   * @param geometryType The geometry type if it was already read, otherwise null.
+   * @return The geometry.
+   */
+  private Geometry readGeometry(String geometryType) {
+    resetCoordinates(geometryType);
+    GeometryFactory geometryFactory = this.geometryFactory;
+    List<Geometry> geometries = null;
+    for (String name = readAttributeName(); name != null; name = readAttributeName()) {
+      if (GeoJson.TYPE.equals(name)) {
+        geometryType = readString();
+      } else if (GeoJson.COORDINATES.equals(name)) {
+        readCoordinates(geometryType);
+      } else if (GeoJson.GEOMETRIES.equals(name)) {
+        geometries = readGeometryList();
+      } else if (GeoJson.CRS.equals(name)) {
+        geometryFactory = readCoordinateSystem(geometryFactory);
+      } else {
+        skipValue();
+      }
+    }
+    if (GeoJson.GEOMETRY_COLLECTION.equals(geometryType)) {
+      if (geometries == null) {
+        return geometryFactory.geometry();
+      } else {
+        return geometryFactory.geometry(geometries);
+      }
+    } else {
+      geometryFactory = geometryFactory.convertAxisCount(this.coordinatesAxisCount);
+      if (GeoJson.POINT.equals(geometryType)) {
+        if (this.positionCount == 0) {
+          return geometryFactory.point();
+        } else {
+          return newPoint(geometryFactory, 0);
+        }
+      } else if (GeoJson.LINE_STRING.equals(geometryType)) {
+        if (this.lineCount == 0) {
+          return geometryFactory.lineString();
+        } else {
+          return newLineString(geometryFactory, 0, this.lineVertexCounts[0]);
+        }
+      } else if (GeoJson.POLYGON.equals(geometryType)) {
+        return newPolygon(geometryFactory, 0, this.lineCount, 0);
+      } else if (GeoJson.MULTI_POINT.equals(geometryType)) {
+        final Point[] points = new Point[this.positionCount];
+        for (int i = 0; i < points.length; i++) {
+          points[i] = newPoint(geometryFactory, i);
+        }
+        return geometryFactory.punctual(points);
+      } else if (GeoJson.MULTI_LINE_STRING.equals(geometryType)) {
+        final LineString[] lines = new LineString[this.lineCount];
+        int positionIndex = 0;
+        for (int i = 0; i < lines.length; i++) {
+          final int vertexCount = this.lineVertexCounts[i];
+          lines[i] = newLineString(geometryFactory, positionIndex, vertexCount);
+          positionIndex += vertexCount;
+        }
+        return geometryFactory.lineal(lines);
+      } else if (GeoJson.MULTI_POLYGON.equals(geometryType)) {
+        final Polygon[] polygons = new Polygon[this.polygonCount];
+        int lineIndex = 0;
+        int positionIndex = 0;
+        for (int i = 0; i < polygons.length; i++) {
+          final int ringCount = this.polygonLineCounts[i];
+          polygons[i] = newPolygon(geometryFactory, lineIndex, ringCount, positionIndex);
+          for (int j = 0; j < ringCount; j++) {
+            positionIndex += this.lineVertexCounts[lineIndex++];
+          }
+        }
+        return geometryFactory.polygonal(polygons);
+      } else {
+        return null;
+      }
+    }
+  }
+
+  private List<Geometry> readGeometryList() {
+    final JsonParser in = this.in;
+    EventType event = in.next();
+    if (event == EventType.nullValue) {
+      return null;
+    } else if (event != EventType.startArray) {
+      throw new IllegalStateException("Expecting start array, not: " + in);
+    }
+    final List<Geometry> geometries = new ArrayList<>();
+    for (event = in.next(); event != EventType.endArray; event = in.next()) {
+      if (event == EventType.startObject) {
+        final Geometry geometry = readGeometry(null);
+        if (geometry != null) {
+          geometries.add(geometry);
+        }
+      } else if (event != EventType.comma) {
+        throw new IllegalStateException("Expecting geometry object, not: " + in);
+      }
+    }
+    return geometries;
+  }
+
+  private Geometry readGeometryValue() {
+    final EventType event = this.in.next();
+    if (event == EventType.startObject) {
+      return readGeometry(null);
+    } else if (event == EventType.nullValue) {
+      return null;
+    } else {
+      throw new IllegalStateException("Expecting geometry object, not: " + this.in);
+    }
+  }
+
+  /**
+   * Read a Feature, FeatureCollection or geometry object.
+   *
+   * @param topLevel True if the object is not in the features array of a FeatureCollection.
+   * @return The record or null if the object was not a feature.
+   */
+  private Record readObject(final boolean topLevel) {
+    String type = null;
+    Geometry geometry = null;
+    Map<String, Object> properties = null;
+    Record record = null;
+    boolean feature = false;
+    for (String name = readAttributeName(); name != null; name = readAttributeName()) {
+      if (GeoJson.TYPE.equals(name)) {
+        type = readString();
+        if (GeoJson.GEOMETRY_TYPE_NAMES.contains(type)) {
+          geometry = readGeometry(type);
+          return newRecord(geometry, null);
+        }
+      } else if (GeoJson.GEOMETRY.equals(name)) {
+        geometry = readGeometryValue();
+        feature = true;
+      } else if (GeoJson.PROPERTIES.equals(name)) {
+        if (this.recordDefinition == null) {
+          properties = readProperties();
+        } else {
+          record = this.recordFactory.newRecord(this.recordDefinition);
+          readProperties(record);
+        }
+        feature = true;
+      } else if (topLevel && GeoJson.FEATURES.equals(name)) {
+        if (this.in.next() != EventType.startArray) {
+          throw new IllegalStateException("Expecting start array, not: " + this.in);
+        }
+        this.inFeatures = true;
+        return readFeatureInCollection();
+      } else if (topLevel && GeoJson.CRS.equals(name)) {
+        this.geometryFactory = readCoordinateSystem(this.geometryFactory);
+      } else {
+        skipValue();
+      }
+    }
+    if (record != null) {
+      record.setGeometryValue(geometry);
+      return record;
+    } else if (feature || GeoJson.FEATURE.equals(type)) {
+      return newRecord(geometry, properties);
+    } else {
+      return null;
+    }
+  }
+
+  private void readPosition() {
+    final JsonParser in = this.in;
+    final int offset = this.positionCount * POSITION_STRIDE;
+    if (offset + POSITION_STRIDE > this.positions.length) {
+      this.positions = Arrays.copyOf(this.positions, this.positions.length * 2);
+    }
+    final double[] positions = this.positions;
+    int axisCount = 0;
+    for (EventType event = in.getEvent(); event != EventType.endArray; event = in.next()) {
+      if (event == EventType.number) {
+        if (axisCount < POSITION_STRIDE) {
+          positions[offset + axisCount] = in.getCurrentDouble();
+        }
+        axisCount++;
+      } else if (event != EventType.comma) {
+        throw new IllegalStateException("Expecting number, not: " + in);
+      }
+    }
+    if (axisCount > POSITION_STRIDE) {
+      axisCount = POSITION_STRIDE;
+    }
+    for (int axisIndex = axisCount; axisIndex < POSITION_STRIDE; axisIndex++) {
+      positions[offset + axisIndex] = Double.NaN;
+    }
+    if (axisCount > this.coordinatesAxisCount) {
+      this.coordinatesAxisCount = axisCount;
+    }
+    this.positionCount++;
+  }
+
+  /**
+   * Read the properties of the first feature, used to create the record definition.
+   */
+  private Map<String, Object> readProperties() {
+    final JsonParser in = this.in;
+    final EventType event = in.next();
+    if (event == EventType.nullValue) {
+      return null;
+    } else if (event != EventType.startObject) {
+      throw new IllegalStateException("Expecting properties object, not: " + in);
+    }
+    final Map<String, Object> properties = new LinkedHashMap<>();
+    for (String name = readAttributeName(); name != null; name = readAttributeName()) {
+      properties.put(name, readValue(name));
+    }
+    return properties;
+  }
+
+  /**
+   * Read the properties directly into the record, skipping any that are not in the record
+   * definition. If the JSON type of a value is different to the field's type from the first
+   * feature the field is changed to {@link DataTypes#OBJECT} so the value is kept as read.
+   */
+  private void readProperties(final Record record) {
+    final JsonParser in = this.in;
+    final EventType event = in.next();
+    if (event == EventType.nullValue) {
+      return;
+    } else if (event != EventType.startObject) {
+      throw new IllegalStateException("Expecting properties object, not: " + in);
+    }
+    final RecordDefinition recordDefinition = this.recordDefinition;
+    for (String name = readAttributeName(); name != null; name = readAttributeName()) {
+      final int fieldIndex = recordDefinition.getFieldIndex(name);
+      if (fieldIndex == -1 || GEOMETRY_FIELD_NAME.equals(name)) {
+        skipValue();
+      } else {
+        final Object value = readValue(name);
+        if (value != null) {
+          final FieldDefinition field = recordDefinition.getField(fieldIndex);
+          final DataType fieldType = field.getDataType();
+          if (fieldType != DataTypes.OBJECT && fieldType != getDataType(value)) {
+            // A different JSON type to the first feature, widen the field to any value
+            field.setType(DataTypes.OBJECT);
+          }
+        }
+        record.setValue(fieldIndex, value);
+      }
+    }
+  }
+
+  /**
+   * Read the next record from the features array or top level objects.
+   *
+   * @return The record or null at the end of the file.
+   */
+  private Record readRecord() {
+    final JsonParser in = this.in;
+    while (this.inFeatures) {
+      final Record record = readFeatureInCollection();
+      if (record != null) {
+        return record;
+      }
+    }
+    while (in.hasNext()) {
+      final EventType event = in.next();
+      if (event == EventType.startObject) {
+        final Record record = readObject(true);
+        if (record != null) {
+          return record;
+        }
+        while (this.inFeatures) {
+          final Record featureRecord = readFeatureInCollection();
+          if (featureRecord != null) {
+            return featureRecord;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private String readString() {
+    if (this.in.next() == EventType.string) {
+      return this.in.getCurrentValue();
+    } else {
+      throw new IllegalStateException("Expecting a string, not: " + this.in);
+    }
+  }
+
+  private Object readValue(final String name) {
+    final Object value = this.in.getValue();
+    if (value instanceof EventType) {
+      throw new IllegalStateException("Expecting a value, not: " + name + "=" + value);
+    }
+    return value;
+  }
+
+  private void resetCoordinates(final String geometryType) {
+    this.positionCount = 0;
+    this.lineCount = 0;
+    this.polygonCount = 0;
+    this.coordinatesAxisCount = 2;
+    this.coordinatesDepth = getCoordinatesDepth(geometryType);
+  }
+
+  private void skipValue() {
+    final JsonParser in = this.in;
+    EventType event = in.next();
+    if (event == EventType.startObject || event == EventType.startArray) {
+      int depth = 1;
+      do {
+        event = in.next();
+        if (event == EventType.startObject || event == EventType.startArray) {
+          depth++;
+        } else if (event == EventType.endObject || event == EventType.endArray) {
+          depth--;
+        } else if (event == EventType.endDocument) {
+          throw new IllegalStateException("Unexpected end of file");
+        }
+      } while (depth > 0);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.resource.toString();
+  }
+}
@@ -29,6 +29,11 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     booleanValue, colon, comma, endArray, endDocument, endObject, nullValue, number, startArray, startDocument, startObject, string, unknown
   }
 
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
   public static Map<String, Object> getMap(final InputStream in) {
     if (in == null) {
       return null;
@@ -92,6 +97,81 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     return parser;
   }
 
+  /**
+   * Parse the number text to a double. If the number has at most 15 significant digits and an
+   * exponent of at most 22 the value is calculated without creating any objects, as the result of
+   * a single multiplication or division of two exactly represented doubles is correctly rounded.
+   * Other values are parsed using {@link Double#parseDouble(String)}.
+   */
+  private static double parseDouble(final CharSequence text) {
+    final int length = text.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && text.charAt(0) == '-') {
+      negative = true;
+      i++;
+    }
+    long mantissa = 0;
+    int digitCount = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+    boolean fraction = false;
+    for (; i < length; i++) {
+      final char character = text.charAt(i);
+      if (character >= '0' && character <= '9') {
+        hasDigits = true;
+        if (mantissa != 0 || character != '0') {
+          if (++digitCount > 15) {
+            return Double.parseDouble(text.toString());
+          }
+          mantissa = mantissa * 10 + character - '0';
+        }
+        if (fraction) {
+          exponent--;
+        }
+      } else if (character == '.') {
+        fraction = true;
+      } else {
+        break;
+      }
+    }
+    if (i < length) {
+      // Exponent
+      i++;
+      boolean exponentNegative = false;
+      if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+        exponentNegative = text.charAt(i) == '-';
+        i++;
+      }
+      if (length - i > 3 || i == length) {
+        return Double.parseDouble(text.toString());
+      }
+      int exponentValue = 0;
+      for (; i < length; i++) {
+        exponentValue = exponentValue * 10 + text.charAt(i) - '0';
+      }
+      if (exponentNegative) {
+        exponent -= exponentValue;
+      } else {
+        exponent += exponentValue;
+      }
+    }
+    if (!hasDigits || exponent < -22 || exponent > 22) {
+      return Double.parseDouble(text.toString());
+    }
+    double value = mantissa;
+    if (exponent < 0) {
+      value /= POWERS_OF_TEN[-exponent];
+    } else if (exponent > 0) {
+      value *= POWERS_OF_TEN[exponent];
+    }
+    if (negative) {
+      return -value;
+    } else {
+      return value;
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static <V> V read(final InputStream in) {
     return (V)read(FileUtil.newUtf8Reader(in));
@@ -148,12 +228,17 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   private EventType currentEvent = EventType.startDocument;
 
+  /** The text of the current number, the BigDecimal value is only created if required. */
+  private StringBuilder currentNumberText = new StringBuilder();
+
   private Object currentValue;
 
   private int depth;
 
   private EventType nextEvent = EventType.startDocument;
 
+  private StringBuilder nextNumberText = new StringBuilder();
+
   private Object nextValue;
 
   private final Reader reader;
@@ -217,8 +302,29 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   }
 
+  /**
+   * Get the value of the current number event as a double without creating a
+   * {@link BigDecimal}.
+   *
+   * @return The double value.
+   */
+  public double getCurrentDouble() {
+    if (this.currentEvent == EventType.number) {
+      if (this.currentValue == null) {
+        return parseDouble(this.currentNumberText);
+      } else {
+        return ((Number)this.currentValue).doubleValue();
+      }
+    } else {
+      throw new IllegalStateException("Expecting a number, not: " + this.currentEvent);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public <T> T getCurrentValue() {
+    if (this.currentValue == null && this.currentEvent == EventType.number) {
+      this.currentValue = new BigDecimal(this.currentNumberText.toString());
+    }
     return (T)this.currentValue;
   }
 
@@ -471,6 +577,9 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     if (hasNext()) {
       this.currentValue = this.nextValue;
       this.currentEvent = this.nextEvent;
+      final StringBuilder numberText = this.currentNumberText;
+      this.currentNumberText = this.nextNumberText;
+      this.nextNumberText = numberText;
       moveNext();
       return this.currentEvent;
     } else {
@@ -479,7 +588,8 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
   }
 
   private void processNumber() throws IOException {
-    final StringBuilder text = new StringBuilder();
+    final StringBuilder text = this.nextNumberText;
+    text.setLength(0);
     if (this.currentCharacter == '-') {
       text.append((char)this.currentCharacter);
       this.currentCharacter = this.reader.read();
@@ -510,7 +620,6 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
         this.currentCharacter = this.reader.read();
       }
     }
-    this.nextValue = new BigDecimal(text.toString());
   }
 
   private void processString() throws IOException {
@@ -666,7 +775,7 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   @Override
   public String toString() {
-    return this.currentEvent + " : " + this.currentValue + " "
+    return this.currentEvent + " : " + getCurrentValue() + " "
       + Character.toString((char)this.currentCharacter) + FileUtil.getString(this.reader, 80);
   }
 }
@@ -597,7 +597,7 @@ public final class ShapefileGeometryHandler {
     buffer.getDouble();
     final int geometryCount = buffer.getInt();
     final int vertexCount = buffer.getInt();
-    if (22 + geometryCount * 2 + vertexCount * 12 == recordLength) {
+    if (22 + 8 + geometryCount * 2 + vertexCount * 12 == recordLength) {
       geometryFactory = geometryFactory.convertAxisCount(3);
       return readPolylineZ(geometryFactory, buffer, geometryCount, vertexCount);
     } else {
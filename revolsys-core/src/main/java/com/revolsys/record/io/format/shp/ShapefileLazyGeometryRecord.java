@@ -0,0 +1,100 @@
+package com.revolsys.record.io.format.shp;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.record.DelegatingRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+
+/**
+ * A record from a memory mapped shapefile whose geometry is only decoded from the mapped .shp
+ * record the first time the geometry field is read. The mapped view of the .shp record remains
+ * valid after the reader is closed.
+ */
+class ShapefileLazyGeometryRecord extends DelegatingRecord {
+
+  private final int geometryIndex;
+
+  private Supplier<Geometry> geometrySupplier;
+
+  public ShapefileLazyGeometryRecord(final Record record, final int geometryIndex,
+    final Supplier<Geometry> geometrySupplier) {
+    super(record);
+    this.geometryIndex = geometryIndex;
+    this.geometrySupplier = geometrySupplier;
+  }
+
+  @Override
+  public Record clone() {
+    loadGeometry();
+    return super.clone();
+  }
+
+  @Override
+  public int compareTo(final Record o) {
+    loadGeometry();
+    return super.compareTo(o);
+  }
+
+  @Override
+  public Set<java.util.Map.Entry<String, Object>> entrySet() {
+    loadGeometry();
+    return super.entrySet();
+  }
+
+  @Override
+  public <T extends Object> T getValue(final int index) {
+    if (index == this.geometryIndex) {
+      loadGeometry();
+    }
+    return super.getValue(index);
+  }
+
+  @Override
+  public int hashCode() {
+    loadGeometry();
+    return super.hashCode();
+  }
+
+  /**
+   * Decode the geometry and set it on the record without changing the record's state.
+   */
+  private synchronized void loadGeometry() {
+    final Supplier<Geometry> geometrySupplier = this.geometrySupplier;
+    if (geometrySupplier != null) {
+      this.geometrySupplier = null;
+      final Geometry geometry = geometrySupplier.get();
+      final Record record = getRecord();
+      final RecordState state = record.setState(RecordState.INITIALIZING);
+      try {
+        record.setValue(this.geometryIndex, geometry);
+      } finally {
+        record.setState(state);
+      }
+    }
+  }
+
+  @Override
+  public boolean setValue(final int index, final Object value) {
+    if (index == this.geometryIndex) {
+      synchronized (this) {
+        this.geometrySupplier = null;
+      }
+    }
+    return super.setValue(index, value);
+  }
+
+  @Override
+  public void setValues(final Iterable<? extends Object> values) {
+    loadGeometry();
+    super.setValues(values);
+  }
+
+  @Override
+  public void setValues(final Object... values) {
+    loadGeometry();
+    super.setValues(values);
+  }
+}
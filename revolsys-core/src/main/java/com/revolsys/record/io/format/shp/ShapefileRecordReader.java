@@ -2,13 +2,20 @@ package com.revolsys.record.io.format.shp;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.BitSet;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.index.PagedSpatialIndex;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.ClockDirection;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryDataTypes;
@@ -24,25 +31,149 @@ import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.Records;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordReaderPushdown;
 import com.revolsys.record.io.format.xbase.XbaseRecordReader;
+import com.revolsys.record.query.Query;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionImpl;
 import com.revolsys.spring.resource.Resource;
 import com.revolsys.util.Property;
 
+/**
+ * Read the records from a shapefile (.shp, .shx and .dbf files).
+ *
+ * If {@link #setMemoryMapped(boolean)} is true and the shapefile is a local file with a .shx
+ * index, the files are memory mapped. The geometries are decoded directly from the mapped
+ * .shp file and the .shx index is used to find each record. This allows random access to records
+ * using {@link #getRecord(int)}, {@link #getGeometry(int)} and {@link #getBoundingBox(int)}, and
+ * multiple readers to read ranges of a large file in parallel using
+ * {@link #setRange(int, int)}. {@link #forEachRecord(BoundingBox, Consumer)} uses a persistent
+ * {@link PagedSpatialIndex} stored next to the shapefile to only read the matching records. The
+ * index file is only created if {@link #setCreateSpatialIndex(boolean)} is true, otherwise an
+ * existing up to date index file is used.
+ *
+ * {@link #pushDown(Query)} uses the bounds in the .shp record header to skip records that don't
+ * intersect the query's bounding box without decoding the geometry, and only decodes the .dbf
+ * fields and geometry required by the query.
+ */
 public class ShapefileRecordReader extends AbstractIterator<Record> implements RecordReader {
+  /** The maximum number of bytes of the .shp file to memory map at a time. */
+  private static final long MAPPED_WINDOW_SIZE = 256 * 1024 * 1024;
+
+  private static Geometry newEmptyGeometry(final GeometryFactory geometryFactory,
+    final int shapeType) {
+    switch (shapeType) {
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE:
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return geometryFactory.point();
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return geometryFactory.lineString();
+
+      case ShapefileConstants.POLYGON_SHAPE:
+      case ShapefileConstants.POLYGON_M_SHAPE:
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return geometryFactory.polygon();
+      default:
+        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+    }
+  }
+
+  /**
+   * Decode the geometry from the content of a .shp record.
+   *
+   * @param geometryFactory The geometry factory.
+   * @param fileShapeType The shape type from the .shp file header, used for empty geometries.
+   * @param buffer The little endian record content.
+   * @return The geometry.
+   */
+  private static Geometry readGeometry(final GeometryFactory geometryFactory,
+    final int fileShapeType, final ByteBuffer buffer) {
+    final int recordLength = buffer.limit() / 2;
+    final int shapeType = buffer.getInt();
+    final ShapefileGeometryHandler handler = ShapefileGeometryHandler.SHP_INSTANCE;
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        return newEmptyGeometry(geometryFactory, fileShapeType);
+      case ShapefileConstants.POINT_SHAPE:
+        return handler.readPoint(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_M_SHAPE:
+        return handler.readPointM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_Z_SHAPE:
+        return handler.readPointZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        return handler.readPointZM(geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+        return handler.readMultipoint(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+        return handler.readMultipointM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+        return handler.readMultipointZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return handler.readMultipointZM(geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+        return handler.readPolyline(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+        return handler.readPolylineM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+        return handler.readPolylineZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return handler.readPolylineZM(geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.POLYGON_SHAPE:
+        return handler.readPolygon(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_M_SHAPE:
+        return handler.readPolygonM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+        return handler.readPolygonZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return handler.readPolygonZM(geometryFactory, buffer, recordLength);
+      default:
+        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+    }
+  }
+
   private boolean closeFile = true;
 
+  private boolean createSpatialIndex;
+
+  private int endIndex = Integer.MAX_VALUE;
+
   private GeometryFactory geometryFactory;
 
   private EndianInput in;
 
   private EndianMappedByteBuffer indexIn;
 
+  private EndianMappedByteBuffer mappedIn;
+
+  private boolean memoryMapped;
+
   private final String name;
 
   private int position;
 
+  private RecordReaderPushdown pushdown;
+
+  private BoundingBox pushdownBoundingBox;
+
+  /** The record indexes from the spatial index that intersect the pushdown bounding box. */
+  private BitSet pushdownRecordIndexes;
+
+  private int recordCount = -1;
+
   private RecordDefinition recordDefinition;
 
   private RecordFactory recordFactory;
@@ -51,8 +182,12 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   private RecordDefinition returnRecordDefinition;
 
+  private byte[] shapeBytes = new byte[0];
+
   private int shapeType;
 
+  private PagedSpatialIndex spatialIndex;
+
   private PathName typeName;
 
   private XbaseRecordReader xbaseRecordReader;
@@ -73,8 +208,41 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Call the action for each record whose geometry's bounding box intersects the bounding box.
+   * Only supported for memory mapped shapefiles. The {@link #getSpatialIndex()} is used to find
+   * the records if it is available, otherwise the bounding box of each record is checked.
+   *
+   * @param boundingBox The bounding box to query.
+   * @param action The action to call for each matching record.
+   */
+  public void forEachRecord(final BoundingBox boundingBox, final Consumer<? super Record> action) {
+    open();
+    final BoundingBox queryBoundingBox = boundingBox.bboxToCs(this.geometryFactory);
+    final PagedSpatialIndex spatialIndex = getSpatialIndex();
+    if (spatialIndex == null) {
+      final double[] bounds = new double[4];
+      for (int recordIndex = 0; recordIndex < this.recordCount; recordIndex++) {
+        if (readBounds(recordIndex, bounds, 0) && queryBoundingBox.bboxIntersects(bounds[0],
+          bounds[1], bounds[2], bounds[3])) {
+          final Record record = getRecord(recordIndex);
+          if (record != null) {
+            action.accept(record);
+          }
+        }
+      }
+    } else {
+      spatialIndex.forEach(queryBoundingBox, recordIndex -> {
+        final Record record = getRecord((int)recordIndex);
+        if (record != null) {
+          action.accept(record);
+        }
+      });
+    }
+  }
+
   public void forceClose() {
-    FileUtil.closeSilent(this.in, this.indexIn);
+    FileUtil.closeSilent(this.in, this.indexIn, this.spatialIndex);
     if (this.xbaseRecordReader != null) {
       this.xbaseRecordReader.forceClose();
     }
@@ -82,13 +250,65 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     this.geometryFactory = null;
     this.in = null;
     this.indexIn = null;
+    this.mappedIn = null;
     this.recordDefinition = null;
     this.resource = null;
+    this.spatialIndex = null;
     this.xbaseRecordReader = null;
   }
 
+  /**
+   * Get the bounding box of the geometry for the record at the index without reading the
+   * coordinates. Only supported for memory mapped shapefiles.
+   *
+   * @param recordIndex The index of the record.
+   * @return The bounding box.
+   */
+  public BoundingBox getBoundingBox(final int recordIndex) {
+    final double[] bounds = new double[4];
+    if (readBounds(recordIndex, bounds, 0)) {
+      return this.geometryFactory.newBoundingBox(bounds[0], bounds[1], bounds[2], bounds[3]);
+    } else {
+      return this.geometryFactory.bboxEmpty();
+    }
+  }
+
+  /**
+   * Get the geometry for the record at the index without reading the .dbf record. Only
+   * supported for memory mapped shapefiles.
+   *
+   * @param recordIndex The index of the record.
+   * @return The geometry.
+   */
+  public Geometry getGeometry(final int recordIndex) {
+    try {
+      final ByteBuffer buffer = getShapeBuffer(recordIndex);
+      return readGeometry(this.geometryFactory, this.shapeType, buffer);
+    } catch (final IOException e) {
+      throw new RuntimeException("Error reading geometry " + this.resource, e);
+    }
+  }
+
   @Override
   protected Record getNext() {
+    if (this.memoryMapped) {
+      while (true) {
+        int recordIndex = this.position;
+        if (this.pushdownRecordIndexes != null) {
+          recordIndex = this.pushdownRecordIndexes.nextSetBit(recordIndex);
+        }
+        if (recordIndex < 0 || recordIndex >= this.endIndex || recordIndex >= this.recordCount) {
+          throw new NoSuchElementException();
+        }
+        this.position = recordIndex + 1;
+        final Record record = readRecord(recordIndex);
+        if (record != null) {
+          return record;
+        }
+      }
+    } else if (this.pushdown != null) {
+      return getNextPushdown();
+    }
     Record record;
     try {
       if (this.xbaseRecordReader != null) {
@@ -116,12 +336,55 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     } catch (final IOException e) {
       throw new RuntimeException("Error reading geometry " + this.resource, e);
     }
-    if (this.returnRecordDefinition == null) {
-      return record;
-    } else {
-      final Record copy = this.recordFactory.newRecord(this.returnRecordDefinition);
-      copy.setValues(record);
-      return copy;
+    return getReturnRecord(record);
+  }
+
+  /**
+   * Get the next record from the .shp and .dbf streams. The .shp record content is read into a
+   * buffer and the geometry is only decoded if the record matches the pushdown.
+   */
+  private Record getNextPushdown() {
+    final RecordReaderPushdown pushdown = this.pushdown;
+    final BoundingBox boundingBox = this.pushdownBoundingBox;
+    final double[] bounds = new double[4];
+    try {
+      while (true) {
+        Record record;
+        if (this.xbaseRecordReader != null) {
+          if (this.xbaseRecordReader.hasNext()) {
+            record = this.xbaseRecordReader.next();
+            for (int i = 0; i < this.xbaseRecordReader.getDeletedCount(); i++) {
+              this.position++;
+              readShapeBuffer();
+            }
+          } else {
+            throw new NoSuchElementException();
+          }
+        } else {
+          record = this.recordFactory.newRecord(this.recordDefinition);
+        }
+        final ByteBuffer buffer = readShapeBuffer();
+        if (pushdown.testAttributes(record)) {
+          if (boundingBox == null || readBounds(buffer, bounds, 0)
+            && boundingBox.bboxIntersects(bounds[0], bounds[1], bounds[2], bounds[3])) {
+            if (pushdown.isGeometryRequired()) {
+              buffer.rewind();
+              try {
+                final Geometry geometry = readGeometry(this.geometryFactory, this.shapeType,
+                  buffer);
+                record.setGeometryValue(geometry);
+              } catch (final IllegalArgumentException e) {
+                Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
+              }
+            }
+            return getReturnRecord(record);
+          }
+        }
+      }
+    } catch (final EndOfFileException e) {
+      throw new NoSuchElementException();
+    } catch (final IOException e) {
+      throw new RuntimeException("Error reading geometry " + this.resource, e);
     }
   }
 
@@ -134,6 +397,39 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     return this.position;
   }
 
+  /**
+   * Get the record at the index. Only supported for memory mapped shapefiles. The geometry is
+   * decoded from the mapped .shp record the first time it is read from the record.
+   *
+   * @param recordIndex The index of the record.
+   * @return The record, or null if the record was deleted from the .dbf file.
+   */
+  public Record getRecord(final int recordIndex) {
+    open();
+    Record record;
+    if (this.xbaseRecordReader == null) {
+      record = this.recordFactory.newRecord(this.recordDefinition);
+    } else {
+      record = this.xbaseRecordReader.getRecord(recordIndex);
+      if (record == null) {
+        return null;
+      }
+    }
+    record = newLazyGeometryRecord(record, recordIndex);
+    return getReturnRecord(record);
+  }
+
+  /**
+   * Get the number of records in the .shx index file. Only supported for memory mapped
+   * shapefiles.
+   *
+   * @return The number of records.
+   */
+  public int getRecordCount() {
+    open();
+    return this.recordCount;
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     open();
@@ -145,6 +441,81 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     return this.recordFactory;
   }
 
+  private Record getReturnRecord(final Record record) {
+    if (this.returnRecordDefinition == null) {
+      return record;
+    } else {
+      final Record copy = this.recordFactory.newRecord(this.returnRecordDefinition);
+      copy.setValues(record);
+      return copy;
+    }
+  }
+
+  /**
+   * Get a little endian view of the content of the .shp record at the index directly from the
+   * mapped file, using the .shx index to find the record. The index entry and record content are
+   * read from new views of the mapped files so this can be called from multiple threads.
+   */
+  private ByteBuffer getShapeBuffer(final int recordIndex) throws IOException {
+    open();
+    if (!this.memoryMapped) {
+      throw new IllegalStateException("Random access is only supported for memory mapped files");
+    } else if (recordIndex < 0 || recordIndex >= this.recordCount) {
+      throw new IndexOutOfBoundsException(
+        "Record index " + recordIndex + " not in 0.." + (this.recordCount - 1));
+    }
+    final ByteBuffer indexBuffer = this.indexIn.getBuffer(100 + 8L * recordIndex, 8);
+    // Offset and length are in 16-bit words, skip the 8 byte record header
+    final long offset = Integer.toUnsignedLong(indexBuffer.getInt()) * 2 + 8;
+    final int contentLength = indexBuffer.getInt() * 2;
+    final ByteBuffer buffer = this.mappedIn.getBuffer(offset, contentLength);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  /**
+   * Get the persistent spatial index of the record bounding boxes, stored in a .shp.sidx file next
+   * to the shapefile. If the index file doesn't exist or the shapefile has changed since it was
+   * created the index is only created if {@link #isCreateSpatialIndex()} is true. Only supported
+   * for memory mapped shapefiles.
+   *
+   * @return The spatial index, or null if there is no up to date index file.
+   */
+  public PagedSpatialIndex getSpatialIndex() {
+    return getSpatialIndex(this.createSpatialIndex);
+  }
+
+  /**
+   * Get the spatial index, only creating the index file if create is true.
+   */
+  private synchronized PagedSpatialIndex getSpatialIndex(final boolean create) {
+    if (this.spatialIndex == null) {
+      open();
+      if (this.memoryMapped) {
+        final File file = this.resource.getFile();
+        try {
+          PagedSpatialIndex spatialIndex = PagedSpatialIndex.open(file);
+          if (spatialIndex == null && create) {
+            final int recordCount = this.recordCount;
+            final long[] recordIndexes = new long[recordCount];
+            final double[] bounds = new double[recordCount * 4];
+            int count = 0;
+            for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+              if (readBounds(recordIndex, bounds, count * 4)) {
+                recordIndexes[count++] = recordIndex;
+              }
+            }
+            spatialIndex = PagedSpatialIndex.newIndex(file, count, recordIndexes, bounds);
+          }
+          this.spatialIndex = spatialIndex;
+        } catch (final RuntimeException e) {
+          Logs.debug(this, "Unable to create spatial index for: " + this.resource, e);
+        }
+      }
+    }
+    return this.spatialIndex;
+  }
+
   public PathName getTypeName() {
     return this.typeName;
   }
@@ -153,15 +524,20 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
   protected synchronized void initDo() {
     if (this.in == null) {
       try {
-        try {
-          if (this.resource.isFile()) {
-            final File file = this.resource.getFile();
-            this.in = new LittleEndianRandomAccessFile(file, "r");
-          } else {
+        if (this.memoryMapped) {
+          initMapped();
+        }
+        if (this.in == null) {
+          try {
+            if (this.resource.isFile()) {
+              final File file = this.resource.getFile();
+              this.in = new LittleEndianRandomAccessFile(file, "r");
+            } else {
+              this.in = new EndianInputStream(this.resource.getInputStream());
+            }
+          } catch (final IllegalArgumentException | UnsupportedOperationException e) {
             this.in = new EndianInputStream(this.resource.getInputStream());
           }
-        } catch (final IllegalArgumentException | UnsupportedOperationException e) {
-          this.in = new EndianInputStream(this.resource.getInputStream());
         }
 
         final Resource xbaseResource = this.resource.newResourceChangeExtension("dbf");
@@ -221,10 +597,43 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Memory map the .shp and .shx files. If the shapefile isn't a local file or doesn't have a .shx
+   * file the files will be read as streams.
+   */
+  private void initMapped() {
+    final Resource indexResource = this.resource.newResourceChangeExtension("shx");
+    try {
+      if (this.resource.isFile() && indexResource != null && indexResource.isFile()
+        && indexResource.exists()) {
+        this.indexIn = new EndianMappedByteBuffer(indexResource.getFile(), MapMode.READ_ONLY);
+        this.recordCount = (int)((this.indexIn.length() - 100) / 8);
+        this.mappedIn = new EndianMappedByteBuffer(this.resource.getFile(), MapMode.READ_ONLY,
+          MAPPED_WINDOW_SIZE);
+        this.in = this.mappedIn;
+        return;
+      }
+    } catch (final IOException | IllegalArgumentException | UnsupportedOperationException e) {
+      Logs.warn(this, "Unable to memory map " + this.resource + ", reading as a stream", e);
+    }
+    FileUtil.closeSilent(this.indexIn, this.mappedIn);
+    this.indexIn = null;
+    this.mappedIn = null;
+    this.memoryMapped = false;
+  }
+
   public boolean isCloseFile() {
     return this.closeFile;
   }
 
+  public boolean isCreateSpatialIndex() {
+    return this.createSpatialIndex;
+  }
+
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -247,6 +656,116 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     final double maxM = this.in.readLEDouble();
   }
 
+  /**
+   * Wrap the record so the geometry is decoded from the mapped .shp record the first time the
+   * geometry field is read. The view of the mapped record is obtained now so the geometry can
+   * still be decoded after the reader is closed.
+   *
+   * @param record The record.
+   * @param recordIndex The index of the record.
+   * @return The record with a lazily decoded geometry.
+   */
+  private Record newLazyGeometryRecord(final Record record, final int recordIndex) {
+    final int geometryIndex = record.getRecordDefinition().getGeometryFieldIndex();
+    if (geometryIndex < 0) {
+      return record;
+    }
+    final ByteBuffer buffer;
+    try {
+      buffer = getShapeBuffer(recordIndex);
+    } catch (final IOException e) {
+      throw new RuntimeException("Error reading geometry " + this.resource, e);
+    }
+    final GeometryFactory geometryFactory = this.geometryFactory;
+    final int shapeType = this.shapeType;
+    final Resource resource = this.resource;
+    return new ShapefileLazyGeometryRecord(record, geometryIndex, () -> {
+      try {
+        return readGeometry(geometryFactory, shapeType, buffer);
+      } catch (final IllegalArgumentException e) {
+        Logs.error(ShapefileRecordReader.class,
+          "Error reading geometry " + recordIndex + " from:" + resource, e);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Push down the query to the reader, see {@link RecordReaderPushdown}. Only the .dbf fields
+   * required by the query are decoded and the geometry is only decoded if it is required and
+   * the bounds in the .shp record header intersect the query's bounding box. For memory mapped
+   * shapefiles an existing up to date .shp.sidx spatial index is used to find the records that
+   * intersect the bounding box. The index file is never created by the pushdown, without it the
+   * bounds in the .shp record header are checked.
+   */
+  @Override
+  public boolean pushDown(final Query query) {
+    open();
+    final RecordReaderPushdown pushdown = new RecordReaderPushdown(this.recordDefinition, query);
+    this.pushdown = pushdown;
+    this.pushdownBoundingBox = pushdown.getBoundingBox(this.geometryFactory);
+    if (this.xbaseRecordReader != null) {
+      this.xbaseRecordReader.setPushdown(pushdown);
+    }
+    if (this.memoryMapped && this.pushdownBoundingBox != null) {
+      final PagedSpatialIndex spatialIndex = getSpatialIndex(false);
+      if (spatialIndex != null) {
+        final BitSet recordIndexes = new BitSet(this.recordCount);
+        spatialIndex.forEach(this.pushdownBoundingBox,
+          recordIndex -> recordIndexes.set((int)recordIndex));
+        this.pushdownRecordIndexes = recordIndexes;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read the bounds (minX, minY, maxX, maxY) of the geometry from the .shp record content in the
+   * buffer without reading the coordinates.
+   *
+   * @return False if the record has a null shape.
+   */
+  private boolean readBounds(final ByteBuffer buffer, final double[] bounds, final int offset) {
+    final int shapeType = buffer.getInt();
+    if (shapeType == ShapefileConstants.NULL_SHAPE) {
+      return false;
+    } else {
+      final double minX = buffer.getDouble();
+      final double minY = buffer.getDouble();
+      bounds[offset] = minX;
+      bounds[offset + 1] = minY;
+      switch (shapeType) {
+        case ShapefileConstants.POINT_SHAPE:
+        case ShapefileConstants.POINT_M_SHAPE:
+        case ShapefileConstants.POINT_Z_SHAPE:
+        case ShapefileConstants.POINT_ZM_SHAPE:
+          bounds[offset + 2] = minX;
+          bounds[offset + 3] = minY;
+        break;
+        default:
+          bounds[offset + 2] = buffer.getDouble();
+          bounds[offset + 3] = buffer.getDouble();
+        break;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Read the bounds (minX, minY, maxX, maxY) of the geometry for the record at the index
+   * into the array without reading the coordinates.
+   *
+   * @return False if the record has a null shape.
+   */
+  private boolean readBounds(final int recordIndex, final double[] bounds, final int offset) {
+    try {
+      final ByteBuffer buffer = getShapeBuffer(recordIndex);
+      return readBounds(buffer, bounds, offset);
+    } catch (final IOException e) {
+      throw new RuntimeException("Error reading geometry " + this.resource, e);
+    }
+  }
+
   @SuppressWarnings("unused")
   private Geometry readGeometry() throws IOException {
     final int recordNumber = this.in.readInt();
@@ -255,31 +774,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     final ShapefileGeometryUtil util = ShapefileGeometryUtil.SHP_INSTANCE;
     switch (shapeType) {
       case ShapefileConstants.NULL_SHAPE:
-        switch (this.shapeType) {
-          case ShapefileConstants.POINT_SHAPE:
-          case ShapefileConstants.POINT_M_SHAPE:
-          case ShapefileConstants.POINT_Z_SHAPE:
-          case ShapefileConstants.POINT_ZM_SHAPE:
-          case ShapefileConstants.MULTI_POINT_SHAPE:
-          case ShapefileConstants.MULTI_POINT_M_SHAPE:
-          case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-          case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-            return this.geometryFactory.point();
-
-          case ShapefileConstants.POLYLINE_SHAPE:
-          case ShapefileConstants.POLYLINE_M_SHAPE:
-          case ShapefileConstants.POLYLINE_Z_SHAPE:
-          case ShapefileConstants.POLYLINE_ZM_SHAPE:
-            return this.geometryFactory.lineString();
-
-          case ShapefileConstants.POLYGON_SHAPE:
-          case ShapefileConstants.POLYGON_M_SHAPE:
-          case ShapefileConstants.POLYGON_Z_SHAPE:
-          case ShapefileConstants.POLYGON_ZM_SHAPE:
-            return this.geometryFactory.polygon();
-          default:
-            throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
-        }
+        return newEmptyGeometry(this.geometryFactory, this.shapeType);
       case ShapefileConstants.POINT_SHAPE:
         return util.readPoint(this.geometryFactory, this.in, recordLength);
       case ShapefileConstants.POINT_M_SHAPE:
@@ -320,6 +815,61 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Read the record at the index for the iterator of a memory mapped shapefile. If there is a
+   * pushdown the bounds are checked before the .dbf record is read and the geometry is only
+   * decoded if the record matches.
+   *
+   * @return The record or null if the record was deleted or doesn't match the pushdown.
+   */
+  private Record readRecord(final int recordIndex) {
+    final RecordReaderPushdown pushdown = this.pushdown;
+    if (pushdown == null) {
+      return getRecord(recordIndex);
+    } else {
+      final BoundingBox boundingBox = this.pushdownBoundingBox;
+      if (boundingBox != null && this.pushdownRecordIndexes == null) {
+        final double[] bounds = new double[4];
+        if (!readBounds(recordIndex, bounds, 0)
+          || !boundingBox.bboxIntersects(bounds[0], bounds[1], bounds[2], bounds[3])) {
+          return null;
+        }
+      }
+      Record record;
+      if (this.xbaseRecordReader == null) {
+        record = this.recordFactory.newRecord(this.recordDefinition);
+      } else {
+        record = this.xbaseRecordReader.getRecord(recordIndex);
+        if (record == null) {
+          return null;
+        }
+      }
+      if (!pushdown.testAttributes(record)) {
+        return null;
+      } else if (pushdown.isGeometryRequired()) {
+        record = newLazyGeometryRecord(record, recordIndex);
+      }
+      return getReturnRecord(record);
+    }
+  }
+
+  /**
+   * Read the content of the next .shp record into a little endian buffer. The buffer is reused
+   * for the next record.
+   */
+  private ByteBuffer readShapeBuffer() throws IOException {
+    this.in.readInt();
+    // Content length is in 16-bit words
+    final int contentLength = this.in.readInt() * 2;
+    if (this.shapeBytes.length < contentLength) {
+      this.shapeBytes = new byte[contentLength];
+    }
+    this.in.readFully(this.shapeBytes, 0, contentLength);
+    final ByteBuffer buffer = ByteBuffer.wrap(this.shapeBytes, 0, contentLength);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
   public void setCloseFile(final boolean closeFile) {
     this.closeFile = closeFile;
     if (this.xbaseRecordReader != null) {
@@ -327,6 +877,39 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Set if {@link #getSpatialIndex()} should create the .shp.sidx spatial index file next to the
+   * shapefile if it doesn't exist or is out of date. Must be set before the spatial index is used.
+   *
+   * @param createSpatialIndex True if the spatial index file should be created.
+   */
+  public void setCreateSpatialIndex(final boolean createSpatialIndex) {
+    this.createSpatialIndex = createSpatialIndex;
+  }
+
+  /**
+   * Set if the .shp, .shx and .dbf files should be memory mapped. Must be set before the reader
+   * is opened.
+   *
+   * @param memoryMapped True if the files should be memory mapped.
+   */
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  /**
+   * Set the range of record indexes to return from the iterator. This can be used to read ranges
+   * of a large shapefile in parallel using a reader for each range. Only supported for memory
+   * mapped shapefiles and must be set before the first record is read.
+   *
+   * @param startIndex The index of the first record (inclusive).
+   * @param endIndex The index of the last record (exclusive).
+   */
+  public void setRange(final int startIndex, final int endIndex) {
+    this.position = startIndex;
+    this.endIndex = endIndex;
+  }
+
   public void setRecordDefinition(final RecordDefinition recordDefinition) {
     this.returnRecordDefinition = recordDefinition;
     ((RecordDefinitionImpl)recordDefinition).setPolygonRingDirection(ClockDirection.CLOCKWISE);
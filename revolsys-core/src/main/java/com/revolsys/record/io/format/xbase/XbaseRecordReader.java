@@ -1,9 +1,11 @@
 package com.revolsys.record.io.format.xbase;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -21,9 +23,12 @@ import org.jeometry.common.logging.Logs;
 import com.revolsys.collection.iterator.AbstractIterator;
 import com.revolsys.io.Buffers;
 import com.revolsys.io.FileUtil;
+import com.revolsys.io.endian.EndianMappedByteBuffer;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordReaderPushdown;
+import com.revolsys.record.query.Query;
 import com.revolsys.record.schema.RecordDefinitionImpl;
 import com.revolsys.spring.resource.Resource;
 
@@ -38,6 +43,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   public static final char LOGICAL_TYPE = 'L';
 
+  /** The maximum number of bytes of the file to memory map at a time. */
+  private static final long MAPPED_WINDOW_SIZE = 256 * 1024 * 1024;
+
   public static final char MEMO_TYPE = 'M';
 
   public static final char NUMBER_TYPE = 'N';
@@ -63,8 +71,12 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private int deletedCount = 0;
 
+  private short headerSize;
+
   private ReadableByteChannel in;
 
+  private EndianMappedByteBuffer mappedIn;
+
   private Runnable initCallback;
 
   private int recordCount;
@@ -87,6 +99,10 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private boolean exists = false;
 
+  private boolean filterRecords = false;
+
+  private RecordReaderPushdown pushdown;
+
   public XbaseRecordReader(final Resource resource, final RecordFactory recordFactory)
     throws IOException {
     this.resource = resource;
@@ -119,17 +135,18 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   }
 
   public void forceClose() {
-    FileUtil.closeSilent(this.in);
+    FileUtil.closeSilent(this.in, this.mappedIn);
     this.recordFactory = null;
     this.in = null;
+    this.mappedIn = null;
     this.initCallback = null;
     this.recordDefinition = null;
     this.recordBuffer = null;
     this.resource = null;
   }
 
-  private Boolean getBoolean() {
-    final char c = (char)this.recordBuffer.get();
+  private Boolean getBoolean(final ByteBuffer recordBuffer) {
+    final char c = (char)recordBuffer.get();
     switch (c) {
       case 't':
       case 'T':
@@ -147,8 +164,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private Date getDate(final int len) {
-    final String dateString = getString(len);
+  private Date getDate(final ByteBuffer recordBuffer, final int len) {
+    final String dateString = getString(recordBuffer, len);
     if (dateString.trim().length() == 0 || dateString.equals("0")) {
       return null;
     } else {
@@ -160,6 +177,17 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.deletedCount;
   }
 
+  /**
+   * Get the memory mapped view of the file, mapping the file the first time it is called.
+   */
+  private synchronized EndianMappedByteBuffer getMappedIn() throws IOException {
+    if (this.mappedIn == null) {
+      final File file = this.resource.getFile();
+      this.mappedIn = new EndianMappedByteBuffer(file, MapMode.READ_ONLY, MAPPED_WINDOW_SIZE);
+    }
+    return this.mappedIn;
+  }
+
   private Object getMemo(final int len) throws IOException {
     return null;
     /*
@@ -200,12 +228,15 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
             throw new NoSuchElementException();
           } else if (deleteFlag == ' ') {
             record = loadRecord();
+            if (this.filterRecords && !this.pushdown.testAttributes(record)) {
+              record = null;
+            }
           } else if (deleteFlag != 0x1A) {
             this.currentDeletedCount++;
             this.position++;
           }
         }
-      } while (deleteFlag == '*');
+      } while (deleteFlag == '*' || record == null && deleteFlag == ' ');
       if (record == null) {
         throw new NoSuchElementException();
       }
@@ -215,9 +246,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private BigDecimal getNumber(final int len) {
+  private BigDecimal getNumber(final ByteBuffer recordBuffer, final int len) {
     BigDecimal number = null;
-    final String string = getString(len);
+    final String string = getString(recordBuffer, len);
     final String numberString = string.replace('*', ' ');
     if (numberString.trim().length() != 0) {
       try {
@@ -233,6 +264,35 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.position;
   }
 
+  /**
+   * Get the record at the index from the memory mapped file. The bytes for the record are read
+   * directly from a new view of the mapped file so this can be called from multiple threads. The
+   * file must be a local file.
+   *
+   * @param recordIndex The index of the record.
+   * @return The record or null if the record was deleted or the index is outside the file.
+   */
+  public Record getRecord(final int recordIndex) {
+    open();
+    if (this.exists && recordIndex >= 0 && recordIndex < this.recordCount) {
+      try {
+        final long offset = this.headerSize + (long)recordIndex * this.recordSize;
+        final ByteBuffer recordBuffer = getMappedIn().getBuffer(offset, this.recordSize);
+        final int deleteFlag = recordBuffer.get();
+        if (deleteFlag == ' ') {
+          return loadRecord(recordBuffer);
+        } else {
+          return null;
+        }
+      } catch (final IOException e) {
+        throw new RuntimeException("Error reading record " + recordIndex + " from " + this.resource,
+          e);
+      }
+    } else {
+      return null;
+    }
+  }
+
   public int getRecordCount() {
     return this.recordCount;
   }
@@ -243,9 +303,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.recordDefinition;
   }
 
-  private String getString(final int len) {
+  private String getString(final ByteBuffer recordBuffer, final int len) {
     final byte[] bytes = new byte[len];
-    this.recordBuffer.get(bytes, 0, len);
+    recordBuffer.get(bytes, 0, len);
     final String text = new String(bytes, this.charset);
     return text.trim();
   }
@@ -297,7 +357,7 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
       final int d = header.get();
       // properties.put(new QName("date"), new Date(y, m - 1, d));
       this.recordCount = header.getInt();
-      final short headerSize = header.getShort();
+      this.headerSize = header.getShort();
 
       this.recordSize = header.getShort();
     } else {
@@ -306,31 +366,49 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   }
 
   protected Record loadRecord() throws IOException {
+    return loadRecord(this.recordBuffer);
+  }
+
+  private Record loadRecord(final ByteBuffer recordBuffer) throws IOException {
+    final RecordReaderPushdown pushdown = this.pushdown;
     final Record record = this.recordFactory.newRecord(this.recordDefinition);
     for (int i = 0; i < this.recordDefinition.getFieldCount(); i++) {
       int length = this.recordDefinition.getFieldLength(i);
       final DataType type = this.recordDefinition.getFieldType(i);
       Object value = null;
 
-      if (type == DataTypes.STRING) {
+      if (pushdown != null && !pushdown.isFieldRequired(i)) {
+        skipField(recordBuffer, type, length);
+      } else if (type == DataTypes.STRING) {
         if (length < 255) {
-          value = getString(length);
+          value = getString(recordBuffer, length);
         } else {
           value = getMemo(length);
           length = 10;
         }
       } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
-        value = getNumber(length);
+        value = getNumber(recordBuffer, length);
       } else if (type == DataTypes.BOOLEAN) {
-        value = getBoolean();
+        value = getBoolean(recordBuffer);
       } else if (type == DataTypes.DATE_TIME) {
-        value = getDate(length);
+        value = getDate(recordBuffer, length);
       }
       record.setValue(i, value);
     }
     return record;
   }
 
+  /**
+   * Only decode the fields required by the query and skip the records that don't match the
+   * attribute condition, see {@link RecordReaderPushdown}.
+   */
+  @Override
+  public boolean pushDown(final Query query) {
+    this.pushdown = new RecordReaderPushdown(getRecordDefinition(), query);
+    this.filterRecords = true;
+    return true;
+  }
+
   private void readRecordDefinition() throws IOException {
     this.recordDefinition = new RecordDefinitionImpl(this.typeName);
     if (this.exists) {
@@ -387,10 +465,42 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     this.closeFile = closeFile;
   }
 
+  /**
+   * Set the pushdown used to only decode the required fields. The records are not filtered, this
+   * is used by readers such as the shapefile reader that read the .dbf file and filter the
+   * records themselves.
+   *
+   * @param pushdown The pushdown created for the record definition of this reader.
+   */
+  public void setPushdown(final RecordReaderPushdown pushdown) {
+    this.pushdown = pushdown;
+    this.filterRecords = false;
+  }
+
   public void setTypeName(final PathName typeName) {
     this.typeName = typeName;
   }
 
+  /**
+   * Skip the bytes for a field that isn't required, the same number of bytes are skipped as would
+   * be read by {@link #loadRecord()}.
+   */
+  private void skipField(final ByteBuffer recordBuffer, final DataType type,
+    final int length) {
+    int skipCount = 0;
+    if (type == DataTypes.STRING) {
+      if (length < 255) {
+        skipCount = length;
+      }
+    } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT
+      || type == DataTypes.DATE_TIME) {
+      skipCount = length;
+    } else if (type == DataTypes.BOOLEAN) {
+      skipCount = 1;
+    }
+    recordBuffer.position(recordBuffer.position() + skipCount);
+  }
+
   @Override
   public String toString() {
     if (this.resource == null) {
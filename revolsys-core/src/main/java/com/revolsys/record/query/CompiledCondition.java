@@ -0,0 +1,331 @@
+package com.revolsys.record.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.jeometry.common.compare.CompareUtil;
+import org.jeometry.common.data.type.DataType;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.util.Emptyable;
+import com.revolsys.util.Property;
+
+/**
+ * <p>A {@link Condition} bound to a {@link RecordDefinition}. The condition tree is compiled once
+ * into a tree of predicates that read the field values by index, with the literal values
+ * converted to the field's {@link DataType}, <code>LIKE</code> patterns compiled and
+ * <code>IN</code> values in a hash set where the values have exact equality.</p>
+ *
+ * <p>Records with a different record definition, or any {@link MapEx}, are tested using the
+ * original condition. Conditions that can't be compiled are tested using
+ * {@link Condition#test(MapEx)} so the result is always the same as the condition.</p>
+ */
+public class CompiledCondition implements Predicate<MapEx>, Emptyable {
+
+  private static final Set<Class<?>> HASH_EQUALS_CLASSES = new HashSet<>(Arrays.asList(
+    Boolean.class, Byte.class, Short.class, Integer.class, Long.class, String.class));
+
+  /**
+   * Compile the condition for records with the record definition.
+   *
+   * @param condition The condition.
+   * @param recordDefinition The record definition.
+   * @return The compiled predicate, {@link Condition#ALL} if the condition is null or the
+   * condition if there is no record definition.
+   */
+  public static Predicate<MapEx> compile(final Condition condition,
+    final RecordDefinition recordDefinition) {
+    if (condition == null) {
+      return Condition.ALL;
+    } else if (recordDefinition == null || condition instanceof AcceptAllCondition) {
+      return condition;
+    } else {
+      return new CompiledCondition(condition, recordDefinition);
+    }
+  }
+
+  private final Condition condition;
+
+  private final Predicate<Record> predicate;
+
+  private final RecordDefinition recordDefinition;
+
+  public CompiledCondition(final Condition condition, final RecordDefinition recordDefinition) {
+    this.condition = condition;
+    this.recordDefinition = recordDefinition;
+    this.predicate = compileCondition(condition);
+  }
+
+  private Predicate<Record> compileBetween(final Between between) {
+    final int fieldIndex = getFieldIndex(between.getValue());
+    if (fieldIndex != -1) {
+      final Object min = getLiteral(between.getMin(), fieldIndex);
+      final Object max = getLiteral(between.getMax(), fieldIndex);
+      if (min == null || max == null) {
+        return record -> false;
+      } else {
+        return record -> {
+          final Object value = record.getValue(fieldIndex);
+          return value != null && CompareUtil.compare(min, value) <= 0
+            && CompareUtil.compare(max, value) >= 0;
+        };
+      }
+    }
+    return between::test;
+  }
+
+  private Predicate<Record> compileBinary(final BinaryCondition condition) {
+    final QueryValue left = condition.getLeft();
+    final QueryValue right = condition.getRight();
+    final int fieldIndex = getFieldIndex(left);
+    if (fieldIndex != -1 && right instanceof Value) {
+      if (condition instanceof Like) {
+        return compileLike(condition, (ColumnReference)left, fieldIndex, (Value)right);
+      } else if (condition instanceof ILike) {
+        return compileLike(condition, (ColumnReference)left, fieldIndex, (Value)right);
+      }
+      final Object literal = getLiteral(right, fieldIndex);
+      if (condition instanceof Equal) {
+        return record -> DataType.equal(record.getValue(fieldIndex), literal);
+      } else if (condition instanceof NotEqual) {
+        return record -> !DataType.equal(record.getValue(fieldIndex), literal);
+      } else if (condition instanceof GreaterThan) {
+        return record -> CompareUtil.compare(record.getValue(fieldIndex), literal) > 0;
+      } else if (condition instanceof GreaterThanEqual) {
+        return record -> CompareUtil.compare(record.getValue(fieldIndex), literal) >= 0;
+      } else if (condition instanceof LessThan) {
+        return record -> CompareUtil.compare(record.getValue(fieldIndex), literal) < 0;
+      } else if (condition instanceof LessThanEqual) {
+        return record -> CompareUtil.compare(record.getValue(fieldIndex), literal) <= 0;
+      }
+    }
+    return condition::test;
+  }
+
+  private Predicate<Record> compileCondition(final Condition condition) {
+    if (condition instanceof AcceptAllCondition) {
+      return record -> true;
+    } else if (condition instanceof And) {
+      final Predicate<Record>[] predicates = compileConditions((And)condition);
+      return record -> {
+        for (final Predicate<Record> predicate : predicates) {
+          if (!predicate.test(record)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    } else if (condition instanceof Or) {
+      final Predicate<Record>[] predicates = compileConditions((Or)condition);
+      if (predicates.length == 0) {
+        return record -> true;
+      } else {
+        return record -> {
+          for (final Predicate<Record> predicate : predicates) {
+            if (predicate.test(record)) {
+              return true;
+            }
+          }
+          return false;
+        };
+      }
+    } else if (condition instanceof Not) {
+      final Condition notCondition = ((Not)condition).getValue();
+      final Predicate<Record> predicate = compileCondition(notCondition);
+      return predicate.negate();
+    } else if (condition instanceof BinaryCondition) {
+      return compileBinary((BinaryCondition)condition);
+    } else if (condition instanceof In) {
+      return compileIn((In)condition);
+    } else if (condition instanceof Between) {
+      return compileBetween((Between)condition);
+    } else if (condition instanceof IsNull || condition instanceof IsNotNull) {
+      final RightUnaryCondition unaryCondition = (RightUnaryCondition)condition;
+      final int fieldIndex = getFieldIndex(unaryCondition.getValue());
+      if (fieldIndex != -1) {
+        if (condition instanceof IsNull) {
+          return record -> record.getValue(fieldIndex) == null;
+        } else {
+          return record -> record.getValue(fieldIndex) != null;
+        }
+      }
+    }
+    return condition::test;
+  }
+
+  /**
+   * Compile the child conditions, nested non-empty conditions of the same type are flattened.
+   */
+  @SuppressWarnings("unchecked")
+  private Predicate<Record>[] compileConditions(final AbstractMultiCondition multiCondition) {
+    final List<Predicate<Record>> predicates = new ArrayList<>();
+    for (final Condition condition : multiCondition.getConditions()) {
+      if (condition.getClass() == multiCondition.getClass() && !condition.isEmpty()) {
+        final Predicate<Record>[] childPredicates = compileConditions(
+          (AbstractMultiCondition)condition);
+        predicates.addAll(Arrays.asList(childPredicates));
+      } else {
+        predicates.add(compileCondition(condition));
+      }
+    }
+    return predicates.toArray(new Predicate[predicates.size()]);
+  }
+
+  private Predicate<Record> compileIn(final In in) {
+    final int fieldIndex = getFieldIndex(in.getLeft());
+    final QueryValue right = in.getRight();
+    if (fieldIndex != -1 && right instanceof CollectionValue) {
+      final List<Object> values = new ArrayList<>();
+      for (final Object value : ((CollectionValue)right).getValues()) {
+        values.add(toFieldType(value, fieldIndex));
+      }
+      final Object[] valueArray = values.toArray();
+      final Predicate<Record> scanPredicate = record -> {
+        final Object value = record.getValue(fieldIndex);
+        for (final Object inValue : valueArray) {
+          if (DataType.equal(value, inValue)) {
+            return true;
+          }
+        }
+        return false;
+      };
+      if (values.isEmpty()) {
+        return record -> false;
+      } else {
+        final Class<?> valueClass = values.get(0).getClass();
+        if (HASH_EQUALS_CLASSES.contains(valueClass)) {
+          for (final Object value : values) {
+            if (value.getClass() != valueClass) {
+              return scanPredicate;
+            }
+          }
+          final Set<Object> valueSet = new HashSet<>(values);
+          return record -> {
+            final Object value = record.getValue(fieldIndex);
+            if (value == null) {
+              return false;
+            } else if (value.getClass() == valueClass) {
+              return valueSet.contains(value);
+            } else {
+              return scanPredicate.test(record);
+            }
+          };
+        } else {
+          return scanPredicate;
+        }
+      }
+    }
+    return in::test;
+  }
+
+  private Predicate<Record> compileLike(final BinaryCondition condition,
+    final ColumnReference column, final int fieldIndex, final Value right) {
+    final boolean ignoreCase = condition instanceof ILike;
+    String likeValue = right.getStringValue(null);
+    final Function<Record, String> stringValue;
+    if (ignoreCase) {
+      stringValue = record -> {
+        final String string = column.toString(record.getValue(fieldIndex));
+        if (string == null) {
+          return null;
+        } else {
+          return string.toUpperCase();
+        }
+      };
+    } else {
+      stringValue = record -> column.toString(record.getValue(fieldIndex));
+    }
+    if (!Property.hasValue(likeValue)) {
+      return record -> !Property.hasValue(stringValue.apply(record));
+    } else {
+      if (ignoreCase) {
+        likeValue = likeValue.toUpperCase();
+      }
+      if (likeValue.contains("%")) {
+        final Pattern pattern = Pattern.compile(Like.toPattern(likeValue));
+        return record -> {
+          final String value = stringValue.apply(record);
+          return Property.hasValue(value) && pattern.matcher(value).matches();
+        };
+      } else {
+        final String equalValue = likeValue;
+        return record -> {
+          final String value = stringValue.apply(record);
+          return Property.hasValue(value) && DataType.equal(value, equalValue);
+        };
+      }
+    }
+  }
+
+  public Condition getCondition() {
+    return this.condition;
+  }
+
+  private int getFieldIndex(final QueryValue value) {
+    if (value instanceof Column || value instanceof FieldDefinition) {
+      final String name = ((ColumnReference)value).getName();
+      return this.recordDefinition.getFieldIndex(name);
+    } else {
+      return -1;
+    }
+  }
+
+  private Object getLiteral(final QueryValue queryValue, final int fieldIndex) {
+    final Object value = queryValue.getValue(null);
+    return toFieldType(value, fieldIndex);
+  }
+
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.condition.isEmpty();
+  }
+
+  @Override
+  public boolean test(final MapEx record) {
+    if (record instanceof Record) {
+      final Record fieldRecord = (Record)record;
+      if (fieldRecord.getRecordDefinition() == this.recordDefinition) {
+        return this.predicate.test(fieldRecord);
+      }
+    }
+    return this.condition.test(record);
+  }
+
+  /**
+   * Convert the value to the field's data type. If the value can't be converted the original
+   * value is returned so the comparison is the same as the condition.
+   */
+  private Object toFieldType(final Object value, final int fieldIndex) {
+    if (value != null) {
+      final DataType dataType = this.recordDefinition.getFieldType(fieldIndex);
+      if (dataType != null) {
+        try {
+          final Object fieldValue = dataType.toObject(value);
+          if (fieldValue != null) {
+            return fieldValue;
+          }
+        } catch (final RuntimeException e) {
+        }
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return this.condition.toString();
+  }
+}
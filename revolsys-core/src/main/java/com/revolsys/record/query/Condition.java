@@ -3,6 +3,7 @@ package com.revolsys.record.query;
 import java.util.function.Predicate;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Emptyable;
 import com.revolsys.util.Property;
 
@@ -25,6 +26,18 @@ public interface Condition extends QueryValue, Predicate<MapEx>, Emptyable {
   @Override
   Condition clone(TableReference oldTable, TableReference newTable);
 
+  /**
+   * Compile the condition to a predicate for records with the record definition. The fields are
+   * resolved to indexes and the literal values converted to the field types once.
+   *
+   * @param recordDefinition The record definition.
+   * @return The predicate.
+   * @see CompiledCondition
+   */
+  default Predicate<MapEx> compile(final RecordDefinition recordDefinition) {
+    return CompiledCondition.compile(this, recordDefinition);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   default <V> V getValue(final MapEx record) {
@@ -68,6 +68,10 @@ public class Count extends AbstractUnaryQueryValue {
     }
   }
 
+  public boolean isDistinct() {
+    return this.distinct;
+  }
+
   public Count setDistinct(final boolean distinct) {
     this.distinct = distinct;
     return this;
@@ -0,0 +1,350 @@
+package com.revolsys.record.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.jeometry.common.compare.CompareUtil;
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.functions.Max;
+import com.revolsys.record.query.functions.Min;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+/**
+ * <p>Hash aggregate records for the <code>GROUP BY</code> and the {@link Count}, {@link Max} and
+ * {@link Min} functions in the <code>SELECT</code> of a {@link Query}.</p>
+ *
+ * <p>The records are grouped by the values of the group by columns. Each group has one
+ * accumulator per select value, the group is only as large as the select list so the input
+ * records don't need to fit in memory. The groups are returned in the order they were first
+ * seen. If there are aggregate functions and no group by all the records are in a single
+ * group.</p>
+ *
+ * <p>Aggregates without an alias are named after the function and column (e.g.
+ * <code>max_length</code>), or just the function for <code>count(*)</code>. If a name is used
+ * more than once the later fields have a _2, _3 ... suffix.</p>
+ */
+public class GroupByAggregator {
+
+  private static abstract class Accumulator {
+    public abstract void add(MapEx record);
+
+    public abstract Object getResult();
+  }
+
+  private static class CountAccumulator extends Accumulator {
+    private long count;
+
+    private final Set<Object> distinctValues;
+
+    private final QueryValue value;
+
+    public CountAccumulator(final QueryValue value, final boolean distinct) {
+      this.value = value;
+      if (distinct) {
+        this.distinctValues = new HashSet<>();
+      } else {
+        this.distinctValues = null;
+      }
+    }
+
+    @Override
+    public void add(final MapEx record) {
+      if (this.value == null) {
+        this.count++;
+      } else {
+        final Object value = this.value.getValue(record);
+        if (value != null) {
+          if (this.distinctValues == null || this.distinctValues.add(value)) {
+            this.count++;
+          }
+        }
+      }
+    }
+
+    @Override
+    public Object getResult() {
+      return this.count;
+    }
+  }
+
+  private static class FirstValueAccumulator extends Accumulator {
+    private boolean first = true;
+
+    private Object result;
+
+    private final QueryValue value;
+
+    public FirstValueAccumulator(final QueryValue value) {
+      this.value = value;
+    }
+
+    @Override
+    public void add(final MapEx record) {
+      if (this.first) {
+        this.result = this.value.getValue(record);
+        this.first = false;
+      }
+    }
+
+    @Override
+    public Object getResult() {
+      return this.result;
+    }
+  }
+
+  private static class MaxMinAccumulator extends Accumulator {
+    private Object result;
+
+    private final int sign;
+
+    private final QueryValue value;
+
+    public MaxMinAccumulator(final QueryValue value, final int sign) {
+      this.value = value;
+      this.sign = sign;
+    }
+
+    @Override
+    public void add(final MapEx record) {
+      final Object value = this.value.getValue(record);
+      if (value != null) {
+        if (this.result == null || CompareUtil.compare(value, this.result) * this.sign > 0) {
+          this.result = value;
+        }
+      }
+    }
+
+    @Override
+    public Object getResult() {
+      return this.result;
+    }
+  }
+
+  private static String getAggregateName(final String functionName,
+    final QueryValue parameter) {
+    if (parameter instanceof ColumnReference && !isCountAll(parameter)) {
+      return functionName + "_" + ((ColumnReference)parameter).getName();
+    } else {
+      return functionName;
+    }
+  }
+
+  private static String getUniqueName(final Set<String> names, final String name) {
+    String uniqueName = name;
+    for (int i = 2; !names.add(uniqueName); i++) {
+      uniqueName = name + "_" + i;
+    }
+    return uniqueName;
+  }
+
+  /**
+   * Check if the query has a group by or aggregate functions in the select.
+   *
+   * @param query The query.
+   * @return True if the query results must be aggregated.
+   */
+  public static boolean isAggregate(final Query query) {
+    if (!query.getGroupBy().isEmpty()) {
+      return true;
+    } else {
+      for (final QueryValue selectValue : query.getSelect()) {
+        final QueryValue value = unwrapAlias(selectValue);
+        if (value instanceof Count || value instanceof Max || value instanceof Min) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static boolean isCountAll(final QueryValue value) {
+    if (value == null || value instanceof AllColumns || value instanceof Value) {
+      return true;
+    } else if (value instanceof ColumnReference) {
+      return "*".equals(((ColumnReference)value).getName());
+    } else {
+      return false;
+    }
+  }
+
+  private static QueryValue unwrapAlias(final QueryValue value) {
+    if (value instanceof SelectAlias) {
+      return ((SelectAlias)value).getValue();
+    } else {
+      return value;
+    }
+  }
+
+  private final List<Supplier<Accumulator>> accumulatorFactories = new ArrayList<>();
+
+  private final Map<Object, Accumulator[]> groups = new LinkedHashMap<>();
+
+  private final QueryValue[] groupBy;
+
+  private final RecordDefinition recordDefinition;
+
+  private final RecordDefinition sourceRecordDefinition;
+
+  /**
+   * Construct a new aggregator for the select and group by of the query.
+   *
+   * @param sourceRecordDefinition The record definition of the records to aggregate.
+   * @param query The query.
+   * @throws IllegalArgumentException If a select value is not a column, {@link Count},
+   * {@link Max} or {@link Min}.
+   */
+  public GroupByAggregator(final RecordDefinition sourceRecordDefinition, final Query query) {
+    this.sourceRecordDefinition = sourceRecordDefinition;
+    final List<QueryValue> groupBy = query.getGroupBy();
+    this.groupBy = groupBy.toArray(new QueryValue[groupBy.size()]);
+    List<QueryValue> select = query.getSelect();
+    if (select.isEmpty()) {
+      select = groupBy;
+    }
+    final RecordDefinitionBuilder builder = new RecordDefinitionBuilder(
+      sourceRecordDefinition.getPathName());
+    final Set<String> fieldNames = new HashSet<>();
+    for (final QueryValue selectValue : select) {
+      final QueryValue value = unwrapAlias(selectValue);
+      final String name;
+      final DataType dataType;
+      final Supplier<Accumulator> accumulatorFactory;
+      if (value instanceof Count) {
+        final Count count = (Count)value;
+        final QueryValue countValue = count.getValue();
+        name = getAggregateName("count", countValue);
+        dataType = DataTypes.LONG;
+        if (isCountAll(countValue)) {
+          accumulatorFactory = () -> new CountAccumulator(null, false);
+        } else {
+          final boolean distinct = count.isDistinct();
+          accumulatorFactory = () -> new CountAccumulator(countValue, distinct);
+        }
+      } else if (value instanceof Max) {
+        final QueryValue parameter = ((Max)value).getParameter();
+        name = getAggregateName("max", parameter);
+        dataType = getDataType(parameter);
+        accumulatorFactory = () -> new MaxMinAccumulator(parameter, 1);
+      } else if (value instanceof Min) {
+        final QueryValue parameter = ((Min)value).getParameter();
+        name = getAggregateName("min", parameter);
+        dataType = getDataType(parameter);
+        accumulatorFactory = () -> new MaxMinAccumulator(parameter, -1);
+      } else if (value instanceof ColumnReference) {
+        name = ((ColumnReference)value).getAliasName();
+        dataType = getDataType(value);
+        accumulatorFactory = () -> new FirstValueAccumulator(value);
+      } else {
+        throw new IllegalArgumentException("Unsupported select value for group by: " + value);
+      }
+      final String fieldName;
+      if (selectValue instanceof SelectAlias) {
+        fieldName = ((SelectAlias)selectValue).getAlias();
+      } else {
+        fieldName = name;
+      }
+      builder.addField(getUniqueName(fieldNames, fieldName), dataType);
+      this.accumulatorFactories.add(accumulatorFactory);
+    }
+    this.recordDefinition = builder.getRecordDefinition();
+  }
+
+  public void add(final MapEx record) {
+    final Object key = getKey(record);
+    Accumulator[] accumulators = this.groups.get(key);
+    if (accumulators == null) {
+      accumulators = newAccumulators();
+      this.groups.put(key, accumulators);
+    }
+    for (final Accumulator accumulator : accumulators) {
+      accumulator.add(record);
+    }
+  }
+
+  public void addAll(final Iterable<? extends MapEx> records) {
+    for (final MapEx record : records) {
+      add(record);
+    }
+  }
+
+  private DataType getDataType(final QueryValue value) {
+    if (value instanceof ColumnReference) {
+      final String name = ((ColumnReference)value).getName();
+      final int fieldIndex = this.sourceRecordDefinition.getFieldIndex(name);
+      if (fieldIndex != -1) {
+        return this.sourceRecordDefinition.getFieldType(fieldIndex);
+      }
+    }
+    return DataTypes.OBJECT;
+  }
+
+  public int getGroupCount() {
+    return this.groups.size();
+  }
+
+  private Object getKey(final MapEx record) {
+    final QueryValue[] groupBy = this.groupBy;
+    if (groupBy.length == 0) {
+      return null;
+    } else if (groupBy.length == 1) {
+      return groupBy[0].getValue(record);
+    } else {
+      final Object[] values = new Object[groupBy.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = groupBy[i].getValue(record);
+      }
+      return Arrays.asList(values);
+    }
+  }
+
+  public RecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  /**
+   * Get a record for each group with the aggregated select values. With no group by there is
+   * always one record, even if no records were added.
+   *
+   * @return The records.
+   */
+  public List<Record> getRecords() {
+    if (this.groupBy.length == 0 && this.groups.isEmpty()) {
+      this.groups.put(null, newAccumulators());
+    }
+    final List<Record> records = new ArrayList<>(this.groups.size());
+    for (final Accumulator[] accumulators : this.groups.values()) {
+      final Record record = new ArrayRecord(this.recordDefinition);
+      for (int i = 0; i < accumulators.length; i++) {
+        final Object value = accumulators[i].getResult();
+        record.setValue(i, value);
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private Accumulator[] newAccumulators() {
+    final Accumulator[] accumulators = new Accumulator[this.accumulatorFactories.size()];
+    for (int i = 0; i < accumulators.length; i++) {
+      accumulators[i] = this.accumulatorFactories.get(i).get();
+    }
+    return accumulators;
+  }
+
+  @Override
+  public String toString() {
+    return "GROUP BY " + Arrays.toString(this.groupBy) + " " + this.recordDefinition.getPathName();
+  }
+}
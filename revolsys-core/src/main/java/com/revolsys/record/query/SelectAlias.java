@@ -84,6 +84,10 @@ public class SelectAlias implements QueryValue {
     return false;
   }
 
+  public String getAlias() {
+    return this.alias;
+  }
+
   @Override
   public int getFieldIndex() {
     return this.value.getFieldIndex();
@@ -100,6 +104,11 @@ public class SelectAlias implements QueryValue {
     return this.value.getValue(record);
   }
 
+  @SuppressWarnings("unchecked")
+  public <V extends QueryValue> V getValue() {
+    return (V)this.value;
+  }
+
   @Override
   public Object getValueFromResultSet(final ResultSet resultSet, final ColumnIndexes indexes,
     final boolean internStrings) throws SQLException {
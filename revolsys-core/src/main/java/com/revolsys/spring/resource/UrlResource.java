@@ -12,6 +12,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.util.Map;
@@ -544,6 +545,15 @@ public class UrlResource extends AbstractResource {
     }
   }
 
+  @Override
+  public ChannelReader newChannelReader(final int capacity, final ByteOrder byteOrder) {
+    if (getProtocol().startsWith("http")) {
+      return new HttpChannelReader(this.url, capacity, byteOrder);
+    } else {
+      return super.newChannelReader(capacity, byteOrder);
+    }
+  }
+
   @Override
   public UrlResource newChildResource(final CharSequence childPath) {
     return createRelative(childPath.toString());
@@ -38,6 +38,29 @@ public class DoubleStatistics {
     this.mean = this.sum / this.count;
   }
 
+  /**
+   * Add the count, sum, min and max calculated for a set of values.
+   *
+   * @param count The number of values.
+   * @param sum The sum of the values.
+   * @param min The minimum value.
+   * @param max The maximum value.
+   */
+  public synchronized void addValues(final int count, final double sum, final double min,
+    final double max) {
+    if (count > 0) {
+      this.count += count;
+      this.sum += sum;
+      if (min < this.min) {
+        this.min = min;
+      }
+      if (max > this.max) {
+        this.max = max;
+      }
+      this.mean = this.sum / this.count;
+    }
+  }
+
   public int getCount() {
     return this.count;
   }
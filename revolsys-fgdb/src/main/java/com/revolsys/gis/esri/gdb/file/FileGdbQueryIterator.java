@@ -1,5 +1,6 @@
 package com.revolsys.gis.esri.gdb.file;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.jeometry.common.logging.Logs;
@@ -14,6 +15,7 @@ import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.RecordState;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordReaderPushdown;
 import com.revolsys.record.query.Query;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
@@ -32,6 +34,8 @@ public class FileGdbQueryIterator extends AbstractIterator<Record> implements Re
 
   private int offset;
 
+  private RecordReaderPushdown pushdown;
+
   private RecordDefinition recordDefinition;
 
   private RecordFactory<Record> recordFactory;
@@ -156,7 +160,11 @@ public class FileGdbQueryIterator extends AbstractIterator<Record> implements Re
           this.labelCountMap.addCount(record);
         }
         record.setState(RecordState.INITIALIZING);
+        final RecordReaderPushdown pushdown = this.pushdown;
         for (final FieldDefinition field : this.recordDefinition.getFields()) {
+          if (pushdown != null && !pushdown.isFieldRequired(field.getIndex())) {
+            continue;
+          }
           final String name = field.getName();
           final AbstractFileGdbFieldDefinition esriFieldDefinition = (AbstractFileGdbFieldDefinition)field;
           final Object value = esriFieldDefinition.getValue(row);
@@ -225,6 +233,29 @@ public class FileGdbQueryIterator extends AbstractIterator<Record> implements Re
     }
   }
 
+  /**
+   * Only read the fields required by the query from the table, and use the query's bounding box
+   * for the spatial filter if the iterator doesn't have a bounding box. Not supported for SQL
+   * SELECT queries or after the first record has been read.
+   */
+  @Override
+  public synchronized boolean pushDown(final Query query) {
+    if (this.recordDefinition == null || this.rows != null || this.sql.startsWith("SELECT")) {
+      return false;
+    } else {
+      final RecordReaderPushdown pushdown = new RecordReaderPushdown(this.recordDefinition, query);
+      if (this.boundingBox == null) {
+        setBoundingBox(pushdown.getBoundingBox());
+      }
+      final List<String> fieldNames = pushdown.getFieldNames();
+      if (!pushdown.isAllFields() && !fieldNames.isEmpty()) {
+        this.fields = Strings.toString(fieldNames);
+        this.pushdown = pushdown;
+      }
+      return true;
+    }
+  }
+
   public void setBoundingBox(final BoundingBox boundingBox) {
     final RecordDefinition recordDefinition = this.recordDefinition;
     if (recordDefinition != null) {
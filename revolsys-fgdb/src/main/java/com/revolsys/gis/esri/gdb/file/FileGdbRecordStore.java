@@ -763,6 +763,7 @@ public class FileGdbRecordStore extends AbstractRecordStore {
     final FileGdbQueryIterator iterator = new FileGdbQueryIterator(this, fileGdbRecordDefinition,
       sql.toString(), boundingBox, query, query.getOffset(), query.getLimit());
     iterator.setStatistics(query.getStatistics());
+    iterator.pushDown(query);
     return iterator;
   }
 
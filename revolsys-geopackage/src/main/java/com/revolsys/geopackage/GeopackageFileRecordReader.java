@@ -5,17 +5,26 @@ import java.util.Iterator;
 import java.util.List;
 
 import com.revolsys.collection.map.MapEx;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.ClockDirection;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordReaderPushdown;
 import com.revolsys.record.io.RecordStoreQueryReader;
+import com.revolsys.record.query.ColumnReference;
+import com.revolsys.record.query.Equal;
+import com.revolsys.record.query.Q;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.query.Value;
+import com.revolsys.record.query.functions.F;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.spring.resource.Resource;
 
 public class GeopackageFileRecordReader implements RecordReader {
 
+  private final List<Query> queries = new ArrayList<>();
+
   private final GeoPackageRecordStore recordStore;
 
   private final RecordStoreQueryReader reader;
@@ -25,7 +34,7 @@ public class GeopackageFileRecordReader implements RecordReader {
     this.recordStore = GeoPackage.openRecordStore(resource);
     this.recordStore.setProperties(properties);
     this.recordStore.initialize();
-    final List<Query> queries = new ArrayList<>();
+    final List<Query> queries = this.queries;
     for (final RecordDefinition recordDefinition : this.recordStore.getRootSchema()
       .getRecordDefinitions()) {
       final Query query = new Query(recordDefinition)//
@@ -81,4 +90,26 @@ public class GeopackageFileRecordReader implements RecordReader {
     this.reader.open();
   }
 
+  /**
+   * Add the bounding box and equal conditions of the query to the query for each table, the
+   * bounding box is applied by the database using the table's R-tree spatial index.
+   */
+  @Override
+  public boolean pushDown(final Query query) {
+    for (final Query tableQuery : this.queries) {
+      final RecordDefinition recordDefinition = tableQuery.getRecordDefinition();
+      final RecordReaderPushdown pushdown = new RecordReaderPushdown(recordDefinition, query);
+      final BoundingBox boundingBox = pushdown.getBoundingBox();
+      if (boundingBox != null && recordDefinition.hasGeometryField()) {
+        F.envelopeIntersects(tableQuery, boundingBox);
+      }
+      for (final Equal equal : pushdown.getEqualConditions()) {
+        final String name = ((ColumnReference)equal.getLeft()).getName();
+        final Object value = ((Value)equal.getRight()).getValue();
+        tableQuery.and(Q.equal(recordDefinition.getField(name), value));
+      }
+    }
+    return true;
+  }
+
 }
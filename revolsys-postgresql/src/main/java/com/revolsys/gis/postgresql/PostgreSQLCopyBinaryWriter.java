@@ -0,0 +1,626 @@
+package com.revolsys.gis.postgresql;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.date.Dates;
+import org.jeometry.common.logging.Logs;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import com.revolsys.collection.map.Maps;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * Write records to a table using the PostgreSQL
+ * <code>COPY ... FROM STDIN (FORMAT BINARY)</code> protocol. The values are encoded directly in
+ * the binary format of the column's PostgreSQL type and geometries are written as EWKB, so there
+ * is no conversion to and parsing of text.
+ *
+ * The encoders are selected using the column type names returned by the database. If a column
+ * has a type that can't be encoded {@link #newCopyWriter(JdbcConnection, JdbcRecordDefinition, boolean)}
+ * returns null and insert statements must be used instead.
+ *
+ * The records written since {@link #start()} are kept until {@link #finish()} so if the copy
+ * fails they can be inserted using statements. If the connection isn't in auto commit mode a
+ * savepoint is set when the copy is started, so a failed copy only discards its own records and
+ * not the earlier statements in the transaction.
+ */
+public class PostgreSQLCopyBinaryWriter {
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private static final byte[] HEADER = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0, // Signature
+    0, 0, 0, 0, // Flags
+    0, 0, 0, 0 // Header extension length
+  };
+
+  private static final short NUMERIC_NAN = (short)0xC000;
+
+  private static final short NUMERIC_NEGATIVE = 0x4000;
+
+  private static final short NUMERIC_POSITIVE = 0x0000;
+
+  /** Days from 1970-01-01 to the PostgreSQL epoch 2000-01-01. */
+  private static final long POSTGRESQL_EPOCH_DAYS = 10957;
+
+  private static final long POSTGRESQL_EPOCH_SECONDS = POSTGRESQL_EPOCH_DAYS * 86400;
+
+  private static final Map<String, ValueWriter> WRITER_BY_TYPE = Maps
+    .<String, ValueWriter> buildHash() //
+    .add("bool", PostgreSQLCopyBinaryWriter::writeBoolean)
+    .add("bpchar", PostgreSQLCopyBinaryWriter::writeText)
+    .add("bytea", PostgreSQLCopyBinaryWriter::writeBytes)
+    .add("citext", PostgreSQLCopyBinaryWriter::writeText)
+    .add("date", PostgreSQLCopyBinaryWriter::writeDate)
+    .add("float4", PostgreSQLCopyBinaryWriter::writeFloat)
+    .add("float8", PostgreSQLCopyBinaryWriter::writeDouble)
+    .add("geometry", PostgreSQLCopyBinaryWriter::writeGeometry)
+    .add("int2", PostgreSQLCopyBinaryWriter::writeShort)
+    .add("int4", PostgreSQLCopyBinaryWriter::writeInt)
+    .add("int8", PostgreSQLCopyBinaryWriter::writeLong)
+    .add("json", PostgreSQLCopyBinaryWriter::writeText)
+    .add("jsonb", PostgreSQLCopyBinaryWriter::writeJsonb)
+    .add("name", PostgreSQLCopyBinaryWriter::writeText)
+    .add("numeric", PostgreSQLCopyBinaryWriter::writeNumeric)
+    .add("text", PostgreSQLCopyBinaryWriter::writeText)
+    .add("timestamp", PostgreSQLCopyBinaryWriter::writeTimestamp)
+    .add("timestamptz", PostgreSQLCopyBinaryWriter::writeTimestampTz)
+    .add("uuid", PostgreSQLCopyBinaryWriter::writeUuid)
+    .add("varchar", PostgreSQLCopyBinaryWriter::writeText)
+    .getMap();
+
+  private static void appendZeros(final StringBuilder digits, final int count) {
+    for (int i = 0; i < count; i++) {
+      digits.append('0');
+    }
+  }
+
+  /**
+   * Encode the value in the PostgreSQL numeric binary format. Double, float and string NaN
+   * values are encoded as the numeric NaN, other values are converted to a {@link BigDecimal}.
+   *
+   * @param value The value.
+   * @return The numeric bytes.
+   */
+  static byte[] encodeNumeric(final Object value) {
+    if (isNaN(value)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(8);
+      buffer.putShort((short)0);
+      buffer.putShort((short)0);
+      buffer.putShort(NUMERIC_NAN);
+      buffer.putShort((short)0);
+      return buffer.array();
+    } else {
+      final BigDecimal number = DataTypes.DECIMAL.toObject(value);
+      return encodeNumeric(number);
+    }
+  }
+
+  /**
+   * Encode the value in the PostgreSQL numeric binary format. The digits are stored in base
+   * 10000 with the weight being the base 10000 exponent of the first digit.
+   *
+   * @param value The value.
+   * @return The numeric bytes.
+   */
+  static byte[] encodeNumeric(final BigDecimal value) {
+    final int scale = value.scale();
+    final short sign;
+    if (value.signum() < 0) {
+      sign = NUMERIC_NEGATIVE;
+    } else {
+      sign = NUMERIC_POSITIVE;
+    }
+    final String unscaledDigits = value.unscaledValue().abs().toString();
+    final int fractionDigitCount = Math.max(scale, 0);
+    final int integerDigitCount = Math.max(unscaledDigits.length() - scale, 0);
+
+    // Pad the integer and fraction parts so they are multiples of 4 decimal digits
+    final int integerPadding = (4 - integerDigitCount % 4) % 4;
+    final int fractionPadding = (4 - fractionDigitCount % 4) % 4;
+    final StringBuilder digits = new StringBuilder();
+    appendZeros(digits, integerPadding);
+    appendZeros(digits, scale - unscaledDigits.length());
+    digits.append(unscaledDigits);
+    appendZeros(digits, -scale);
+    appendZeros(digits, fractionPadding);
+
+    final int digitCount = digits.length() / 4;
+    int weight = (integerDigitCount + integerPadding) / 4 - 1;
+    int firstIndex = 0;
+    while (firstIndex < digitCount && getNumericDigit(digits, firstIndex) == 0) {
+      firstIndex++;
+      weight--;
+    }
+    int lastIndex = digitCount - 1;
+    while (lastIndex >= firstIndex && getNumericDigit(digits, lastIndex) == 0) {
+      lastIndex--;
+    }
+    final int nonZeroDigitCount = lastIndex - firstIndex + 1;
+    if (nonZeroDigitCount == 0) {
+      weight = 0;
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(8 + nonZeroDigitCount * 2);
+    buffer.putShort((short)nonZeroDigitCount);
+    buffer.putShort((short)weight);
+    buffer.putShort(sign);
+    buffer.putShort((short)fractionDigitCount);
+    for (int i = firstIndex; i <= lastIndex; i++) {
+      buffer.putShort(getNumericDigit(digits, i));
+    }
+    return buffer.array();
+  }
+
+  private static short getNumericDigit(final CharSequence digits, final int digitIndex) {
+    int digit = 0;
+    final int offset = digitIndex * 4;
+    for (int i = 0; i < 4; i++) {
+      digit = digit * 10 + digits.charAt(offset + i) - '0';
+    }
+    return (short)digit;
+  }
+
+  private static boolean isNaN(final Object value) {
+    if (value instanceof Double) {
+      return ((Double)value).isNaN();
+    } else if (value instanceof Float) {
+      return ((Float)value).isNaN();
+    } else if (value instanceof CharSequence) {
+      return "NaN".equalsIgnoreCase(value.toString());
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Construct a new writer for the table.
+   *
+   * @param connection The connection.
+   * @param recordDefinition The table's record definition.
+   * @param quoteColumnNames Flag indicating if the column names must be quoted.
+   * @return The writer or null if the table has a column that can't be written using COPY.
+   * @throws SQLException If the column types could not be read.
+   */
+  public static PostgreSQLCopyBinaryWriter newCopyWriter(final JdbcConnection connection,
+    final JdbcRecordDefinition recordDefinition, final boolean quoteColumnNames)
+    throws SQLException {
+    final List<JdbcFieldDefinition> fields = new ArrayList<>();
+    final StringBuilder columnNames = new StringBuilder();
+    for (final FieldDefinition fieldDefinition : recordDefinition.getFields()) {
+      final JdbcFieldDefinition field = (JdbcFieldDefinition)fieldDefinition;
+      if (!field.isGenerated()) {
+        if (!fields.isEmpty()) {
+          columnNames.append(',');
+        }
+        field.appendColumnName(columnNames, quoteColumnNames);
+        fields.add(field);
+      }
+    }
+    final String tableName = recordDefinition.getDbTableQualifiedName();
+
+    final String selectSql = "SELECT " + columnNames + " FROM " + tableName + " LIMIT 0";
+    final List<ValueWriter> writers = new ArrayList<>();
+    try (
+      PreparedStatement statement = connection.prepareStatement(selectSql);
+      ResultSet resultSet = statement.executeQuery()) {
+      final ResultSetMetaData metaData = resultSet.getMetaData();
+      for (int i = 0; i < fields.size(); i++) {
+        final String typeName = metaData.getColumnTypeName(i + 1);
+        final ValueWriter writer = WRITER_BY_TYPE.get(typeName);
+        if (writer == null) {
+          Logs.debug(PostgreSQLCopyBinaryWriter.class, "COPY not supported for " + tableName + "."
+            + fields.get(i).getDbName() + " of type " + typeName);
+          return null;
+        } else {
+          writers.add(writer);
+        }
+      }
+    }
+    final String copySql = "COPY " + tableName + " (" + columnNames
+      + ") FROM STDIN (FORMAT BINARY)";
+    return new PostgreSQLCopyBinaryWriter(connection, recordDefinition, copySql, fields, writers);
+  }
+
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  private final JdbcConnection connection;
+
+  private CopyIn copyIn;
+
+  private final JdbcFieldDefinition[] fields;
+
+  private final JdbcRecordDefinition recordDefinition;
+
+  private final List<Record> records = new ArrayList<>();
+
+  private Savepoint savepoint;
+
+  private final String sql;
+
+  private final ValueWriter[] writers;
+
+  PostgreSQLCopyBinaryWriter(final JdbcConnection connection,
+    final JdbcRecordDefinition recordDefinition, final String sql,
+    final List<JdbcFieldDefinition> fields, final List<ValueWriter> writers) {
+    this.connection = connection;
+    this.recordDefinition = recordDefinition;
+    this.sql = sql;
+    this.fields = fields.toArray(new JdbcFieldDefinition[fields.size()]);
+    this.writers = writers.toArray(new ValueWriter[writers.size()]);
+  }
+
+  /**
+   * Cancel the copy, the records written since {@link #start()} are discarded by the server and
+   * the transaction is rolled back to the savepoint set by {@link #start()}. The records are
+   * kept and can be got using {@link #removeRecords()}.
+   */
+  public void cancel() {
+    final CopyIn copyIn = this.copyIn;
+    if (copyIn != null) {
+      this.copyIn = null;
+      try {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      } catch (final SQLException e) {
+        Logs.debug(this, "Error cancelling copy: " + this.sql, e);
+      }
+    }
+    final Savepoint savepoint = this.savepoint;
+    if (savepoint != null) {
+      this.savepoint = null;
+      try {
+        this.connection.rollback(savepoint);
+      } catch (final SQLException e) {
+        Logs.error(this, "Error rolling back copy: " + this.sql, e);
+      }
+    }
+  }
+
+  private void ensureCapacity(final int byteCount) throws SQLException {
+    if (this.buffer.remaining() < byteCount) {
+      sendBuffer();
+      if (this.buffer.capacity() < byteCount) {
+        this.buffer = ByteBuffer.allocate(byteCount);
+      }
+    }
+  }
+
+  /**
+   * Write the trailer and end the copy. If the copy fails it is cancelled using
+   * {@link #cancel()}.
+   *
+   * @return The number of records written.
+   * @throws SQLException If the copy could not be completed.
+   */
+  public long finish() throws SQLException {
+    final CopyIn copyIn = this.copyIn;
+    if (copyIn == null) {
+      return 0;
+    } else {
+      try {
+        ensureCapacity(2);
+        this.buffer.putShort((short)-1);
+        sendBuffer();
+        this.copyIn = null;
+        final long count = copyIn.endCopy();
+        final Savepoint savepoint = this.savepoint;
+        if (savepoint != null) {
+          this.savepoint = null;
+          this.connection.releaseSavepoint(savepoint);
+        }
+        this.records.clear();
+        return count;
+      } catch (final SQLException | RuntimeException e) {
+        this.copyIn = copyIn;
+        cancel();
+        throw e;
+      } finally {
+        if (this.buffer.capacity() > BUFFER_SIZE) {
+          this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of records written since {@link #start()} that haven't been sent to the
+   * database using {@link #finish()}.
+   *
+   * @return The number of records.
+   */
+  public int getRecordCount() {
+    return this.records.size();
+  }
+
+  public JdbcRecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  public String getSql() {
+    return this.sql;
+  }
+
+  public boolean isActive() {
+    return this.copyIn != null;
+  }
+
+  protected CopyIn newCopyIn() throws SQLException {
+    final PGConnection pgConnection = this.connection.unwrap(PGConnection.class);
+    return pgConnection.getCopyAPI().copyIn(this.sql);
+  }
+
+  private void putBytes(final byte[] bytes) throws SQLException {
+    final int length = bytes.length;
+    if (length > BUFFER_SIZE) {
+      ensureCapacity(4);
+      this.buffer.putInt(length);
+      sendBuffer();
+      this.copyIn.writeToCopy(bytes, 0, length);
+    } else {
+      ensureCapacity(4 + length);
+      this.buffer.putInt(length);
+      this.buffer.put(bytes);
+    }
+  }
+
+  /**
+   * Remove and return the records written since {@link #start()} that haven't been sent to the
+   * database using {@link #finish()}. Used to insert the records of a cancelled copy using
+   * statements.
+   *
+   * @return The records.
+   */
+  public List<Record> removeRecords() {
+    final List<Record> records = new ArrayList<>(this.records);
+    this.records.clear();
+    return records;
+  }
+
+  private void sendBuffer() throws SQLException {
+    final ByteBuffer buffer = this.buffer;
+    final int length = buffer.position();
+    if (length > 0) {
+      this.copyIn.writeToCopy(buffer.array(), 0, length);
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Start the copy and write the header, does nothing if the copy is active.
+   *
+   * @throws SQLException If the copy could not be started.
+   */
+  public void start() throws SQLException {
+    if (this.copyIn == null) {
+      if (!this.connection.getAutoCommit()) {
+        this.savepoint = this.connection.setSavepoint();
+      }
+      this.copyIn = newCopyIn();
+      this.buffer.clear();
+      this.buffer.put(HEADER);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.sql;
+  }
+
+  /**
+   * Write the record to the copy. The copy must have been started using {@link #start()}.
+   *
+   * @param record The record.
+   * @throws SQLException If the record could not be written.
+   */
+  public void write(final Record record) throws SQLException {
+    final JdbcFieldDefinition[] fields = this.fields;
+    final int fieldCount = fields.length;
+    ensureCapacity(2);
+    this.buffer.putShort((short)fieldCount);
+    for (int i = 0; i < fieldCount; i++) {
+      final JdbcFieldDefinition field = fields[i];
+      final Object value = record.getValue(field.getName());
+      if (value == null) {
+        writeNull();
+      } else {
+        this.writers[i].write(this, field, value);
+      }
+    }
+    this.records.add(record);
+  }
+
+  private void writeBoolean(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final boolean booleanValue = DataTypes.BOOLEAN.<Boolean> toObject(value);
+    ensureCapacity(5);
+    this.buffer.putInt(1);
+    if (booleanValue) {
+      this.buffer.put((byte)1);
+    } else {
+      this.buffer.put((byte)0);
+    }
+  }
+
+  private void writeBytes(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    if (value instanceof byte[]) {
+      putBytes((byte[])value);
+    } else {
+      writeText(field, value);
+    }
+  }
+
+  private void writeDate(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final java.sql.Date date = Dates.getSqlDate(value);
+    final long days = date.toLocalDate().toEpochDay() - POSTGRESQL_EPOCH_DAYS;
+    ensureCapacity(8);
+    this.buffer.putInt(4);
+    this.buffer.putInt((int)days);
+  }
+
+  private void writeDouble(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final double number = DataTypes.DOUBLE.<Double> toObject(value);
+    ensureCapacity(12);
+    this.buffer.putInt(8);
+    this.buffer.putDouble(number);
+  }
+
+  private void writeFloat(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final float number = DataTypes.FLOAT.<Float> toObject(value);
+    ensureCapacity(8);
+    this.buffer.putInt(4);
+    this.buffer.putFloat(number);
+  }
+
+  private void writeGeometry(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final GeometryFactory geometryFactory = field.getGeometryFactory();
+    Geometry geometry;
+    if (value instanceof Geometry) {
+      geometry = (Geometry)value;
+    } else {
+      geometry = geometryFactory.geometry(value.toString());
+    }
+    if (geometry == null) {
+      writeNull();
+    } else {
+      final DataType dataType = field.getDataType();
+      geometry = PostgreSQLGeometryWrapper.getEwkbGeometry(dataType, geometryFactory, geometry);
+      final int axisCount = geometryFactory.getAxisCount();
+      final int srid = geometryFactory.getHorizontalCoordinateSystemId();
+      final int byteCount = PostgreSQLGeometryWrapper.getEwkbByteCount(dataType, geometry,
+        axisCount, srid);
+      ensureCapacity(4 + byteCount);
+      this.buffer.putInt(byteCount);
+      PostgreSQLGeometryWrapper.writeEwkb(this.buffer, dataType, geometry, axisCount, srid);
+    }
+  }
+
+  private void writeInt(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final int number = DataTypes.INT.<Integer> toObject(value);
+    ensureCapacity(8);
+    this.buffer.putInt(4);
+    this.buffer.putInt(number);
+  }
+
+  private void writeJsonb(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final byte[] json = value.toString().getBytes(StandardCharsets.UTF_8);
+    final int length = json.length + 1;
+    ensureCapacity(5);
+    this.buffer.putInt(length);
+    // jsonb format version
+    this.buffer.put((byte)1);
+    if (json.length > BUFFER_SIZE) {
+      sendBuffer();
+      this.copyIn.writeToCopy(json, 0, json.length);
+    } else {
+      ensureCapacity(json.length);
+      this.buffer.put(json);
+    }
+  }
+
+  private void writeLong(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final long number = DataTypes.LONG.<Long> toObject(value);
+    ensureCapacity(12);
+    this.buffer.putInt(8);
+    this.buffer.putLong(number);
+  }
+
+  private void writeNull() throws SQLException {
+    ensureCapacity(4);
+    this.buffer.putInt(-1);
+  }
+
+  private void writeNumeric(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final byte[] bytes = encodeNumeric(value);
+    putBytes(bytes);
+  }
+
+  private void writeShort(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final short number = DataTypes.SHORT.<Short> toObject(value);
+    ensureCapacity(6);
+    this.buffer.putInt(2);
+    this.buffer.putShort(number);
+  }
+
+  private void writeText(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+    putBytes(bytes);
+  }
+
+  private void writeTimestamp(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    // timestamp without time zone stores the local date/time as sent by the JDBC driver
+    final Timestamp timestamp = Dates.getTimestamp(value);
+    final long seconds = timestamp.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+    writeTimestampMicros(seconds, timestamp.getNanos());
+  }
+
+  private void writeTimestampMicros(final long epochSeconds, final int nanos)
+    throws SQLException {
+    final long micros = (epochSeconds - POSTGRESQL_EPOCH_SECONDS) * 1000000 + nanos / 1000;
+    ensureCapacity(12);
+    this.buffer.putInt(8);
+    this.buffer.putLong(micros);
+  }
+
+  private void writeTimestampTz(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final Timestamp timestamp = Dates.getTimestamp(value);
+    final long seconds = Math.floorDiv(timestamp.getTime(), 1000);
+    writeTimestampMicros(seconds, timestamp.getNanos());
+  }
+
+  private void writeUuid(final JdbcFieldDefinition field, final Object value)
+    throws SQLException {
+    final UUID uuid;
+    if (value instanceof UUID) {
+      uuid = (UUID)value;
+    } else {
+      uuid = UUID.fromString(value.toString());
+    }
+    ensureCapacity(20);
+    this.buffer.putInt(16);
+    this.buffer.putLong(uuid.getMostSignificantBits());
+    this.buffer.putLong(uuid.getLeastSignificantBits());
+  }
+
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(PostgreSQLCopyBinaryWriter writer, JdbcFieldDefinition field, Object value)
+      throws SQLException;
+  }
+}
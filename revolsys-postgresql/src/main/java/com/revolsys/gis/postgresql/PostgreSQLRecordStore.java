@@ -37,6 +37,7 @@ import com.revolsys.jdbc.io.AbstractJdbcDatabaseFactory;
 import com.revolsys.jdbc.io.AbstractJdbcRecordStore;
 import com.revolsys.jdbc.io.JdbcRecordDefinition;
 import com.revolsys.jdbc.io.JdbcRecordStoreSchema;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
 import com.revolsys.jdbc.io.RecordStoreIteratorFactory;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
@@ -48,6 +49,7 @@ import com.revolsys.record.query.functions.EnvelopeIntersects;
 import com.revolsys.record.query.functions.JsonValue;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
 import com.revolsys.record.schema.RecordStore;
 import com.revolsys.util.Property;
 
@@ -61,6 +63,8 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryIterator((PostgreSQLRecordStore)recordStore, query, properties);
   }
 
+  private boolean useCopy = false;
+
   private boolean useSchemaSequencePrefix = true;
 
   public PostgreSQLRecordStore() {
@@ -352,6 +356,16 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return POSTGRESQL_INTERNAL_SCHEMAS.contains(schemaName);
   }
 
+  /**
+   * Check if new records with primary key values are inserted using the COPY binary protocol
+   * instead of insert statements.
+   *
+   * @return True if COPY is used.
+   */
+  public boolean isUseCopy() {
+    return this.useCopy;
+  }
+
   public boolean isUseSchemaSequencePrefix() {
     return this.useSchemaSequencePrefix;
   }
@@ -365,6 +379,16 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return super.newRecordDefinition(schema, pathName, dbTableName);
   }
 
+  @Override
+  protected JdbcRecordWriter newRecordWriterDo(final RecordDefinitionProxy recordDefinition,
+    final int batchSize) {
+    if (this.useCopy) {
+      return new PostgreSQLRecordWriter(this, recordDefinition, batchSize);
+    } else {
+      return super.newRecordWriterDo(recordDefinition, batchSize);
+    }
+  }
+
   @Override
   protected JdbcFieldDefinition newRowIdFieldDefinition() {
     return new PostgreSQLOidFieldDefinition();
@@ -382,6 +406,17 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryResultPager(this, getProperties(), query);
   }
 
+  /**
+   * Set if new records with primary key values are inserted using the COPY binary protocol
+   * instead of insert statements. This is significantly faster for bulk loads, but the values of
+   * database generated columns are not returned.
+   *
+   * @param useCopy True if COPY is used.
+   */
+  public void setUseCopy(final boolean useCopy) {
+    this.useCopy = useCopy;
+  }
+
   public void setUseSchemaSequencePrefix(final boolean useSchemaSequencePrefix) {
     this.useSchemaSequencePrefix = useSchemaSequencePrefix;
   }
@@ -0,0 +1,140 @@
+package com.revolsys.gis.postgresql;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+
+/**
+ * A {@link JdbcRecordWriter} that inserts new records using the PostgreSQL
+ * <code>COPY ... FROM STDIN (FORMAT BINARY)</code> protocol. Updates, deletes, records without
+ * primary key values and tables with generated columns or column types not supported by
+ * {@link PostgreSQLCopyBinaryWriter} use statements. A batch size of 1 also uses statements as a
+ * COPY for each record is slower than an insert.
+ *
+ * Only one COPY can be active on a connection so the COPY is ended when a record for another
+ * table or a non insert is written, when the writer is flushed, or after batch size records. If
+ * the COPY fails the records in that COPY are inserted using statements so the records from
+ * the failed COPY aren't lost and the failure is reported for the record that caused it.
+ */
+public class PostgreSQLRecordWriter extends JdbcRecordWriter {
+
+  private PostgreSQLCopyBinaryWriter copyWriter;
+
+  /** The copy writers, null if COPY isn't supported for the table. */
+  private final Map<JdbcRecordDefinition, PostgreSQLCopyBinaryWriter> copyWriterByRecordDefinition = new HashMap<>();
+
+  public PostgreSQLRecordWriter(final PostgreSQLRecordStore recordStore,
+    final RecordDefinitionProxy recordDefinition, final int batchSize) {
+    super(recordStore, recordDefinition, batchSize);
+  }
+
+  @Override
+  protected synchronized void closeDo() {
+    insertBulkFlush();
+    super.closeDo();
+  }
+
+  /**
+   * End the copy and add the number of records written to the counter. If the copy fails the
+   * records are inserted using statements.
+   *
+   * @param copyWriter The copy writer.
+   * @throws SQLException If the records couldn't be inserted using statements.
+   */
+  private void copyFinish(final PostgreSQLCopyBinaryWriter copyWriter) throws SQLException {
+    if (copyWriter.isActive()) {
+      try {
+        final long count = copyWriter.finish();
+        final JdbcRecordDefinition recordDefinition = copyWriter.getRecordDefinition();
+        getCounter(recordDefinition).add(count);
+      } catch (final SQLException | RuntimeException e) {
+        copyReplay(copyWriter, e);
+      }
+    }
+  }
+
+  /**
+   * Cancel the copy and insert the records written to it using statements.
+   *
+   * @param copyWriter The copy writer.
+   * @param e The error that caused the copy to fail.
+   * @throws SQLException If the records couldn't be inserted using statements.
+   */
+  private void copyReplay(final PostgreSQLCopyBinaryWriter copyWriter, final Exception e)
+    throws SQLException {
+    copyWriter.cancel();
+    final List<Record> records = copyWriter.removeRecords();
+    Logs.error(this, "Unable to copy " + records.size()
+      + " records, inserting using statements\n" + copyWriter.getSql(), e);
+    final JdbcRecordDefinition recordDefinition = copyWriter.getRecordDefinition();
+    for (final Record record : records) {
+      insertStatement(record, recordDefinition);
+    }
+  }
+
+  @Override
+  protected boolean insertBulk(final JdbcRecordDefinition recordDefinition, final Record record)
+    throws SQLException {
+    final int batchSize = getBatchSize();
+    if (batchSize < 2) {
+      return false;
+    }
+    PostgreSQLCopyBinaryWriter copyWriter = this.copyWriter;
+    if (copyWriter == null || copyWriter.getRecordDefinition() != recordDefinition) {
+      if (this.copyWriterByRecordDefinition.containsKey(recordDefinition)) {
+        copyWriter = this.copyWriterByRecordDefinition.get(recordDefinition);
+        if (copyWriter == null) {
+          return false;
+        }
+        // End the current COPY and execute batched statements so records are written in order
+        flush();
+      } else {
+        flush();
+        if (recordDefinition.isHasGeneratedFields()) {
+          copyWriter = null;
+        } else {
+          copyWriter = PostgreSQLCopyBinaryWriter.newCopyWriter(this.connection, recordDefinition,
+            isQuoteColumnNames());
+        }
+        this.copyWriterByRecordDefinition.put(recordDefinition, copyWriter);
+        if (copyWriter == null) {
+          return false;
+        }
+      }
+      this.copyWriter = copyWriter;
+    }
+    copyWriter.start();
+    try {
+      copyWriter.write(record);
+    } catch (final SQLException | RuntimeException e) {
+      this.copyWriter = null;
+      copyReplay(copyWriter, e);
+      return false;
+    }
+    if (copyWriter.getRecordCount() >= batchSize) {
+      copyFinish(copyWriter);
+    }
+    return true;
+  }
+
+  @Override
+  protected void insertBulkFlush() {
+    final PostgreSQLCopyBinaryWriter copyWriter = this.copyWriter;
+    if (copyWriter != null) {
+      this.copyWriter = null;
+      try {
+        copyFinish(copyWriter);
+      } catch (final SQLException e) {
+        throw this.connection.getException("Copy", copyWriter.getSql(), e);
+      }
+    }
+  }
+}
@@ -2,6 +2,8 @@ package com.revolsys.gis.postgresql.type;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Map;
 
 import org.jeometry.common.data.type.DataType;
@@ -22,6 +24,12 @@ import com.revolsys.geometry.model.Polygonal;
 import com.revolsys.geometry.model.Punctual;
 
 public class PostgreSQLGeometryWrapper extends PGobject {
+  private static final int EWKB_M = 0x40000000;
+
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int EWKB_Z = 0x80000000;
+
   private static final long serialVersionUID = 0L;
 
   private static final Map<DataType, Consumer3<PrintWriter, Geometry, Integer>> WRITER_BY_TYPE = Maps
@@ -81,6 +89,112 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     wkt.append(")");
   }
 
+  /**
+   * Get the number of bytes {@link #writeEwkb(ByteBuffer, DataType, Geometry, int, int)} will
+   * write for the geometry.
+   *
+   * @param dataType The geometry data type of the column.
+   * @param geometry The geometry returned from {@link #getEwkbGeometry(DataType, GeometryFactory, Geometry)}.
+   * @param axisCount The number of axis to write.
+   * @param srid The srid to write, 0 if none.
+   * @return The number of bytes.
+   */
+  public static int getEwkbByteCount(final DataType dataType, final Geometry geometry,
+    final int axisCount, final int srid) {
+    final int ewkbType = getEwkbType(dataType, geometry);
+    int byteCount = getEwkbByteCount(ewkbType, geometry, axisCount);
+    if (srid > 0) {
+      byteCount += 4;
+    }
+    return byteCount;
+  }
+
+  private static int getEwkbByteCount(final int ewkbType, final Geometry geometry,
+    final int axisCount) {
+    final int vertexByteCount = axisCount * 8;
+    int byteCount = 5;
+    switch (ewkbType) {
+      case 1:
+        byteCount += vertexByteCount;
+      break;
+      case 2:
+        final LineString line = (LineString)geometry;
+        byteCount += 4 + line.getVertexCount() * vertexByteCount;
+      break;
+      case 3:
+        final Polygon polygon = (Polygon)geometry;
+        byteCount += 4;
+        for (final LinearRing ring : polygon.rings()) {
+          byteCount += 4 + ring.getVertexCount() * vertexByteCount;
+        }
+      break;
+      default:
+        byteCount += 4;
+        final int partCount = geometry.getGeometryCount();
+        for (int partIndex = 0; partIndex < partCount; partIndex++) {
+          final Geometry part = geometry.getGeometry(partIndex);
+          final int partType = getEwkbType(null, part);
+          byteCount += getEwkbByteCount(partType, part, axisCount);
+        }
+      break;
+    }
+    return byteCount;
+  }
+
+  /**
+   * Convert the geometry to the geometry factory and geometry type of the column. Empty
+   * geometries are converted to an empty geometry of the column's type.
+   *
+   * @param dataType The geometry data type of the column.
+   * @param geometryFactory The geometry factory of the column.
+   * @param geometry The geometry.
+   * @return The geometry to write.
+   */
+  public static Geometry getEwkbGeometry(final DataType dataType,
+    final GeometryFactory geometryFactory, final Geometry geometry) {
+    final Geometry convertedGeometry = geometry.convertGeometry(geometryFactory);
+    if (convertedGeometry.isEmpty()) {
+      if (dataType == GeometryDataTypes.POINT) {
+        return geometryFactory.point();
+      } else if (dataType == GeometryDataTypes.LINE_STRING) {
+        return geometryFactory.lineString();
+      } else if (dataType == GeometryDataTypes.POLYGON) {
+        return geometryFactory.polygon();
+      }
+    } else if (dataType == GeometryDataTypes.POINT || dataType == GeometryDataTypes.LINE_STRING
+      || dataType == GeometryDataTypes.LINEAR_RING || dataType == GeometryDataTypes.POLYGON) {
+      if (convertedGeometry.isGeometryCollection()
+        && convertedGeometry.getGeometryCount() == 1) {
+        return convertedGeometry.getGeometry(0);
+      }
+    }
+    return convertedGeometry;
+  }
+
+  private static int getEwkbType(final DataType dataType, final Geometry geometry) {
+    if (dataType == GeometryDataTypes.MULTI_POINT) {
+      return 4;
+    } else if (dataType == GeometryDataTypes.MULTI_LINE_STRING) {
+      return 5;
+    } else if (dataType == GeometryDataTypes.MULTI_POLYGON) {
+      return 6;
+    } else if (geometry instanceof Point) {
+      return 1;
+    } else if (geometry instanceof LineString) {
+      return 2;
+    } else if (geometry instanceof Polygon) {
+      return 3;
+    } else if (geometry instanceof Punctual) {
+      return 4;
+    } else if (geometry instanceof Lineal) {
+      return 5;
+    } else if (geometry instanceof Polygonal) {
+      return 6;
+    } else {
+      return 7;
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private static <G extends Geometry> G getGeometry(final Geometry geometry,
     final Class<G> expectedClass) {
@@ -172,6 +286,115 @@ public class PostgreSQLGeometryWrapper extends PGobject {
     out.print(')');
   }
 
+  /**
+   * Write the geometry as PostGIS EWKB, the format used by the geometry binary send/receive
+   * functions. The shell of polygons are written counter clockwise and the holes clockwise.
+   * Missing z or m values are written as 0 and empty points as NaN ordinates.
+   *
+   * @param buffer The buffer to write to, it must have
+   * {@link #getEwkbByteCount(DataType, Geometry, int, int)} bytes remaining.
+   * @param dataType The geometry data type of the column.
+   * @param geometry The geometry returned from {@link #getEwkbGeometry(DataType, GeometryFactory, Geometry)}.
+   * @param axisCount The number of axis to write.
+   * @param srid The srid to write, 0 if none.
+   */
+  public static void writeEwkb(final ByteBuffer buffer, final DataType dataType,
+    final Geometry geometry, final int axisCount, final int srid) {
+    final int ewkbType = getEwkbType(dataType, geometry);
+    writeEwkb(buffer, ewkbType, geometry, axisCount, srid);
+  }
+
+  private static void writeEwkb(final ByteBuffer buffer, final int ewkbType,
+    final Geometry geometry, final int axisCount, final int srid) {
+    if (buffer.order() == ByteOrder.BIG_ENDIAN) {
+      buffer.put((byte)0);
+    } else {
+      buffer.put((byte)1);
+    }
+    int typeWord = ewkbType;
+    if (axisCount > 2) {
+      typeWord |= EWKB_Z;
+    }
+    if (axisCount > 3) {
+      typeWord |= EWKB_M;
+    }
+    if (srid > 0) {
+      typeWord |= EWKB_SRID;
+    }
+    buffer.putInt(typeWord);
+    if (srid > 0) {
+      buffer.putInt(srid);
+    }
+    switch (ewkbType) {
+      case 1:
+        final Point point = (Point)geometry;
+        if (point.isEmpty()) {
+          // PostGIS writes empty points with NaN ordinates
+          for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+            buffer.putDouble(Double.NaN);
+          }
+        } else {
+          for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+            final double value = point.getCoordinate(axisIndex);
+            writeEwkbOrdinate(buffer, axisIndex, value);
+          }
+        }
+      break;
+      case 2:
+        writeEwkbLine(buffer, (LineString)geometry, axisCount, false);
+      break;
+      case 3:
+        final Polygon polygon = (Polygon)geometry;
+        buffer.putInt(polygon.getRingCount());
+        final LinearRing shell = polygon.getShell();
+        if (shell != null) {
+          writeEwkbLine(buffer, shell, axisCount, shell.isClockwise());
+          for (final LinearRing hole : polygon.holes()) {
+            writeEwkbLine(buffer, hole, axisCount, !hole.isClockwise());
+          }
+        }
+      break;
+      default:
+        final int partCount = geometry.getGeometryCount();
+        buffer.putInt(partCount);
+        for (int partIndex = 0; partIndex < partCount; partIndex++) {
+          final Geometry part = geometry.getGeometry(partIndex);
+          final int partType = getEwkbType(null, part);
+          writeEwkb(buffer, partType, part, axisCount, 0);
+        }
+      break;
+    }
+  }
+
+  private static void writeEwkbLine(final ByteBuffer buffer, final LineString line,
+    final int axisCount, final boolean reverse) {
+    final int vertexCount = line.getVertexCount();
+    buffer.putInt(vertexCount);
+    for (int i = 0; i < vertexCount; i++) {
+      final int vertexIndex;
+      if (reverse) {
+        vertexIndex = vertexCount - 1 - i;
+      } else {
+        vertexIndex = i;
+      }
+      buffer.putDouble(line.getX(vertexIndex));
+      buffer.putDouble(line.getY(vertexIndex));
+      for (int axisIndex = 2; axisIndex < axisCount; axisIndex++) {
+        final double value = line.getCoordinate(vertexIndex, axisIndex);
+        writeEwkbOrdinate(buffer, axisIndex, value);
+      }
+    }
+  }
+
+  private static void writeEwkbOrdinate(final ByteBuffer buffer, final int axisIndex,
+    final double value) {
+    if (axisIndex > 1 && Double.isNaN(value)) {
+      buffer.putDouble(0);
+    } else {
+      buffer.putDouble(value);
+    }
+  }
+
   private static void writeGeometry(final PrintWriter out, final Geometry geometry,
     final int axisCount) {
     if (geometry != null) {
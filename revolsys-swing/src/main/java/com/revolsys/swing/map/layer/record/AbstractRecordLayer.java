@@ -139,6 +139,7 @@ import com.revolsys.swing.map.overlay.AddGeometryCompleteAction;
 import com.revolsys.swing.map.overlay.CloseLocation;
 import com.revolsys.swing.map.overlay.ShortestPathOverlay;
 import com.revolsys.swing.map.overlay.record.EditRecordGeometryOverlay;
+import com.revolsys.swing.map.view.ViewRenderer;
 import com.revolsys.swing.menu.MenuFactory;
 import com.revolsys.swing.menu.WrappedMenuFactory;
 import com.revolsys.swing.parallel.Invoke;
@@ -258,6 +259,29 @@ public abstract class AbstractRecordLayer extends AbstractLayer
       return true;
     }
 
+    /**
+     * Remove the records from the cache and the spatial index without rebuilding the index. If a
+     * record can't be found in the index (e.g. its geometry has changed) the index is cleared so
+     * it is rebuilt on the next query.
+     */
+    @Override
+    public void removeRecords(final Collection<? extends LayerRecord> records) {
+      synchronized (getRecordCacheSync()) {
+        for (final LayerRecord record : records) {
+          if (super.removeRecord(record)) {
+            final RecordSpatialIndex<LayerRecord> index = this.index;
+            if (index != null) {
+              synchronized (index) {
+                if (!index.removeRecord(record.getRecordProxy())) {
+                  clearIndex();
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public boolean replaceRecord(final LayerRecord record) {
       synchronized (getRecordCacheSync()) {
@@ -312,6 +336,10 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     PREFERENCE_PATH, "generalizeGeometryTolerance", DataTypes.DOUBLE, 0.2)//
       .setCategoryTitle("Layers");
 
+  public static final PreferenceKey PREFERENCE_GENERALIZE_GEOMETRY_SCALE = new PreferenceKey(
+    PREFERENCE_PATH, "generalizeGeometryScale", DataTypes.DOUBLE, 0.0)//
+      .setCategoryTitle("Layers");
+
   public static final String RECORD_CACHE_MODIFIED = "recordCacheModified";
 
   public static final String RECORD_DELETED_PERSISTED = "recordDeletedPersisted";
@@ -390,6 +418,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
       PreferenceFields.addField("com.revolsys.gis", PREFERENCE_SHOW_ALL_RECORDS_ON_FILTER);
       PreferenceFields.addField("com.revolsys.gis", PREFERENCE_CONFIRM_DELETE_RECORDS);
       PreferenceFields.addField("com.revolsys.gis", PREFERENCE_GENERALIZE_GEOMETRY_TOLERANCE);
+      PreferenceFields.addField("com.revolsys.gis", PREFERENCE_GENERALIZE_GEOMETRY_SCALE);
     });
   }
 
@@ -434,6 +463,16 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     }
   }
 
+  /**
+   * Get the view scale below which the geometries are not generalized for rendering, see
+   * {@link RecordLayerGeneralizationCache#setGeneralizeScale(double)}.
+   *
+   * @return The scale, 0 to generalize at all scales.
+   */
+  public static double getDefaultGeneralizeGeometryScale() {
+    return Preferences.getValue("com.revolsys.gis", PREFERENCE_GENERALIZE_GEOMETRY_SCALE);
+  }
+
   public static double getDefaultGeneralizeGeometryTolerance() {
     return Preferences.getValue("com.revolsys.gis", PREFERENCE_GENERALIZE_GEOMETRY_TOLERANCE);
   }
@@ -475,6 +514,9 @@ public abstract class AbstractRecordLayer extends AbstractLayer
 
   private final List<Window> formWindows = new LinkedList<>();
 
+  private final RecordLayerGeneralizationCache generalizationCache = new RecordLayerGeneralizationCache(
+    this);
+
   private final Set<LayerRecord> proxiedRecords = new HashSet<>();
 
   protected final List<RecordCache> recordCaches = new ArrayList<>();
@@ -531,6 +573,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     setSelectSupported(true);
     setQuerySupported(true);
     setRenderer(new GeometryStyleRecordLayerRenderer(this));
+    this.generalizationCache.setGeneralizeScale(getDefaultGeneralizeGeometryScale());
   }
 
   @Override
@@ -851,6 +894,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
       cache.clearRecords();
     }
     this.recordCaches.clear();
+    this.generalizationCache.clear();
   }
 
   public boolean deleteRecord(final LayerRecord record) {
@@ -1153,6 +1197,18 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     return this.filter;
   }
 
+  /**
+   * Get the record's geometry generalized for rendering at the view's scale, see
+   * {@link RecordLayerGeneralizationCache}.
+   *
+   * @param view The view to render the geometry in.
+   * @param record The record.
+   * @return The generalized geometry or the record's geometry if it hasn't been generalized.
+   */
+  public Geometry getGeneralizedGeometry(final ViewRenderer view, final LayerRecord record) {
+    return this.generalizationCache.getGeometry(view, record);
+  }
+
   public double getGeneralizeGeometryTolerance() {
     return getDefaultGeneralizeGeometryTolerance();
   }
@@ -2726,6 +2782,17 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     }
   }
 
+  /**
+   * Remove the records from the spatial index used to render and query the layer without
+   * rebuilding the index.
+   *
+   * @param records The records to remove.
+   */
+  public void removeFromIndex(final Collection<? extends LayerRecord> records) {
+    this.recordCacheIndex.removeRecords(records);
+    this.generalizationCache.removeRecords(records);
+  }
+
   protected void removeHighlightedRecord(final LayerRecord record) {
     this.recordCacheHighlighted.removeRecord(record);
   }
@@ -3067,6 +3134,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     synchronized (getSync()) {
       if (hasGeometryField()) {
         this.recordCacheIndex.setRecords(records);
+        this.generalizationCache.retainRecords(records);
         final List<LayerRecord> newRecords = getRecordsNew();
         for (final LayerRecord newRecord : newRecords) {
           if (newRecord.getState().isNew()) {
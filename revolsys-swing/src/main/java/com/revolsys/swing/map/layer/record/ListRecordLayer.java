@@ -12,7 +12,6 @@ import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.predicate.Predicates;
 import com.revolsys.record.RecordState;
 import com.revolsys.record.Records;
-import com.revolsys.record.query.Condition;
 import com.revolsys.record.query.Query;
 import com.revolsys.record.query.QueryValue;
 import com.revolsys.record.schema.RecordDefinition;
@@ -133,7 +132,7 @@ public class ListRecordLayer extends AbstractRecordLayer {
   @Override
   public int getRecordCount(final Query query) {
     synchronized (this.records) {
-      final Predicate<MapEx> filter = query.getWhereCondition();
+      final Predicate<MapEx> filter = query.getWhereCondition().compile(getRecordDefinition());
       return Predicates.count(this.records, filter);
     }
   }
@@ -160,7 +159,7 @@ public class ListRecordLayer extends AbstractRecordLayer {
 
   @Override
   public int getRecordCountPersisted(final Query query) {
-    final Condition filter = query.getWhereCondition();
+    final Predicate<MapEx> filter = query.getWhereCondition().compile(getRecordDefinition());
     return Predicates.count(this.records, filter);
   }
 
@@ -174,7 +173,7 @@ public class ListRecordLayer extends AbstractRecordLayer {
   @Override
   public List<LayerRecord> getRecordsPersisted(final Query query) {
     final List<LayerRecord> records = getRecords();
-    final Condition filter = query.getWhereCondition();
+    final Predicate<MapEx> filter = query.getWhereCondition().compile(getRecordDefinition());
     final Map<QueryValue, Boolean> orderBy = query.getOrderBy();
     Records.filterAndSort(records, filter, orderBy);
     return records;
@@ -33,11 +33,21 @@ public class LoadingWorker extends AbstractSwingWorker<List<LayerRecord>, Void>
   protected List<LayerRecord> handleBackground() {
     try {
       final BoundingBox boundingBox = getBoundingBox();
-      final Query query = this.layer.newBoundingBoxQuery(boundingBox);
-      query.setCancellable(this);
-      final List<LayerRecord> records = this.layer.getRecords(query);
-      this.layer.setIndexRecords(this, records);
-      return records;
+      final RecordStoreLayerTileCache tileCache = this.layer.getTileCache();
+      if (tileCache == null) {
+        final Query query = this.layer.newBoundingBoxQuery(boundingBox);
+        query.setCancellable(this);
+        final List<LayerRecord> records = this.layer.getRecords(query);
+        this.layer.setIndexRecords(this, records);
+        return records;
+      } else {
+        // The tile cache updates the index with the records of the loaded and evicted tiles
+        final List<LayerRecord> records = tileCache.loadRecords(this, boundingBox);
+        if (records != null) {
+          this.layer.setLoaded(this);
+        }
+        return records;
+      }
     } catch (final Exception e) {
       if (this.layer.isDeleted() || isCancelled()) {
         return null;
@@ -0,0 +1,397 @@
+package com.revolsys.swing.map.layer.record;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+
+import org.jeometry.common.data.identifier.Identifier;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Punctual;
+import com.revolsys.geometry.simplify.DouglasPeuckerSimplifier;
+import com.revolsys.swing.map.view.ViewRenderer;
+import com.revolsys.swing.parallel.AbstractSwingWorker;
+import com.revolsys.swing.parallel.Invoke;
+
+/**
+ * <p>Cache of the geometries of a layer's records generalized for rendering at small scales.
+ * The geometries are keyed on the record identifier and scale band. The scale band is the
+ * power of 2 exponent of the view's units per pixel. The geometries are converted to the view's
+ * coordinate system and simplified using the {@link DouglasPeuckerSimplifier} with a tolerance
+ * of 2^band, which is between half a pixel and a pixel.</p>
+ *
+ * <p>The geometries are generalized lazily in the background. Until a record's geometry has
+ * been generalized the full resolution geometry is rendered and the layer is redrawn once the
+ * background task completes. The cached geometry is discarded if the record's geometry is
+ * changed.</p>
+ *
+ * <p>Geometries are not generalized if the view's scale is less than the
+ * {@link #getGeneralizeScale()}, or if {@link #isGeneralize(Geometry, GeometryFactory, double)}
+ * is false because there are few vertices to remove at the tolerance. The geometries that are
+ * not generalized are cached so the check is only done once for each scale band.</p>
+ *
+ * <p>The cache only keeps the {@link #MAX_SCALE_BAND_COUNT} most recently used scale bands and
+ * the records are evicted when they are removed from the layer's index.</p>
+ */
+public class RecordLayerGeneralizationCache {
+
+  private class GeneralizeWorker extends AbstractSwingWorker<Void, Void> {
+    private GeneralizeWorker() {
+      super(false);
+    }
+
+    @Override
+    public String getTaskTitle() {
+      return "Generalize " + RecordLayerGeneralizationCache.this.layer.getPath();
+    }
+
+    @Override
+    protected Void handleBackground() {
+      while (!isCancelled()) {
+        final GeneralizedGeometry generalizedGeometry;
+        synchronized (RecordLayerGeneralizationCache.this) {
+          generalizedGeometry = RecordLayerGeneralizationCache.this.queue.poll();
+          if (generalizedGeometry == null) {
+            if (RecordLayerGeneralizationCache.this.worker == this) {
+              RecordLayerGeneralizationCache.this.worker = null;
+            }
+            return null;
+          }
+        }
+        if (!generalizedGeometry.evicted) {
+          generalizedGeometry.generalize();
+        }
+      }
+      return null;
+    }
+
+    @Override
+    protected void handleDone(final Void result) {
+      RecordLayerGeneralizationCache.this.layer.firePropertyChange("redraw", false, true);
+    }
+  }
+
+  private static class GeneralizedGeometry {
+    private volatile boolean evicted;
+
+    private volatile Geometry geometry;
+
+    private final GeometryFactory geometryFactory;
+
+    private final Geometry sourceGeometry;
+
+    private final double tolerance;
+
+    public GeneralizedGeometry(final Geometry sourceGeometry) {
+      this.sourceGeometry = sourceGeometry;
+      this.geometry = sourceGeometry;
+      this.geometryFactory = null;
+      this.tolerance = 0;
+    }
+
+    public GeneralizedGeometry(final Geometry sourceGeometry,
+      final GeometryFactory geometryFactory, final double tolerance) {
+      this.sourceGeometry = sourceGeometry;
+      this.geometryFactory = geometryFactory;
+      this.tolerance = tolerance;
+    }
+
+    public void generalize() {
+      final Geometry geometry = this.sourceGeometry.as2d(this.geometryFactory);
+      final Geometry simplifiedGeometry = DouglasPeuckerSimplifier.simplify(geometry,
+        this.tolerance);
+      if (simplifiedGeometry == null || simplifiedGeometry.isEmpty()) {
+        // Keep features smaller than the tolerance visible
+        this.geometry = geometry;
+      } else {
+        this.geometry = simplifiedGeometry;
+      }
+    }
+  }
+
+  /** The maximum number of scale bands to cache. */
+  public static final int MAX_SCALE_BAND_COUNT = 4;
+
+  /** The minimum number of vertices for a geometry to be generalized. */
+  public static final int MIN_VERTEX_COUNT = 32;
+
+  /**
+   * Get the scale band for the view's units per pixel. The scale band is the power of 2
+   * exponent of the units per pixel.
+   *
+   * @param unitsPerPixel The view's units per pixel.
+   * @return The scale band.
+   */
+  public static int getScaleBand(final double unitsPerPixel) {
+    return Math.getExponent(unitsPerPixel);
+  }
+
+  /**
+   * Get the generalization tolerance (2^scaleBand) for the scale band. The tolerance is greater
+   * than half and less than or equal to the units per pixel for the scale band.
+   *
+   * @param scaleBand The scale band.
+   * @return The tolerance in the view's units.
+   */
+  public static double getTolerance(final int scaleBand) {
+    return Math.scalb(1.0, scaleBand);
+  }
+
+  /**
+   * Check if the geometry should be generalized at the tolerance. Points and geometries with
+   * fewer than {@link #MIN_VERTEX_COUNT} vertices are not generalized. Geometries whose average
+   * segment length is greater than or equal to the tolerance are not generalized as there are
+   * few vertices to remove. Geometries whose extent is less than the tolerance are not
+   * generalized as they would be simplified to a single pixel.
+   *
+   * @param geometry The geometry.
+   * @param viewGeometryFactory The view's geometry factory.
+   * @param tolerance The tolerance in the view's units.
+   * @return True if the geometry should be generalized.
+   */
+  public static boolean isGeneralize(final Geometry geometry,
+    final GeometryFactory viewGeometryFactory, final double tolerance) {
+    if (geometry == null || geometry instanceof Punctual) {
+      return false;
+    }
+    final int vertexCount = geometry.getVertexCount();
+    if (vertexCount < MIN_VERTEX_COUNT) {
+      return false;
+    }
+    final BoundingBox boundingBox = geometry.getBoundingBox();
+    final double extent = Math.max(boundingBox.getWidth(), boundingBox.getHeight());
+    final BoundingBox viewBoundingBox = boundingBox.bboxToCs(viewGeometryFactory);
+    final double viewExtent = Math.max(viewBoundingBox.getWidth(), viewBoundingBox.getHeight());
+    if (!(viewExtent >= tolerance) || !(extent > 0)) {
+      return false;
+    }
+    // Convert the length to the view's units using the ratio of the extents
+    final double length = geometry.getLength() * viewExtent / extent;
+    return length / vertexCount < tolerance;
+  }
+
+  /** The geometries by scale band in least recently used order. */
+  private final LinkedHashMap<Integer, Map<Identifier, GeneralizedGeometry>> geometriesByScaleBand;
+
+  private double generalizeScale;
+
+  private GeometryFactory geometryFactory;
+
+  private final AbstractRecordLayer layer;
+
+  private final Queue<GeneralizedGeometry> queue = new ArrayDeque<>();
+
+  private GeneralizeWorker worker;
+
+  public RecordLayerGeneralizationCache(final AbstractRecordLayer layer) {
+    this.layer = layer;
+    this.geometriesByScaleBand = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  public synchronized void clear() {
+    for (final Map<Identifier, GeneralizedGeometry> geometries : this.geometriesByScaleBand
+      .values()) {
+      evict(geometries.values());
+    }
+    this.geometriesByScaleBand.clear();
+    this.queue.clear();
+    if (this.worker != null) {
+      this.worker.cancel(true);
+      this.worker = null;
+    }
+  }
+
+  private void evict(final Collection<GeneralizedGeometry> geometries) {
+    for (final GeneralizedGeometry geometry : geometries) {
+      geometry.evicted = true;
+    }
+  }
+
+  /**
+   * Get the scale of the view below which geometries are not generalized.
+   *
+   * @return The scale, 0 to generalize geometries at all scales.
+   */
+  public double getGeneralizeScale() {
+    return this.generalizeScale;
+  }
+
+  /**
+   * Get the record's geometry generalized for the view's scale, see
+   * {@link #getGeometry(GeometryFactory, double, double, Identifier, Geometry)}.
+   *
+   * @param view The view to render the geometry in.
+   * @param record The record.
+   * @return The generalized geometry or the record's geometry.
+   */
+  public Geometry getGeometry(final ViewRenderer view, final LayerRecord record) {
+    final Geometry geometry = record.getGeometry();
+    final GeometryFactory viewGeometryFactory = view.getGeometryFactory();
+    final double unitsPerPixel = view.getCacheBoundingBox().getUnitsPerPixel();
+    final double scale = view.getScale();
+    final Identifier identifier = record.getIdentifier();
+    return getGeometry(viewGeometryFactory, unitsPerPixel, scale, identifier, geometry);
+  }
+
+  /**
+   * Get the geometry generalized for the view's scale. If the generalized geometry hasn't been
+   * created yet the task is queued in the background and the geometry is returned.
+   *
+   * @param viewGeometryFactory The view's geometry factory.
+   * @param unitsPerPixel The view's units per pixel.
+   * @param scale The view's scale.
+   * @param identifier The record's identifier.
+   * @param geometry The record's geometry.
+   * @return The generalized geometry or the geometry.
+   */
+  public Geometry getGeometry(final GeometryFactory viewGeometryFactory,
+    final double unitsPerPixel, final double scale, final Identifier identifier,
+    final Geometry geometry) {
+    if (geometry == null || geometry instanceof Punctual
+      || geometry.getVertexCount() < MIN_VERTEX_COUNT) {
+      return geometry;
+    }
+    if (identifier == null || scale < this.generalizeScale) {
+      return geometry;
+    }
+    if (!(unitsPerPixel > 0) || Double.isInfinite(unitsPerPixel)) {
+      return geometry;
+    }
+    final int scaleBand = getScaleBand(unitsPerPixel);
+    synchronized (this) {
+      if (this.geometryFactory == null
+        || !this.geometryFactory.isSameCoordinateSystem(viewGeometryFactory)) {
+        clear();
+        this.geometryFactory = viewGeometryFactory;
+      }
+      final Map<Identifier, GeneralizedGeometry> geometries = getGeometries(scaleBand);
+      GeneralizedGeometry generalizedGeometry = geometries.get(identifier);
+      if (generalizedGeometry == null || generalizedGeometry.sourceGeometry != geometry) {
+        if (generalizedGeometry != null) {
+          generalizedGeometry.evicted = true;
+        }
+        final double tolerance = getTolerance(scaleBand);
+        if (isGeneralize(geometry, viewGeometryFactory, tolerance)) {
+          generalizedGeometry = new GeneralizedGeometry(geometry, viewGeometryFactory, tolerance);
+          this.queue.add(generalizedGeometry);
+          if (this.worker == null) {
+            this.worker = new GeneralizeWorker();
+            Invoke.worker(this.worker);
+          }
+        } else {
+          generalizedGeometry = new GeneralizedGeometry(geometry);
+        }
+        geometries.put(identifier, generalizedGeometry);
+      }
+      final Geometry generalized = generalizedGeometry.geometry;
+      if (generalized == null) {
+        return geometry;
+      } else {
+        return generalized;
+      }
+    }
+  }
+
+  private Map<Identifier, GeneralizedGeometry> getGeometries(final int scaleBand) {
+    Map<Identifier, GeneralizedGeometry> geometries = this.geometriesByScaleBand.get(scaleBand);
+    if (geometries == null) {
+      geometries = new HashMap<>();
+      this.geometriesByScaleBand.put(scaleBand, geometries);
+      final Iterator<Map<Identifier, GeneralizedGeometry>> iterator = this.geometriesByScaleBand
+        .values()
+        .iterator();
+      while (this.geometriesByScaleBand.size() > MAX_SCALE_BAND_COUNT) {
+        final Map<Identifier, GeneralizedGeometry> evictedGeometries = iterator.next();
+        iterator.remove();
+        evict(evictedGeometries.values());
+      }
+    }
+    return geometries;
+  }
+
+  /**
+   * Evict the geometries for the records.
+   *
+   * @param records The records to remove the geometries for.
+   */
+  public synchronized void removeRecords(final Iterable<? extends LayerRecord> records) {
+    if (!this.geometriesByScaleBand.isEmpty()) {
+      for (final LayerRecord record : records) {
+        final Identifier identifier = record.getIdentifier();
+        if (identifier != null) {
+          for (final Map<Identifier, GeneralizedGeometry> geometries : this.geometriesByScaleBand
+            .values()) {
+            final GeneralizedGeometry geometry = geometries.remove(identifier);
+            if (geometry != null) {
+              geometry.evicted = true;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Evict the geometries for records whose identifier is not in the set of identifiers.
+   *
+   * @param identifiers The identifiers of the records to keep the geometries for.
+   */
+  public synchronized void retainIdentifiers(final Set<Identifier> identifiers) {
+    for (final Map<Identifier, GeneralizedGeometry> geometries : this.geometriesByScaleBand
+      .values()) {
+      final Iterator<Entry<Identifier, GeneralizedGeometry>> iterator = geometries.entrySet()
+        .iterator();
+      while (iterator.hasNext()) {
+        final Entry<Identifier, GeneralizedGeometry> entry = iterator.next();
+        if (!identifiers.contains(entry.getKey())) {
+          iterator.remove();
+          entry.getValue().evicted = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Evict the geometries for records that are not in the list of records.
+   *
+   * @param records The records to keep the geometries for, null to clear the cache.
+   */
+  public synchronized void retainRecords(final Iterable<? extends LayerRecord> records) {
+    if (records == null) {
+      clear();
+    } else if (!this.geometriesByScaleBand.isEmpty()) {
+      final Set<Identifier> identifiers = new HashSet<>();
+      for (final LayerRecord record : records) {
+        final Identifier identifier = record.getIdentifier();
+        if (identifier != null) {
+          identifiers.add(identifier);
+        }
+      }
+      retainIdentifiers(identifiers);
+    }
+  }
+
+  /**
+   * Set the scale of the view below which geometries are not generalized. For example with a
+   * scale of 50000 geometries are only generalized at scales of 1:50,000 or smaller.
+   *
+   * @param generalizeScale The scale, 0 to generalize geometries at all scales.
+   */
+  public synchronized void setGeneralizeScale(final double generalizeScale) {
+    this.generalizeScale = generalizeScale;
+  }
+
+  @Override
+  public String toString() {
+    return this.layer.getPath() + " " + this.geometriesByScaleBand.keySet();
+  }
+}
@@ -1,5 +1,6 @@
 package com.revolsys.swing.map.layer.record;
 
+import java.beans.PropertyChangeEvent;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -73,6 +74,8 @@ public class RecordStoreLayer extends AbstractRecordLayer {
 
   private List<RecordCacheRecordStoreLayer> recordStoreLayerCaches;
 
+  private final RecordStoreLayerTileCache tileCache = new RecordStoreLayerTileCache(this);
+
   public RecordStoreLayer() {
     this("recordStoreLayer");
   }
@@ -122,6 +125,7 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     }
     final SwingWorker<List<LayerRecord>, Void> loadingWorker = this.loadingWorker;
     this.loadingWorker = null;
+    this.tileCache.clear();
     this.recordReferences.clear();
     if (loadingWorker != null) {
       loadingWorker.cancel(true);
@@ -508,6 +512,20 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     return Collections.emptyList();
   }
 
+  /**
+   * Get the tile cache used to load the records for the viewport. Layers without an id field
+   * can't share records between tiles so they load the whole viewport.
+   *
+   * @return The tile cache or null if the layer doesn't have an id field.
+   */
+  public RecordStoreLayerTileCache getTileCache() {
+    if (this.hasIdField) {
+      return this.tileCache;
+    } else {
+      return null;
+    }
+  }
+
   @Override
   public boolean hasIdField() {
     return this.hasIdField;
@@ -732,13 +750,41 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     final boolean deleted = super.postSaveDeletedRecord(record);
     if (deleted) {
       this.recordCacheDeletedInternal.removeContainsRecord(record);
+      this.tileCache.removeRecord(record);
     }
     return deleted;
   }
 
+  @Override
+  protected boolean postSaveNewRecord(final LayerRecord record) {
+    final boolean isNew = super.postSaveNewRecord(record);
+    if (isNew) {
+      this.tileCache.addRecord(record);
+    }
+    return isNew;
+  }
+
   protected void preDeleteRecord(final LayerRecord record) {
   }
 
+  @Override
+  public void propertyChange(final PropertyChangeEvent event) {
+    super.propertyChange(event);
+    if (isExists()) {
+      final Object source = event.getSource();
+      if (source instanceof LayerRecord) {
+        final LayerRecord record = (LayerRecord)source;
+        if (record.getLayer() == this) {
+          final String geometryFieldName = getGeometryFieldName();
+          if (geometryFieldName != null
+            && geometryFieldName.equals(event.getPropertyName())) {
+            this.tileCache.addRecord(record);
+          }
+        }
+      }
+    }
+  }
+
   public void rebuildReferenceCounts() {
     this.recordReferences.rebuildReferenceCounts(this.recordStoreLayerCaches);
   }
@@ -752,6 +798,7 @@ public class RecordStoreLayer extends AbstractRecordLayer {
         loadingWorker.cancel(true);
       }
       this.loadedBoundingBox = BoundingBox.empty();
+      this.tileCache.clear();
       super.refreshDo();
     }
     final RecordStore recordStore = getRecordStore();
@@ -866,8 +913,22 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     final List<LayerRecord> records) {
     synchronized (this.loadingSync) {
       if (this.loadingWorker == loadingWorker) {
-        this.loadingWorker = null;
         setIndexRecords(records);
+      }
+    }
+    setLoaded(loadingWorker);
+  }
+
+  /**
+   * Mark the load by the worker as finished without replacing the records in the index. Used
+   * when the {@link RecordStoreLayerTileCache} has already updated the index.
+   *
+   * @param loadingWorker The worker.
+   */
+  protected void setLoaded(final LoadingWorker loadingWorker) {
+    synchronized (this.loadingSync) {
+      if (this.loadingWorker == loadingWorker) {
+        this.loadingWorker = null;
         this.loadedBoundingBox = loadingWorker.getBoundingBox();
         firePropertyChange("loaded", false, true);
       }
@@ -0,0 +1,384 @@
+package com.revolsys.swing.map.layer.record;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jeometry.common.data.identifier.Identifier;
+
+import com.revolsys.collection.map.IntegerCountMap;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.query.Query;
+import com.revolsys.util.Cancellable;
+
+/**
+ * <p>Cache of the records loaded for the viewport of a {@link RecordStoreLayer} keyed by tile.
+ * The layer's coordinate system is split into a quad grid of square tiles for each scale band.
+ * The tile size is the largest power of 2 that is at most half the width or height of the
+ * view, so zooming in or out by a factor of 2 moves to the next band.</p>
+ *
+ * <p>Only the tiles of the view that aren't cached are loaded, using a single query for the
+ * bounding box of the missing tiles. A pan that overlaps the previous view only queries the
+ * newly visible tiles along the edge, or nothing if all the tiles are cached. The records are
+ * added to a {@link RecordCacheRecordStoreLayer} so they are shared with the layer's other
+ * record caches.</p>
+ *
+ * <p>The layer's spatial index is updated incrementally, only the records of the tiles that are
+ * loaded or evicted are added to or removed from the index, so a pan doesn't rebuild the index
+ * for all the cached records.</p>
+ *
+ * <p>The least recently used tiles are evicted once the number of cached records exceeds the
+ * {@link #getMaxRecordCount()}. The tiles of the current view are never evicted.</p>
+ *
+ * <p>The layer keeps the cached tiles up to date when records are saved or their geometry is
+ * changed using {@link #addRecord(LayerRecord)} and {@link #removeRecord(LayerRecord)}.</p>
+ */
+public class RecordStoreLayerTileCache {
+
+  private static final class Tile {
+    private final long column;
+
+    private final int level;
+
+    private final long row;
+
+    private Tile(final int level, final long column, final long row) {
+      this.level = level;
+      this.column = column;
+      this.row = row;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (other instanceof Tile) {
+        final Tile tile = (Tile)other;
+        return this.level == tile.level && this.column == tile.column && this.row == tile.row;
+      } else {
+        return false;
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = this.level;
+      hash = 31 * hash + Long.hashCode(this.column);
+      hash = 31 * hash + Long.hashCode(this.row);
+      return hash;
+    }
+
+    private boolean intersects(final BoundingBox boundingBox) {
+      final double tileSize = getTileSize(this.level);
+      return getIndex(boundingBox.getMinX(), tileSize) <= this.column
+        && this.column <= getIndex(boundingBox.getMaxX(), tileSize)
+        && getIndex(boundingBox.getMinY(), tileSize) <= this.row
+        && this.row <= getIndex(boundingBox.getMaxY(), tileSize);
+    }
+
+    @Override
+    public String toString() {
+      return this.level + "/" + this.column + "/" + this.row;
+    }
+  }
+
+  public static final int DEFAULT_MAX_RECORD_COUNT = 200000;
+
+  private static long getIndex(final double coordinate, final double tileSize) {
+    return (long)Math.floor(coordinate / tileSize);
+  }
+
+  private static int getLevel(final BoundingBox boundingBox) {
+    final double size = Math.max(boundingBox.getWidth(), boundingBox.getHeight());
+    return Math.getExponent(size / 2);
+  }
+
+  private static double getTileSize(final int level) {
+    return Math.scalb(1.0, level);
+  }
+
+  private final RecordStoreLayer layer;
+
+  private int maxRecordCount = DEFAULT_MAX_RECORD_COUNT;
+
+  private final RecordCache recordCache;
+
+  private final Map<Identifier, LayerRecord> recordsByIdentifier = new HashMap<>();
+
+  /** The tiles in least recently used order. */
+  private final LinkedHashMap<Tile, List<LayerRecord>> recordsByTile = new LinkedHashMap<>(16,
+    0.75f, true);
+
+  private final IntegerCountMap<Identifier> tileCountByIdentifier = new IntegerCountMap<>();
+
+  public RecordStoreLayerTileCache(final RecordStoreLayer layer) {
+    this.layer = layer;
+    this.recordCache = layer.newRecordCache("tiles");
+  }
+
+  /**
+   * Add the record to the cached tiles that its geometry intersects, replacing any previous
+   * version of the record. Used when a new record is saved or a record's geometry is changed so
+   * the record is included in the next load without querying the tiles again.
+   *
+   * @param record The record.
+   */
+  public synchronized void addRecord(final LayerRecord record) {
+    final Identifier identifier = record.getIdentifier();
+    if (identifier != null) {
+      removeIdentifier(identifier);
+      final Geometry geometry = record.getGeometry();
+      if (geometry != null && !geometry.isEmpty()) {
+        final GeometryFactory geometryFactory = this.layer.getGeometryFactory();
+        final BoundingBox boundingBox = geometry.getBoundingBox().bboxToCs(geometryFactory);
+        for (final Entry<Tile, List<LayerRecord>> entry : this.recordsByTile.entrySet()) {
+          final Tile tile = entry.getKey();
+          if (tile.intersects(boundingBox)) {
+            entry.getValue().add(record);
+            this.tileCountByIdentifier.incrementCount(identifier);
+          }
+        }
+        if (this.tileCountByIdentifier.getCount(identifier) > 0) {
+          this.recordsByIdentifier.put(identifier, record);
+          this.recordCache.addRecord(record);
+        }
+      }
+    }
+  }
+
+  private void addTile(final Tile tile, final List<LayerRecord> records,
+    final List<LayerRecord> addedRecords, final List<LayerRecord> removedRecords) {
+    final List<LayerRecord> oldRecords = this.recordsByTile.put(tile, records);
+    if (oldRecords != null) {
+      removeRecords(oldRecords, removedRecords);
+    }
+    for (final LayerRecord record : records) {
+      final Identifier identifier = record.getIdentifier();
+      if (identifier != null) {
+        this.tileCountByIdentifier.incrementCount(identifier);
+        if (!this.recordsByIdentifier.containsKey(identifier)) {
+          this.recordsByIdentifier.put(identifier, record);
+          this.recordCache.addRecord(record);
+          if (!record.isDeleted()) {
+            addedRecords.add(record);
+          }
+        }
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    this.recordsByTile.clear();
+    this.recordsByIdentifier.clear();
+    this.tileCountByIdentifier.clearCounts();
+    this.recordCache.clearRecords();
+  }
+
+  private void evictTiles(final Set<Tile> viewTiles, final List<LayerRecord> removedRecords) {
+    final Iterator<Entry<Tile, List<LayerRecord>>> iterator = this.recordsByTile.entrySet()
+      .iterator();
+    while (this.recordsByIdentifier.size() > this.maxRecordCount && iterator.hasNext()) {
+      final Entry<Tile, List<LayerRecord>> entry = iterator.next();
+      if (!viewTiles.contains(entry.getKey())) {
+        iterator.remove();
+        removeRecords(entry.getValue(), removedRecords);
+      }
+    }
+  }
+
+  public int getMaxRecordCount() {
+    return this.maxRecordCount;
+  }
+
+  public synchronized int getRecordCount() {
+    return this.recordsByIdentifier.size();
+  }
+
+  /**
+   * Get the records in all the cached tiles that haven't been deleted.
+   *
+   * @return The records.
+   */
+  public synchronized List<LayerRecord> getRecords() {
+    final List<LayerRecord> records = new ArrayList<>(this.recordsByIdentifier.size());
+    for (final LayerRecord record : this.recordsByIdentifier.values()) {
+      if (!record.isDeleted()) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  public synchronized int getTileCount() {
+    return this.recordsByTile.size();
+  }
+
+  private List<Tile> getTiles(final BoundingBox boundingBox) {
+    final int level = getLevel(boundingBox);
+    final double tileSize = getTileSize(level);
+    final long minColumn = getIndex(boundingBox.getMinX(), tileSize);
+    final long maxColumn = getIndex(boundingBox.getMaxX(), tileSize);
+    final long minRow = getIndex(boundingBox.getMinY(), tileSize);
+    final long maxRow = getIndex(boundingBox.getMaxY(), tileSize);
+    final List<Tile> tiles = new ArrayList<>();
+    for (long row = minRow; row <= maxRow; row++) {
+      for (long column = minColumn; column <= maxColumn; column++) {
+        tiles.add(new Tile(level, column, row));
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Load the tiles of the view that aren't cached and get the records in all the cached tiles.
+   * The records of the loaded and evicted tiles are added to and removed from the layer's index.
+   *
+   * @param cancellable The cancellable for the query.
+   * @param viewBoundingBox The bounding box of the view.
+   * @return The records or null if the load was cancelled.
+   */
+  public List<LayerRecord> loadRecords(final Cancellable cancellable,
+    final BoundingBox viewBoundingBox) {
+    final BoundingBox boundingBox = this.layer.convertBoundingBox(viewBoundingBox);
+    if (boundingBox == null || boundingBox.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<Tile> tiles = getTiles(boundingBox);
+    final Set<Tile> viewTiles = new HashSet<>(tiles);
+    final Map<Tile, List<LayerRecord>> missingTiles = new HashMap<>();
+    synchronized (this) {
+      for (final Tile tile : tiles) {
+        // get also marks the tile as recently used
+        if (this.recordsByTile.get(tile) == null) {
+          missingTiles.put(tile, new ArrayList<>());
+        }
+      }
+    }
+    if (!missingTiles.isEmpty()) {
+      final int level = tiles.get(0).level;
+      final double tileSize = getTileSize(level);
+      long minColumn = Long.MAX_VALUE;
+      long minRow = Long.MAX_VALUE;
+      long maxColumn = Long.MIN_VALUE;
+      long maxRow = Long.MIN_VALUE;
+      for (final Tile tile : missingTiles.keySet()) {
+        minColumn = Math.min(minColumn, tile.column);
+        minRow = Math.min(minRow, tile.row);
+        maxColumn = Math.max(maxColumn, tile.column);
+        maxRow = Math.max(maxRow, tile.row);
+      }
+      final GeometryFactory geometryFactory = boundingBox.getGeometryFactory();
+      final BoundingBox queryBoundingBox = geometryFactory.newBoundingBox(minColumn * tileSize,
+        minRow * tileSize, (maxColumn + 1) * tileSize, (maxRow + 1) * tileSize);
+      final Query query = this.layer.newBoundingBoxQuery(queryBoundingBox);
+      if (query == null) {
+        return Collections.emptyList();
+      }
+      query.setCancellable(cancellable);
+      final List<LayerRecord> records = this.layer.getRecords(query);
+      if (cancellable.isCancelled()) {
+        return null;
+      }
+      for (final LayerRecord record : records) {
+        final Geometry geometry = record.getGeometry();
+        if (geometry != null && !geometry.isEmpty()) {
+          final BoundingBox recordBoundingBox = geometry.getBoundingBox()
+            .bboxToCs(geometryFactory);
+          final long startColumn = Math.max(minColumn,
+            getIndex(recordBoundingBox.getMinX(), tileSize));
+          final long endColumn = Math.min(maxColumn,
+            getIndex(recordBoundingBox.getMaxX(), tileSize));
+          final long startRow = Math.max(minRow, getIndex(recordBoundingBox.getMinY(), tileSize));
+          final long endRow = Math.min(maxRow, getIndex(recordBoundingBox.getMaxY(), tileSize));
+          for (long row = startRow; row <= endRow; row++) {
+            for (long column = startColumn; column <= endColumn; column++) {
+              final Tile tile = new Tile(level, column, row);
+              final List<LayerRecord> tileRecords = missingTiles.get(tile);
+              if (tileRecords != null) {
+                tileRecords.add(record);
+              }
+            }
+          }
+        }
+      }
+    }
+    synchronized (this) {
+      final List<LayerRecord> addedRecords = new ArrayList<>();
+      final List<LayerRecord> removedRecords = new ArrayList<>();
+      for (final Entry<Tile, List<LayerRecord>> entry : missingTiles.entrySet()) {
+        addTile(entry.getKey(), entry.getValue(), addedRecords, removedRecords);
+      }
+      evictTiles(viewTiles, removedRecords);
+      // Update the index while synchronized so updates from concurrent loads are in order
+      if (!removedRecords.isEmpty()) {
+        this.layer.removeFromIndex(removedRecords);
+      }
+      if (!addedRecords.isEmpty()) {
+        this.layer.addToIndex(addedRecords);
+      }
+      return getRecords();
+    }
+  }
+
+  private void removeIdentifier(final Identifier identifier) {
+    if (this.tileCountByIdentifier.getCount(identifier) > 0) {
+      for (final List<LayerRecord> records : this.recordsByTile.values()) {
+        records.removeIf(record -> identifier.equals(record.getIdentifier()));
+      }
+      this.tileCountByIdentifier.clearCounts(identifier);
+      final LayerRecord cachedRecord = this.recordsByIdentifier.remove(identifier);
+      if (cachedRecord != null) {
+        this.recordCache.removeRecord(cachedRecord);
+      }
+    }
+  }
+
+  /**
+   * Remove the record from all the cached tiles. Used when a deleted record is saved.
+   *
+   * @param record The record.
+   */
+  public synchronized void removeRecord(final LayerRecord record) {
+    final Identifier identifier = record.getIdentifier();
+    if (identifier != null) {
+      removeIdentifier(identifier);
+    }
+  }
+
+  private void removeRecords(final List<LayerRecord> records,
+    final List<LayerRecord> removedRecords) {
+    for (final LayerRecord record : records) {
+      final Identifier identifier = record.getIdentifier();
+      if (!this.tileCountByIdentifier.decrementCount(identifier)) {
+        final LayerRecord cachedRecord = this.recordsByIdentifier.remove(identifier);
+        if (cachedRecord != null) {
+          this.recordCache.removeRecord(cachedRecord);
+          removedRecords.add(cachedRecord);
+        }
+      }
+    }
+  }
+
+  /**
+   * Set the maximum number of records to cache. The least recently used tiles outside the view
+   * are evicted until the cache has at most this many records.
+   *
+   * @param maxRecordCount The maximum number of records.
+   */
+  public void setMaxRecordCount(final int maxRecordCount) {
+    this.maxRecordCount = maxRecordCount;
+  }
+
+  @Override
+  public String toString() {
+    return this.layer.getPathName() + " tiles=" + getTileCount() + " records="
+      + getRecordCount();
+  }
+}
@@ -212,7 +212,7 @@ public class GeometryStyleRecordLayerRenderer extends AbstractGeometryRecordLaye
             return;
           }
           if (isVisible(record)) {
-            final Geometry geometry = record.getGeometry();
+            final Geometry geometry = layer.getGeneralizedGeometry(view, record);
             view.addGeometry(geometry);
           }
         }
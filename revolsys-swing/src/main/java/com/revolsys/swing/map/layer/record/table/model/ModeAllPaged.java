@@ -213,7 +213,7 @@ public class ModeAllPaged extends ModeAbstractCached {
     final List<LayerRecord> records = layer.getRecordsNew();
     final Condition filter = getFilter();
     if (!filter.isEmpty()) {
-      Predicates.retain(records, filter);
+      Predicates.retain(records, filter.compile(layer.getRecordDefinition()));
       for (final LayerRecord modifiedRecord : layer.getRecordsModified()) {
         if (layer.filterTestModified(filter, modifiedRecord)) {
           records.add(modifiedRecord);
@@ -6,13 +6,19 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.elevation.test.ElevationTestSuite;
 import com.revolsys.core.test.geometry.test.GeometryTestSuite;
+import com.revolsys.core.test.parallel.test.ParallelTestSuite;
+import com.revolsys.core.test.raster.test.RasterTestSuite;
 import com.revolsys.core.test.record.io.test.RecordIoTestSuite;
+import com.revolsys.core.test.record.query.test.RecordQueryTestSuite;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   GeometryTestSuite.class, //
   ElevationTestSuite.class, //
-  RecordIoTestSuite.class
+  ParallelTestSuite.class, //
+  RasterTestSuite.class, //
+  RecordIoTestSuite.class, //
+  RecordQueryTestSuite.class
 })
 public class AllTestSuite {
 }
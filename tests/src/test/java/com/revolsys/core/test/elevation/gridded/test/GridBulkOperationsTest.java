@@ -0,0 +1,288 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.grid.DoubleArrayGrid;
+import com.revolsys.grid.FloatArrayGrid;
+import com.revolsys.grid.Grid;
+import com.revolsys.grid.IntArrayScaleGrid;
+import com.revolsys.util.count.DoubleStatistics;
+
+/**
+ * Compare the row band bulk operations of the array grids with the per cell calculations.
+ */
+public class GridBulkOperationsTest {
+
+  /**
+   * Grid that can't set rows in parallel and records the threads that set the rows.
+   */
+  private static class SequentialGrid extends DoubleArrayGrid {
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    private SequentialGrid(final double x, final double y, final int gridWidth,
+      final int gridHeight, final double gridCellSize) {
+      super(GridBulkOperationsTest.GEOMETRY_FACTORY, x, y, gridWidth, gridHeight, gridCellSize);
+    }
+
+    @Override
+    protected boolean isSetRowValuesParallel() {
+      return false;
+    }
+
+    @Override
+    protected void setRowValues(final int gridY, final double[] values) {
+      this.threads.add(Thread.currentThread());
+      super.setRowValues(gridY, values);
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  /** Grids larger than 2 row bands of 64K cells so the bulk operations use multiple threads. */
+  private static final int LARGE_GRID_HEIGHT = 300;
+
+  private static final int LARGE_GRID_WIDTH = 600;
+
+  private static void assertGridEquals(final Grid expected, final Grid actual,
+    final double delta) {
+    Assert.assertEquals("gridWidth", expected.getGridWidth(), actual.getGridWidth());
+    Assert.assertEquals("gridHeight", expected.getGridHeight(), actual.getGridHeight());
+    for (int gridY = 0; gridY < expected.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < expected.getGridWidth(); gridX++) {
+        final String message = "Value (" + gridX + "," + gridY + ")";
+        final double expectedValue = expected.getValue(gridX, gridY);
+        final double actualValue = actual.getValue(gridX, gridY);
+        Assert.assertEquals(message, expectedValue, actualValue, delta);
+      }
+    }
+  }
+
+  private static void assertHistogram(final Grid grid) {
+    final double minValue = 2;
+    final double maxValue = 20;
+    final int binCount = 7;
+    final double binScale = binCount / (maxValue - minValue);
+    final int[] expected = new int[binCount];
+    for (int gridY = 0; gridY < grid.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < grid.getGridWidth(); gridX++) {
+        final double value = grid.getValue(gridX, gridY);
+        if (value >= minValue && value <= maxValue) {
+          final int bin = Math.min(binCount - 1, (int)((value - minValue) * binScale));
+          expected[bin]++;
+        }
+      }
+    }
+    Assert.assertArrayEquals(expected, grid.getHistogram(minValue, maxValue, binCount));
+  }
+
+  private static void assertStatistics(final Grid grid) {
+    int count = 0;
+    double sum = 0;
+    double min = Double.MAX_VALUE;
+    double max = -Double.MAX_VALUE;
+    for (int gridY = 0; gridY < grid.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < grid.getGridWidth(); gridX++) {
+        final double value = grid.getValue(gridX, gridY);
+        if (Double.isFinite(value)) {
+          count++;
+          sum += value;
+          min = Math.min(min, value);
+          max = Math.max(max, value);
+        }
+      }
+    }
+    final DoubleStatistics statistics = grid.getStatistics();
+    Assert.assertEquals("count", count, statistics.getCount());
+    Assert.assertEquals("sum", sum, statistics.getSum(), 1e-6);
+    Assert.assertEquals("min", min, statistics.getMin(), 0);
+    Assert.assertEquals("max", max, statistics.getMax(), 0);
+    Assert.assertEquals("mean", sum / count, statistics.getMean(), 1e-9);
+  }
+
+  private static void assertResampleBilinear(final Grid grid, final double gridCellSize) {
+    final Grid expected = newExpectedGrid(grid, gridCellSize);
+    for (int gridY = 0; gridY < expected.getGridHeight(); gridY++) {
+      final double y = expected.getY(gridY);
+      for (int gridX = 0; gridX < expected.getGridWidth(); gridX++) {
+        final double x = expected.getX(gridX);
+        expected.setValue(gridX, gridY, grid.getValueBilinear(x, y));
+      }
+    }
+    final Grid actual = grid.resampleBilinear(gridCellSize, gridCellSize);
+    Assert.assertEquals(grid.getClass(), actual.getClass());
+    assertGridEquals(expected, actual, 0.001);
+  }
+
+  private static void assertSetValuesFinite(final Grid mosaic, final Grid tile,
+    final int offset) {
+    for (int gridY = 0; gridY < mosaic.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < mosaic.getGridWidth(); gridX++) {
+        final int tileX = gridX - offset;
+        final int tileY = gridY - offset;
+        if (tileX >= 0 && tileX < tile.getGridWidth() && tileY >= 0
+          && tileY < tile.getGridHeight() && tileX != tileY) {
+          Assert.assertEquals(tile.getValue(tileX, tileY), mosaic.getValue(gridX, gridY), 0);
+        }
+      }
+    }
+  }
+
+  private static Grid newExpectedGrid(final Grid grid, final double gridCellSize) {
+    final int gridWidth = (int)Math
+      .round(grid.getGridWidth() * grid.getGridCellWidth() / gridCellSize);
+    final int gridHeight = (int)Math
+      .round(grid.getGridHeight() * grid.getGridCellHeight() / gridCellSize);
+    return new DoubleArrayGrid(GEOMETRY_FACTORY, grid.getGridMinX(), grid.getGridMinY(), gridWidth,
+      gridHeight, gridCellSize);
+  }
+
+  /**
+   * Set the values to a smooth surface with a null diagonal.
+   */
+  private static <G extends Grid> G setValues(final G grid) {
+    for (int gridY = 0; gridY < grid.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < grid.getGridWidth(); gridX++) {
+        if (gridX == gridY) {
+          grid.setValueNull(gridX, gridY);
+        } else {
+          final double value = 10 + 5 * Math.sin(gridX / 7.0) + 3 * Math.cos(gridY / 5.0);
+          grid.setValue(gridX, gridY, Math.round(value * 1000) / 1000.0);
+        }
+      }
+    }
+    grid.updateValues();
+    return grid;
+  }
+
+  private Grid[] newGrids() {
+    return new Grid[] {
+      setValues(new DoubleArrayGrid(GEOMETRY_FACTORY, 1000, 2000, 130, 90, 2)),
+      setValues(new FloatArrayGrid(GEOMETRY_FACTORY, 1000, 2000, 130, 90, 2)),
+      setValues(new IntArrayScaleGrid(GEOMETRY_FACTORY, 1000, 2000, 130, 90, 2))
+    };
+  }
+
+  private Grid[] newLargeGrids() {
+    return new Grid[] {
+      setValues(new DoubleArrayGrid(GEOMETRY_FACTORY, 1000, 2000, LARGE_GRID_WIDTH,
+        LARGE_GRID_HEIGHT, 2)),
+      setValues(new FloatArrayGrid(GEOMETRY_FACTORY, 1000, 2000, LARGE_GRID_WIDTH,
+        LARGE_GRID_HEIGHT, 2)),
+      setValues(new IntArrayScaleGrid(GEOMETRY_FACTORY, 1000, 2000, LARGE_GRID_WIDTH,
+        LARGE_GRID_HEIGHT, 2))
+    };
+  }
+
+  @Test
+  public void testHistogram() {
+    for (final Grid grid : newGrids()) {
+      assertHistogram(grid);
+    }
+  }
+
+  /**
+   * Test the bulk operations on grids large enough to be split into multiple row bands.
+   */
+  @Test
+  public void testLargeGrids() {
+    for (final Grid grid : newLargeGrids()) {
+      assertStatistics(grid);
+      assertHistogram(grid);
+      assertResampleBilinear(grid, 1);
+
+      final DoubleArrayGrid mosaic = new DoubleArrayGrid(GEOMETRY_FACTORY, 900, 1900,
+        LARGE_GRID_WIDTH + 100, LARGE_GRID_HEIGHT + 100, 2);
+      mosaic.setValuesFinite(grid);
+      assertSetValuesFinite(mosaic, grid, 50);
+    }
+  }
+
+  /**
+   * Grids that can't set rows in parallel set the rows from a single thread.
+   */
+  @Test
+  public void testLargeGridsSequential() {
+    final Grid grid = newLargeGrids()[0];
+
+    final SequentialGrid resampled = new SequentialGrid(grid.getGridMinX(), grid.getGridMinY(),
+      LARGE_GRID_WIDTH * 2, LARGE_GRID_HEIGHT * 2, 1);
+    resampled.setValuesBilinear(grid);
+    Assert.assertEquals(1, resampled.threads.size());
+    assertGridEquals(grid.resampleBilinear(1, 1), resampled, 0);
+
+    final SequentialGrid mosaic = new SequentialGrid(900, 1900, LARGE_GRID_WIDTH + 100,
+      LARGE_GRID_HEIGHT + 100, 2);
+    mosaic.setValuesFinite(grid);
+    Assert.assertEquals(1, mosaic.threads.size());
+    assertSetValuesFinite(mosaic, grid, 50);
+  }
+
+  @Test
+  public void testResampleBicubic() {
+    for (final Grid grid : newGrids()) {
+      for (final double gridCellSize : new double[] {
+        0.5, 3, 5
+      }) {
+        final Grid expected = newExpectedGrid(grid, gridCellSize);
+        for (int gridY = 0; gridY < expected.getGridHeight(); gridY++) {
+          final double y = expected.getY(gridY);
+          for (int gridX = 0; gridX < expected.getGridWidth(); gridX++) {
+            final double x = expected.getX(gridX);
+            expected.setValue(gridX, gridY, grid.getValueBicubic(x, y));
+          }
+        }
+        final Grid actual = grid.resampleBicubic(gridCellSize, gridCellSize);
+        Assert.assertEquals(grid.getClass(), actual.getClass());
+        assertGridEquals(expected, actual, 0.001);
+      }
+    }
+  }
+
+  @Test
+  public void testResampleBilinear() {
+    for (final Grid grid : newGrids()) {
+      for (final double gridCellSize : new double[] {
+        0.5, 3, 5
+      }) {
+        assertResampleBilinear(grid, gridCellSize);
+      }
+    }
+  }
+
+  @Test
+  public void testSetValuesFinite() {
+    for (final Grid tile : newGrids()) {
+      final DoubleArrayGrid mosaic = new DoubleArrayGrid(GEOMETRY_FACTORY, 900, 1900, 200, 150, 2);
+      mosaic.setValue(0, 0, 1);
+      mosaic.setValue(51, 51, 2);
+      mosaic.setValuesFinite(tile);
+      Assert.assertEquals(1, mosaic.getValue(0, 0), 0);
+      Assert.assertEquals("Null tile value", 2, mosaic.getValue(51, 51), 0);
+      for (int gridY = 0; gridY < mosaic.getGridHeight(); gridY++) {
+        for (int gridX = 0; gridX < mosaic.getGridWidth(); gridX++) {
+          final int tileX = gridX - 50;
+          final int tileY = gridY - 50;
+          if (tileX >= 0 && tileX < tile.getGridWidth() && tileY >= 0
+            && tileY < tile.getGridHeight() && tileX != tileY) {
+            Assert.assertEquals(tile.getValue(tileX, tileY), mosaic.getValue(gridX, gridY), 0);
+          } else if (!(gridX == 0 && gridY == 0 || gridX == 51 && gridY == 51)) {
+            Assert.assertTrue(mosaic.isNull(gridX, gridY));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStatistics() {
+    for (final Grid grid : newGrids()) {
+      assertStatistics(grid);
+    }
+  }
+}
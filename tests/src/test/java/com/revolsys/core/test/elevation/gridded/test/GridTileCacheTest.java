@@ -0,0 +1,157 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.grid.GridTileCache;
+import com.revolsys.grid.GridTileCache.EvictionPolicy;
+
+public class GridTileCacheTest {
+
+  private final List<String> loadedTiles = new ArrayList<>();
+
+  private void assertLoaded(final String... tiles) {
+    Assert.assertEquals(Arrays.asList(tiles), this.loadedTiles);
+  }
+
+  private String loadTile(final int tileIndexX, final int tileIndexY) {
+    if (tileIndexX < 0) {
+      return null;
+    } else if (tileIndexX == 99) {
+      throw new IllegalStateException("Tile read failed");
+    } else {
+      final String tile = tileIndexX + "," + tileIndexY;
+      this.loadedTiles.add(tile);
+      return tile;
+    }
+  }
+
+  private GridTileCache<String> newCache(final EvictionPolicy evictionPolicy) {
+    return new GridTileCache<>(this::loadTile, tile -> 100, evictionPolicy) //
+      .setExecutor(Runnable::run)
+      .setPrefetchDistance(0);
+  }
+
+  @Test
+  public void testClock() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.CLOCK).setMaxTileCount(2);
+    cache.getTile(0, 0);
+    cache.getTile(1, 0);
+    cache.getTile(2, 0);
+    Assert.assertFalse(cache.containsTile(0, 0));
+    cache.getTile(1, 0);
+    cache.getTile(3, 0);
+    Assert.assertTrue("Referenced tile given a second chance", cache.containsTile(1, 0));
+    Assert.assertFalse(cache.containsTile(2, 0));
+    Assert.assertEquals(2, cache.getTileCount());
+    assertLoaded("0,0", "1,0", "2,0", "3,0");
+  }
+
+  @Test
+  public void testEvictAction() {
+    final List<String> evictedTiles = new ArrayList<>();
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU).setMaxTileCount(2)
+      .setEvictAction(evictedTiles::add);
+    Assert.assertEquals(GridTileCache.DEFAULT_MAX_MEMORY, cache.getMaxMemory());
+    cache.getTile(-1, 0);
+    cache.getTile(0, 0);
+    cache.getTile(1, 0);
+    Assert.assertFalse(cache.containsTile(-1, 0));
+    Assert.assertTrue("Missing tile not passed to the action", evictedTiles.isEmpty());
+    cache.setMaxTileCount(1);
+    Assert.assertEquals(Arrays.asList("0,0"), evictedTiles);
+    cache.getTile(2, 0);
+    Assert.assertEquals(Arrays.asList("0,0", "1,0"), evictedTiles);
+    cache.clear();
+    Assert.assertEquals(Arrays.asList("0,0", "1,0", "2,0"), evictedTiles);
+  }
+
+  @Test
+  public void testLoadError() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU);
+    try {
+      cache.getTile(99, 0);
+      Assert.fail("Expected exception");
+    } catch (final RuntimeException e) {
+    }
+    Assert.assertFalse("Failed tile removed", cache.containsTile(99, 0));
+  }
+
+  @Test
+  public void testLru() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU).setMaxTileCount(2);
+    Assert.assertEquals("0,0", cache.getTile(0, 0));
+    Assert.assertEquals("1,0", cache.getTile(1, 0));
+    Assert.assertEquals("0,0", cache.getTile(0, 0));
+    cache.getTile(2, 0);
+    Assert.assertTrue(cache.containsTile(0, 0));
+    Assert.assertFalse("Least recently used tile evicted", cache.containsTile(1, 0));
+    cache.getTile(0, 0);
+    cache.getTile(1, 0);
+    assertLoaded("0,0", "1,0", "2,0", "1,0");
+  }
+
+  @Test
+  public void testMaxMemory() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU).setMaxMemory(250);
+    for (int i = 0; i < 10; i++) {
+      cache.getTile(i, i);
+      Assert.assertTrue(cache.getMemorySize() <= 250);
+    }
+    Assert.assertEquals(2, cache.getTileCount());
+    Assert.assertEquals(200, cache.getMemorySize());
+    cache.setMaxMemory(100);
+    Assert.assertEquals(1, cache.getTileCount());
+    Assert.assertTrue(cache.containsTile(9, 9));
+  }
+
+  @Test
+  public void testMissingTile() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU);
+    Assert.assertNull(cache.getTile(-1, 0));
+    Assert.assertNull(cache.getTile(-1, 0));
+    Assert.assertTrue(cache.containsTile(-1, 0));
+    Assert.assertEquals(0, cache.getMemorySize());
+  }
+
+  @Test
+  public void testPrefetch() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU).setPrefetchDistance(2);
+    cache.getTile(5, 5);
+    assertLoaded("5,5");
+    cache.getTile(5, 4);
+    assertLoaded("5,5", "5,4", "5,3", "5,2");
+    cache.getTile(5, 3);
+    cache.getTile(5, 2);
+    assertLoaded("5,5", "5,4", "5,3", "5,2", "5,1", "5,0");
+    cache.getTile(6, 3);
+    Assert.assertTrue("Diagonal prefetch", cache.containsTile(7, 4));
+    Assert.assertTrue(cache.containsTile(8, 5));
+  }
+
+  @Test
+  public void testPrefetchTileIndexRange() {
+    final GridTileCache<String> cache = newCache(EvictionPolicy.LRU).setPrefetchDistance(2)
+      .setTileIndexRange(0, 0, 6, 6);
+    cache.getTile(5, 1);
+    cache.getTile(5, 0);
+    Assert.assertFalse(cache.containsTile(5, -1));
+    cache.getTile(6, 0);
+    Assert.assertFalse(cache.containsTile(7, 0));
+    cache.getTile(5, 5);
+    cache.getTile(6, 6);
+    Assert.assertFalse(cache.containsTile(7, 7));
+    assertLoaded("5,1", "5,0", "6,0", "5,5", "4,6", "6,6");
+
+    // The tile index doesn't overflow at the end of the int range
+    final GridTileCache<String> unboundedCache = newCache(EvictionPolicy.LRU)
+      .setPrefetchDistance(2);
+    unboundedCache.getTile(Integer.MAX_VALUE - 1, 0);
+    unboundedCache.getTile(Integer.MAX_VALUE, 0);
+    Assert.assertFalse(unboundedCache.containsTile(Integer.MIN_VALUE, 0));
+  }
+}
@@ -5,12 +5,16 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.elevation.gridded.test.EsriAsciiGriddedElevationModelTest;
+import com.revolsys.core.test.elevation.gridded.test.GridBulkOperationsTest;
+import com.revolsys.core.test.elevation.gridded.test.GridTileCacheTest;
 import com.revolsys.core.test.elevation.gridded.test.ScaledIntegerGriddedDigitalElevationModelTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   ScaledIntegerGriddedDigitalElevationModelTest.class, //
-  EsriAsciiGriddedElevationModelTest.class //
+  EsriAsciiGriddedElevationModelTest.class, //
+  GridBulkOperationsTest.class, //
+  GridTileCacheTest.class //
 })
 public class ElevationTestSuite {
 
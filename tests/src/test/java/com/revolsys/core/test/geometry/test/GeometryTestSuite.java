@@ -5,6 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.geometry.cs.CoordinateSystemsTest;
+import com.revolsys.core.test.gis.graph.NodeCoordinatesTest;
 import com.revolsys.core.test.geometry.test.editor.GeometryEditorSuite;
 import com.revolsys.core.test.geometry.test.model.GeometrySuite;
 import com.revolsys.core.test.geometry.test.model.operation.OperationTests;
@@ -20,7 +21,8 @@ import com.revolsys.core.test.geometry.test.testrunner.TopologyTest;
   OperationTests.class, //
   MasterTester.class, //
   TopologyTest.class, //
-  TreeTestSuite.class
+  TreeTestSuite.class, //
+  NodeCoordinatesTest.class
 })
 public class GeometryTestSuite {
 }
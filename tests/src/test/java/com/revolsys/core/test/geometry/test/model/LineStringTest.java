@@ -11,6 +11,8 @@ import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.LineString;
 import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Side;
+import com.revolsys.geometry.model.impl.LineStringFloat;
+import com.revolsys.geometry.model.impl.LineStringScaledInt;
 import com.revolsys.geometry.model.impl.PointDouble;
 import com.revolsys.geometry.model.metrics.PointLineStringMetrics;
 import com.revolsys.testapi.GeometryAssert;
@@ -348,6 +350,22 @@ public class LineStringTest {
 
   }
 
+  @Test
+  public void testFloat() {
+    final GeometryFactory geometryFactory = GeometryFactory.floating3d(EpsgId.nad83Utm(10));
+    final LineString line = geometryFactory.lineString(3, START_X, START_Y, 1.5, START_X + 10.25,
+      START_Y + 20.5, Double.NaN);
+    final LineString floatLine = geometryFactory.lineStringFloat(line);
+    Assert.assertTrue("LineStringFloat", floatLine instanceof LineStringFloat);
+    Assert.assertEquals("Vertex Count", 2, floatLine.getVertexCount());
+    for (int vertexIndex = 0; vertexIndex < 2; vertexIndex++) {
+      Assert.assertEquals("X", line.getX(vertexIndex), floatLine.getX(vertexIndex), 0.001);
+      Assert.assertEquals("Y", line.getY(vertexIndex), floatLine.getY(vertexIndex), 0.001);
+    }
+    Assert.assertEquals("Z", 1.5, floatLine.getZ(0), 0);
+    Assert.assertTrue("Z NaN", Double.isNaN(floatLine.getZ(1)));
+  }
+
   @Test
   public void testFromFile() {
     GeometryAssert.doTestGeometry(getClass(), "LineString.csv");
@@ -417,6 +435,42 @@ public class LineStringTest {
 
   }
 
+  @Test
+  public void testScaledInt() {
+    final GeometryFactory geometryFactory = GeometryFactory.fixed3d(EpsgId.nad83Utm(10), 1000.0,
+      1000.0, 1000.0);
+    final double[] coordinates = {
+      START_X, START_Y, 1.5, //
+      START_X + 10.1234, START_Y + 20.5678, Double.NaN, //
+      START_X + 1000000.001, START_Y - 1000000.001, 3.25
+    };
+    final LineString doubleLine = geometryFactory.lineString(3, coordinates);
+    Assert.assertFalse("Default LineStringScaledInt", doubleLine instanceof LineStringScaledInt);
+    final LineString line = geometryFactory.lineStringScaledInt(doubleLine);
+    Assert.assertTrue("LineStringScaledInt", line instanceof LineStringScaledInt);
+    for (int vertexIndex = 0; vertexIndex < 3; vertexIndex++) {
+      for (int axisIndex = 0; axisIndex < 3; axisIndex++) {
+        final double expected = geometryFactory.makePrecise(axisIndex,
+          coordinates[vertexIndex * 3 + axisIndex]);
+        Assert.assertEquals("Coordinate", expected, line.getCoordinate(vertexIndex, axisIndex),
+          0);
+      }
+    }
+    GeometryAssert.equalsExact(3, line, doubleLine);
+    Assert.assertEquals("Length", doubleLine.getLength(), line.getLength(), 0);
+
+    // Extent too large for an int offset falls back to double coordinates
+    final LineString largeLine = geometryFactory
+      .lineStringScaledInt(geometryFactory.lineString(2, 0.0, 0, 3000000, 0));
+    Assert.assertFalse("Large LineStringScaledInt", largeLine instanceof LineStringScaledInt);
+    Assert.assertEquals("Large X", 3000000, largeLine.getX(1), 0);
+
+    // Floating geometry factories have no scale
+    final LineString floatingLine = GeometryFactory.floating3d(EpsgId.nad83Utm(10))
+      .lineStringScaledInt(doubleLine);
+    Assert.assertFalse("Floating LineStringScaledInt", floatingLine instanceof LineStringScaledInt);
+  }
+
   @Test
   public void testSplit() {
     final GeometryFactory geometryFactory = GeometryFactory.fixed3d(EpsgId.nad83Utm(10), 1000.0,
@@ -0,0 +1,133 @@
+package com.revolsys.core.test.geometry.test.old.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.index.strtree.PackedStrTree;
+
+public class PackedStrTreeTest {
+
+  private PackedStrTree<Integer> newTree(final int itemCount) {
+    final PackedStrTree<Integer> tree = new PackedStrTree<>(4);
+    for (int i = 0; i < itemCount; i++) {
+      final double x = i % 100 * 10;
+      final double y = i / 100 * 10;
+      tree.insertItem(x, y, x + 5, y + 5, i);
+    }
+    return tree;
+  }
+
+  @Test
+  public void testEmpty() {
+    final PackedStrTree<Integer> tree = new PackedStrTree<>();
+    tree.build();
+    Assert.assertTrue(tree.isEmpty());
+    Assert.assertTrue(tree.getItems(0, 0, 100, 100).isEmpty());
+  }
+
+  @Test
+  public void testInsertAfterBuild() {
+    final PackedStrTree<Integer> tree = newTree(10);
+    tree.build();
+    try {
+      tree.insertItem(0, 0, 1, 1, 10);
+      Assert.fail("Insert after build should fail");
+    } catch (final IllegalStateException e) {
+    }
+  }
+
+  @Test
+  public void testQuery() {
+    final PackedStrTree<Integer> tree = newTree(10000);
+    Assert.assertEquals(10000, tree.getSize());
+    Assert.assertEquals(10000, tree.getItems().size());
+
+    final List<Integer> items = tree.getItems(12, 12, 31, 23);
+    items.sort(null);
+    final List<Integer> expected = new ArrayList<>();
+    for (final int i : new int[] {
+      101, 102, 103, 201, 202, 203
+    }) {
+      expected.add(i);
+    }
+    Assert.assertEquals(expected, items);
+    Assert.assertEquals(1, tree.getItems(503, 203).size());
+  }
+
+  @Test
+  public void testRemoveItem() throws Exception {
+    final PackedStrTree<Integer> tree = newTree(1000);
+
+    // Before the tree is built the item is removed from the inserted items
+    Assert.assertTrue(tree.removeItem(10, 0, 15, 5, 1));
+    Assert.assertFalse(tree.removeItem(10, 0, 15, 5, 1));
+    Assert.assertEquals(999, tree.getSize());
+
+    // After the tree is built the item is skipped by queries
+    tree.build();
+    Assert.assertFalse("Outside item bounds", tree.removeItem(500, 500, 600, 600, 101));
+    Assert.assertTrue(tree.removeItem(10, 10, 15, 15, 101));
+    Assert.assertFalse(tree.removeItem(10, 10, 15, 15, 101));
+    Assert.assertEquals(998, tree.getSize());
+    Assert.assertEquals(998, tree.getItems().size());
+    final List<Integer> items = tree.getItems(0, 0, 25, 15);
+    items.sort(null);
+    final List<Integer> expected = new ArrayList<>();
+    for (final int i : new int[] {
+      0, 2, 100, 102
+    }) {
+      expected.add(i);
+    }
+    Assert.assertEquals(expected, items);
+
+    // Removed items remain removed after writing and reading the file
+    final File file = File.createTempFile("packedStrTree", ".rtree");
+    try {
+      tree.writeFile(file, Integer::intValue);
+      final PackedStrTree<Integer> fileTree = PackedStrTree.readFile(file, Integer::valueOf);
+      Assert.assertEquals(998, fileTree.getSize());
+      final List<Integer> fileItems = fileTree.getItems(0, 0, 25, 15);
+      fileItems.sort(null);
+      Assert.assertEquals(expected, fileItems);
+    } finally {
+      file.delete();
+    }
+
+    // Removing all items makes the tree empty
+    final PackedStrTree<Integer> smallTree = newTree(2);
+    smallTree.build();
+    Assert.assertTrue(smallTree.removeItem(0, 0, 5, 5, 0));
+    Assert.assertTrue(smallTree.removeItem(10, 0, 15, 5, 1));
+    Assert.assertTrue(smallTree.isEmpty());
+    Assert.assertTrue(smallTree.getItems().isEmpty());
+  }
+
+  @Test
+  public void testSpatialIndex() throws Exception {
+    final SpatialIndexTester tester = new SpatialIndexTester();
+    tester.setSpatialIndex(new PackedStrTree<>());
+    tester.init();
+    tester.run();
+    Assert.assertTrue(tester.isSuccess());
+  }
+
+  @Test
+  public void testWriteFile() throws Exception {
+    final PackedStrTree<Integer> tree = newTree(5000);
+    final File file = File.createTempFile("packedStrTree", ".rtree");
+    try {
+      tree.writeFile(file, Integer::intValue);
+      final PackedStrTree<Integer> fileTree = PackedStrTree.readFile(file, Integer::valueOf);
+      Assert.assertEquals(tree.getSize(), fileTree.getSize());
+      final List<Integer> expected = tree.getItems(100, 100, 400, 250);
+      final List<Integer> actual = fileTree.getItems(100, 100, 400, 250);
+      Assert.assertEquals(expected, actual);
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.revolsys.core.test.geometry.test.old.index;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.index.PagedSpatialIndex;
+
+public class PagedSpatialIndexTest {
+
+  private Set<Long> query(final PagedSpatialIndex index, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    final Set<Long> offsets = new TreeSet<>();
+    index.forEach(minX, minY, maxX, maxY, offsets::add);
+    return offsets;
+  }
+
+  @Test
+  public void testQuery() throws Exception {
+    final File sourceFile = File.createTempFile("pagedSpatialIndex", ".shp");
+    final File indexFile = PagedSpatialIndex.getIndexFile(sourceFile);
+    try {
+      Files.write(sourceFile.toPath(), new byte[] {
+        1, 2, 3
+      });
+      final Random random = new Random(1);
+      final int count = 20000;
+      final long[] offsets = new long[count];
+      final double[] bounds = new double[count * 4];
+      for (int i = 0; i < count; i++) {
+        final double x = random.nextDouble() * 1000;
+        final double y = random.nextDouble() * 1000;
+        offsets[i] = i * 100L;
+        bounds[i * 4] = x;
+        bounds[i * 4 + 1] = y;
+        bounds[i * 4 + 2] = x + random.nextDouble() * 5;
+        bounds[i * 4 + 3] = y + random.nextDouble() * 5;
+      }
+      try (
+        PagedSpatialIndex index = PagedSpatialIndex.newIndex(sourceFile, count, offsets, bounds)) {
+        Assert.assertEquals(count, index.getCount());
+      }
+
+      final byte[] indexBytes = Files.readAllBytes(indexFile.toPath());
+      final long indexLastModified = indexFile.lastModified();
+      try (
+        PagedSpatialIndex index = PagedSpatialIndex.open(sourceFile)) {
+        Assert.assertNotNull(index);
+        for (int i = 0; i < 50; i++) {
+          final double minX = random.nextDouble() * 1000;
+          final double minY = random.nextDouble() * 1000;
+          final double maxX = minX + random.nextDouble() * 100;
+          final double maxY = minY + random.nextDouble() * 100;
+          final Set<Long> expected = new TreeSet<>();
+          for (int j = 0; j < count; j++) {
+            if (!(bounds[j * 4] > maxX || bounds[j * 4 + 1] > maxY || bounds[j * 4 + 2] < minX
+              || bounds[j * 4 + 3] < minY)) {
+              expected.add(offsets[j]);
+            }
+          }
+          Assert.assertEquals(expected, query(index, minX, minY, maxX, maxY));
+        }
+
+        // Queries can run concurrently
+        final long seed = random.nextLong();
+        IntStream.range(0, 200).parallel().forEach(i -> {
+          final Random queryRandom = new Random(seed + i);
+          final double minX = queryRandom.nextDouble() * 1000;
+          final double minY = queryRandom.nextDouble() * 1000;
+          final double maxX = minX + queryRandom.nextDouble() * 100;
+          final double maxY = minY + queryRandom.nextDouble() * 100;
+          final Set<Long> expected = new TreeSet<>();
+          for (int j = 0; j < count; j++) {
+            if (!(bounds[j * 4] > maxX || bounds[j * 4 + 1] > maxY || bounds[j * 4 + 2] < minX
+              || bounds[j * 4 + 3] < minY)) {
+              expected.add(offsets[j]);
+            }
+          }
+          Assert.assertEquals(expected, query(index, minX, minY, maxX, maxY));
+        });
+      }
+
+      // Opening and querying the index doesn't modify the index file
+      Assert.assertArrayEquals(indexBytes, Files.readAllBytes(indexFile.toPath()));
+      Assert.assertEquals(indexLastModified, indexFile.lastModified());
+
+      sourceFile.setLastModified(sourceFile.lastModified() - 10000);
+      Assert.assertNull("Index should not be used if source changed",
+        PagedSpatialIndex.open(sourceFile));
+    } finally {
+      sourceFile.delete();
+      indexFile.delete();
+    }
+  }
+
+  @Test
+  public void testOpenMissing() throws Exception {
+    final File sourceFile = File.createTempFile("pagedSpatialIndex", ".shp");
+    final File indexFile = PagedSpatialIndex.getIndexFile(sourceFile);
+    try {
+      Assert.assertNull(PagedSpatialIndex.open(sourceFile));
+      Assert.assertFalse("Index file created on open", indexFile.exists());
+    } finally {
+      sourceFile.delete();
+      indexFile.delete();
+    }
+  }
+}
@@ -7,6 +7,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
   KdTreeTest.class, //
+  PackedStrTreeTest.class, //
+  PagedSpatialIndexTest.class, //
   QuadtreeTest.class, //
   STRtreeTest.class
 })
@@ -0,0 +1,176 @@
+package com.revolsys.core.test.geometry.test.old.noding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import com.revolsys.geometry.algorithm.RobustLineIntersector;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.noding.FastNodingValidator;
+import com.revolsys.geometry.noding.InteriorIntersectionFinder;
+import com.revolsys.geometry.noding.IntersectionAdder;
+import com.revolsys.geometry.noding.MCIndexNoder;
+import com.revolsys.geometry.noding.NodedSegmentString;
+import com.revolsys.geometry.noding.SegmentIntersector;
+import com.revolsys.geometry.noding.SegmentString;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that the parallel noding of {@link MCIndexNoder} gives the same result as
+ * the single threaded noding and stops once a segment intersector is done.
+ */
+public class MCIndexNoderTest extends TestCase {
+  /**
+   * Segment intersector that counts the segment pairs and is done after the
+   * maximum count.
+   */
+  private static class CountingSegmentIntersector implements SegmentIntersector {
+    private int count;
+
+    private final int maxCount;
+
+    private CountingSegmentIntersector(final int maxCount) {
+      this.maxCount = maxCount;
+    }
+
+    @Override
+    public boolean isDone() {
+      return this.count >= this.maxCount;
+    }
+
+    @Override
+    public void processIntersections(final SegmentString e0, final int segIndex0,
+      final SegmentString e1, final int segIndex1) {
+      this.count++;
+    }
+  }
+
+  public static void main(final String[] args) {
+    junit.textui.TestRunner.run(MCIndexNoderTest.class);
+  }
+
+  private final GeometryFactory geometryFactory = GeometryFactory.fixed2d(0, 1000.0, 1000.0);
+
+  private final List<LineString> lines = new ArrayList<>();
+
+  public MCIndexNoderTest(final String name) {
+    super(name);
+    final Random random = new Random(1234);
+    for (int i = 0; i < 100; i++) {
+      final double[] coordinates = new double[400];
+      double x = random.nextInt(1000);
+      double y = random.nextInt(1000);
+      for (int j = 0; j < coordinates.length; j += 2) {
+        coordinates[j] = x;
+        coordinates[j + 1] = y;
+        x += random.nextInt(41) - 20;
+        y += random.nextInt(41) - 20;
+      }
+      this.lines.add(this.geometryFactory.lineString(2, coordinates));
+    }
+  }
+
+  private void assertNodedEquals(final List<NodedSegmentString> expected,
+    final List<NodedSegmentString> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final LineString expectedLine = expected.get(i);
+      final LineString actualLine = actual.get(i);
+      assertTrue("Substring " + i, expectedLine.equalsExact(actualLine));
+    }
+  }
+
+  private List<NodedSegmentString> newSegmentStrings() {
+    final List<NodedSegmentString> segmentStrings = new ArrayList<>();
+    for (final LineString line : this.lines) {
+      segmentStrings.add(new NodedSegmentString(line, null));
+    }
+    return segmentStrings;
+  }
+
+  private List<NodedSegmentString> node(final int parallelism, final boolean useFactory) {
+    final MCIndexNoder noder = new MCIndexNoder();
+    noder.setParallelism(parallelism);
+    noder.setSegmentIntersector(new IntersectionAdder(new RobustLineIntersector()));
+    if (useFactory) {
+      noder.setSegmentIntersectorFactory(() -> new IntersectionAdder(new RobustLineIntersector()));
+    }
+    noder.computeNodes(newSegmentStrings());
+    final Collection<NodedSegmentString> nodedSubstrings = noder.getNodedSubstrings();
+    if (useFactory && parallelism > 1) {
+      assertEquals(parallelism * 4, noder.getSegmentIntersectors().size());
+    } else {
+      assertTrue(noder.getSegmentIntersectors().isEmpty());
+    }
+    return new ArrayList<>(nodedSubstrings);
+  }
+
+  public void testFastNodingValidator() {
+    final FastNodingValidator allValidator = new FastNodingValidator(newSegmentStrings());
+    allValidator.setFindAllIntersections(true);
+    assertFalse(allValidator.isValid());
+    final int allCount = allValidator.getIntersections().size();
+
+    final FastNodingValidator validator = new FastNodingValidator(newSegmentStrings());
+    assertFalse(validator.isValid());
+    final int count = validator.getIntersections().size();
+    assertTrue(count > 0);
+    assertTrue("Stop after the first intersection", count < allCount);
+  }
+
+  public void testInteriorIntersectionFinder() {
+    for (final int parallelism : new int[] {
+      1, 4
+    }) {
+      final InteriorIntersectionFinder finder = new InteriorIntersectionFinder(
+        new RobustLineIntersector());
+      final MCIndexNoder noder = new MCIndexNoder(finder);
+      noder.setParallelism(parallelism);
+      noder.computeNodes(newSegmentStrings());
+      assertTrue(finder.hasIntersection());
+    }
+  }
+
+  public void testParallelStopsEarly() {
+    final CountingSegmentIntersector allIntersector = new CountingSegmentIntersector(
+      Integer.MAX_VALUE);
+    new MCIndexNoder(allIntersector).computeNodes(newSegmentStrings());
+
+    final List<CountingSegmentIntersector> intersectors = new ArrayList<>();
+    final MCIndexNoder noder = new MCIndexNoder(new CountingSegmentIntersector(10));
+    noder.setParallelism(4);
+    noder.setSegmentIntersectorFactory(() -> {
+      final CountingSegmentIntersector intersector = new CountingSegmentIntersector(10);
+      synchronized (intersectors) {
+        intersectors.add(intersector);
+      }
+      return intersector;
+    });
+    noder.computeNodes(newSegmentStrings());
+    assertEquals(16, intersectors.size());
+    int count = 0;
+    boolean done = false;
+    for (final CountingSegmentIntersector intersector : intersectors) {
+      count += intersector.count;
+      done |= intersector.isDone();
+    }
+    assertTrue(done);
+    // All the threads stop once any intersector is done
+    assertTrue(count < allIntersector.count / 2);
+  }
+
+  public void testWithoutFactoryIsSequential() {
+    final List<NodedSegmentString> expected = node(1, false);
+    assertTrue(expected.size() > this.lines.size());
+    assertNodedEquals(expected, node(4, false));
+  }
+
+  public void testParallelSegmentIntersectorFactory() {
+    final List<NodedSegmentString> expected = node(1, false);
+    assertNodedEquals(expected, node(4, true));
+    assertNodedEquals(expected, node(3, true));
+  }
+}
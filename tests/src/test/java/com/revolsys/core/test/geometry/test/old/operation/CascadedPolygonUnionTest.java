@@ -2,12 +2,15 @@ package com.revolsys.core.test.geometry.test.old.operation;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import com.revolsys.core.test.geometry.test.old.junit.GeometryUtils;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
 import com.revolsys.geometry.operation.union.CascadedPolygonUnion;
 
 import junit.framework.TestCase;
@@ -77,4 +80,27 @@ public class CascadedPolygonUnionTest extends TestCase {
 
     runTest(geoms, CascadedPolygonUnionTester.MIN_SIMILARITY_MEAURE);
   }
+
+  public void testParallelDeterministic() throws Exception {
+    final List<Polygon> geoms = new ArrayList<>(newDiscs(15, 0.6));
+    final CascadedPolygonUnion union1 = new CascadedPolygonUnion(geoms);
+    union1.setDeterministic(true);
+    union1.setParallelism(4);
+    final Polygonal expected = union1.union();
+
+    Collections.shuffle(geoms, new Random(42));
+    final CascadedPolygonUnion union2 = new CascadedPolygonUnion(geoms);
+    union2.setDeterministic(true);
+    union2.setParallelism(3);
+    final Polygonal actual = union2.union();
+    assertTrue(expected.equalsExact(actual));
+  }
+
+  public void testParallelEqualsSequential() throws Exception {
+    final Collection<Polygon> geoms = newDiscs(20, 0.6);
+    final Polygonal sequential = CascadedPolygonUnion.union(geoms, 1);
+    final Polygonal parallel = CascadedPolygonUnion.union(geoms, 4);
+    assertTrue(sequential.equalsExact(parallel));
+    runTest(geoms, CascadedPolygonUnionTester.MIN_SIMILARITY_MEAURE);
+  }
 }
@@ -0,0 +1,93 @@
+package com.revolsys.core.test.geometry.test.old.perf.geom;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Measure the multi-threaded throughput of the shared {@link GeometryFactory}
+ * instance lookups (fixed2d, fixed3d, floating2d and floating3d) as used by the
+ * record readers. Each thread repeatedly looks up factories for a small set of
+ * coordinate systems and scales.
+ *
+ * Run with optional arguments: maximum thread count (default 32) and lookups
+ * per thread (default 10,000,000).
+ */
+public class GeometryFactoryCachePerfTest {
+
+  private static final int[] COORDINATE_SYSTEM_IDS = {
+    3005, 26910, 26911, 4269, 4326, 3857, 102100, 0
+  };
+
+  public static void main(final String[] args) throws InterruptedException {
+    int maxThreadCount = 32;
+    long lookupCount = 10_000_000;
+    if (args.length > 0) {
+      maxThreadCount = Integer.parseInt(args[0]);
+    }
+    if (args.length > 1) {
+      lookupCount = Long.parseLong(args[1]);
+    }
+    final GeometryFactoryCachePerfTest test = new GeometryFactoryCachePerfTest();
+    // Warm up the JIT and the caches
+    test.run(4, lookupCount / 10);
+    for (int threadCount = 1; threadCount <= maxThreadCount; threadCount *= 2) {
+      test.run(threadCount, lookupCount);
+    }
+  }
+
+  private final AtomicLong checksum = new AtomicLong();
+
+  private long lookup(final long lookupCount, final int threadIndex) {
+    long hash = 0;
+    final int idCount = COORDINATE_SYSTEM_IDS.length;
+    for (long i = 0; i < lookupCount; i++) {
+      final int coordinateSystemId = COORDINATE_SYSTEM_IDS[(int)((i + threadIndex) % idCount)];
+      final GeometryFactory geometryFactory;
+      switch ((int)(i & 3)) {
+        case 0:
+          geometryFactory = GeometryFactory.fixed2d(coordinateSystemId, 1000.0, 1000.0);
+        break;
+        case 1:
+          geometryFactory = GeometryFactory.fixed3d(coordinateSystemId, 1000.0, 1000.0, 1.0);
+        break;
+        case 2:
+          geometryFactory = GeometryFactory.floating2d(coordinateSystemId);
+        break;
+        default:
+          geometryFactory = GeometryFactory.floating3d(coordinateSystemId);
+        break;
+      }
+      hash += geometryFactory.getAxisCount();
+    }
+    return hash;
+  }
+
+  public void run(final int threadCount, final long lookupCount) throws InterruptedException {
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final CountDownLatch endLatch = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      final int threadIndex = i;
+      final Thread thread = new Thread(() -> {
+        try {
+          startLatch.await();
+          this.checksum.addAndGet(lookup(lookupCount, threadIndex));
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          endLatch.countDown();
+        }
+      });
+      thread.start();
+    }
+    final long startTime = System.nanoTime();
+    startLatch.countDown();
+    endLatch.await();
+    final long time = System.nanoTime() - startTime;
+    final double totalLookups = (double)threadCount * lookupCount;
+    final double lookupsPerSecond = totalLookups / (time / 1e9);
+    System.out.printf("threads=%3d\ttime=%8.1f ms\tlookups/s=%,15.0f\tlookups/s/thread=%,13.0f%n",
+      threadCount, time / 1e6, lookupsPerSecond, lookupsPerSecond / threadCount);
+  }
+}
@@ -0,0 +1,146 @@
+package com.revolsys.core.test.geometry.test.old.perf.grid;
+
+import com.revolsys.core.test.geometry.test.old.perf.PerformanceTestCase;
+import com.revolsys.core.test.geometry.test.old.perf.PerformanceTestRunner;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.grid.DoubleArrayGrid;
+import com.revolsys.grid.FloatArrayGrid;
+import com.revolsys.grid.Grid;
+import com.revolsys.grid.IntArrayScaleGrid;
+import com.revolsys.util.count.DoubleStatistics;
+
+/**
+ * Compare the row band bulk grid operations with the per cell {@link Grid#getValue(int, int)}
+ * path for the int, float and double array grids. The run size is the grid width and height.
+ */
+public class GridBulkPerfTest extends PerformanceTestCase {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  public static void main(final String args[]) {
+    PerformanceTestRunner.run(GridBulkPerfTest.class);
+  }
+
+  private Grid[] grids;
+
+  private int size;
+
+  public GridBulkPerfTest(final String name) {
+    super(name);
+    setRunSize(new int[] {
+      1000, 4000
+    });
+    setRunIterations(5);
+  }
+
+  private Grid[] newGrids(final int size, final double gridCellSize) {
+    return new Grid[] {
+      new IntArrayScaleGrid(GEOMETRY_FACTORY, 0, 0, size, size, gridCellSize),
+      new FloatArrayGrid(GEOMETRY_FACTORY, 0, 0, size, size, gridCellSize),
+      new DoubleArrayGrid(GEOMETRY_FACTORY, 0, 0, size, size, gridCellSize)
+    };
+  }
+
+  public void runBilinearBulk() {
+    for (final Grid grid : this.grids) {
+      grid.resampleBilinear(0.75, 0.75);
+    }
+  }
+
+  public void runBilinearPerCell() {
+    for (final Grid grid : this.grids) {
+      final int newSize = (int)Math.round(this.size / 0.75);
+      final Grid newGrid = grid.newGrid(GEOMETRY_FACTORY, 0, 0, newSize, newSize, 0.75, 0.75);
+      for (int gridY = 0; gridY < newSize; gridY++) {
+        final double y = gridY * 0.75;
+        for (int gridX = 0; gridX < newSize; gridX++) {
+          final double x = gridX * 0.75;
+          newGrid.setValue(gridX, gridY, grid.getValueBilinear(x, y));
+        }
+      }
+    }
+  }
+
+  public void runHistogramBulk() {
+    for (final Grid grid : this.grids) {
+      grid.getHistogram(0, 100, 256);
+    }
+  }
+
+  public void runHistogramPerCell() {
+    for (final Grid grid : this.grids) {
+      final int[] counts = new int[256];
+      final double binScale = 256 / 100.0;
+      for (int gridY = 0; gridY < this.size; gridY++) {
+        for (int gridX = 0; gridX < this.size; gridX++) {
+          final double value = grid.getValue(gridX, gridY);
+          final int bin = Grid.getHistogramBin(0, 100, binScale, 256, value);
+          if (bin >= 0) {
+            counts[bin]++;
+          }
+        }
+      }
+    }
+  }
+
+  public void runMosaicBulk() {
+    final Grid[] mosaics = newGrids(this.size * 2, 1);
+    for (int i = 0; i < mosaics.length; i++) {
+      mosaics[i].setValuesFinite(this.grids[i]);
+    }
+  }
+
+  public void runMosaicPerCell() {
+    final Grid[] mosaics = newGrids(this.size * 2, 1);
+    for (int i = 0; i < mosaics.length; i++) {
+      final Grid grid = this.grids[i];
+      final Grid mosaic = mosaics[i];
+      for (int gridY = 0; gridY < this.size; gridY++) {
+        for (int gridX = 0; gridX < this.size; gridX++) {
+          final double value = grid.getValue(gridX, gridY);
+          if (Double.isFinite(value)) {
+            mosaic.setValue(gridX, gridY, value);
+          }
+        }
+      }
+    }
+  }
+
+  public void runStatisticsBulk() {
+    for (final Grid grid : this.grids) {
+      grid.getStatistics();
+    }
+  }
+
+  public void runStatisticsPerCell() {
+    for (final Grid grid : this.grids) {
+      final DoubleStatistics statistics = new DoubleStatistics();
+      for (int gridY = 0; gridY < this.size; gridY++) {
+        for (int gridX = 0; gridX < this.size; gridX++) {
+          final double value = grid.getValue(gridX, gridY);
+          if (Double.isFinite(value)) {
+            statistics.addValue(value);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void startRun(final int size) {
+    this.size = size;
+    this.grids = newGrids(size, 1);
+    for (final Grid grid : this.grids) {
+      for (int gridY = 0; gridY < size; gridY++) {
+        for (int gridX = 0; gridX < size; gridX++) {
+          if ((gridX + gridY) % 97 != 0) {
+            final double value = 50 + 25 * Math.sin(gridX / 50.0) * Math.cos(gridY / 70.0);
+            grid.setValue(gridX, gridY, value);
+          }
+        }
+      }
+      grid.updateValues();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.revolsys.core.test.gis.graph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.graph.Graph;
+import com.revolsys.geometry.graph.Node;
+import com.revolsys.geometry.graph.NodeCoordinates;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.impl.PointDoubleXY;
+
+public class NodeCoordinatesTest {
+
+  private static String toKey(final double x, final double y) {
+    return x + "," + y;
+  }
+
+  @Test
+  public void testGraphNodes() {
+    final GeometryFactory geometryFactory = GeometryFactory.fixed2d(3005, 1000.0, 1000.0);
+    final Graph<Object> graph = new Graph<>();
+    final LineString line1 = geometryFactory.lineString(2, 0.0, 0.0, 10.0, 0.0);
+    final LineString line2 = geometryFactory.lineString(2, 10.0, 0.0, 10.0, 10.0);
+    graph.addEdge("1", line1);
+    graph.addEdge("2", line2);
+    Assert.assertEquals(3, graph.getNodeCount());
+
+    final Node<Object> node = graph.findNode(10, 0);
+    Assert.assertNotNull(node);
+    Assert.assertEquals(2, node.getDegree());
+    Assert.assertSame(node, graph.getNode(new PointDoubleXY(10.0, -0.0)));
+    Assert.assertNull(graph.findNode(10, 0.001));
+
+    final List<Node<Object>> nodes = graph.getNodes();
+    Assert.assertEquals(3, nodes.size());
+    Assert.assertEquals(0, nodes.get(0).getX(), 0);
+    Assert.assertEquals(10, nodes.get(2).getY(), 0);
+
+    graph.remove(graph.findNode(10, 10));
+    Assert.assertNull(graph.findNode(10, 10));
+    Assert.assertEquals(1, node.getDegree());
+    final Point point = graph.getNode(10, 10);
+    Assert.assertNotNull(graph.findNode(point));
+  }
+
+  @Test
+  public void testNaN() {
+    final NodeCoordinates coordinates = new NodeCoordinates();
+    coordinates.add(1, Double.NaN, 1);
+    coordinates.add(2, 1, Double.NaN);
+    coordinates.add(3, 0.0, 0.0);
+    Assert.assertEquals(1, coordinates.getNodeId(Double.NaN, 1));
+    Assert.assertEquals(2, coordinates.getNodeId(1, Double.NaN));
+    Assert.assertEquals(0, coordinates.getNodeId(Double.NaN, Double.NaN));
+    Assert.assertEquals(3, coordinates.getNodeId(-0.0, 0.0));
+    Assert.assertTrue(coordinates.remove(1));
+    Assert.assertEquals(0, coordinates.getNodeId(Double.NaN, 1));
+    Assert.assertEquals(2, coordinates.getNodeId(1, Double.NaN));
+  }
+
+  @Test
+  public void testRandomAddRemove() {
+    final NodeCoordinates coordinates = new NodeCoordinates();
+    final Map<String, Integer> expected = new HashMap<>();
+    final Random random = new Random(1234);
+    int nextNodeId = 0;
+    for (int i = 0; i < 20000; i++) {
+      final double x = random.nextInt(100);
+      final double y = random.nextInt(100) / 4.0;
+      final String key = toKey(x, y);
+      final Integer nodeId = expected.get(key);
+      if (nodeId == null) {
+        Assert.assertEquals(0, coordinates.getNodeId(x, y));
+        final int newNodeId = ++nextNodeId;
+        coordinates.add(newNodeId, x, y);
+        expected.put(key, newNodeId);
+      } else {
+        Assert.assertEquals(nodeId.intValue(), coordinates.getNodeId(x, y));
+        if (random.nextBoolean()) {
+          Assert.assertTrue(coordinates.remove(nodeId));
+          Assert.assertFalse(coordinates.remove(nodeId));
+          expected.remove(key);
+        }
+      }
+      Assert.assertEquals(expected.size(), coordinates.size());
+    }
+    for (final Map.Entry<String, Integer> entry : expected.entrySet()) {
+      final int nodeId = entry.getValue();
+      final double x = coordinates.getX(nodeId);
+      final double y = coordinates.getY(nodeId);
+      Assert.assertEquals(entry.getKey(), toKey(x, y));
+      Assert.assertEquals(nodeId, coordinates.getNodeId(x, y));
+    }
+  }
+}
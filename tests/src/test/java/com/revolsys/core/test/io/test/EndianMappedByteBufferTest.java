@@ -0,0 +1,98 @@
+package com.revolsys.core.test.io.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.io.endian.EndianMappedByteBuffer;
+
+/**
+ * Test reading a file using a small window so the reads cross the end of the mapped window.
+ */
+public class EndianMappedByteBufferTest {
+
+  private static final int WINDOW_SIZE = 64;
+
+  private byte[] bytes;
+
+  private File file;
+
+  @After
+  public void deleteFile() {
+    this.file.delete();
+  }
+
+  @Test
+  public void testGetBuffer() throws IOException {
+    try (
+      EndianMappedByteBuffer in = new EndianMappedByteBuffer(this.file, MapMode.READ_ONLY,
+        WINDOW_SIZE)) {
+      in.seek(10);
+      // Views outside and larger than the window don't move the file pointer
+      for (final int position : new int[] {
+        0, 60, 1000, 4000 - 200, 5
+      }) {
+        final ByteBuffer buffer = in.getBuffer(position, 200);
+        Assert.assertEquals(200, buffer.remaining());
+        for (int i = 0; i < 200; i++) {
+          Assert.assertEquals(position + i, this.bytes[position + i], buffer.get(i));
+        }
+        Assert.assertEquals(10, in.getFilePointer());
+      }
+      Assert.assertEquals(ByteBuffer.wrap(this.bytes, 10, 4).getInt(), in.readInt());
+    }
+  }
+
+  @Test
+  public void testReadAcrossWindow() throws IOException {
+    final ByteBuffer expected = ByteBuffer.wrap(this.bytes);
+    try (
+      EndianMappedByteBuffer in = new EndianMappedByteBuffer(this.file, MapMode.READ_ONLY,
+        WINDOW_SIZE)) {
+      // Unaligned reads so values cross the end of each window
+      in.seek(1);
+      for (int position = 1; position + 8 <= this.bytes.length; position += 4) {
+        Assert.assertEquals(position, in.getFilePointer());
+        expected.order(ByteOrder.BIG_ENDIAN);
+        Assert.assertEquals(position, expected.getInt(position), in.readInt());
+        position += 4;
+        expected.order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(position, expected.getInt(position), in.readLEInt());
+      }
+
+      in.seek(WINDOW_SIZE - 3);
+      Assert.assertEquals(ByteBuffer.wrap(this.bytes).getDouble(WINDOW_SIZE - 3),
+        in.readDouble(), 0);
+      in.seek(WINDOW_SIZE * 3 - 1);
+      final byte[] readBytes = new byte[WINDOW_SIZE * 2];
+      in.read(readBytes);
+      for (int i = 0; i < readBytes.length; i++) {
+        Assert.assertEquals(this.bytes[WINDOW_SIZE * 3 - 1 + i], readBytes[i]);
+      }
+
+      // Skipping past the end of the window
+      in.seek(0);
+      in.skipBytes(WINDOW_SIZE * 2 + 5);
+      Assert.assertEquals(WINDOW_SIZE * 2 + 5, in.getFilePointer());
+      Assert.assertEquals(this.bytes[WINDOW_SIZE * 2 + 5], (byte)in.read());
+    }
+  }
+
+  @Before
+  public void writeFile() throws IOException {
+    this.bytes = new byte[4000];
+    for (int i = 0; i < this.bytes.length; i++) {
+      this.bytes[i] = (byte)(i * 7 + i / 256);
+    }
+    this.file = File.createTempFile("endianMapped", ".bin");
+    Files.write(this.file.toPath(), this.bytes);
+  }
+}
@@ -0,0 +1,287 @@
+package com.revolsys.core.test.io.test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.channels.HttpChannelReader;
+import com.revolsys.io.channels.HttpSeekableByteChannel;
+import com.revolsys.raster.BufferedGeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImage;
+import com.revolsys.raster.GeoreferencedImageMapTile;
+import com.revolsys.raster.io.format.tiff.TiffGeoreferencedImageWriter;
+import com.revolsys.raster.io.format.tiff.TiffImageFactory;
+import com.revolsys.raster.io.format.tiff.image.AbstractTiffImage;
+import com.revolsys.spring.resource.PathResource;
+import com.revolsys.spring.resource.UrlResource;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test the HTTP channels against a local HTTP server that supports Range requests.
+ */
+public class HttpChannelTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  /** The size of the image tiles, uncompressed RGB so each tile is 12KB. */
+  private static final int TILE_SIZE = 64;
+
+  private final byte[] content = new byte[256 * 1024];
+
+  private final AtomicInteger requestCount = new AtomicInteger();
+
+  private byte[] imageContent = new byte[0];
+
+  private HttpServer server;
+
+  private URL url;
+
+  private void assertTiles(final BufferedImage expectedImage,
+    final List<GeoreferencedImageMapTile> tiles) {
+    for (final GeoreferencedImageMapTile tile : tiles) {
+      final GeoreferencedImage tileImage = tile.loadData();
+      Assert.assertNotNull("Tile " + tile.getBoundingBox(), tileImage);
+      final BufferedImage actualImage = tileImage.getBufferedImage();
+      final BoundingBox boundingBox = tile.getBoundingBox();
+      final int tileX = (int)(boundingBox.getMinX() - 1000000);
+      final int tileY = expectedImage.getHeight() - (int)(boundingBox.getMaxY() - 500000);
+      for (int y = 0; y < tile.getHeightPixels(); y += 7) {
+        for (int x = 0; x < tile.getWidthPixels(); x += 5) {
+          Assert.assertEquals(tileX + x + "," + (tileY + y),
+            expectedImage.getRGB(tileX + x, tileY + y) & 0xFFFFFF,
+            actualImage.getRGB(x, y) & 0xFFFFFF);
+        }
+      }
+    }
+  }
+
+  private void assertRead(final HttpSeekableByteChannel channel, final int position,
+    final int length) throws Exception {
+    channel.position(position);
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      Assert.assertNotEquals(-1, channel.read(buffer));
+    }
+    Assert.assertArrayEquals(Arrays.copyOfRange(this.content, position, position + length),
+      buffer.array());
+  }
+
+  private BoundingBox getTilesBoundingBox(final BufferedImage image, final int minTileX,
+    final int minTileY, final int maxTileX, final int maxTileY) {
+    final double maxY = 500000 + image.getHeight();
+    return GEOMETRY_FACTORY.newBoundingBox(1000000 + minTileX * TILE_SIZE + 1,
+      maxY - (maxTileY + 1) * TILE_SIZE + 1, 1000000 + (maxTileX + 1) * TILE_SIZE - 1,
+      maxY - minTileY * TILE_SIZE - 1);
+  }
+
+  private void handle(final HttpExchange exchange, final byte[] content)
+    throws java.io.IOException {
+    this.requestCount.incrementAndGet();
+    final String range = exchange.getRequestHeaders().getFirst("Range");
+    int start = 0;
+    int end = content.length - 1;
+    int status = 200;
+    if (range != null) {
+      final String[] parts = range.substring("bytes=".length()).split("-", -1);
+      start = Integer.parseInt(parts[0]);
+      if (!parts[1].isEmpty()) {
+        end = Math.min(end, Integer.parseInt(parts[1]));
+      }
+      status = 206;
+      exchange.getResponseHeaders()
+        .add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+    }
+    final int length = end - start + 1;
+    exchange.sendResponseHeaders(status, length);
+    try (
+      OutputStream out = exchange.getResponseBody()) {
+      out.write(content, start, length);
+    } catch (final java.io.IOException e) {
+      // Client closed the connection before reading all the bytes
+    }
+  }
+
+  /**
+   * Write a tiled uncompressed GeoTIFF without overviews and serve it from /image.tif. The tiles
+   * are written in row order so the tiles in a row are next to each other in the file.
+   */
+  private BufferedImage newImage(final int width, final int height) throws Exception {
+    final BufferedImage bufferedImage = new BufferedImage(width, height,
+      BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        bufferedImage.setRGB(x, y, x % 256 << 16 | y % 256 << 8 | (x + y) % 256);
+      }
+    }
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1000000, 500000,
+      1000000 + width, 500000 + height);
+    final File file = File.createTempFile("httpChannel", ".tif");
+    try {
+      final TiffGeoreferencedImageWriter writer = new TiffGeoreferencedImageWriter(
+        new PathResource(file));
+      writer.setProperty("tiled", true);
+      writer.setProperty("tileSize", TILE_SIZE);
+      writer.setProperty("compression", "NONE");
+      writer.setProperty("overviews", false);
+      writer.write(new BufferedGeoreferencedImage(boundingBox, bufferedImage));
+      writer.close();
+      this.imageContent = Files.readAllBytes(file.toPath());
+    } finally {
+      file.delete();
+    }
+    return bufferedImage;
+  }
+
+  private AbstractTiffImage readImage() throws Exception {
+    final URL imageUrl = new URL(
+      "http://127.0.0.1:" + this.server.getAddress().getPort() + "/image.tif");
+    final GeoreferencedImage image = new TiffImageFactory()
+      .readGeoreferencedImage(new UrlResource(imageUrl));
+    Assert.assertTrue(image.getClass().getName(), image instanceof AbstractTiffImage);
+    final AbstractTiffImage tiffImage = (AbstractTiffImage)image;
+    Assert.assertTrue("Cloud Optimized", tiffImage.isCloudOptimized());
+    this.requestCount.set(0);
+    return tiffImage;
+  }
+
+  @Before
+  public void startServer() throws Exception {
+    for (int i = 0; i < this.content.length; i++) {
+      this.content[i] = (byte)(i * 31);
+    }
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.server.createContext("/data", exchange -> handle(exchange, this.content));
+    this.server.createContext("/image.tif", exchange -> handle(exchange, this.imageContent));
+    this.server.start();
+    this.url = new URL("http://127.0.0.1:" + this.server.getAddress().getPort() + "/data");
+  }
+
+  @After
+  public void stopServer() {
+    this.server.stop(0);
+  }
+
+  @Test
+  public void testCloudOptimizedBatch() throws Exception {
+    final BufferedImage bufferedImage = newImage(1024, 256);
+    final AbstractTiffImage image = readImage();
+
+    // 16x4 tiles, the 2 tiles in a row are next to each other so are read in one request
+    final List<GeoreferencedImageMapTile> rowTiles = image
+      .getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 0, 0, 1, 0));
+    Assert.assertEquals(2, rowTiles.size());
+    assertTiles(bufferedImage, rowTiles);
+    Assert.assertEquals(1, this.requestCount.get());
+
+    // The rows are 14 tiles (168KB) apart so the 2x2 block needs a request for each row
+    this.requestCount.set(0);
+    final List<GeoreferencedImageMapTile> blockTiles = image
+      .getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 4, 1, 5, 2));
+    Assert.assertEquals(4, blockTiles.size());
+    assertTiles(bufferedImage, blockTiles);
+    Assert.assertEquals(2, this.requestCount.get());
+
+    // Cached tiles are skipped and the remaining tiles less than 64KB apart share a request
+    this.requestCount.set(0);
+    assertTiles(bufferedImage,
+      image.getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 9, 3, 11, 3)));
+    Assert.assertEquals(1, this.requestCount.get());
+    final List<GeoreferencedImageMapTile> gapTiles = image
+      .getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 8, 3, 12, 3));
+    Assert.assertEquals(5, gapTiles.size());
+    assertTiles(bufferedImage, gapTiles);
+    Assert.assertEquals(2, this.requestCount.get());
+  }
+
+  @Test
+  public void testCloudOptimizedCache() throws Exception {
+    // 16x12 tiles, more than the 128 cached tiles
+    final BufferedImage bufferedImage = newImage(1024, 768);
+    final AbstractTiffImage image = readImage();
+
+    // Rows 0-7 are one 1.5MB range and all fit in the cache
+    final List<GeoreferencedImageMapTile> topTiles = image
+      .getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 0, 0, 15, 7));
+    Assert.assertEquals(128, topTiles.size());
+    assertTiles(bufferedImage, topTiles);
+    Assert.assertEquals(1, this.requestCount.get());
+
+    // Reading rows 8-11 evicts the least recently used rows 0-3
+    final List<GeoreferencedImageMapTile> bottomTiles = image
+      .getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 0, 8, 15, 11));
+    Assert.assertEquals(64, bottomTiles.size());
+    assertTiles(bufferedImage, bottomTiles);
+    Assert.assertEquals(2, this.requestCount.get());
+
+    // Rows 4-7 are still cached
+    assertTiles(bufferedImage,
+      image.getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 0, 4, 15, 7)));
+    Assert.assertEquals(2, this.requestCount.get());
+
+    // Row 0 was evicted so must be read again
+    assertTiles(bufferedImage,
+      image.getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 0, 0, 15, 0)));
+    Assert.assertEquals(3, this.requestCount.get());
+  }
+
+  @Test
+  public void testNotCloudOptimized() throws Exception {
+    final BufferedImage bufferedImage = newImage(1024, 256);
+    final AbstractTiffImage image = readImage();
+    image.setCloudOptimized(false);
+
+    final List<GeoreferencedImageMapTile> tiles = image
+      .getOverlappingMapTiles(getTilesBoundingBox(bufferedImage, 0, 0, 1, 1));
+    Assert.assertEquals(4, tiles.size());
+    assertTiles(bufferedImage, tiles);
+    // One request for each tile
+    Assert.assertEquals(4, this.requestCount.get());
+  }
+
+  @Test
+  public void testRangeInputStream() throws Exception {
+    try (
+      HttpChannelReader reader = new HttpChannelReader(this.url);
+      InputStream in = reader.getInputStream(1000, 5000)) {
+      final byte[] bytes = in.readAllBytes();
+      Assert.assertArrayEquals(Arrays.copyOfRange(this.content, 1000, 6000), bytes);
+    }
+    Assert.assertEquals(1, this.requestCount.get());
+  }
+
+  @Test
+  public void testSeek() throws Exception {
+    try (
+      HttpSeekableByteChannel channel = new HttpSeekableByteChannel(this.url)) {
+      assertRead(channel, 0, 100);
+      // Short forward seeks use the same connection
+      assertRead(channel, 1000, 100);
+      assertRead(channel, 20000, 100);
+      Assert.assertEquals(1, this.requestCount.get());
+
+      // Backward and long forward seeks open a new connection
+      assertRead(channel, 500, 100);
+      Assert.assertEquals(2, this.requestCount.get());
+      assertRead(channel, 200000, 100);
+      Assert.assertEquals(3, this.requestCount.get());
+      Assert.assertEquals(this.content.length, channel.size());
+    }
+  }
+}
@@ -6,6 +6,8 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+  EndianMappedByteBufferTest.class, //
+  HttpChannelTest.class, //
   PathTest.class
 })
 public class IoTestSuite {
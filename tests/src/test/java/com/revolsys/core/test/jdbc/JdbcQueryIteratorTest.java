@@ -0,0 +1,183 @@
+package com.revolsys.core.test.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.jdbc.field.JdbcIntegerFieldDefinition;
+import com.revolsys.jdbc.field.JdbcStringFieldDefinition;
+import com.revolsys.jdbc.io.JdbcQueryIterator;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.query.ColumnIndexes;
+import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+public class JdbcQueryIteratorTest {
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "JdbcQueryIteratorTest") //
+      .addField(new JdbcIntegerFieldDefinition("ID", "id", Types.INTEGER, true, null,
+        Collections.emptyMap())) //
+      .addField(new JdbcStringFieldDefinition("NAME", "name", Types.VARCHAR, 20, false, null,
+        Collections.emptyMap())) //
+      .getRecordDefinition();
+
+  @SuppressWarnings({
+    "rawtypes", "unchecked"
+  })
+  private static List<QueryValue> getSelectExpressions() {
+    return (List)RECORD_DEFINITION.getFieldDefinitions();
+  }
+
+  /**
+   * Create a result set over the rows, each row is an id and name. Only the methods used to read
+   * the rows are supported.
+   */
+  private static ResultSet newResultSet(final Object[][] rows) {
+    final int[] rowIndex = {
+      -1
+    };
+    final boolean[] wasNull = {
+      false
+    };
+    return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {
+      ResultSet.class
+    }, (proxy, method, args) -> {
+      final String name = method.getName();
+      switch (name) {
+        case "absolute":
+          rowIndex[0] = (Integer)args[0] - 1;
+          return rowIndex[0] < rows.length;
+        case "next":
+          rowIndex[0]++;
+          return rowIndex[0] < rows.length;
+        case "getInt": {
+          final Object value = rows[rowIndex[0]][(Integer)args[0] - 1];
+          wasNull[0] = value == null;
+          return value == null ? 0 : value;
+        }
+        case "getString": {
+          final Object value = rows[rowIndex[0]][(Integer)args[0] - 1];
+          wasNull[0] = value == null;
+          return value;
+        }
+        case "wasNull":
+          return wasNull[0];
+        default:
+          throw new UnsupportedOperationException(name);
+      }
+    });
+  }
+
+  private static Object[][] newRows(final int rowCount) {
+    final Object[][] rows = new Object[rowCount][];
+    for (int i = 0; i < rowCount; i++) {
+      final String name;
+      if (i % 5 == 0) {
+        name = null;
+      } else {
+        name = "Name " + i;
+      }
+      rows[i] = new Object[] {
+        i, name
+      };
+    }
+    return rows;
+  }
+
+  @Test
+  public void testFetchSize() {
+    Assert.assertEquals(1000, JdbcQueryIterator.getFetchSize(null));
+
+    // Narrow rows are limited to the maximum fetch size
+    Assert.assertEquals(10000, JdbcQueryIterator.getFetchSize(RECORD_DEFINITION));
+
+    // 8 + 256 + 1024 bytes per row
+    final RecordDefinition wideRecordDefinition = new RecordDefinitionBuilder("wide") //
+      .addField("id", DataTypes.INT) //
+      .addField("geometry", GeometryDataTypes.GEOMETRY) //
+      .addField("text", DataTypes.STRING, 4000) //
+      .getRecordDefinition();
+    Assert.assertEquals(4 * 1024 * 1024 / (8 + 256 + 1024),
+      JdbcQueryIterator.getFetchSize(wideRecordDefinition));
+
+    // Very wide rows are limited to the minimum fetch size
+    final RecordDefinitionBuilder veryWideBuilder = new RecordDefinitionBuilder("veryWide");
+    for (int i = 0; i < 50; i++) {
+      veryWideBuilder.addField("text" + i, DataTypes.STRING, 2000);
+    }
+    final RecordDefinition veryWideRecordDefinition = veryWideBuilder.getRecordDefinition();
+    Assert.assertEquals(100, JdbcQueryIterator.getFetchSize(veryWideRecordDefinition));
+  }
+
+  @Test
+  public void testNextRecord() throws Exception {
+    final Object[][] rows = newRows(12);
+    final List<QueryValue> selectExpressionList = getSelectExpressions();
+    final QueryValue[] selectExpressions = selectExpressionList.toArray(new QueryValue[0]);
+    final ResultSet listResultSet = newResultSet(rows);
+    final ResultSet arrayResultSet = newResultSet(rows);
+    final ColumnIndexes listIndexes = new ColumnIndexes();
+    final ColumnIndexes arrayIndexes = new ColumnIndexes();
+    int rowIndex = 0;
+    while (listResultSet.next() && arrayResultSet.next()) {
+      final Record listRecord = JdbcQueryIterator.getNextRecord(RECORD_DEFINITION,
+        selectExpressionList, ArrayRecord::newRecord, listResultSet, listIndexes, false);
+      final Record arrayRecord = JdbcQueryIterator.getNextRecord(RECORD_DEFINITION,
+        selectExpressions, ArrayRecord::newRecord, arrayResultSet, arrayIndexes, false);
+      final List<Object> expected = Arrays.asList(rows[rowIndex]);
+      Assert.assertEquals(expected, listRecord.getValues());
+      Assert.assertEquals(expected, arrayRecord.getValues());
+      Assert.assertEquals(RecordState.PERSISTED, listRecord.getState());
+      Assert.assertEquals(RecordState.PERSISTED, arrayRecord.getState());
+      // The reused indexes are reset for each row
+      Assert.assertEquals(2, listIndexes.columnIndex);
+      Assert.assertEquals(2, arrayIndexes.columnIndex);
+      rowIndex++;
+    }
+    Assert.assertEquals(rows.length, rowIndex);
+  }
+
+  @Test
+  public void testPage() throws Exception {
+    final Object[][] rows = newRows(23);
+    final List<QueryValue> selectExpressions = getSelectExpressions();
+    final int pageSize = 10;
+    for (int pageNumber = 0; pageNumber < 4; pageNumber++) {
+      // Read the page in the same way as the JdbcQueryResultPager
+      final ResultSet resultSet = newResultSet(rows);
+      final ColumnIndexes indexes = new ColumnIndexes();
+      final List<Record> results = new ArrayList<>();
+      if (resultSet.absolute(pageNumber * pageSize + 1)) {
+        int i = 0;
+        do {
+          final Record record = JdbcQueryIterator.getNextRecord(RECORD_DEFINITION,
+            selectExpressions, ArrayRecord::newRecord, resultSet, indexes, false);
+          results.add(record);
+          i++;
+        } while (resultSet.next() && i < pageSize);
+      }
+      final int remainingCount = rows.length - pageNumber * pageSize;
+      final int expectedCount = Math.max(0, Math.min(pageSize, remainingCount));
+      Assert.assertEquals(expectedCount, results.size());
+      for (int i = 0; i < results.size(); i++) {
+        final Record record = results.get(i);
+        final int id = pageNumber * pageSize + i;
+        Assert.assertEquals(id, record.getInteger("id").intValue());
+        Assert.assertEquals(rows[id][1], record.getValue("name"));
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.revolsys.core.test.parallel.test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.VirtualThreadFactory;
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.MultiInputSelector;
+import com.revolsys.parallel.channel.store.Buffer;
+
+/**
+ * Test the blocking read, write and select of {@link Channel} and {@link MultiInputSelector}.
+ * The blocked threads are created using the {@link VirtualThreadFactory} so the tests use
+ * virtual threads on JDKs that support them.
+ */
+public class ChannelTest {
+
+  private static final VirtualThreadFactory THREAD_FACTORY = new VirtualThreadFactory()
+    .setNamePrefix("channelTest-");
+
+  private static void assertBlocked(final Thread thread) throws InterruptedException {
+    thread.join(100);
+    Assert.assertTrue(thread.getName() + " blocked", thread.isAlive());
+  }
+
+  private static void join(final Thread thread) throws InterruptedException {
+    thread.join(10000);
+    Assert.assertFalse(thread.getName() + " did not finish", thread.isAlive());
+  }
+
+  private static <T> Channel<T> newChannel(final Channel<T> channel) {
+    channel.readConnect();
+    channel.writeConnect();
+    return channel;
+  }
+
+  private static Thread start(final Runnable runnable) {
+    final Thread thread = THREAD_FACTORY.newThread(runnable);
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void testInterruptedReadCloses() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(new Channel<>(new Buffer<>(4)));
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread reader = start(() -> {
+      try {
+        channel.read();
+      } catch (final Throwable e) {
+        error.set(e);
+      }
+    });
+    assertBlocked(reader);
+    reader.interrupt();
+    join(reader);
+    Assert.assertTrue(String.valueOf(error.get()), error.get() instanceof ClosedException);
+    Assert.assertTrue("Closed", channel.isClosed());
+  }
+
+  @Test
+  public void testReadTimeout() {
+    final Channel<Integer> channel = newChannel(new Channel<>(new Buffer<>(4)));
+    final long startTime = System.currentTimeMillis();
+    Assert.assertNull(channel.read(50));
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 50);
+
+    channel.write(1);
+    Assert.assertEquals(1, channel.read(50).intValue());
+  }
+
+  @Test
+  public void testSelect() throws InterruptedException {
+    final Channel<Integer> channel1 = newChannel(new Channel<>(new Buffer<>(4)));
+    final Channel<Integer> channel2 = newChannel(new Channel<>(new Buffer<>(4)));
+    final MultiInputSelector selector = new MultiInputSelector();
+
+    // Timeout with no values available
+    Assert.assertEquals(-1, selector.select(50, channel1, channel2));
+
+    // Value already available
+    channel2.write(2);
+    Assert.assertEquals(1, selector.select(channel1, channel2));
+    Assert.assertEquals(2, channel2.read().intValue());
+
+    // Blocked select woken by a write
+    final AtomicReference<Integer> selected = new AtomicReference<>();
+    Thread selectThread = start(() -> selected.set(selector.select(channel1, channel2)));
+    assertBlocked(selectThread);
+    channel1.write(1);
+    join(selectThread);
+    Assert.assertEquals(0, selected.get().intValue());
+    Assert.assertEquals(1, channel1.read().intValue());
+
+    // Blocked select woken by a channel closing
+    selected.set(null);
+    selectThread = start(() -> selected.set(selector.select(channel1, channel2)));
+    assertBlocked(selectThread);
+    channel1.writeDisconnect();
+    join(selectThread);
+    Assert.assertEquals(-1, selected.get().intValue());
+
+    // All the channels closed
+    channel2.writeDisconnect();
+    try {
+      selector.select(channel1, channel2);
+      Assert.fail("Expecting ClosedException");
+    } catch (final ClosedException e) {
+    }
+  }
+
+  @Test
+  public void testWriteBlocksOnFullBuffer() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(new Channel<>(new Buffer<>(2)));
+    channel.write(1);
+    final Thread writer = start(() -> channel.write(2));
+    // The write fills the buffer so waits until a value is read
+    assertBlocked(writer);
+    Assert.assertEquals(1, channel.read().intValue());
+    join(writer);
+    Assert.assertEquals(2, channel.read().intValue());
+  }
+
+  @Test
+  public void testWriteDisconnectWakesReader() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(new Channel<>(new Buffer<>(4)));
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread reader = start(() -> {
+      try {
+        channel.read();
+      } catch (final Throwable e) {
+        error.set(e);
+      }
+    });
+    assertBlocked(reader);
+    channel.writeDisconnect();
+    join(reader);
+    Assert.assertTrue(String.valueOf(error.get()), error.get() instanceof ClosedException);
+  }
+
+  @Test
+  public void testZeroBuffer() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(new Channel<>());
+    final Thread writer = start(() -> channel.write(1));
+    // The writer waits until the value is read
+    assertBlocked(writer);
+    Assert.assertEquals(1, channel.read().intValue());
+    join(writer);
+  }
+}
@@ -0,0 +1,111 @@
+package com.revolsys.core.test.parallel.test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.VirtualThreadFactory;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.NamedChannelBundle;
+
+/**
+ * Test the blocking read and write of {@link NamedChannelBundle} from virtual threads.
+ */
+public class NamedChannelBundleTest {
+
+  private static final VirtualThreadFactory THREAD_FACTORY = new VirtualThreadFactory()
+    .setNamePrefix("namedChannelBundleTest-");
+
+  private static void assertBlocked(final Thread thread) throws InterruptedException {
+    thread.join(100);
+    Assert.assertTrue(thread.getName() + " blocked", thread.isAlive());
+  }
+
+  private static void join(final Thread thread) throws InterruptedException {
+    thread.join(10000);
+    Assert.assertFalse(thread.getName() + " did not finish", thread.isAlive());
+  }
+
+  private static <T> NamedChannelBundle<T> newBundle() {
+    final NamedChannelBundle<T> bundle = new NamedChannelBundle<>();
+    bundle.readConnect();
+    bundle.writeConnect();
+    return bundle;
+  }
+
+  private static Thread start(final Runnable runnable) {
+    final Thread thread = THREAD_FACTORY.newThread(runnable);
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void testBlockedRead() throws InterruptedException {
+    final NamedChannelBundle<Integer> bundle = newBundle();
+    final AtomicReference<Integer> value = new AtomicReference<>();
+    final Thread reader = start(() -> value.set(bundle.read("a")));
+    assertBlocked(reader);
+    bundle.write("a", 1);
+    join(reader);
+    Assert.assertEquals(1, value.get().intValue());
+  }
+
+  @Test
+  public void testInterruptedReadCloses() throws InterruptedException {
+    final NamedChannelBundle<Integer> bundle = newBundle();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread reader = start(() -> {
+      try {
+        bundle.read("a");
+      } catch (final Throwable e) {
+        error.set(e);
+      }
+    });
+    assertBlocked(reader);
+    reader.interrupt();
+    join(reader);
+    Assert.assertTrue(String.valueOf(error.get()), error.get() instanceof ClosedException);
+    Assert.assertTrue("Closed", bundle.isClosed());
+  }
+
+  @Test
+  public void testNotifyReaders() throws InterruptedException {
+    final NamedChannelBundle<Integer> bundle = newBundle();
+    final AtomicReference<Integer> value = new AtomicReference<>(-1);
+    final Thread reader = start(() -> value.set(bundle.read("a")));
+    assertBlocked(reader);
+    bundle.notifyReaders();
+    join(reader);
+    Assert.assertNull(value.get());
+  }
+
+  @Test
+  public void testReadOrder() {
+    final NamedChannelBundle<Integer> bundle = newBundle();
+    bundle.write("a", 1);
+    bundle.write("b", 2);
+    bundle.write("a", 3);
+    final List<String> names = Arrays.asList("a", "b");
+    // Values are read in the order they were written across the names
+    for (final int expected : new int[] {
+      1, 2, 3
+    }) {
+      Assert.assertEquals(expected, bundle.read(names).intValue());
+    }
+    Assert.assertNull(bundle.read(50, names));
+  }
+
+  @Test
+  public void testReadTimeout() {
+    final NamedChannelBundle<Integer> bundle = newBundle();
+    final long startTime = System.currentTimeMillis();
+    Assert.assertNull(bundle.read(50, "a"));
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 50);
+
+    bundle.write("a", 1);
+    Assert.assertEquals(1, bundle.read(50, "a").intValue());
+  }
+}
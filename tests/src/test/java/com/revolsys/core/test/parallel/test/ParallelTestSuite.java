@@ -0,0 +1,18 @@
+package com.revolsys.core.test.parallel.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+import com.revolsys.parallel.channel.ChannelValueStoreTest;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  ChannelTest.class, //
+  ChannelValueStoreTest.class, //
+  NamedChannelBundleTest.class, //
+  RingBufferTest.class, //
+  VirtualThreadFactoryTest.class
+})
+public class ParallelTestSuite {
+}
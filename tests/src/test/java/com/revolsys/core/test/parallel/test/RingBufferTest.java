@@ -0,0 +1,258 @@
+package com.revolsys.core.test.parallel.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.store.RingBuffer;
+
+/**
+ * Test the {@link RingBuffer} through a {@link Channel}, which uses the lock-free read and write
+ * methods for a RingBuffer.
+ */
+public class RingBufferTest {
+
+  private static final int VALUE_COUNT = 20000;
+
+  private static void join(final Thread thread) throws InterruptedException {
+    thread.join(10000);
+    Assert.assertFalse(thread.getName() + " did not finish", thread.isAlive());
+  }
+
+  private static Channel<Integer> newChannel(final int maxSize,
+    final boolean multipleProducer) {
+    final Channel<Integer> channel = new Channel<>(new RingBuffer<>(maxSize, multipleProducer));
+    channel.readConnect();
+    channel.writeConnect();
+    return channel;
+  }
+
+  private static Thread start(final String name, final Runnable runnable,
+    final AtomicReference<Throwable> error) {
+    final Thread thread = new Thread(() -> {
+      try {
+        runnable.run();
+      } catch (final Throwable e) {
+        error.compareAndSet(null, e);
+      }
+    }, name);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Write {@link #VALUE_COUNT} values from each writer and read them with each reader. Each value
+   * must be read exactly once and the values from each writer must be read in order.
+   */
+  private void assertMultipleReadersAndWriters(final int writerCount, final int readerCount,
+    final boolean multipleProducer) throws InterruptedException {
+    final Channel<Integer> channel = new Channel<>(new RingBuffer<>(16, multipleProducer));
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final List<Thread> threads = new ArrayList<>();
+    final List<List<Integer>> readValues = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      final List<Integer> values = new ArrayList<>();
+      readValues.add(values);
+      channel.readConnect();
+      threads.add(start("reader" + i, () -> {
+        try {
+          while (true) {
+            values.add(channel.read());
+          }
+        } catch (final ClosedException e) {
+        }
+      }, error));
+    }
+    for (int i = 0; i < writerCount; i++) {
+      final int writerIndex = i;
+      channel.writeConnect();
+      threads.add(start("writer" + i, () -> {
+        try {
+          for (int j = 0; j < VALUE_COUNT; j++) {
+            channel.write(writerIndex * VALUE_COUNT + j);
+          }
+        } finally {
+          channel.writeDisconnect();
+        }
+      }, error));
+    }
+    for (final Thread thread : threads) {
+      join(thread);
+    }
+    Assert.assertNull("Error", error.get());
+
+    final boolean[] found = new boolean[writerCount * VALUE_COUNT];
+    for (final List<Integer> values : readValues) {
+      final int[] lastValues = new int[writerCount];
+      Arrays.fill(lastValues, -1);
+      for (final Integer value : values) {
+        Assert.assertFalse("Duplicate " + value, found[value]);
+        found[value] = true;
+        final int writerIndex = value / VALUE_COUNT;
+        Assert.assertTrue("Out of order " + value, value > lastValues[writerIndex]);
+        lastValues[writerIndex] = value;
+      }
+    }
+    for (int i = 0; i < found.length; i++) {
+      Assert.assertTrue("Lost " + i, found[i]);
+    }
+  }
+
+  @Test
+  public void testCapacity() {
+    Assert.assertEquals(2, new RingBuffer<Integer>(1).getCapacity());
+    Assert.assertEquals(8, new RingBuffer<Integer>(5).getCapacity());
+    Assert.assertEquals(8, new RingBuffer<Integer>(8).getCapacity());
+    Assert.assertEquals(16, new RingBuffer<Integer>(9).getCapacity());
+  }
+
+  @Test
+  public void testFullBuffer() throws InterruptedException {
+    final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    final Channel<Integer> channel = new Channel<>(buffer);
+    channel.readConnect();
+    channel.writeConnect();
+    for (int i = 0; i < 4; i++) {
+      channel.write(i);
+    }
+    Assert.assertEquals(4, buffer.size());
+
+    // The writer blocks until a value is read
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread writer = start("writer", () -> channel.write(4), error);
+    writer.join(100);
+    Assert.assertTrue("Writer blocked", writer.isAlive());
+    Assert.assertEquals(0, channel.read().intValue());
+    join(writer);
+    Assert.assertNull("Error", error.get());
+    for (int i = 1; i <= 4; i++) {
+      Assert.assertEquals(i, channel.read().intValue());
+    }
+    Assert.assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void testMultipleReadersAndWriters() throws InterruptedException {
+    assertMultipleReadersAndWriters(4, 4, true);
+  }
+
+  @Test
+  public void testReadBatch() {
+    final Channel<Integer> channel = newChannel(4, true);
+    final List<Integer> values = new ArrayList<>();
+
+    // Partial batch, only the available values are read
+    channel.write(1);
+    channel.write(2);
+    Assert.assertEquals(2, channel.readBatch(values, 10));
+    Assert.assertEquals(Arrays.asList(1, 2), values);
+
+    // Full buffer, only maxCount values are read
+    values.clear();
+    for (int i = 0; i < 4; i++) {
+      channel.write(i);
+    }
+    Assert.assertEquals(3, channel.readBatch(values, 3));
+    Assert.assertEquals(Arrays.asList(0, 1, 2), values);
+    Assert.assertEquals(3, channel.read().intValue());
+
+    // Empty buffer with no writers
+    channel.writeDisconnect();
+    try {
+      channel.readBatch(values, 3);
+      Assert.fail("Expecting ClosedException");
+    } catch (final ClosedException e) {
+    }
+  }
+
+  @Test
+  public void testReadBatchWaitsForValue() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(4, true);
+    final List<Integer> values = Collections.synchronizedList(new ArrayList<>());
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread reader = start("reader", () -> channel.readBatch(values, 10), error);
+    reader.join(100);
+    Assert.assertTrue("Reader blocked", reader.isAlive());
+    channel.write(1);
+    join(reader);
+    Assert.assertNull("Error", error.get());
+    Assert.assertEquals(Arrays.asList(1), values);
+  }
+
+  @Test
+  public void testReadTimeout() {
+    final Channel<Integer> channel = newChannel(4, true);
+    final long startTime = System.currentTimeMillis();
+    Assert.assertNull(channel.read(50));
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 50);
+  }
+
+  @Test
+  public void testSingleProducer() throws InterruptedException {
+    assertMultipleReadersAndWriters(1, 4, false);
+  }
+
+  @Test
+  public void testWriteBatch() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(4, true);
+
+    // Empty batch
+    channel.writeBatch(Collections.emptyList());
+    Assert.assertNull(channel.read(10));
+
+    // Batch larger than the buffer blocks until the reader catches up
+    final List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      values.add(i);
+    }
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread writer = start("writer", () -> {
+      channel.writeBatch(values);
+      channel.writeDisconnect();
+    }, error);
+    final List<Integer> readValues = new ArrayList<>();
+    try {
+      while (true) {
+        channel.readBatch(readValues, 3);
+      }
+    } catch (final ClosedException e) {
+    }
+    join(writer);
+    Assert.assertNull("Error", error.get());
+    Assert.assertEquals(values, readValues);
+  }
+
+  @Test
+  public void testWriteDisconnectWakesReaders() throws InterruptedException {
+    final Channel<Integer> channel = newChannel(4, true);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final List<Thread> readers = new ArrayList<>();
+    final List<Boolean> closed = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 3; i++) {
+      readers.add(start("reader" + i, () -> {
+        try {
+          channel.read();
+        } catch (final ClosedException e) {
+          closed.add(true);
+        }
+      }, error));
+    }
+    for (final Thread reader : readers) {
+      reader.join(50);
+      Assert.assertTrue("Reader blocked", reader.isAlive());
+    }
+    channel.writeDisconnect();
+    for (final Thread reader : readers) {
+      join(reader);
+    }
+    Assert.assertNull("Error", error.get());
+    Assert.assertEquals(3, closed.size());
+  }
+}
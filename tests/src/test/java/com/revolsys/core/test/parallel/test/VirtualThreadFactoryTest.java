@@ -0,0 +1,121 @@
+package com.revolsys.core.test.parallel.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.ThreadSharedProperties;
+import com.revolsys.parallel.ExecutorServiceFactory;
+import com.revolsys.parallel.VirtualThreadFactory;
+
+/**
+ * Test the {@link VirtualThreadFactory} and the logical thread group used by
+ * {@link ThreadSharedProperties} for threads that can't be created in a thread group.
+ */
+public class VirtualThreadFactoryTest {
+
+  private static void run(final Thread thread, final AtomicReference<Throwable> error)
+    throws Throwable {
+    thread.setUncaughtExceptionHandler((t, e) -> error.compareAndSet(null, e));
+    thread.start();
+    thread.join(10000);
+    Assert.assertFalse(thread.getName() + " did not finish", thread.isAlive());
+    final Throwable e = error.get();
+    if (e != null) {
+      throw e;
+    }
+  }
+
+  @Test
+  public void testIoExecutorService() throws Exception {
+    final ExecutorService executor = ExecutorServiceFactory.getIoExecutorService();
+    Assert.assertSame(executor, ExecutorServiceFactory.getIoExecutorService());
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(executor.submit(() -> {
+        final Thread thread = Thread.currentThread();
+        Assert.assertTrue(thread.getName(), thread.getName().startsWith("io-"));
+        Assert.assertTrue(thread.getName() + " daemon", thread.isDaemon());
+        threads.add(thread);
+      }));
+    }
+    for (final Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    if (VirtualThreadFactory.isSupported()) {
+      // Each task is run on a new virtual thread
+      Assert.assertEquals(10, threads.size());
+    }
+  }
+
+  @Test
+  public void testNewThread() throws Throwable {
+    final ThreadGroup threadGroup = new ThreadGroup("virtualThreadFactoryTest");
+    final VirtualThreadFactory factory = new VirtualThreadFactory() //
+      .setNamePrefix("test-")
+      .setParentGroup(threadGroup);
+    final AtomicReference<Thread> runThread = new AtomicReference<>();
+    final Thread thread1 = factory.newThread(() -> runThread.set(Thread.currentThread()));
+    final Thread thread2 = factory.newThread(() -> {
+    });
+    Assert.assertEquals("test-1", thread1.getName());
+    Assert.assertEquals("test-2", thread2.getName());
+    if (!VirtualThreadFactory.isSupported()) {
+      // Platform threads are created in the parent group
+      Assert.assertSame(threadGroup, thread1.getThreadGroup());
+    }
+    run(thread1, new AtomicReference<>());
+    Assert.assertSame(thread1, runThread.get());
+  }
+
+  @Test
+  public void testThreadGroupProperties() throws Throwable {
+    final ThreadGroup threadGroup = new ThreadGroup("threadSharedPropertiesTest");
+    final VirtualThreadFactory factory = new VirtualThreadFactory();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    // Initialize the properties for the logical thread group
+    run(factory.newThread(() -> {
+      ThreadSharedProperties.setThreadGroup(threadGroup);
+      Assert.assertSame(threadGroup, ThreadSharedProperties.getThreadGroup());
+      ThreadSharedProperties.setProperty("name", "value");
+      ThreadSharedProperties.initialiseThreadGroup(threadGroup);
+    }), error);
+
+    // Another thread in the same logical thread group shares the properties
+    run(factory.newThread(() -> {
+      Assert.assertNull(ThreadSharedProperties.getThreadGroupProperty("name"));
+      ThreadSharedProperties.setThreadGroup(threadGroup);
+      Assert.assertEquals("value", ThreadSharedProperties.getProperty("name"));
+      Assert.assertEquals("value", ThreadSharedProperties.getThreadGroupProperty("name"));
+
+      // Threads created by the thread inherit the logical thread group
+      final AtomicReference<Object> childValue = new AtomicReference<>();
+      final Thread child = new Thread(() -> {
+        childValue.set(ThreadSharedProperties.getProperty("name"));
+      }, "child");
+      try {
+        run(child, error);
+      } catch (final Throwable e) {
+        throw new RuntimeException(e);
+      }
+      Assert.assertEquals("value", childValue.get());
+
+      // Clearing the logical thread group uses the thread's own thread group
+      ThreadSharedProperties.setThreadGroup(null);
+      Assert.assertSame(Thread.currentThread().getThreadGroup(),
+        ThreadSharedProperties.getThreadGroup());
+      Assert.assertNull(ThreadSharedProperties.getProperty("name"));
+    }), error);
+    ThreadSharedProperties.clearThreadGroup(threadGroup);
+  }
+}
@@ -0,0 +1,12 @@
+package com.revolsys.core.test.raster.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  TiffWriterTest.class
+})
+public class RasterTestSuite {
+}
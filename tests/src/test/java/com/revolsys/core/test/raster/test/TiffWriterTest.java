@@ -0,0 +1,180 @@
+package com.revolsys.core.test.raster.test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.raster.BufferedGeoreferencedImage;
+import com.revolsys.raster.io.format.tiff.TiffDirectory;
+import com.revolsys.raster.io.format.tiff.TiffDirectoryIterator;
+import com.revolsys.raster.io.format.tiff.TiffGeoreferencedImageWriter;
+import com.revolsys.raster.io.format.tiff.code.TiffCompression;
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwInputStream;
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwOutputStream;
+import com.revolsys.raster.io.format.tiff.compression.TiffPackbitsInputStream;
+import com.revolsys.raster.io.format.tiff.compression.TiffPackbitsOutputStream;
+import com.revolsys.raster.io.format.tiff.image.TiffImage;
+import com.revolsys.spring.resource.PathResource;
+
+public class TiffWriterTest {
+  private interface OutputStreamFactory {
+    OutputStream newOutputStream(OutputStream out) throws IOException;
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  /**
+   * Bytes with runs, repeated patterns and random data, long enough to fill the LZW table
+   * several times.
+   */
+  private static byte[] newTestBytes() {
+    final Random random = new Random(1234);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < 50; i++) {
+      final int runLength = random.nextInt(300);
+      final int value = random.nextInt(256);
+      for (int j = 0; j < runLength; j++) {
+        out.write(value);
+      }
+      final int randomLength = random.nextInt(300);
+      for (int j = 0; j < randomLength; j++) {
+        out.write(random.nextInt(256));
+      }
+      for (int j = 0; j < 100; j++) {
+        out.write(j % 7);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private void assertRoundTrip(final byte[] bytes, final OutputStreamFactory compressor,
+    final Function<InputStream, InputStream> decompressor) throws IOException {
+    final ByteArrayOutputStream compressedOut = new ByteArrayOutputStream();
+    try (
+      OutputStream out = compressor.newOutputStream(compressedOut)) {
+      // Mix of single byte and array writes
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (offset % 3 == 0) {
+          out.write(bytes[offset++]);
+        } else {
+          final int length = Math.min(bytes.length - offset, 1000);
+          out.write(bytes, offset, length);
+          offset += length;
+        }
+      }
+    }
+    final ByteArrayOutputStream actualOut = new ByteArrayOutputStream();
+    try (
+      InputStream in = decompressor
+        .apply(new ByteArrayInputStream(compressedOut.toByteArray()))) {
+      for (int b = in.read(); b != -1 && actualOut.size() < bytes.length; b = in.read()) {
+        actualOut.write(b);
+      }
+    }
+    Assert.assertArrayEquals(bytes, actualOut.toByteArray());
+  }
+
+  private List<TiffDirectory> readDirectories(final File file) {
+    final List<TiffDirectory> directories = new ArrayList<>();
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(new PathResource(file))) {
+      for (final TiffDirectory directory : iterator) {
+        directories.add(directory);
+      }
+    }
+    return directories;
+  }
+
+  @Test
+  public void testLzwRoundTrip() throws IOException {
+    assertRoundTrip(newTestBytes(), TiffLzwOutputStream::new, TiffLzwInputStream::new);
+    assertRoundTrip(new byte[] {
+      42
+    }, TiffLzwOutputStream::new, TiffLzwInputStream::new);
+  }
+
+  @Test
+  public void testPackbitsRoundTrip() throws IOException {
+    assertRoundTrip(newTestBytes(), TiffPackbitsOutputStream::new, TiffPackbitsInputStream::new);
+    assertRoundTrip(new byte[] {
+      1, 2
+    }, TiffPackbitsOutputStream::new, TiffPackbitsInputStream::new);
+  }
+
+  @Test
+  public void testTiledWithOverviews() throws IOException {
+    final int width = 1100;
+    final int height = 700;
+    final BufferedImage bufferedImage = new BufferedImage(width, height,
+      BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        bufferedImage.setRGB(x, y, x % 256 << 16 | y % 256 << 8 | (x + y) % 256);
+      }
+    }
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1000000, 500000,
+      1000000 + width, 500000 + height);
+    final BufferedGeoreferencedImage image = new BufferedGeoreferencedImage(boundingBox,
+      bufferedImage);
+
+    for (final String compressionName : new String[] {
+      "DEFLATE", "LZW", "PACKBITS", "NONE"
+    }) {
+      final File file = File.createTempFile("tiffWriter", ".tif");
+      try {
+        final TiffGeoreferencedImageWriter writer = new TiffGeoreferencedImageWriter(
+          new PathResource(file));
+        writer.setProperty("tiled", true);
+        writer.setProperty("tileSize", 256);
+        writer.setProperty("compression", compressionName);
+        writer.write(image);
+        writer.close();
+
+        final List<TiffDirectory> directories = readDirectories(file);
+        // 1100x700, 550x350 and 275x175
+        Assert.assertEquals(compressionName, 3, directories.size());
+        final TiffCompression expectedCompression;
+        if ("DEFLATE".equals(compressionName)) {
+          expectedCompression = TiffCompression.ADOBE_DEFLATE;
+        } else {
+          expectedCompression = TiffCompression.valueOf(compressionName);
+        }
+        for (final TiffDirectory directory : directories) {
+          Assert.assertEquals(compressionName, expectedCompression, directory.getCompression());
+        }
+
+        final TiffImage fullImage = directories.get(0).getImage();
+        Assert.assertEquals(width, fullImage.getImageWidth());
+        Assert.assertEquals(height, fullImage.getImageHeight());
+        Assert.assertEquals(boundingBox, fullImage.getBoundingBox());
+        final BufferedImage actualImage = fullImage.getBufferedImage();
+        for (int y = 0; y < height; y += 7) {
+          for (int x = 0; x < width; x += 13) {
+            Assert.assertEquals(compressionName + " " + x + "," + y,
+              bufferedImage.getRGB(x, y) & 0xFFFFFF, actualImage.getRGB(x, y) & 0xFFFFFF);
+          }
+        }
+        final TiffImage overview = directories.get(2).getImage();
+        Assert.assertEquals(275, overview.getImageWidth());
+        Assert.assertEquals(175, overview.getImageHeight());
+      } finally {
+        file.delete();
+      }
+    }
+  }
+}
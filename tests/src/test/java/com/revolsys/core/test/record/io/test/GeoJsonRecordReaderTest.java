@@ -0,0 +1,124 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.format.geojson.GeoJsonRecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.spring.resource.PathResource;
+
+public class GeoJsonRecordReaderTest {
+
+  private List<Record> read(final String fileExtension, final String text) throws Exception {
+    final File file = File.createTempFile("geoJsonRecordReader", "." + fileExtension);
+    try {
+      Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+      try (
+        RecordReader reader = RecordReader.newRecordReader(new PathResource(file))) {
+        Assert.assertTrue(reader instanceof GeoJsonRecordReader);
+        return reader.toList();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testFeatureCollection() throws Exception {
+    final List<Record> records = read("geojson", "{\"type\":\"FeatureCollection\",\"features\":[\n" //
+      + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-123.5,49.25,10]},"
+      + "\"properties\":{\"NAME\":\"a\",\"COUNT\":1,\"OK\":true}},\n" //
+      + "{\"properties\":{\"OTHER\":[1,2],\"COUNT\":2.5,\"NAME\":null},\"type\":\"Feature\","
+      + "\"geometry\":{\"coordinates\":[[[0,0],[10,0],[10,10],[0,10],[0,0]],"
+      + "[[2,2],[2,4],[4,4],[4,2],[2,2]]],\"type\":\"Polygon\"}},\n" //
+      + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":["
+      + "[[[0,0],[1,0],[1,1],[0,0]]],[[[5,5],[6,5],[6,6],[5,5]]]]},\"properties\":{}},\n" //
+      + "{\"type\":\"Feature\",\"geometry\":null,\"properties\":{\"NAME\":\"d\"}}\n" //
+      + "]}");
+    Assert.assertEquals(4, records.size());
+
+    final Record record1 = records.get(0);
+    Assert.assertEquals("a", record1.getValue("NAME"));
+    Assert.assertEquals(0, new BigDecimal("1").compareTo(record1.getValue("COUNT")));
+    Assert.assertEquals(Boolean.TRUE, record1.getValue("OK"));
+    final Point point = record1.getGeometry();
+    Assert.assertEquals(3, point.getAxisCount());
+    Assert.assertEquals(-123.5, point.getX(), 0);
+    Assert.assertEquals(49.25, point.getY(), 0);
+    Assert.assertEquals(10, point.getZ(), 0);
+
+    final Record record2 = records.get(1);
+    Assert.assertNull(record2.getValue("NAME"));
+    Assert.assertFalse(record2.getRecordDefinition().hasField("OTHER"));
+    Assert.assertEquals(0, new BigDecimal("2.5").compareTo(record2.getValue("COUNT")));
+    final Polygon polygon = record2.getGeometry();
+    Assert.assertEquals(2, polygon.getAxisCount());
+    Assert.assertEquals(2, polygon.getRingCount());
+    final LineString hole = polygon.getRing(1);
+    Assert.assertEquals(5, hole.getVertexCount());
+    Assert.assertEquals(4, hole.getY(1), 0);
+
+    final Polygonal polygonal = records.get(2).getGeometry();
+    Assert.assertEquals(2, polygonal.getGeometryCount());
+    Assert.assertEquals(6, ((Polygon)polygonal.getGeometry(1)).getShell().getX(1), 0);
+
+    final Record record4 = records.get(3);
+    Assert.assertEquals("d", record4.getValue("NAME"));
+    Assert.assertNull(record4.getGeometry());
+  }
+
+  @Test
+  public void testMixedTypes() throws Exception {
+    final List<Record> records = read("geojsonl", "{\"type\":\"Feature\",\"geometry\":null,"
+      + "\"properties\":{\"NAME\":\"a\",\"COUNT\":1,\"OK\":true}}\n" //
+      + "{\"type\":\"Feature\",\"geometry\":null,"
+      + "\"properties\":{\"NAME\":2,\"COUNT\":\"many\",\"OK\":true}}\n" //
+      + "{\"type\":\"Feature\",\"geometry\":null,"
+      + "\"properties\":{\"NAME\":\"c\",\"COUNT\":{\"value\":3},\"OK\":false}}\n");
+    Assert.assertEquals(3, records.size());
+    final RecordDefinition recordDefinition = records.get(0).getRecordDefinition();
+    Assert.assertEquals(DataTypes.OBJECT, recordDefinition.getFieldType("NAME"));
+    Assert.assertEquals(DataTypes.OBJECT, recordDefinition.getFieldType("COUNT"));
+    Assert.assertEquals(DataTypes.BOOLEAN, recordDefinition.getFieldType("OK"));
+
+    Assert.assertEquals("a", records.get(0).getValue("NAME"));
+    Assert.assertEquals(0, new BigDecimal("1").compareTo(records.get(0).getValue("COUNT")));
+    Assert.assertEquals(0, new BigDecimal("2").compareTo(records.get(1).getValue("NAME")));
+    Assert.assertEquals("many", records.get(1).getValue("COUNT"));
+    final Map<String, Object> count = records.get(2).getValue("COUNT");
+    Assert.assertEquals(0, new BigDecimal("3").compareTo((BigDecimal)count.get("value")));
+    Assert.assertEquals(Boolean.FALSE, records.get(2).getValue("OK"));
+  }
+
+  @Test
+  public void testGeoJsonSeq() throws Exception {
+    final List<Record> records = read("geojsons", "\u001e{\"type\":\"Feature\","
+      + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1.5,2.5],[3,4],[5e2,-6E-1]]},"
+      + "\"properties\":{\"ID\":1}}\n" //
+      + "\u001e{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[]},"
+      + "\"properties\":{\"ID\":2}}\n");
+    Assert.assertEquals(2, records.size());
+    final LineString line = records.get(0).getGeometry();
+    Assert.assertEquals(3, line.getVertexCount());
+    Assert.assertEquals(1.5, line.getX(0), 0);
+    Assert.assertEquals(500, line.getX(2), 0);
+    Assert.assertEquals(-0.6, line.getY(2), 0);
+    final Geometry empty = records.get(1).getGeometry();
+    Assert.assertTrue(empty.isEmpty());
+  }
+}
@@ -0,0 +1,128 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.functions.F;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Test the bounding box and equal conditions pushed down to the table queries of a GeoPackage
+ * file reader.
+ */
+public class GeoPackagePushdownTest {
+
+  private static File directory;
+
+  private static File file;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "GeoPackagePushdownTest") //
+      .addField("ID", DataTypes.INT, true) //
+      .addField("NAME", DataTypes.STRING) //
+      .addField("geometry", GeometryDataTypes.POINT) //
+      .setGeometryFactory(GEOMETRY_FACTORY) //
+      .setIdFieldNames(Collections.singletonList("ID")) //
+      .getRecordDefinition();
+
+  @AfterClass
+  public static void deleteFile() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  @BeforeClass
+  public static void writeFile() {
+    directory = FileUtil.newTempDirectory("pushdown", "");
+    file = new File(directory, "points.gpkg");
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(RECORD_DEFINITION,
+        new PathResource(file))) {
+      for (int i = 0; i < 100; i++) {
+        final Record record = new ArrayRecord(RECORD_DEFINITION);
+        record.setValue("ID", i);
+        record.setValue("NAME", "N" + i % 5);
+        record.setGeometryValue(GEOMETRY_FACTORY.point(1000 + i, 2000 + i));
+        writer.write(record);
+      }
+    }
+  }
+
+  private List<Integer> read(final Query query) {
+    final List<Integer> ids = new ArrayList<>();
+    try (
+      RecordReader reader = RecordReader.newRecordReader(new PathResource(file))) {
+      Assert.assertTrue(reader.pushDown(query));
+      for (final Record record : reader) {
+        ids.add(record.getInteger("ID"));
+      }
+    }
+    return ids;
+  }
+
+  private List<Integer> select(final BoundingBox boundingBox, final String name) {
+    final List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final double x = 1000 + i;
+      final double y = 2000 + i;
+      if ((boundingBox == null || boundingBox.bboxIntersects(x, y))
+        && (name == null || name.equals("N" + i % 5))) {
+        ids.add(i);
+      }
+    }
+    return ids;
+  }
+
+  @Test
+  public void testBoundingBox() {
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1010, 2010, 1050, 2050);
+    final Query query = new Query(RECORD_DEFINITION);
+    F.envelopeIntersects(query, boundingBox);
+    Assert.assertEquals(select(boundingBox, null), read(query));
+  }
+
+  @Test
+  public void testBoundingBoxAndEqual() {
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1010, 2010, 1050, 2050);
+    final Query query = new Query(RECORD_DEFINITION);
+    F.envelopeIntersects(query, boundingBox);
+    query.and(Q.equal("NAME", "N1"));
+    final List<Integer> ids = read(query);
+    Assert.assertEquals(8, ids.size());
+    Assert.assertEquals(select(boundingBox, "N1"), ids);
+  }
+
+  @Test
+  public void testEqual() {
+    final Query query = new Query(RECORD_DEFINITION) //
+      .setWhereCondition(Q.equal("NAME", "N3"));
+    Assert.assertEquals(select(null, "N3"), read(query));
+  }
+
+  @Test
+  public void testNoConditions() {
+    Assert.assertEquals(select(null, null), read(new Query(RECORD_DEFINITION)));
+  }
+}
@@ -42,8 +42,9 @@ import junit.framework.TestSuite;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-  GeoJsonIoTest.class, GmlIoTest.class, KmlIoTest.class, ShapefileIoTest.class, WktlIoTest.class,
-  XBaseIoTest.class
+  GeoJsonIoTest.class, GeoJsonRecordReaderTest.class, GeoPackagePushdownTest.class,
+  GmlIoTest.class, KmlIoTest.class, ShapefileIoTest.class, ShapefileMappedTest.class,
+  ShapefilePushdownTest.class, WktlIoTest.class, XBaseIoTest.class
 })
 public class RecordIoTestSuite {
   public static void addGeometryTestSuites(final TestSuite suite, final String namePrefix,
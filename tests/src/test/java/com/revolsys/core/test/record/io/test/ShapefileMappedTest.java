@@ -0,0 +1,327 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.revolsys.geometry.index.PagedSpatialIndex;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Test the memory mapped mode of the {@link ShapefileRecordReader} against the stream reader.
+ */
+public class ShapefileMappedTest {
+
+  private static File directory;
+
+  private static File file;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final int RECORD_COUNT = 200;
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "ShapefileMappedTest") //
+      .addField("ID", DataTypes.INT) //
+      .addField("NAME", DataTypes.STRING) //
+      .addField("geometry", GeometryDataTypes.LINE_STRING) //
+      .getRecordDefinition();
+
+  private static List<Record> streamRecords;
+
+  private static File copyShapefile(final String baseName) {
+    final File copyFile = new File(directory, baseName + ".shp");
+    for (final String extension : new String[] {
+      "shp", "shx", "dbf", "prj"
+    }) {
+      final File sourceFile = new File(directory, "lines." + extension);
+      if (sourceFile.exists()) {
+        FileUtil.copy(sourceFile, new File(directory, baseName + "." + extension));
+      }
+    }
+    return copyFile;
+  }
+
+  @AfterClass
+  public static void deleteFile() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  private static Geometry newLine(final int id) {
+    final int vertexCount = 2 + id % 7;
+    final double[] coordinates = new double[vertexCount * 2];
+    for (int i = 0; i < vertexCount; i++) {
+      coordinates[i * 2] = 1000 + id + i;
+      coordinates[i * 2 + 1] = 2000 + id * 2 - i;
+    }
+    return GEOMETRY_FACTORY.lineString(2, coordinates);
+  }
+
+  @BeforeClass
+  public static void writeFile() throws IOException {
+    directory = FileUtil.newTempDirectory("mapped", "");
+    file = new File(directory, "lines.shp");
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(RECORD_DEFINITION,
+        new PathResource(file))) {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        final Record record = new ArrayRecord(RECORD_DEFINITION);
+        record.setValue("ID", i);
+        record.setValue("NAME", "N" + i);
+        record.setGeometryValue(newLine(i));
+        writer.write(record);
+      }
+    }
+    streamRecords = read(false, 0, Integer.MAX_VALUE);
+    Assert.assertEquals(RECORD_COUNT, streamRecords.size());
+  }
+
+  private static ShapefileRecordReader newReader(final boolean memoryMapped)
+    throws IOException {
+    return newReader(file, memoryMapped);
+  }
+
+  private static ShapefileRecordReader newReader(final File file, final boolean memoryMapped)
+    throws IOException {
+    final ShapefileRecordReader reader = new ShapefileRecordReader(new PathResource(file),
+      ArrayRecord.FACTORY);
+    reader.setMemoryMapped(memoryMapped);
+    return reader;
+  }
+
+  private static List<Record> read(final boolean memoryMapped, final int startIndex,
+    final int endIndex) throws IOException {
+    final List<Record> records = new ArrayList<>();
+    try (
+      ShapefileRecordReader reader = newReader(memoryMapped)) {
+      if (memoryMapped) {
+        reader.setRange(startIndex, endIndex);
+      }
+      for (final Record record : reader) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  private void assertRecord(final int expectedId, final Record actualRecord) {
+    final Record expectedRecord = streamRecords.get(expectedId);
+    Assert.assertEquals(expectedId, expectedRecord.getInteger("ID").intValue());
+    Assert.assertEquals(expectedId, actualRecord.getInteger("ID").intValue());
+    Assert.assertEquals("N" + expectedId, actualRecord.getString("NAME"));
+    final Geometry expectedGeometry = expectedRecord.getGeometry();
+    final Geometry actualGeometry = actualRecord.getGeometry();
+    Assert.assertTrue(expectedId + " " + actualGeometry,
+      expectedGeometry.equals(2, actualGeometry));
+  }
+
+  private Set<Integer> forEachRecordIds(final ShapefileRecordReader reader,
+    final BoundingBox boundingBox) {
+    final Set<Integer> ids = new TreeSet<>();
+    reader.forEachRecord(boundingBox, record -> {
+      final int id = record.getInteger("ID");
+      Assert.assertTrue("Duplicate " + id, ids.add(id));
+      assertRecord(id, record);
+    });
+    return ids;
+  }
+
+  @Test
+  public void testForEachRecord() throws IOException {
+    final File indexedFile = copyShapefile("indexed");
+    final File indexFile = PagedSpatialIndex.getIndexFile(indexedFile);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1050, 2080, 1100, 2150);
+    final Set<Integer> expectedIds = new TreeSet<>();
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      if (newLine(i).getBoundingBox().bboxIntersects(boundingBox)) {
+        expectedIds.add(i);
+      }
+    }
+    Assert.assertFalse(expectedIds.isEmpty());
+
+    // Without an index file the bounds of each record are checked and no index file is created
+    try (
+      ShapefileRecordReader reader = newReader(indexedFile, true)) {
+      Assert.assertEquals(expectedIds, forEachRecordIds(reader, boundingBox));
+      Assert.assertNull(reader.getSpatialIndex());
+    }
+    Assert.assertFalse("Index file created on read", indexFile.exists());
+
+    // The index file is only created if requested
+    try (
+      ShapefileRecordReader reader = newReader(indexedFile, true)) {
+      reader.setCreateSpatialIndex(true);
+      final PagedSpatialIndex spatialIndex = reader.getSpatialIndex();
+      Assert.assertNotNull(spatialIndex);
+      Assert.assertEquals(RECORD_COUNT, spatialIndex.getCount());
+      Assert.assertEquals(expectedIds, forEachRecordIds(reader, boundingBox));
+    }
+    Assert.assertTrue("Index file created", indexFile.isFile());
+    final long indexLength = indexFile.length();
+    final long indexLastModified = indexFile.lastModified();
+
+    // An existing index file is used without modifying it
+    try (
+      ShapefileRecordReader reader = newReader(indexedFile, true)) {
+      Assert.assertNotNull(reader.getSpatialIndex());
+      Assert.assertEquals(expectedIds, forEachRecordIds(reader, boundingBox));
+    }
+    Assert.assertEquals(indexLength, indexFile.length());
+    Assert.assertEquals(indexLastModified, indexFile.lastModified());
+
+    // An out of date index file is not used or replaced
+    indexedFile.setLastModified(indexedFile.lastModified() - 10000);
+    try (
+      ShapefileRecordReader reader = newReader(indexedFile, true)) {
+      Assert.assertNull(reader.getSpatialIndex());
+      Assert.assertEquals(expectedIds, forEachRecordIds(reader, boundingBox));
+    }
+    Assert.assertEquals(indexLastModified, indexFile.lastModified());
+  }
+
+  @Test
+  public void testIterator() throws IOException {
+    final List<Record> records = read(true, 0, Integer.MAX_VALUE);
+    Assert.assertEquals(RECORD_COUNT, records.size());
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      assertRecord(i, records.get(i));
+    }
+  }
+
+  @Test
+  public void testLazyGeometry() throws IOException {
+    final Record record;
+    final Record replacedRecord;
+    try (
+      ShapefileRecordReader reader = newReader(true)) {
+      record = reader.getRecord(5);
+      replacedRecord = reader.getRecord(6);
+    }
+    // The geometry is decoded after the reader is closed without changing the record state
+    final RecordState state = record.getState();
+    assertRecord(5, record);
+    Assert.assertEquals(state, record.getState());
+    Assert.assertTrue(newLine(5).equals(2, record.clone().getGeometry()));
+
+    // A geometry set before the geometry is read replaces the mapped geometry
+    final Geometry geometry = newLine(7);
+    replacedRecord.setGeometryValue(geometry);
+    Assert.assertSame(geometry, replacedRecord.getGeometry());
+  }
+
+  @Test
+  public void testNotMappedWithoutIndex() throws IOException {
+    final File noIndexFile = new File(directory, "noIndex.shp");
+    FileUtil.copy(file, noIndexFile);
+    FileUtil.copy(new File(directory, "lines.dbf"), new File(directory, "noIndex.dbf"));
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(new PathResource(noIndexFile),
+        ArrayRecord.FACTORY)) {
+      reader.setMemoryMapped(true);
+      Assert.assertEquals(RECORD_COUNT, reader.toList().size());
+      Assert.assertFalse("Memory Mapped", reader.isMemoryMapped());
+    }
+  }
+
+  @Test
+  public void testParallelRandomAccess() throws Exception {
+    try (
+      ShapefileRecordReader reader = newReader(true)) {
+      Assert.assertTrue("Memory Mapped", reader.isMemoryMapped());
+      Assert.assertEquals(RECORD_COUNT, reader.getRecordCount());
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+      final List<Thread> threads = new ArrayList<>();
+      for (int threadIndex = 0; threadIndex < 4; threadIndex++) {
+        final int offset = threadIndex * 37;
+        final Thread thread = new Thread(() -> {
+          try {
+            for (int repeat = 0; repeat < 5; repeat++) {
+              for (int i = 0; i < RECORD_COUNT; i++) {
+                final int recordIndex = (i + offset) % RECORD_COUNT;
+                assertRecord(recordIndex, reader.getRecord(recordIndex));
+              }
+            }
+          } catch (final Throwable e) {
+            error.compareAndSet(null, e);
+          }
+        }, "reader" + threadIndex);
+        threads.add(thread);
+        thread.start();
+      }
+      for (final Thread thread : threads) {
+        thread.join(30000);
+        Assert.assertFalse(thread.isAlive());
+      }
+      Assert.assertNull(String.valueOf(error.get()), error.get());
+    }
+  }
+
+  @Test
+  public void testRandomAccess() throws IOException {
+    try (
+      ShapefileRecordReader reader = newReader(true)) {
+      Assert.assertEquals(RECORD_COUNT, reader.getRecordCount());
+      for (int i = RECORD_COUNT - 1; i >= 0; i--) {
+        assertRecord(i, reader.getRecord(i));
+        final Geometry expectedGeometry = newLine(i);
+        Assert.assertTrue(expectedGeometry.equals(2, reader.getGeometry(i)));
+        final BoundingBox expectedBoundingBox = expectedGeometry.getBoundingBox();
+        final BoundingBox boundingBox = reader.getBoundingBox(i);
+        Assert.assertEquals(expectedBoundingBox.getMinX(), boundingBox.getMinX(), 0);
+        Assert.assertEquals(expectedBoundingBox.getMinY(), boundingBox.getMinY(), 0);
+        Assert.assertEquals(expectedBoundingBox.getMaxX(), boundingBox.getMaxX(), 0);
+        Assert.assertEquals(expectedBoundingBox.getMaxY(), boundingBox.getMaxY(), 0);
+      }
+      Assert.assertNull(reader.getRecord(RECORD_COUNT));
+      try {
+        reader.getGeometry(RECORD_COUNT);
+        Assert.fail("Expecting IndexOutOfBoundsException");
+      } catch (final IndexOutOfBoundsException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testSetRange() throws IOException {
+    final List<Record> records = read(true, 10, 20);
+    Assert.assertEquals(10, records.size());
+    for (int i = 0; i < 10; i++) {
+      assertRecord(10 + i, records.get(i));
+    }
+
+    // Ranges that cover the file in parallel return each record once
+    final List<Record> allRecords = new ArrayList<>();
+    for (int startIndex = 0; startIndex < RECORD_COUNT; startIndex += 64) {
+      allRecords.addAll(read(true, startIndex, startIndex + 64));
+    }
+    Assert.assertEquals(RECORD_COUNT, allRecords.size());
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      assertRecord(i, allRecords.get(i));
+    }
+
+    Assert.assertTrue(read(true, RECORD_COUNT, RECORD_COUNT + 10).isEmpty());
+  }
+}
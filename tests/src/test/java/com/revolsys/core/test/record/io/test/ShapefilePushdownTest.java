@@ -0,0 +1,169 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.revolsys.geometry.index.PagedSpatialIndex;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReaderPushdown;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.query.Column;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.functions.F;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.spring.resource.PathResource;
+
+public class ShapefilePushdownTest {
+
+  private static File directory;
+
+  private static File file;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "ShapefilePushdownTest") //
+      .addField("ID", DataTypes.INT) //
+      .addField("NAME", DataTypes.STRING) //
+      .addField("geometry", GeometryDataTypes.POINT) //
+      .getRecordDefinition();
+
+  @AfterClass
+  public static void deleteFile() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  @BeforeClass
+  public static void writeFile() throws IOException {
+    directory = FileUtil.newTempDirectory("pushdown", "");
+    file = new File(directory, "points.shp");
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(RECORD_DEFINITION,
+        new PathResource(file))) {
+      for (int i = 0; i < 100; i++) {
+        final Record record = new ArrayRecord(RECORD_DEFINITION);
+        record.setValue("ID", i);
+        record.setValue("NAME", "N" + i % 5);
+        record.setGeometryValue(GEOMETRY_FACTORY.point(1000 + i, 2000 + i));
+        writer.write(record);
+      }
+    }
+  }
+
+  private void assertBoundingBoxAndEqual(final List<Record> records) {
+    Assert.assertEquals(8, records.size());
+    int expectedId = 11;
+    for (final Record record : records) {
+      Assert.assertEquals(expectedId, record.getInteger("ID").intValue());
+      Assert.assertEquals("N1", record.getString("NAME"));
+      Assert.assertNotNull(record.getGeometry());
+      expectedId += 5;
+    }
+  }
+
+  private Query newBoundingBoxAndEqualQuery() {
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(1010, 2010, 1050, 2050);
+    final Query query = new Query(RECORD_DEFINITION);
+    F.envelopeIntersects(query, boundingBox);
+    query.and(Q.equal("NAME", "N1"));
+    return query;
+  }
+
+  private List<Record> read(final boolean memoryMapped, final Query query) throws IOException {
+    final List<Record> records = new ArrayList<>();
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(new PathResource(file),
+        ArrayRecord.FACTORY)) {
+      reader.setMemoryMapped(memoryMapped);
+      Assert.assertTrue(reader.pushDown(query));
+      for (final Record record : reader) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void testBoundingBoxAndEqual() throws IOException {
+    for (final boolean memoryMapped : new boolean[] {
+      false, true
+    }) {
+      assertBoundingBoxAndEqual(read(memoryMapped, newBoundingBoxAndEqualQuery()));
+    }
+  }
+
+  /**
+   * The pushdown only uses an existing spatial index, it never creates the index file.
+   */
+  @Test
+  public void testSpatialIndex() throws IOException {
+    final File indexFile = PagedSpatialIndex.getIndexFile(file);
+    indexFile.delete();
+    assertBoundingBoxAndEqual(read(true, newBoundingBoxAndEqualQuery()));
+    Assert.assertFalse("Index file created by pushdown", indexFile.exists());
+
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(new PathResource(file),
+        ArrayRecord.FACTORY)) {
+      reader.setMemoryMapped(true);
+      reader.setCreateSpatialIndex(true);
+      Assert.assertNotNull(reader.getSpatialIndex());
+    }
+    try {
+      Assert.assertTrue("Index file created", indexFile.isFile());
+      assertBoundingBoxAndEqual(read(true, newBoundingBoxAndEqualQuery()));
+    } finally {
+      indexFile.delete();
+    }
+  }
+
+  @Test
+  public void testRequiredFields() {
+    final Query query = new Query(RECORD_DEFINITION) //
+      .setSelect(new Column("ID"))
+      .setWhereCondition(Q.equal("NAME", "N3"))
+      .addOrderBy("ID");
+    final RecordReaderPushdown pushdown = new RecordReaderPushdown(RECORD_DEFINITION, query);
+    Assert.assertFalse(pushdown.isAllFields());
+    Assert.assertFalse(pushdown.isGeometryRequired());
+    Assert.assertNull(pushdown.getBoundingBox());
+    Assert.assertEquals(2, pushdown.getFieldNames().size());
+
+    final Query allQuery = new Query(RECORD_DEFINITION);
+    Assert.assertTrue(new RecordReaderPushdown(RECORD_DEFINITION, allQuery).isAllFields());
+  }
+
+  @Test
+  public void testSelectFields() throws IOException {
+    for (final boolean memoryMapped : new boolean[] {
+      false, true
+    }) {
+      final Query query = new Query(RECORD_DEFINITION) //
+        .setSelect(new Column("ID"))
+        .setWhereCondition(Q.equal("NAME", "N3"));
+      final List<Record> records = read(memoryMapped, query);
+      Assert.assertEquals(20, records.size());
+      for (final Record record : records) {
+        Assert.assertEquals(3, record.getInteger("ID").intValue() % 5);
+        Assert.assertNull(record.getGeometry());
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.revolsys.core.test.record.query.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.jeometry.common.data.type.DataTypes;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.core.test.geometry.test.old.perf.PerformanceTestCase;
+import com.revolsys.core.test.geometry.test.old.perf.PerformanceTestRunner;
+import com.revolsys.predicate.Predicates;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+/**
+ * Compare filtering {@link ArrayRecord}s using the {@link Condition} tree with the
+ * {@link Condition#compile(RecordDefinition)} predicate. The run size is the number of records.
+ */
+public class CompiledConditionPerfTest extends PerformanceTestCase {
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "CompiledConditionPerfTest") //
+      .addField("id", DataTypes.INT) //
+      .addField("code", DataTypes.STRING) //
+      .addField("name", DataTypes.STRING) //
+      .addField("length", DataTypes.DOUBLE) //
+      .addField("status", DataTypes.STRING) //
+      .getRecordDefinition();
+
+  public static void main(final String args[]) {
+    PerformanceTestRunner.run(CompiledConditionPerfTest.class);
+  }
+
+  private final Condition condition = Q.and(//
+    Q.greaterThan("length", 10.0), //
+    Q.in("status", Arrays.asList("ACTIVE", "PLANNED")), //
+    Q.or(Q.like("name", "Main%"), Q.equal("code", "C17")) //
+  );
+
+  private List<Record> records;
+
+  public CompiledConditionPerfTest(final String name) {
+    super(name);
+    setRunSize(new int[] {
+      1000000, 5000000
+    });
+    setRunIterations(5);
+  }
+
+  public void runCompiled() {
+    final Predicate<MapEx> filter = this.condition.compile(RECORD_DEFINITION);
+    Predicates.count(this.records, filter);
+  }
+
+  public void runCondition() {
+    Predicates.count(this.records, this.condition);
+  }
+
+  @Override
+  public void startRun(final int size) {
+    final String[] statuses = {
+      "ACTIVE", "PLANNED", "RETIRED"
+    };
+    final String[] names = {
+      "Main St", "High St", "Main Ave", "Park Rd"
+    };
+    this.records = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final Record record = new ArrayRecord(RECORD_DEFINITION);
+      record.setValue("id", i);
+      record.setValue("code", "C" + i % 100);
+      record.setValue("name", names[i % names.length]);
+      record.setValue("length", i % 200 / 10.0);
+      record.setValue("status", statuses[i % statuses.length]);
+      this.records.add(record);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.revolsys.core.test.record.query.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.CompiledCondition;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+public class CompiledConditionTest {
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "CompiledConditionTest") //
+      .addField("int", DataTypes.INT) //
+      .addField("long", DataTypes.LONG) //
+      .addField("double", DataTypes.DOUBLE) //
+      .addField("string", DataTypes.STRING) //
+      .getRecordDefinition();
+
+  private static final String[] STRINGS = {
+    "Apple", "apricot", "Banana", "blueberry", "Cherry", "", null
+  };
+
+  private static List<Record> newRecords(final RecordDefinition recordDefinition,
+    final int count) {
+    final Random random = new Random(1234);
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Record record = new ArrayRecord(recordDefinition);
+      if (random.nextInt(10) != 0) {
+        record.setValue("int", random.nextInt(100));
+      }
+      if (random.nextInt(10) != 0) {
+        record.setValue("long", (long)random.nextInt(1000));
+      }
+      record.setValue("double", random.nextInt(1000) / 10.0);
+      record.setValue("string", STRINGS[random.nextInt(STRINGS.length)]);
+      records.add(record);
+    }
+    return records;
+  }
+
+  private void assertSameResult(final Condition condition, final List<Record> records) {
+    final Predicate<MapEx> compiled = condition.compile(RECORD_DEFINITION);
+    for (final Record record : records) {
+      Assert.assertEquals(condition + " " + record, condition.test(record), compiled.test(record));
+    }
+  }
+
+  @Test
+  public void testAll() {
+    Assert.assertSame(Condition.ALL, CompiledCondition.compile(null, RECORD_DEFINITION));
+    Assert.assertSame(Condition.ALL, Condition.ALL.compile(RECORD_DEFINITION));
+  }
+
+  @Test
+  public void testCompiledSameAsCondition() {
+    final List<Record> records = newRecords(RECORD_DEFINITION, 2000);
+    final List<Condition> conditions = Arrays.asList(//
+      Q.equal("int", 5), //
+      Q.notEqual("string", "Apple"), //
+      Q.greaterThan("double", 50.0), //
+      Q.greaterThanEqual("long", 500L), //
+      Q.lessThan("int", 20), //
+      Q.lessThanEqual("double", 25.5), //
+      Q.isNull("int"), //
+      Q.not(Q.isNull("long")), //
+      Q.like("string", "A%"), //
+      Q.like("string", "%rr%"), //
+      Q.like("string", "Banana"), //
+      Q.iLike("string", (Object)"a%"), //
+      Q.in("int", Arrays.asList(1, 2, 3, 50, 99)), //
+      Q.in("string", Arrays.asList("Apple", "Cherry")), //
+      Q.and(Q.greaterThan("int", 10), Q.or(Q.lessThan("long", 100L), Q.isNull("long"))),
+      Q.or(Q.equal("int", 1), Q.or(Q.equal("int", 2), Q.equal("string", "Cherry"))),
+      Q.and(Q.in("int", Arrays.asList(10, 20, 30)), Q.not(Q.like("string", "b%"))) //
+    );
+    for (final Condition condition : conditions) {
+      assertSameResult(condition, records);
+    }
+  }
+
+  @Test
+  public void testOtherRecordDefinition() {
+    final RecordDefinition otherRecordDefinition = new RecordDefinitionBuilder("Other") //
+      .addField("string", DataTypes.STRING) //
+      .addField("int", DataTypes.INT) //
+      .getRecordDefinition();
+    final Condition condition = Q.equal("int", 5);
+    final Predicate<MapEx> compiled = condition.compile(RECORD_DEFINITION);
+    Assert.assertTrue(compiled instanceof CompiledCondition);
+
+    final Record record = new ArrayRecord(otherRecordDefinition);
+    record.setValue("int", 5);
+    Assert.assertTrue("Different record definition uses condition", compiled.test(record));
+    record.setValue("int", 6);
+    Assert.assertFalse(compiled.test(record));
+  }
+}
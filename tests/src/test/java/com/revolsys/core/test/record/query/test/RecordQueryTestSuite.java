@@ -0,0 +1,12 @@
+package com.revolsys.core.test.record.query.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  CompiledConditionTest.class, RecordReaderQueryIteratorTest.class, RecordSorterTest.class
+})
+public class RecordQueryTestSuite {
+}
@@ -0,0 +1,151 @@
+package com.revolsys.core.test.record.query.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.ListRecordReader;
+import com.revolsys.record.io.format.directory.RecordReaderQueryIterator;
+import com.revolsys.record.query.Column;
+import com.revolsys.record.query.Count;
+import com.revolsys.record.query.Q;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.query.SelectAlias;
+import com.revolsys.record.query.functions.Max;
+import com.revolsys.record.query.functions.Min;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+public class RecordReaderQueryIteratorTest {
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "RecordReaderQueryIteratorTest") //
+      .addField("id", DataTypes.INT) //
+      .addField("status", DataTypes.STRING) //
+      .addField("length", DataTypes.DOUBLE) //
+      .getRecordDefinition();
+
+  private static final String[] STATUSES = {
+    "ACTIVE", "PLANNED", "RETIRED"
+  };
+
+  private static List<Record> query(final Query query, final int maxInMemoryCount) {
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      final Record record = new ArrayRecord(RECORD_DEFINITION);
+      record.setValue("id", i);
+      record.setValue("status", STATUSES[i % STATUSES.length]);
+      if (i % 10 != 0) {
+        record.setValue("length", (double)(i * 7 % 1000));
+      }
+      records.add(record);
+    }
+    final ListRecordReader reader = new ListRecordReader(RECORD_DEFINITION, records);
+    final List<Record> results = new ArrayList<>();
+    try (
+      RecordReaderQueryIterator iterator = new RecordReaderQueryIterator(reader, query)) {
+      iterator.setMaxInMemoryCount(maxInMemoryCount);
+      while (iterator.hasNext()) {
+        results.add(iterator.next());
+      }
+    }
+    return results;
+  }
+
+  @Test
+  public void testCount() {
+    final Query query = new Query(RECORD_DEFINITION) //
+      .setSelect(new Count("*"))
+      .setWhereCondition(Q.equal("status", "ACTIVE"));
+    final List<Record> results = query(query, 100);
+    Assert.assertEquals(1, results.size());
+    Assert.assertEquals(334, results.get(0).getLong("count").longValue());
+  }
+
+  @Test
+  public void testFieldNames() {
+    final Query query = new Query(RECORD_DEFINITION) //
+      .setSelect(new Count("*"), new Count("length"), new Max(new Column("length")),
+        new Min(new Column("length")), new Max(new Column("id")), new Min(new Column("id")),
+        new Max(new Column("length")), new SelectAlias(new Count("id"), "count"));
+    final List<Record> results = query(query, 100);
+    Assert.assertEquals(1, results.size());
+    final Record record = results.get(0);
+    Assert.assertEquals(Arrays.asList("count", "count_length", "max_length", "min_length",
+      "max_id", "min_id", "max_length_2", "count_2"),
+      record.getRecordDefinition().getFieldNames());
+    Assert.assertEquals(1000, record.getLong("count").longValue());
+    Assert.assertEquals(900, record.getLong("count_length").longValue());
+    Assert.assertEquals(999.0, record.getDouble("max_length"), 0);
+    Assert.assertEquals(1.0, record.getDouble("min_length"), 0);
+    Assert.assertEquals(999, record.getInteger("max_id").intValue());
+    Assert.assertEquals(0, record.getInteger("min_id").intValue());
+    Assert.assertEquals(999.0, record.getDouble("max_length_2"), 0);
+    Assert.assertEquals(1000, record.getLong("count_2").longValue());
+  }
+
+  @Test
+  public void testGroupBy() {
+    final Query query = new Query(RECORD_DEFINITION) //
+      .setSelect(new Column("status"), new Count("*"),
+        new SelectAlias(new Count("length"), "lengthCount"),
+        new SelectAlias(new Max(new Column("length")), "maxLength"),
+        new SelectAlias(new Min(new Column("id")), "minId"))
+      .addGroupBy("status")
+      .addOrderBy("status", false);
+    final List<Record> results = query(query, 100);
+    Assert.assertEquals(3, results.size());
+    final Record retired = results.get(0);
+    Assert.assertEquals("RETIRED", retired.getValue("status"));
+    Assert.assertEquals(333, retired.getLong("count").longValue());
+    Assert.assertEquals(300, retired.getLong("lengthCount").longValue());
+    Assert.assertEquals(2, retired.getInteger("minId").intValue());
+    Assert.assertEquals(999.0, retired.getDouble("maxLength"), 0);
+    final Record active = results.get(2);
+    Assert.assertEquals("ACTIVE", active.getValue("status"));
+    Assert.assertEquals(334, active.getLong("count").longValue());
+    Assert.assertEquals(0, active.getInteger("minId").intValue());
+    Assert.assertEquals(998.0, active.getDouble("maxLength"), 0);
+  }
+
+  @Test
+  public void testOrderByOffsetLimit() {
+    final Query query = new Query(RECORD_DEFINITION) //
+      .setWhereCondition(Q.and(Q.equal("status", "PLANNED"), Q.isNotNull("length")))
+      .addOrderBy("length", false)
+      .addOrderBy("id");
+    query.setOffset(5);
+    query.setLimit(20);
+    for (final int maxInMemoryCount : new int[] {
+      10, 40, 10000
+    }) {
+      final List<Record> results = query(query, maxInMemoryCount);
+      Assert.assertEquals(20, results.size());
+      Record previous = null;
+      for (final Record record : results) {
+        Assert.assertEquals("PLANNED", record.getValue("status"));
+        if (previous != null) {
+          Assert.assertTrue(previous.getDouble("length") >= record.getDouble("length"));
+        }
+        previous = record;
+      }
+    }
+  }
+
+  @Test
+  public void testStreamOffsetLimit() {
+    final Query query = new Query(RECORD_DEFINITION);
+    query.setOffset(10);
+    query.setLimit(5);
+    final List<Record> results = query(query, 100);
+    Assert.assertEquals(5, results.size());
+    Assert.assertEquals(10, results.get(0).getInteger("id").intValue());
+    Assert.assertEquals(14, results.get(4).getInteger("id").intValue());
+  }
+}
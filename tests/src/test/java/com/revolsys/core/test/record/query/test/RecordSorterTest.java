@@ -0,0 +1,129 @@
+package com.revolsys.core.test.record.query.test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordSorter;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+public class RecordSorterTest {
+
+  private static final Comparator<Record> COMPARATOR = (record1, record2) -> Integer
+    .compare(record1.getInteger("key"), record2.getInteger("key"));
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "RecordSorterTest") //
+      .addField("id", DataTypes.INT) //
+      .addField("key", DataTypes.INT) //
+      .addField("name", DataTypes.STRING) //
+      .addField("amount", DataTypes.DECIMAL) //
+      .addField("length", DataTypes.DOUBLE) //
+      .addField("geometry", GeometryDataTypes.POINT) //
+      .getRecordDefinition();
+
+  private static void assertSorted(final List<Record> expected, final Iterator<Record> iterator) {
+    for (final Record expectedRecord : expected) {
+      Assert.assertTrue(iterator.hasNext());
+      final Record actualRecord = iterator.next();
+      for (int i = 0; i < RECORD_DEFINITION.getFieldCount(); i++) {
+        final Object expectedValue = expectedRecord.getValue(i);
+        final Object actualValue = actualRecord.getValue(i);
+        Assert.assertTrue(RECORD_DEFINITION.getFieldName(i),
+          DataType.equal(expectedValue, actualValue));
+      }
+    }
+    Assert.assertFalse(iterator.hasNext());
+  }
+
+  private static List<Record> newRecords(final int count, final int keyCount) {
+    final Random random = new Random(1234);
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Record record = new ArrayRecord(RECORD_DEFINITION);
+      record.setValue("id", i);
+      record.setValue("key", random.nextInt(keyCount));
+      if (i % 7 != 0) {
+        record.setValue("name", "Name \u00e9 " + i);
+        record.setValue("amount", new BigDecimal(i).movePointLeft(2));
+      }
+      record.setValue("length", random.nextDouble());
+      if (i % 3 != 0) {
+        record.setValue("geometry", GEOMETRY_FACTORY.point(i, random.nextInt(1000)));
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static List<Record> sort(final List<Record> records) {
+    final List<Record> expected = new ArrayList<>(records);
+    expected.sort(COMPARATOR);
+    return expected;
+  }
+
+  @Test
+  public void testExternalSort() {
+    final List<Record> records = newRecords(10000, 500);
+    try (
+      RecordSorter sorter = new RecordSorter(COMPARATOR).setMaxInMemoryCount(100)) {
+      sorter.addAll(records);
+      Assert.assertEquals(100, sorter.getRunCount());
+      assertSorted(sort(records), sorter.iterator());
+    }
+  }
+
+  @Test
+  public void testExternalSortLimit() {
+    final List<Record> records = newRecords(2000, 100);
+    try (
+      RecordSorter sorter = new RecordSorter(COMPARATOR).setMaxInMemoryCount(100)
+        .setLimit(500)) {
+      sorter.addAll(records);
+      Assert.assertTrue(sorter.getRunCount() > 0);
+      final Iterator<Record> iterator = sorter.iterator();
+      final List<Record> expected = sort(records);
+      for (int i = 0; i < 500; i++) {
+        Assert.assertEquals(expected.get(i).getValue("id"), iterator.next().getValue("id"));
+      }
+    }
+  }
+
+  @Test
+  public void testInMemory() {
+    final List<Record> records = newRecords(1000, 50);
+    try (
+      RecordSorter sorter = new RecordSorter(COMPARATOR)) {
+      sorter.addAll(records);
+      Assert.assertEquals(0, sorter.getRunCount());
+      assertSorted(sort(records), sorter.iterator());
+    }
+  }
+
+  @Test
+  public void testTopN() {
+    final List<Record> records = newRecords(20000, 1000);
+    try (
+      RecordSorter sorter = new RecordSorter(COMPARATOR).setLimit(10)) {
+      sorter.addAll(records);
+      Assert.assertEquals(0, sorter.getRunCount());
+      assertSorted(sort(records).subList(0, 10), sorter.iterator());
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package com.revolsys.gis.postgresql;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+import org.postgresql.copy.CopyIn;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.util.Hex;
+
+/**
+ * Test the numeric and EWKB encoding used by the {@link PostgreSQLCopyBinaryWriter} against the
+ * bytes expected by the PostgreSQL numeric and PostGIS geometry receive functions.
+ */
+public class PostgreSQLCopyBinaryWriterTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY_2D = GeometryFactory.fixed2d(3005,
+    1000.0, 1000.0);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_3D = GeometryFactory.fixed3d(3005,
+    1000.0, 1000.0, 1000.0);
+
+  /** The size of the header and trailer of a binary copy. */
+  private static final int HEADER_TRAILER_SIZE = 21;
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder(
+    "PostgreSQLCopyBinaryWriterTest") //
+      .addField("id", DataTypes.INT) //
+      .getRecordDefinition();
+
+  private static void assertEwkb(final String expectedHex, final ByteOrder byteOrder,
+    final DataType dataType, final Geometry geometry, final int axisCount, final int srid) {
+    final int byteCount = PostgreSQLGeometryWrapper.getEwkbByteCount(dataType, geometry,
+      axisCount, srid);
+    Assert.assertEquals(expectedHex.length() / 2, byteCount);
+    final ByteBuffer buffer = ByteBuffer.allocate(byteCount).order(byteOrder);
+    PostgreSQLGeometryWrapper.writeEwkb(buffer, dataType, geometry, axisCount, srid);
+    Assert.assertEquals(byteCount, buffer.position());
+    Assert.assertEquals(expectedHex, Hex.toHex(buffer.array()));
+  }
+
+  private static void assertNumeric(final String expectedHex, final Object value) {
+    final byte[] bytes;
+    if (value instanceof BigDecimal) {
+      bytes = PostgreSQLCopyBinaryWriter.encodeNumeric((BigDecimal)value);
+    } else {
+      bytes = PostgreSQLCopyBinaryWriter.encodeNumeric(value);
+    }
+    Assert.assertEquals(value.toString(), expectedHex, Hex.toHex(bytes));
+  }
+
+  /**
+   * Create a connection that records the savepoint calls.
+   */
+  private static Connection newConnection(final List<String> calls) {
+    final Savepoint savepoint = new Savepoint() {
+      @Override
+      public int getSavepointId() {
+        return 1;
+      }
+
+      @Override
+      public String getSavepointName() {
+        return null;
+      }
+    };
+    return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {
+      Connection.class
+    }, (proxy, method, args) -> {
+      final String name = method.getName();
+      switch (name) {
+        case "getAutoCommit":
+          return false;
+        case "setSavepoint":
+          calls.add(name);
+          return savepoint;
+        case "releaseSavepoint":
+        case "rollback":
+          calls.add(name);
+          return null;
+        default:
+          throw new UnsupportedOperationException(name);
+      }
+    });
+  }
+
+  /**
+   * Create a copy that counts the rows written, if fail is true the end of the copy fails as if
+   * the server rejected one of the rows.
+   */
+  private static CopyIn newTestCopyIn(final List<String> calls, final boolean fail) {
+    final long[] byteCount = {
+      0
+    };
+    final boolean[] active = {
+      true
+    };
+    return (CopyIn)Proxy.newProxyInstance(CopyIn.class.getClassLoader(), new Class<?>[] {
+      CopyIn.class
+    }, (proxy, method, args) -> {
+      final String name = method.getName();
+      switch (name) {
+        case "writeToCopy":
+          byteCount[0] += (Integer)args[2];
+          return null;
+        case "isActive":
+          return active[0];
+        case "cancelCopy":
+          calls.add(name);
+          active[0] = false;
+          return null;
+        case "endCopy":
+          active[0] = false;
+          if (fail) {
+            throw new SQLException("Invalid row");
+          } else {
+            // Each row with no fields is a 2 byte field count
+            return (byteCount[0] - HEADER_TRAILER_SIZE) / 2;
+          }
+        default:
+          throw new UnsupportedOperationException(name);
+      }
+    });
+  }
+
+  @Test
+  public void testCopyFailure() throws SQLException {
+    final List<String> calls = new ArrayList<>();
+    final JdbcConnection connection = new JdbcConnection(newConnection(calls), null);
+    final int[] copyCount = {
+      0
+    };
+    final PostgreSQLCopyBinaryWriter writer = new PostgreSQLCopyBinaryWriter(connection, null,
+      "COPY test FROM STDIN (FORMAT BINARY)", Collections.emptyList(), Collections.emptyList()) {
+      @Override
+      protected CopyIn newCopyIn() {
+        copyCount[0]++;
+        return newTestCopyIn(calls, copyCount[0] == 2);
+      }
+    };
+
+    // Write 8 records in batches of 3, the second batch fails
+    final int batchSize = 3;
+    final List<Record> records = new ArrayList<>();
+    final List<Record> failedRecords = new ArrayList<>();
+    long insertCount = 0;
+    for (int i = 0; i < 8; i++) {
+      final Record record = new ArrayRecord(RECORD_DEFINITION);
+      record.setValue("id", i);
+      records.add(record);
+      writer.start();
+      writer.write(record);
+      if (writer.getRecordCount() == batchSize || i == 7) {
+        try {
+          insertCount += writer.finish();
+          Assert.assertEquals(0, writer.getRecordCount());
+        } catch (final SQLException e) {
+          Assert.assertFalse(writer.isActive());
+          failedRecords.addAll(writer.removeRecords());
+        }
+      }
+    }
+    Assert.assertEquals(3, copyCount[0]);
+    Assert.assertEquals(5, insertCount);
+    // Only the records from the failed batch need to be inserted again
+    Assert.assertEquals(records.subList(3, 6), failedRecords);
+    Assert.assertEquals(0, writer.getRecordCount());
+    // The failed copy is rolled back to its savepoint so the earlier batches are kept
+    Assert.assertEquals(Arrays.asList("setSavepoint", "releaseSavepoint", "setSavepoint",
+      "rollback", "setSavepoint", "releaseSavepoint"), calls);
+  }
+
+  @Test
+  public void testEwkbEmpty() {
+    // Empty points have NaN ordinates
+    assertEwkb("00" + "00000001" + "7ff8000000000000" + "7ff8000000000000", ByteOrder.BIG_ENDIAN,
+      GeometryDataTypes.POINT, GEOMETRY_FACTORY_2D.point(), 2, 0);
+    assertEwkb("01" + "02000020" + "bd0b0000" + "00000000", ByteOrder.LITTLE_ENDIAN,
+      GeometryDataTypes.LINE_STRING, GEOMETRY_FACTORY_2D.lineString(), 2, 3005);
+    assertEwkb("00" + "20000003" + "00000bbd" + "00000000", ByteOrder.BIG_ENDIAN,
+      GeometryDataTypes.POLYGON, GEOMETRY_FACTORY_2D.polygon(), 2, 3005);
+    assertEwkb("00" + "20000006" + "00000bbd" + "00000000", ByteOrder.BIG_ENDIAN,
+      GeometryDataTypes.MULTI_POLYGON, GEOMETRY_FACTORY_2D.geometryCollection(), 2, 3005);
+
+    // Empty geometries are converted to an empty geometry of the column type
+    final Geometry emptyPoint = PostgreSQLGeometryWrapper.getEwkbGeometry(
+      GeometryDataTypes.POINT, GEOMETRY_FACTORY_2D, GEOMETRY_FACTORY_2D.geometryCollection());
+    Assert.assertTrue(emptyPoint instanceof Point);
+    Assert.assertTrue(emptyPoint.isEmpty());
+  }
+
+  @Test
+  public void testEwkbLineString() {
+    final Geometry line = GEOMETRY_FACTORY_3D.lineString(3, 1.0, 2.0, 3.0, 4.0, 5.0, Double.NaN);
+    // Missing z values are written as 0
+    assertEwkb("00" + "a0000002" + "00000bbd" + "00000002" //
+      + "3ff0000000000000" + "4000000000000000" + "4008000000000000" //
+      + "4010000000000000" + "4014000000000000" + "0000000000000000", ByteOrder.BIG_ENDIAN,
+      GeometryDataTypes.LINE_STRING, line, 3, 3005);
+  }
+
+  @Test
+  public void testEwkbPoint() {
+    final Point point = GEOMETRY_FACTORY_2D.point(1, 2);
+    assertEwkb("01" + "01000020" + "bd0b0000" + "000000000000f03f" + "0000000000000040",
+      ByteOrder.LITTLE_ENDIAN, GeometryDataTypes.POINT, point, 2, 3005);
+    assertEwkb("00" + "00000001" + "3ff0000000000000" + "4000000000000000",
+      ByteOrder.BIG_ENDIAN, GeometryDataTypes.POINT, point, 2, 0);
+  }
+
+  @Test
+  public void testNumericLargeScale() {
+    // 1234 * 10000^-3
+    assertNumeric("0001" + "fffd" + "0000" + "000c" + "04d2", new BigDecimal("0.000000001234"));
+    // 100 * 10000^2
+    assertNumeric("0001" + "0002" + "0000" + "0000" + "0064", new BigDecimal("1E+10"));
+    assertNumeric("0004" + "0001" + "0000" + "0008" + "0001" + "0000" + "0000" + "0001",
+      new BigDecimal("10000.00000001"));
+  }
+
+  @Test
+  public void testNumericNaN() {
+    final String nan = "0000" + "0000" + "c000" + "0000";
+    assertNumeric(nan, Double.NaN);
+    assertNumeric(nan, Float.NaN);
+    assertNumeric(nan, "NaN");
+    assertNumeric("0002" + "0000" + "0000" + "0001" + "0001" + "1388", 1.5);
+  }
+
+  @Test
+  public void testNumericNegative() {
+    assertNumeric("0002" + "0000" + "4000" + "0001" + "000c" + "1388", new BigDecimal("-12.5"));
+    assertNumeric("0001" + "ffff" + "4000" + "0004" + "04d2", new BigDecimal("-0.1234"));
+    assertNumeric("0001" + "0001" + "4000" + "0000" + "0001", new BigDecimal("-10000"));
+  }
+
+  @Test
+  public void testNumericZero() {
+    assertNumeric("0000" + "0000" + "0000" + "0000", BigDecimal.ZERO);
+    assertNumeric("0000" + "0000" + "0000" + "0002", new BigDecimal("0.00"));
+    assertNumeric("0000" + "0000" + "0000" + "0000", 0);
+  }
+}
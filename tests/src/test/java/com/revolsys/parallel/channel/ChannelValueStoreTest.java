@@ -0,0 +1,86 @@
+package com.revolsys.parallel.channel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.channel.store.BlackHoleBuffer;
+import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.Overwrite;
+import com.revolsys.parallel.channel.store.RingBuffer;
+import com.revolsys.parallel.channel.store.ZeroBuffer;
+
+/**
+ * Test the non-blocking {@link ChannelValueStore#offer(Object)} and
+ * {@link ChannelValueStore#poll()} methods for each of the stores.
+ */
+public class ChannelValueStoreTest {
+
+  /**
+   * Offer values until the store is full then poll them in the order they were offered.
+   */
+  private static void assertOfferPoll(final ChannelValueStore<Integer> store, final int size) {
+    Assert.assertNull(store.poll());
+    Assert.assertEquals(ChannelValueStore.EMPTY, store.getState());
+    for (int i = 0; i < size; i++) {
+      Assert.assertTrue("offer " + i, store.offer(i));
+    }
+    Assert.assertEquals(ChannelValueStore.FULL, store.getState());
+    Assert.assertFalse("offer full", store.offer(size));
+    for (int i = 0; i < size; i++) {
+      Assert.assertEquals(i, store.poll().intValue());
+    }
+    Assert.assertNull(store.poll());
+    Assert.assertEquals(ChannelValueStore.EMPTY, store.getState());
+
+    // The store can be reused after being emptied
+    Assert.assertTrue(store.offer(size));
+    Assert.assertEquals(size, store.poll().intValue());
+  }
+
+  @Test
+  public void testBlackHoleBuffer() {
+    final ChannelValueStore<Integer> store = new BlackHoleBuffer<>();
+    Assert.assertTrue(store.offer(1));
+    Assert.assertNull(store.poll());
+    Assert.assertEquals(ChannelValueStore.EMPTY, store.getState());
+  }
+
+  @Test
+  public void testBuffer() {
+    assertOfferPoll(new Buffer<>(3), 3);
+
+    final ChannelValueStore<Integer> unbounded = new Buffer<>();
+    for (int i = 0; i < 100; i++) {
+      Assert.assertTrue(unbounded.offer(i));
+    }
+    Assert.assertEquals(ChannelValueStore.NONEMPTYFULL, unbounded.getState());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(i, unbounded.poll().intValue());
+    }
+    Assert.assertNull(unbounded.poll());
+  }
+
+  @Test
+  public void testOverwrite() {
+    final ChannelValueStore<Integer> store = new Overwrite<>();
+    Assert.assertNull(store.poll());
+    Assert.assertTrue(store.offer(1));
+    // Overwrite is never full, the last value replaces the previous value
+    Assert.assertTrue(store.offer(2));
+    Assert.assertEquals(ChannelValueStore.NONEMPTYFULL, store.getState());
+    Assert.assertEquals(2, store.poll().intValue());
+    Assert.assertNull(store.poll());
+    Assert.assertEquals(ChannelValueStore.EMPTY, store.getState());
+  }
+
+  @Test
+  public void testRingBuffer() {
+    assertOfferPoll(new RingBuffer<>(4, false), 4);
+    assertOfferPoll(new RingBuffer<>(4, true), 4);
+  }
+
+  @Test
+  public void testZeroBuffer() {
+    assertOfferPoll(new ZeroBuffer<>(), 1);
+  }
+}
@@ -0,0 +1,166 @@
+package com.revolsys.swing.test.map.layer.record;
+
+import java.util.Collections;
+
+import org.jeometry.common.data.identifier.Identifier;
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.swing.map.layer.record.ListRecordLayer;
+import com.revolsys.swing.map.layer.record.RecordLayerGeneralizationCache;
+
+public class RecordLayerGeneralizationCacheTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final Identifier ID = Identifier.newIdentifier(1);
+
+  /**
+   * Create a zig zag line with 1000 vertices 0.1 units apart in x and alternating between y and
+   * y + 0.1.
+   */
+  private static Geometry newZigZag(final double x, final double y) {
+    final double[] coordinates = new double[2000];
+    for (int i = 0; i < 1000; i++) {
+      coordinates[i * 2] = x + i * 0.1;
+      coordinates[i * 2 + 1] = y + i % 2 * 0.1;
+    }
+    return GEOMETRY_FACTORY.lineString(2, coordinates);
+  }
+
+  private RecordLayerGeneralizationCache cache;
+
+  private ListRecordLayer layer;
+
+  @After
+  public void afterTest() {
+    this.cache.clear();
+    this.layer.close();
+  }
+
+  @Before
+  public void beforeTest() {
+    final RecordDefinition recordDefinition = new RecordDefinitionBuilder("TEST") //
+      .addField("NAME", DataTypes.STRING, 50) //
+      .addField("GEOMETRY", GeometryDataTypes.LINE_STRING) //
+      .setGeometryFactory(GEOMETRY_FACTORY) //
+      .getRecordDefinition();
+    this.layer = new ListRecordLayer(recordDefinition);
+    this.cache = new RecordLayerGeneralizationCache(this.layer);
+    this.cache.setGeneralizeScale(0);
+  }
+
+  /**
+   * Get the geometry, waiting until the background task has generalized it.
+   */
+  private Geometry getGeneralizedGeometry(final Geometry geometry) throws InterruptedException {
+    Geometry generalized = getGeometry(geometry);
+    for (int i = 0; i < 1000 && generalized == geometry; i++) {
+      Thread.sleep(10);
+      generalized = getGeometry(geometry);
+    }
+    Assert.assertNotSame("Not generalized", geometry, generalized);
+    Assert.assertTrue(generalized.getVertexCount() < geometry.getVertexCount());
+    return generalized;
+  }
+
+  private Geometry getGeometry(final Geometry geometry) {
+    return this.cache.getGeometry(GEOMETRY_FACTORY, 1.0, 1000, ID, geometry);
+  }
+
+  @Test
+  public void testGeneralizeScale() {
+    final Geometry line = newZigZag(0, 0);
+    this.cache.setGeneralizeScale(5000);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertSame(line, getGeometry(line));
+    }
+    Assert.assertEquals(5000, this.cache.getGeneralizeScale(), 0);
+  }
+
+  @Test
+  public void testIsGeneralize() {
+    final Geometry line = newZigZag(0, 0);
+    Assert.assertTrue(RecordLayerGeneralizationCache.isGeneralize(line, GEOMETRY_FACTORY, 1));
+    // The average segment length is longer than the tolerance
+    Assert.assertFalse(RecordLayerGeneralizationCache.isGeneralize(line, GEOMETRY_FACTORY, 0.1));
+    // The extent is smaller than the tolerance
+    Assert.assertFalse(RecordLayerGeneralizationCache.isGeneralize(line, GEOMETRY_FACTORY, 200));
+
+    final Geometry shortLine = GEOMETRY_FACTORY.lineString(2, 0.0, 0.0, 0.1, 0.1, 0.2, 0.0);
+    Assert.assertFalse(
+      RecordLayerGeneralizationCache.isGeneralize(shortLine, GEOMETRY_FACTORY, 1));
+    final Geometry point = GEOMETRY_FACTORY.point(1, 2);
+    Assert.assertFalse(RecordLayerGeneralizationCache.isGeneralize(point, GEOMETRY_FACTORY, 1));
+    Assert.assertFalse(RecordLayerGeneralizationCache.isGeneralize(null, GEOMETRY_FACTORY, 1));
+  }
+
+  @Test
+  public void testNotGeneralized() {
+    final Geometry line = newZigZag(0, 0);
+    // The average segment length is longer than the tolerance of 0.0625 for 0.1 units per pixel
+    for (int i = 0; i < 10; i++) {
+      Assert.assertSame(line, this.cache.getGeometry(GEOMETRY_FACTORY, 0.1, 100, ID, line));
+    }
+    // No identifier
+    Assert.assertSame(line, this.cache.getGeometry(GEOMETRY_FACTORY, 1.0, 1000, null, line));
+  }
+
+  @Test
+  public void testRetainIdentifiers() throws InterruptedException {
+    final Geometry line = newZigZag(0, 0);
+    final Geometry generalized = getGeneralizedGeometry(line);
+
+    this.cache.retainIdentifiers(Collections.singleton(ID));
+    Assert.assertSame(generalized, getGeometry(line));
+
+    // The evicted geometry is generalized again
+    this.cache.retainIdentifiers(Collections.emptySet());
+    Assert.assertSame(line, getGeometry(line));
+    getGeneralizedGeometry(line);
+
+    this.cache.retainRecords(null);
+    Assert.assertSame(line, getGeometry(line));
+  }
+
+  @Test
+  public void testScaleBandAndTolerance() {
+    Assert.assertEquals(0, RecordLayerGeneralizationCache.getScaleBand(1.0));
+    Assert.assertEquals(0, RecordLayerGeneralizationCache.getScaleBand(1.5));
+    Assert.assertEquals(1, RecordLayerGeneralizationCache.getScaleBand(2.0));
+    Assert.assertEquals(-1, RecordLayerGeneralizationCache.getScaleBand(0.75));
+    Assert.assertEquals(10, RecordLayerGeneralizationCache.getScaleBand(1500.0));
+    Assert.assertEquals(8, RecordLayerGeneralizationCache.getTolerance(3), 0);
+    Assert.assertEquals(0.25, RecordLayerGeneralizationCache.getTolerance(-2), 0);
+    for (final double unitsPerPixel : new double[] {
+      0.01, 0.3, 0.5, 1, 1.5, 3.99, 4, 1000, 12345.6
+    }) {
+      final int scaleBand = RecordLayerGeneralizationCache.getScaleBand(unitsPerPixel);
+      final double tolerance = RecordLayerGeneralizationCache.getTolerance(scaleBand);
+      Assert.assertTrue(unitsPerPixel + " " + tolerance, tolerance <= unitsPerPixel);
+      Assert.assertTrue(unitsPerPixel + " " + tolerance, tolerance > unitsPerPixel / 2);
+    }
+  }
+
+  @Test
+  public void testSourceGeometryChanged() throws InterruptedException {
+    final Geometry line = newZigZag(0, 0);
+    getGeneralizedGeometry(line);
+
+    // The generalized geometry for the old geometry is discarded
+    final Geometry changedLine = newZigZag(500, 500);
+    Assert.assertSame(changedLine, getGeometry(changedLine));
+    final Geometry generalized = getGeneralizedGeometry(changedLine);
+    Assert.assertEquals(500, generalized.getBoundingBox().getMinX(), 0);
+    Assert.assertEquals(500, generalized.getBoundingBox().getMinY(), 0.1);
+  }
+}
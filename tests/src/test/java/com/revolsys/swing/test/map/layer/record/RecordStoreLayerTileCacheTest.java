@@ -0,0 +1,240 @@
+package com.revolsys.swing.test.map.layer.record;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.revolsys.collection.map.Maps;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.gis.esri.gdb.file.FileGdbRecordStoreFactory;
+import com.revolsys.io.FileUtil;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.record.schema.RecordStore;
+import com.revolsys.swing.map.layer.record.LayerRecord;
+import com.revolsys.swing.map.layer.record.RecordStoreLayer;
+import com.revolsys.swing.map.layer.record.RecordStoreLayerTileCache;
+import com.revolsys.util.Cancellable;
+
+public class RecordStoreLayerTileCacheTest {
+  /**
+   * Record store layer that counts the queries sent to the record store.
+   */
+  private static class CountingRecordStoreLayer extends RecordStoreLayer {
+    private int queryCount;
+
+    public CountingRecordStoreLayer(final RecordStore recordStore, final PathName typePath) {
+      super(recordStore, typePath, true);
+    }
+
+    private int getIndexRecordCount(final BoundingBox boundingBox) {
+      return getRecordsIndex(boundingBox).size();
+    }
+
+    @Override
+    protected RecordReader newRecordStoreRecordReader(final Query query) {
+      this.queryCount++;
+      return super.newRecordStoreRecordReader(query);
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3587, 1000.0,
+    1000.0);
+
+  private static final PathName TEST = PathName.newPathName("TEST");
+
+  private static File testDirectory;
+
+  @AfterClass
+  public static void afterSuite() {
+    FileUtil.deleteDirectory(testDirectory, true);
+    testDirectory = null;
+  }
+
+  @BeforeClass
+  public static void beforeSuite() {
+    testDirectory = FileUtil.newTempDirectory(RecordStoreLayerTileCacheTest.class.getName(),
+      ".test");
+  }
+
+  private CountingRecordStoreLayer layer;
+
+  private RecordStore recordStore;
+
+  private RecordStoreLayerTileCache tileCache;
+
+  @After
+  public void afterTest() {
+    if (this.layer != null) {
+      this.layer.close();
+    }
+    if (this.recordStore != null) {
+      this.recordStore.close();
+    }
+    this.recordStore = null;
+    this.layer = null;
+    this.tileCache = null;
+    FileUtil.deleteDirectory(testDirectory, false);
+  }
+
+  private void assertLoad(final double minX, final double minY, final double maxX,
+    final double maxY, final int expectedRecordCount, final int expectedQueryCount) {
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(minX, minY, maxX, maxY);
+    final List<LayerRecord> records = this.tileCache.loadRecords(Cancellable.FALSE, boundingBox);
+    Assert.assertEquals("Record Count", expectedRecordCount, records.size());
+    Assert.assertEquals("Query Count", expectedQueryCount, this.layer.queryCount);
+  }
+
+  /**
+   * Create a 20x20 grid of points with a 5m spacing starting at 2.5,2.5.
+   */
+  @Before
+  public void beforeTest() {
+    FileUtil.deleteDirectory(testDirectory, false);
+    final File testFile = new File(testDirectory, "test.gdb");
+    this.recordStore = FileGdbRecordStoreFactory.newRecordStore(testFile);
+    this.recordStore.initialize();
+
+    final RecordDefinition recordDefinition = new RecordDefinitionBuilder(TEST) //
+      .addField("NAME", DataTypes.STRING, 50) //
+      .addField("GEOMETRY", GeometryDataTypes.POINT) //
+      .setGeometryFactory(GEOMETRY_FACTORY) //
+      .getRecordDefinition();
+    final RecordDefinition storeRecordDefinition = this.recordStore
+      .getRecordDefinition(recordDefinition);
+
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 20; j++) {
+        final Record record = this.recordStore.newRecord(storeRecordDefinition);
+        record.setValue("NAME", i + "_" + j);
+        record.setGeometryValue(GEOMETRY_FACTORY.point(i * 5 + 2.5, j * 5 + 2.5));
+        records.add(record);
+      }
+    }
+    this.recordStore.insertRecords(records);
+
+    this.layer = new CountingRecordStoreLayer(this.recordStore, TEST);
+    this.layer.initialize();
+    this.layer.setEditable(true);
+    this.layer.queryCount = 0;
+    this.tileCache = this.layer.getTileCache();
+    Assert.assertNotNull("Tile Cache", this.tileCache);
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() {
+    this.tileCache.setMaxRecordCount(0);
+    assertLoad(0, 0, 60, 60, 169, 1);
+    // The tiles in the view are never evicted
+    Assert.assertEquals(169, this.tileCache.getRecordCount());
+    Assert.assertEquals(16, this.tileCache.getTileCount());
+
+    // Moving away evicts all the tiles outside the new view
+    assertLoad(1024, 1024, 1084, 1084, 0, 2);
+    Assert.assertEquals(0, this.tileCache.getRecordCount());
+    Assert.assertEquals(16, this.tileCache.getTileCount());
+
+    // The evicted tiles must be loaded again
+    assertLoad(0, 0, 60, 60, 169, 3);
+  }
+
+  @Test
+  public void testGeometryChanged() {
+    final List<LayerRecord> records = this.tileCache.loadRecords(Cancellable.FALSE,
+      GEOMETRY_FACTORY.newBoundingBox(0, 0, 100, 100));
+    Assert.assertEquals(400, records.size());
+    Assert.assertEquals(1, this.layer.queryCount);
+
+    final LayerRecord record = records.get(0);
+    record.setGeometryValue(GEOMETRY_FACTORY.point(500, 500));
+    assertLoad(0, 0, 100, 100, 399, 1);
+
+    record.setGeometryValue(GEOMETRY_FACTORY.point(50, 50));
+    assertLoad(0, 0, 100, 100, 400, 1);
+  }
+
+  @Test
+  public void testIndexUpdated() {
+    this.tileCache.setMaxRecordCount(0);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 100, 100);
+    assertLoad(0, 0, 60, 60, 169, 1);
+    Assert.assertEquals(169, this.layer.getIndexRecordCount(boundingBox));
+
+    // The records of the evicted tiles are removed from the index
+    assertLoad(1024, 1024, 1084, 1084, 0, 2);
+    Assert.assertEquals(0, this.layer.getIndexRecordCount(boundingBox));
+
+    // The records of the loaded tiles are added to the index
+    assertLoad(0, 0, 60, 60, 169, 3);
+    Assert.assertEquals(169, this.layer.getIndexRecordCount(boundingBox));
+    this.tileCache.setMaxRecordCount(RecordStoreLayerTileCache.DEFAULT_MAX_RECORD_COUNT);
+    assertLoad(0, 0, 100, 100, 400, 4);
+    Assert.assertEquals(400, this.layer.getIndexRecordCount(boundingBox));
+  }
+
+  @Test
+  public void testOverlappingPan() {
+    // 32m tiles, columns and rows 0-3
+    assertLoad(0, 0, 100, 100, 400, 1);
+    Assert.assertEquals(16, this.tileCache.getTileCount());
+
+    // Same tiles, no query
+    assertLoad(10, 10, 110, 110, 400, 1);
+    Assert.assertEquals(16, this.tileCache.getTileCount());
+
+    // Only column 4 is loaded
+    assertLoad(40, 0, 140, 100, 400, 2);
+    Assert.assertEquals(20, this.tileCache.getTileCount());
+
+    // Back to the original view, no query
+    assertLoad(0, 0, 100, 100, 400, 2);
+  }
+
+  @Test
+  public void testSaveNewRecord() {
+    assertLoad(0, 0, 100, 100, 400, 1);
+
+    final Map<String, Object> values = Maps.<String, Object> buildLinkedHash()
+      .add("NAME", "New")
+      .add("GEOMETRY", GEOMETRY_FACTORY.point(50, 50));
+    final LayerRecord record = this.layer.newLayerRecord(values);
+    Assert.assertTrue(this.layer.saveChanges(record));
+    // The saved record is added to the cached tiles without a query
+    int queryCount = this.layer.queryCount;
+    assertLoad(0, 0, 100, 100, 401, queryCount);
+
+    this.layer.deleteRecord(record);
+    Assert.assertTrue(this.layer.saveChanges(record));
+    queryCount = this.layer.queryCount;
+    assertLoad(0, 0, 100, 100, 400, queryCount);
+  }
+
+  @Test
+  public void testTileAssignment() {
+    // 16m tiles, columns and rows 0-3 so only points < 64 are loaded
+    assertLoad(0, 0, 60, 60, 169, 1);
+    Assert.assertEquals(16, this.tileCache.getTileCount());
+    Assert.assertEquals(169, this.tileCache.getRecordCount());
+
+    // Zooming out a level loads the 32m tiles
+    assertLoad(0, 0, 100, 100, 400, 2);
+    Assert.assertEquals(32, this.tileCache.getTileCount());
+    Assert.assertEquals(400, this.tileCache.getRecordCount());
+  }
+}
@@ -1,5 +1,7 @@
 package com.revolsys.tests.elevation.las;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -31,6 +33,7 @@ import com.revolsys.elevation.cloud.las.LasPointCloudHeader;
 import com.revolsys.elevation.cloud.las.LasPointCloudWriter;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.GeometryFactoryWithOffsets;
 import com.revolsys.util.Debug;
@@ -357,6 +360,19 @@ public class LasTest {
     });
   }
 
+  private void assertPointsEqual(final String label, final List<LasPoint> points1,
+    final List<LasPoint> points2) {
+    Assert.assertEquals(label + " size", points1.size(), points2.size());
+    for (int i = 0; i < points1.size(); i++) {
+      try {
+        assertPointEqual(points1.get(i), points2.get(i));
+      } catch (final AssertionError e) {
+        Logs.error(this, label + "-" + i, e);
+        throw e;
+      }
+    }
+  }
+
   private void assertPropertyEqual(final Object object1, final Object object2,
     final String propertyName) {
     final Object value1 = Property.getProperty(object1, propertyName);
@@ -433,30 +449,7 @@ public class LasTest {
 
   public void asssertWriteRead(final String prefix, final LasPointFormat recordFormat,
     final GeometryFactory geometryFactory, final String fileExtension) {
-    final Consumer<LasPointCloud> cloudAction = cloud -> {
-      if (recordFormat.name().contains("Nir")) {
-        addNirPoints(cloud);
-      }
-      if (recordFormat.name().contains("GpsTime")) {
-        addGpsTimePoints(cloud);
-      }
-      if (recordFormat.name().contains("Rgb")) {
-        addRgbPoints(cloud);
-      }
-      addRandomPoints(cloud, 1000);
-      addIntensityPoints(cloud);
-      if (recordFormat.getId() < 6) {
-        addReturnPoints10(cloud);
-      } else {
-        addReturnPoints14(cloud);
-      }
-      addClassificationAndFlags(cloud);
-      if (recordFormat.getId() < 6) {
-        addScanAngleRankPoints(cloud);
-      }
-      addUserDataPoints(cloud);
-      addPointSourceIDPoints(cloud);
-    };
+    final Consumer<LasPointCloud> cloudAction = newFieldsAction(recordFormat);
     asssertWriteRead(prefix, recordFormat, geometryFactory, cloudAction, fileExtension);
   }
 
@@ -493,6 +486,33 @@ public class LasTest {
     return writeVariations;
   }
 
+  private Consumer<LasPointCloud> newFieldsAction(final LasPointFormat recordFormat) {
+    return cloud -> {
+      if (recordFormat.name().contains("Nir")) {
+        addNirPoints(cloud);
+      }
+      if (recordFormat.name().contains("GpsTime")) {
+        addGpsTimePoints(cloud);
+      }
+      if (recordFormat.name().contains("Rgb")) {
+        addRgbPoints(cloud);
+      }
+      addRandomPoints(cloud, 1000);
+      addIntensityPoints(cloud);
+      if (recordFormat.getId() < 6) {
+        addReturnPoints10(cloud);
+      } else {
+        addReturnPoints14(cloud);
+      }
+      addClassificationAndFlags(cloud);
+      if (recordFormat.getId() < 6) {
+        addScanAngleRankPoints(cloud);
+      }
+      addUserDataPoints(cloud);
+      addPointSourceIDPoints(cloud);
+    };
+  }
+
   private Consumer<LasPointCloud> newPointsAction(final int pointCount) {
     return cloud -> {
       if (pointCount > 0) {
@@ -521,6 +541,91 @@ public class LasTest {
     };
   }
 
+  private List<LasPoint> readPoints(final Path file, final int threadCount,
+    final BoundingBox boundingBox, final boolean writeChunkIndex) {
+    final List<LasPoint> points = new ArrayList<>();
+    try (
+      LasPointCloud cloud = PointCloud.newPointCloud(file)) {
+      cloud.setLasZipThreadCount(threadCount);
+      cloud.setLasZipWriteChunkIndex(writeChunkIndex);
+      if (boundingBox == null) {
+        cloud.forEachPoint(points::add);
+      } else {
+        cloud.forEachPoint(boundingBox, points::add);
+      }
+    }
+    return points;
+  }
+
+  @Test
+  public void testColumnarReadWrite() {
+    for (final LasPointFormat recordFormat : LAZ_TEST_FORMATS) {
+      final Consumer<LasPointCloud> cloudAction = newFieldsAction(recordFormat);
+      for (final String fileExtension : FILE_EXTENSIONS) {
+        final Map<String, MapEx> writeVariations = getWriteVariations(recordFormat,
+          fileExtension);
+        try (
+          LasPointCloud cloud = new LasPointCloud(recordFormat, GEOMETRY_FACTORY_0)) {
+          cloudAction.accept(cloud);
+          final List<LasPoint> points = cloud.getPoints();
+          for (final Entry<String, MapEx> entry : writeVariations.entrySet()) {
+            final String suffix = entry.getKey();
+            final MapEx writeProperties = entry.getValue();
+            final String label = "columnarReadWrite_" + recordFormat.name() + "_" + suffix;
+            final Path dir = DIR.resolve(fileExtension + "/columnar");
+            final Path file = dir.resolve(label + "." + fileExtension);
+            final Path columnarFile = dir.resolve(label + "_columnar." + fileExtension);
+            com.revolsys.io.file.Paths.createParentDirectories(file);
+            cloud.writePointCloud(file, writeProperties);
+
+            // Read the file into columns and write it again
+            try (
+              LasPointCloud columnarCloud = PointCloud.newPointCloud(file)) {
+              columnarCloud.setColumnar(true);
+              assertPointsEqual(label + "_cursor", points, columnarCloud);
+              assertPointsEqual(label + "_points", points, columnarCloud.getPoints());
+              columnarCloud.writePointCloud(columnarFile, writeProperties);
+            }
+            assertRead(label + "_columnar", columnarFile, points);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testColumnarWaveform() {
+    try (
+      LasPointCloud cloud = new LasPointCloud(LasPointFormat.GpsTimeWavePackets,
+        GEOMETRY_FACTORY_0)) {
+      cloud.setColumnar(true);
+      Assert.fail("Waveform point formats can't be columnar");
+    } catch (final IllegalArgumentException e) {
+    }
+  }
+
+  @Test
+  public void testColumnarWrite() {
+    for (final LasPointFormat recordFormat : LAZ_TEST_FORMATS) {
+      final Consumer<LasPointCloud> fieldsAction = newFieldsAction(recordFormat);
+      final Consumer<LasPointCloud> cloudAction = cloud -> {
+        cloud.setColumnar(true);
+        // The fields are set on the cursors returned from addPoint
+        fieldsAction.accept(cloud);
+        if (recordFormat.getId() >= 6) {
+          addRandomPoint(cloud) //
+            .setScanAngle((short)-15000) //
+            .setScannerChannel((byte)3);
+        }
+        Assert.assertTrue("columnar", cloud.isColumnar());
+      };
+      for (final String fileExtension : FILE_EXTENSIONS) {
+        asssertWriteRead("columnar", recordFormat, GEOMETRY_FACTORY_0, cloudAction,
+          fileExtension);
+      }
+    }
+  }
+
   @Test
   public void testManyLas() {
     for (final LasPointFormat recordFormat : LasPointFormat.values()) {
@@ -548,6 +653,51 @@ public class LasTest {
     }
   }
 
+  @Test
+  public void testParallelLaz() throws IOException {
+    // Multiple chunks of the default 50000 point chunk size
+    final Consumer<LasPointCloud> cloudAction = newPointsAction(120001);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY_OFFSET.newBoundingBox(OFFSET_X - 100,
+      OFFSET_Y - 100, OFFSET_X + 200, OFFSET_Y + 200);
+    for (final LasPointFormat recordFormat : LAZ_TEST_FORMATS) {
+      final Map<String, MapEx> writeVariations = getWriteVariations(recordFormat, "laz");
+      try (
+        LasPointCloud cloud = new LasPointCloud(recordFormat, GEOMETRY_FACTORY_OFFSET)) {
+        cloudAction.accept(cloud);
+        for (final Entry<String, MapEx> entry : writeVariations.entrySet()) {
+          final String suffix = entry.getKey();
+          final MapEx writeProperties = entry.getValue();
+          final String label = "parallel_" + recordFormat.name() + "_" + suffix;
+          final Path file = DIR.resolve("laz/parallel/" + label + ".laz");
+          com.revolsys.io.file.Paths.createParentDirectories(file);
+          cloud.writePointCloud(file, writeProperties);
+
+          final List<LasPoint> points = readPoints(file, 1, null, false);
+          Assert.assertEquals(label, cloud.getPointCount(), points.size());
+
+          // The chunk index sidecar file is only written if requested
+          final Path indexFile = file.resolveSibling(file.getFileName() + ".lazidx");
+          Files.deleteIfExists(indexFile);
+          final List<LasPoint> boundingBoxPoints = readPoints(file, 1, boundingBox, false);
+          Assert.assertFalse(label, boundingBoxPoints.isEmpty());
+          Assert.assertTrue(label, boundingBoxPoints.size() < points.size());
+          Assert.assertFalse(label + " index written", Files.exists(indexFile));
+          for (final int threadCount : Arrays.asList(2, 4)) {
+            final String threadLabel = label + "_" + threadCount;
+            assertPointsEqual(threadLabel, points, readPoints(file, threadCount, null, false));
+            assertPointsEqual(threadLabel + "_boundingBox", boundingBoxPoints,
+              readPoints(file, threadCount, boundingBox, false));
+          }
+          assertPointsEqual(label + "_writeIndex", boundingBoxPoints,
+            readPoints(file, 2, boundingBox, true));
+          Assert.assertTrue(label + " index written", Files.exists(indexFile));
+          assertPointsEqual(label + "_readIndex", boundingBoxPoints,
+            readPoints(file, 1, boundingBox, false));
+        }
+      }
+    }
+  }
+
   @Test
   public void testWriter() {
     final BiFunction<LasPointCloudWriter, Integer, List<LasPoint>> writerAction = (writer,